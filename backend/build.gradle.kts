@@ -2,6 +2,8 @@ plugins {
     java
     id("org.springframework.boot") version "3.4.5"
     id("io.spring.dependency-management") version "1.1.7"
+    // benchmarks: ./gradlew jmh
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "kal.com"
@@ -47,6 +49,8 @@ dependencies {
 
     //websockets
     implementation("org.springframework.boot:spring-boot-starter-websocket")
+    // protocolo binario del canal de encuentros
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
 
 
     // JWT
@@ -58,8 +62,18 @@ dependencies {
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("org.springframework.security:spring-security-test")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    // repositorios simulados en los benchmarks del motor de combate
+    jmh("org.mockito:mockito-core")
 
     //logging
     implementation(  "org.slf4j:slf4j-api:2.0.9" )
 
-}
\ No newline at end of file
+}
+
+jmh {
+    warmupIterations = 2
+    iterations = 5
+    fork = 1
+    // bytes asignados por operación (gc.alloc.rate.norm)
+    profilers = listOf("gc")
+}
@@ -0,0 +1,139 @@
+package kal.com.rolegames.services.combat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kal.com.rolegames.mappers.combat.CombatStateMapper;
+import kal.com.rolegames.mappers.combat.InitiativeMapper;
+import kal.com.rolegames.mappers.effects.EffectMapper;
+import kal.com.rolegames.models.characters.NonPlayerCharacter;
+import kal.com.rolegames.models.combat.CombatState;
+import kal.com.rolegames.models.combat.Initiative;
+import kal.com.rolegames.repositories.characters.GameCharacterRepository;
+import kal.com.rolegames.repositories.combat.CombatStateRepository;
+import kal.com.rolegames.repositories.combat.InitiativeRepository;
+import kal.com.rolegames.repositories.effects.EffectRepository;
+import kal.com.rolegames.repositories.sessions.EncounterRepository;
+import kal.com.rolegames.repositories.spells.SpellRepository;
+import kal.com.rolegames.services.combat.dice.SplittableDiceRandomSource;
+import kal.com.rolegames.websockets.EncounterWebSocketService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Turnos por segundo según la cantidad de mesas peleando a la vez: en cada invocación todas las
+ * mesas avanzan un turno en paralelo. El contador turns da los turnos/s de cada configuración; si
+ * los buzones no se estorban entre sí debería crecer con las mesas hasta saturar los núcleos.
+ * Sin BD: los repositorios son mocks, como en CombatServiceConcurrencyTest.
+ *
+ * Correr con: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CombatThroughputBenchmark {
+
+    private static final int PARTICIPANTS = 4;
+
+    @Param({"1", "50", "100", "200", "400"})
+    public int tables;
+
+    private CombatService combatService;
+    private ExecutorService players;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Turns {
+        public long turns;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<Long, CombatState> combats = createCombats(tables);
+        CombatStateRepository combatStateRepository = mock(CombatStateRepository.class, withSettings().stubOnly());
+        when(combatStateRepository.findActiveByEncounterId(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(combats.get(invocation.<Long>getArgument(0))));
+        when(combatStateRepository.save(any(CombatState.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        CombatEngine combatEngine = new CombatEngine(combatStateRepository,
+                mock(InitiativeRepository.class, withSettings().stubOnly()),
+                mock(PlatformTransactionManager.class, withSettings().stubOnly()),
+                new SimpleMeterRegistry(),
+                50, 0, 10_000);
+
+        combatService = new CombatService(combatStateRepository,
+                mock(EncounterRepository.class, withSettings().stubOnly()),
+                mock(GameCharacterRepository.class, withSettings().stubOnly()),
+                mock(EffectRepository.class, withSettings().stubOnly()),
+                mock(SpellRepository.class, withSettings().stubOnly()),
+                combatEngine,
+                new SplittableDiceRandomSource(42L),
+                mock(EncounterWebSocketService.class, withSettings().stubOnly()),
+                mock(InitiativeMapper.class, withSettings().stubOnly()),
+                mock(EffectMapper.class, withSettings().stubOnly()),
+                mock(CombatStateMapper.class, withSettings().stubOnly()));
+
+        // un jugador por mesa, como mucho 64 hilos
+        players = Executors.newFixedThreadPool(Math.min(tables, 64));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        players.shutdownNow();
+    }
+
+    @Benchmark
+    public void everyTableTakesATurn(Turns counter) throws Exception {
+        List<Future<?>> futures = new ArrayList<>(tables);
+        for (long encounterId = 1; encounterId <= tables; encounterId++) {
+            long id = encounterId;
+            futures.add(players.submit(() -> combatService.nextTurn(id)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        counter.turns += tables;
+    }
+
+    private static Map<Long, CombatState> createCombats(int encounters) {
+        Map<Long, CombatState> combats = new ConcurrentHashMap<>();
+        long characterId = 1;
+
+        for (long encounterId = 1; encounterId <= encounters; encounterId++) {
+            CombatState combat = CombatState.builder()
+                    .combatStateId(encounterId)
+                    .currentRound(1)
+                    .isActive(true)
+                    .initiativeOrder(new ArrayList<>())
+                    .build();
+
+            for (int i = 0; i < PARTICIPANTS; i++) {
+                NonPlayerCharacter character = NonPlayerCharacter.builder()
+                        .characterId(characterId++)
+                        .name("Goblin " + i)
+                        .build();
+                combat.getInitiativeOrder().add(Initiative.builder()
+                        .combatState(combat)
+                        .character(character)
+                        .initiativeRoll(20 - i)
+                        .currentTurn(i == 0)
+                        .hasActed(false)
+                        .bonusActionsUsed(0)
+                        .reactionsUsed(0)
+                        .movementUsed(0)
+                        .build());
+            }
+            combats.put(encounterId, combat);
+        }
+        return combats;
+    }
+}
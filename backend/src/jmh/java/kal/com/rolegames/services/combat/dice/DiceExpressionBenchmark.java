@@ -0,0 +1,67 @@
+package kal.com.rolegames.services.combat.dice;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * Compara la tirada compilada contra el rollDiceDetailed anterior, que partía el texto en cada tirada.
+ * Correr con: ./gradlew jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DiceExpressionBenchmark {
+
+    @Param({"1d8", "8d6", "2d20kh1"})
+    public String expression;
+
+    private DiceExpressionCompiler compiler;
+    private RandomGenerator random;
+
+    @Setup
+    public void setUp() {
+        compiler = new DiceExpressionCompiler(512);
+        random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public int legacySplit() {
+        return legacyRollDiceDetailed(expression, random).size();
+    }
+
+    @Benchmark
+    public int compiledTotal() {
+        return compiler.compile(expression).roll(random);
+    }
+
+    @Benchmark
+    public int compiledBreakdown() {
+        return compiler.compile(expression).rollDetailed(random).total();
+    }
+
+    // copia del ActionResultService.rollDiceDetailed anterior, como línea base
+    private static Map<String, Integer> legacyRollDiceDetailed(String diceExpression, RandomGenerator random) {
+        Map<String, Integer> results = new HashMap<>();
+        try {
+            if (diceExpression.contains("d")) {
+                String[] parts = diceExpression.split("d");
+                int numberOfDice = Integer.parseInt(parts[0]);
+                int sidesOfDie = Integer.parseInt(parts[1]);
+
+                for (int i = 1; i <= numberOfDice; i++) {
+                    results.put("d" + sidesOfDie + "_" + i, random.nextInt(sidesOfDie) + 1);
+                }
+            } else {
+                results.put("fixed_1", Integer.parseInt(diceExpression));
+            }
+        } catch (Exception e) {
+            results.put("error_1", 1);
+        }
+        return results;
+    }
+}
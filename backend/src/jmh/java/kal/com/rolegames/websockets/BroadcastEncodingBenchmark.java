@@ -0,0 +1,60 @@
+package kal.com.rolegames.websockets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.socket.TextMessage;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de armar un broadcast del encuentro para N destinatarios.
+ * perRecipientMessage es el camino anterior (un TextMessage por sesión); sharedFrame serializa
+ * una vez con WebSocketFrameEncoder y reparte el mismo frame.
+ *
+ * Correr con: ./gradlew jmh  (el perfil gc reporta gc.alloc.rate.norm: bytes por broadcast,
+ * que en sharedFrame no crece con recipients)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BroadcastEncodingBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int recipients;
+
+    private ObjectMapper objectMapper;
+    private WebSocketFrameEncoder encoder;
+    private EncounterWebSocketService.WebSocketMessage message;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        encoder = new WebSocketFrameEncoder(objectMapper);
+        message = EncounterWebSocketService.WebSocketMessage.builder()
+                .type("COMBAT_DELTA")
+                .encounterId(42L)
+                .timestamp(LocalDateTime.of(2025, 1, 1, 20, 0))
+                .data(Map.of("type", "HP_CHANGED", "sequence", 17, "characterId", 7, "hitPoints", 12))
+                .build();
+    }
+
+    @Benchmark
+    public void perRecipientMessage(Blackhole blackhole) throws Exception {
+        String json = objectMapper.writeValueAsString(message);
+        for (int i = 0; i < recipients; i++) {
+            blackhole.consume(new TextMessage(json));
+        }
+    }
+
+    @Benchmark
+    public void sharedFrame(Blackhole blackhole) {
+        TextMessage frame = encoder.encode(message);
+        for (int i = 0; i < recipients; i++) {
+            blackhole.consume(frame);
+        }
+    }
+}
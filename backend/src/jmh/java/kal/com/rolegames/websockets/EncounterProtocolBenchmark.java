@@ -0,0 +1,105 @@
+package kal.com.rolegames.websockets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import kal.com.rolegames.dto.combat.CombatDeltaDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON contra el protocolo binario (EncounterBinaryCodec) para los mensajes más frecuentes del
+ * canal de un encuentro: costo de codificar y decodificar, y bytes en el cable. Los benchmarks de
+ * codificación suman el tamaño de cada mensaje en los contadores jsonBytes y binaryBytes; dividido
+ * por las operaciones de la iteración da los bytes por mensaje. json y binary solo son la entrada
+ * de los benchmarks de decodificación.
+ *
+ * Correr con: ./gradlew jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EncounterProtocolBenchmark {
+
+    @Param({"HP_CHANGED", "DICE_ROLLED", "PLAYER_POSITION_UPDATE"})
+    public String messageType;
+
+    private ObjectMapper objectMapper;
+    private EncounterBinaryCodec codec;
+    private Object message;
+    private byte[] json;
+    private byte[] binary;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class JsonWire {
+        public long jsonBytes;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class BinaryWire {
+        public long binaryBytes;
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        codec = new EncounterBinaryCodec(objectMapper);
+        message = switch (messageType) {
+            case "HP_CHANGED" -> EncounterWebSocketService.WebSocketMessage.builder()
+                    .type("COMBAT_DELTA")
+                    .encounterId(1_024L)
+                    .sequence(48_213L)
+                    .timestamp(LocalDateTime.of(2025, 3, 1, 21, 30, 12))
+                    .data(CombatDeltaDTO.builder()
+                            .sequence(3_107L)
+                            .encounterId(1_024L)
+                            .type(CombatDeltaDTO.Type.HP_CHANGED)
+                            .characterId(88_412L)
+                            .hitPoints(37)
+                            .build())
+                    .build();
+            case "DICE_ROLLED" -> Map.of(
+                    "type", "DICE_ROLLED",
+                    "data", Map.of("expression", "2d6+3", "rolls", new int[]{4, 6}, "total", 13),
+                    "sessionId", "f3a9c2d1-7b6e-4d2a-9c11-2b7e5d0a4c88",
+                    "timestamp", 1_740_864_612_000L,
+                    "sequence", 48_214L);
+            default -> Map.of(
+                    "type", "PLAYER_POSITION_UPDATE",
+                    "data", Map.of("playerId", 88_412L, "position", Map.of("x", 14, "y", 27)),
+                    "timestamp", 1_740_864_612_000L,
+                    "sequence", 48_215L);
+        };
+        json = objectMapper.writeValueAsBytes(message);
+        binary = codec.encode(message);
+    }
+
+    @Benchmark
+    public byte[] encodeJson(JsonWire wire) throws Exception {
+        byte[] encoded = objectMapper.writeValueAsBytes(message);
+        wire.jsonBytes += encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public byte[] encodeBinary(BinaryWire wire) throws Exception {
+        byte[] encoded = codec.encode(message);
+        wire.binaryBytes += encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public Object decodeJson() throws Exception {
+        return objectMapper.readValue(json, Map.class);
+    }
+
+    @Benchmark
+    public Object decodeBinary() throws Exception {
+        return codec.decode(ByteBuffer.wrap(binary));
+    }
+}
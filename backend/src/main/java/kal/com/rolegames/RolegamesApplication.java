@@ -2,8 +2,10 @@ package kal.com.rolegames;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class RolegamesApplication {
 
 	public static void main(String[] args) {
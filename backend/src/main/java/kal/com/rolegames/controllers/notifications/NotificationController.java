@@ -1,6 +1,8 @@
 package kal.com.rolegames.controllers;
 
+import kal.com.rolegames.dto.notifications.BulkNotificationProgressDTO;
 import kal.com.rolegames.dto.notifications.NotificationDTO;
+import kal.com.rolegames.dto.notifications.NotificationPageDTO;
 import kal.com.rolegames.models.sessions.Campaign;
 import kal.com.rolegames.models.users.User;
 import kal.com.rolegames.repositories.sessions.CampaignRepository;
@@ -51,6 +53,28 @@ public class NotificationController {
         return ResponseEntity.ok(notificationService.getUnreadNotifications(user.getUserId()));
     }
 
+    /**
+     * Bandeja paginada por cursor: nextCursor de una respuesta pide la página siguiente
+     */
+    @GetMapping("/inbox")
+    public ResponseEntity<NotificationPageDTO> getInbox(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean unreadOnly,
+            @AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(notificationService.getInbox(user.getUserId(), cursor, size, unreadOnly));
+    }
+
+    /**
+     * Obtiene una notificación completa (con actionData)
+     */
+    @GetMapping("/{notificationId:\\d+}")
+    public ResponseEntity<NotificationDTO> getNotification(
+            @PathVariable Long notificationId,
+            @AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(notificationService.getNotification(notificationId, user.getUserId()));
+    }
+
     /**
      * Obtiene el conteo de notificaciones no leídas
      */
@@ -144,6 +168,52 @@ public class NotificationController {
             return ResponseEntity.internalServerError().build();
         }
     }
+    /**
+     * Anuncio a todos los jugadores de una campaña. Corre en segundo plano: devuelve la tarea
+     * para consultar su avance en /bulk/{jobId}
+     */
+    @PostMapping("/campaigns/{campaignId}/announcement")
+    public ResponseEntity<BulkNotificationProgressDTO> announceToCampaign(
+            @PathVariable Long campaignId,
+            @RequestBody CampaignAnnouncementRequest request,
+            @AuthenticationPrincipal User sender) {
+
+        try {
+            Campaign campaign = campaignRepository.findById(campaignId)
+                    .orElseThrow(() -> new NoSuchElementException("Campaña no encontrada"));
+
+            if (!campaign.getDungeonMaster().getUser().getUserId().equals(sender.getUserId())) {
+                throw new IllegalArgumentException("Solo el DM puede hacer anuncios en esta campaña");
+            }
+            if (request.getTitle() == null || request.getTitle().isBlank()) {
+                throw new IllegalArgumentException("El anuncio necesita un título");
+            }
+
+            BulkNotificationProgressDTO progress = notificationService.announceToCampaign(
+                    sender, campaign, request.getTitle(), request.getMessage(), request.getActionUrl());
+            return ResponseEntity.accepted().body(progress);
+
+        } catch (NoSuchElementException e) {
+            logger.error("Resource not found: {}", e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Avance de un envío masivo
+     */
+    @GetMapping("/bulk/{jobId}")
+    public ResponseEntity<BulkNotificationProgressDTO> getBulkProgress(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.ok(notificationService.getBulkProgress(jobId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     /**
      * Envía un recordatorio de sesión
      */
@@ -174,6 +244,15 @@ public class NotificationController {
         private String personalMessage;
     }
 
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CampaignAnnouncementRequest {
+        private String title;
+        private String message;
+        private String actionUrl;
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -1,13 +1,27 @@
 package kal.com.rolegames.controllers.sessions;
 
+import kal.com.rolegames.dto.combat.ApplyEffectRequest;
 import kal.com.rolegames.dto.combat.CombatActionDTO;
+import kal.com.rolegames.dto.combat.CombatStateDTO;
+import kal.com.rolegames.dto.combat.DamagePreviewDTO;
+import kal.com.rolegames.dto.combat.DamagePreviewRequest;
+import kal.com.rolegames.dto.combat.EncounterSimulationDTO;
 import kal.com.rolegames.dto.combat.PerformActionRequest;
+import kal.com.rolegames.dto.combat.TerrainCellDTO;
+import kal.com.rolegames.dto.combat.TokenPositionDTO;
+import kal.com.rolegames.dto.effects.EffectDTO;
 import kal.com.rolegames.dto.items.RewardDTO;
 import kal.com.rolegames.dto.sessions.EncounterDTO;
 import kal.com.rolegames.models.users.User;
 import kal.com.rolegames.services.combat.CombatActionService;
+import kal.com.rolegames.services.combat.CombatService;
+import kal.com.rolegames.services.combat.DamagePreviewService;
+import kal.com.rolegames.services.combat.map.BattleMapService;
+import kal.com.rolegames.services.combat.map.GridPosition;
+import kal.com.rolegames.services.combat.simulation.EncounterSimulator;
 import kal.com.rolegames.services.sessions.EncounterService;
-import kal.com.rolegames.websockets.EncounterWebSocketHandler;
+import kal.com.rolegames.websockets.bus.BroadcastBus;
+import kal.com.rolegames.websockets.bus.BroadcastTopic;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -29,8 +43,12 @@ public class EncounterController {
 
     private final EncounterService encounterService;
     private final CombatActionService combatActionService;
+    private final CombatService combatService;
+    private final DamagePreviewService damagePreviewService;
+    private final EncounterSimulator encounterSimulator;
+    private final BattleMapService battleMapService;
 
-    private final EncounterWebSocketHandler webSocketHandler; // NUEVO
+    private final BroadcastBus broadcastBus;
 
     private static final Logger logger = LoggerFactory.getLogger(EncounterController.class);
 
@@ -94,7 +112,7 @@ public class EncounterController {
                     "encounter", result,
                     "timestamp", System.currentTimeMillis()
             );
-            webSocketHandler.broadcastToEncounter(id, encounterCompletedMessage);
+            broadcastBus.publish(BroadcastTopic.encounter(id), encounterCompletedMessage);
         } catch (Exception e) {
             logger.warn("Error notificando encuentro completado via WebSocket: {}", e.getMessage());
         }
@@ -107,6 +125,11 @@ public class EncounterController {
     // GESTIÓN DE COMBATE
     // ========================================
 
+    @GetMapping("/{id}/combat")
+    public ResponseEntity<CombatStateDTO> getCurrentCombat(@PathVariable Long id) {
+        return ResponseEntity.ok(combatService.getCurrentCombat(id));
+    }
+
     @PostMapping("/{id}/start-combat")
     public ResponseEntity<EncounterDTO> startCombat(
             @PathVariable Long id,
@@ -123,7 +146,7 @@ public class EncounterController {
                     "encounter", result,
                     "timestamp", System.currentTimeMillis()
             );
-            webSocketHandler.broadcastToEncounter(id, combatStartedMessage);
+            broadcastBus.publish(BroadcastTopic.encounter(id), combatStartedMessage);
         } catch (Exception e) {
             logger.warn("Error notificando inicio de combate via WebSocket: {}", e.getMessage());
         }
@@ -146,7 +169,7 @@ public class EncounterController {
                     "encounter", result,
                     "timestamp", System.currentTimeMillis()
             );
-            webSocketHandler.broadcastToEncounter(id, combatEndedMessage);
+            broadcastBus.publish(BroadcastTopic.encounter(id), combatEndedMessage);
         } catch (Exception e) {
             logger.warn("Error notificando fin de combate via WebSocket: {}", e.getMessage());
         }
@@ -168,7 +191,7 @@ public class EncounterController {
                     "encounter", result,
                     "timestamp", System.currentTimeMillis()
             );
-            webSocketHandler.broadcastToEncounter(id, turnChangedMessage);
+            broadcastBus.publish(BroadcastTopic.encounter(id), turnChangedMessage);
         } catch (Exception e) {
             logger.warn("Error notificando cambio de turno via WebSocket: {}", e.getMessage());
         }
@@ -188,7 +211,7 @@ public class EncounterController {
         logger.info("[ENCOUNTER CONTROLLER] Performing action {} for encounter: {} by character: {}",
                 request.getActionType(), id, request.getCharacterId());
 
-        CombatActionDTO result = combatActionService.performAction(request);
+        CombatActionDTO result = combatActionService.performAction(id, request);
 
         logger.info("[ENCOUNTER CONTROLLER] Action completed: {} with result: {}",
                 request.getActionType(), result.getResult().getSuccess());
@@ -196,6 +219,67 @@ public class EncounterController {
         return ResponseEntity.ok(result);
     }
 
+    // conjuros con duración, condiciones y demás efectos que el DM activa durante el combate
+    @PostMapping("/{id}/combat/effects")
+    public ResponseEntity<EffectDTO> applyEffect(
+            @PathVariable Long id,
+            @RequestBody ApplyEffectRequest request) {
+        logger.info("[ENCOUNTER CONTROLLER] Applying effect {} in encounter: {}", request.getName(), id);
+        return ResponseEntity.ok(combatService.applyEffect(id, request));
+    }
+
+    @PostMapping("/{id}/perform-action/preview")
+    public ResponseEntity<DamagePreviewDTO> previewDamage(
+            @PathVariable Long id,
+            @RequestBody DamagePreviewRequest request) {
+        logger.info("[ENCOUNTER CONTROLLER] Damage preview for encounter: {} by character: {}",
+                id, request.getCharacterId());
+        return ResponseEntity.ok(damagePreviewService.preview(id, request));
+    }
+
+    @GetMapping("/{id}/simulate")
+    public ResponseEntity<EncounterSimulationDTO> simulateEncounter(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10000") int fights,
+            @RequestParam(required = false) Long seed) {
+        logger.info("[ENCOUNTER CONTROLLER] Simulating {} fights for encounter: {}", fights, id);
+        return ResponseEntity.ok(encounterSimulator.simulate(id, fights, seed));
+    }
+
+    // ========================================
+    // MAPA DE BATALLA
+    // ========================================
+
+    @GetMapping("/{id}/map")
+    public ResponseEntity<List<TokenPositionDTO>> getTokenPositions(@PathVariable Long id) {
+        return ResponseEntity.ok(battleMapService.positions(id));
+    }
+
+    @GetMapping("/{id}/map/terrain")
+    public ResponseEntity<List<TerrainCellDTO>> getTerrain(@PathVariable Long id) {
+        return ResponseEntity.ok(battleMapService.terrain(id));
+    }
+
+    // casillas de terreno difícil o bloqueadas; NORMAL borra la marca
+    @PutMapping("/{id}/map/terrain")
+    public ResponseEntity<List<TerrainCellDTO>> updateTerrain(
+            @PathVariable Long id,
+            @RequestBody List<TerrainCellDTO> cells) {
+        logger.info("[ENCOUNTER CONTROLLER] Updating {} terrain cells for encounter: {}", cells.size(), id);
+        battleMapService.setTerrain(id, cells);
+        return ResponseEntity.ok(battleMapService.terrain(id));
+    }
+
+    // personajes dentro del área de un conjuro centrado en la casilla (x, y)
+    @GetMapping("/{id}/map/area")
+    public ResponseEntity<List<Long>> getCharactersInArea(
+            @PathVariable Long id,
+            @RequestParam int x,
+            @RequestParam int y,
+            @RequestParam int radiusFeet) {
+        return ResponseEntity.ok(battleMapService.charactersWithin(id, new GridPosition(x, y), radiusFeet));
+    }
+
     // ========================================
     // GESTIÓN DE PARTICIPANTES
     // ========================================
@@ -207,7 +291,7 @@ public class EncounterController {
             @RequestParam(required = false) Integer initiativeRoll) {
         logger.info("[ENCOUNTER CONTROLLER] Adding participant {} to encounter: {}", characterId, id);
 
-        EncounterDTO result = encounterService.addParticipant(id, characterId);
+        EncounterDTO result = encounterService.addParticipant(id, characterId, initiativeRoll);
 
         // Notificar nuevo participante via WebSocket
         try {
@@ -218,7 +302,7 @@ public class EncounterController {
                     "encounter", result,
                     "timestamp", System.currentTimeMillis()
             );
-            webSocketHandler.broadcastToEncounter(id, participantAddedMessage);
+            broadcastBus.publish(BroadcastTopic.encounter(id), participantAddedMessage);
         } catch (Exception e) {
             logger.warn("Error notificando nuevo participante via WebSocket: {}", e.getMessage());
         }
@@ -243,7 +327,7 @@ public class EncounterController {
                     "encounter", result,
                     "timestamp", System.currentTimeMillis()
             );
-            webSocketHandler.broadcastToEncounter(id, participantRemovedMessage);
+            broadcastBus.publish(BroadcastTopic.encounter(id), participantRemovedMessage);
         } catch (Exception e) {
             logger.warn("Error notificando participante removido via WebSocket: {}", e.getMessage());
         }
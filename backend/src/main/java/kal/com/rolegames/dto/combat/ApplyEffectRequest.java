@@ -0,0 +1,19 @@
+package kal.com.rolegames.dto.combat;
+
+import kal.com.rolegames.models.util.EffectType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApplyEffectRequest {
+    private String name;
+    private EffectType effectType;
+    private String description;
+    private Long sourceId;
+    private Long targetId;
+    private Long spellId;
+    private Integer duration; // en rondas, -1 hasta que se disipe
+}
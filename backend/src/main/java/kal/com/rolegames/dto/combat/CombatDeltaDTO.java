@@ -0,0 +1,50 @@
+package kal.com.rolegames.dto.combat;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import kal.com.rolegames.dto.effects.EffectDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Un cambio del combate que se publica por el canal del encuentro en lugar del CombatStateDTO completo.
+ *
+ * sequence es consecutiva por combate (ver CombatState.deltaSequence): si al cliente le falta
+ * un número pide el estado completo, que trae la secuencia desde la que vuelve a aplicar cambios.
+ * Solo viajan los campos del tipo de cambio, los demás quedan fuera del JSON.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CombatDeltaDTO {
+
+    public enum Type {
+        TURN_CHANGED,        // currentRound, currentTurnIndex, initiative (la del nuevo turno)
+        INITIATIVE_UPDATED,  // index, initiative (acciones gastadas)
+        INITIATIVE_INSERTED, // index, initiative, currentTurnIndex
+        INITIATIVE_REMOVED,  // index, characterId, currentRound, currentTurnIndex
+        HP_CHANGED,          // characterId, hitPoints
+        EFFECT_ADDED,        // effect
+        EFFECT_EXPIRED       // currentRound, effectIds
+    }
+
+    private Long sequence;
+    private Long encounterId;
+    private Type type;
+
+    private Integer currentRound;
+    private Integer currentTurnIndex;
+    private Integer index;
+    private InitiativeDTO initiative;
+
+    private Long characterId;
+    private Integer hitPoints;
+
+    private EffectDTO effect;
+    private List<Long> effectIds;
+}
@@ -17,9 +17,11 @@ public class CombatStateDTO {
     private Long encounterId;
     private String encounterName;
     private Integer currentRound;
+    private Integer currentTurnIndex; // posición en initiativeOrder del participante en turno
     private List<InitiativeDTO> initiativeOrder = new ArrayList<>();
     private Set<EffectDTO> activeEffects = new HashSet<>();
     private Boolean isActive;
     private LocalDateTime startTime;
     private LocalDateTime endTime;
+    private Long deltaSequence; // último CombatDeltaDTO aplicado a este estado
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package kal.com.rolegames.dto.combat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DamagePreviewDTO {
+    private String damageRoll; // Ejemplo: "1d8+3"
+    private Integer armorClass; // null si no se indicó objetivo ni CA
+    private Integer attackBonus;
+    private Boolean savingThrow; // hechizos con tirada de salvación: no se tira ataque
+
+    private Double hitChance; // supone que el 1 natural falla y el 20 natural impacta
+
+    // daño si impacta
+    private Integer minDamage;
+    private Integer maxDamage;
+    private Double averageDamageOnHit;
+    private Double standardDeviationOnHit;
+
+    // daño esperado teniendo en cuenta los fallos
+    private Double expectedDamage;
+    private Double knockOutChance; // probabilidad de dejar al objetivo en 0 PV, si hay objetivo
+
+    private Map<Integer, Double> distribution; // daño -> probabilidad, incluyendo fallo (0)
+}
@@ -0,0 +1,18 @@
+package kal.com.rolegames.dto.combat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DamagePreviewRequest {
+    private Long characterId;
+    private Long itemId;  // arma
+    private Long spellId;
+    private Long targetId; // opcional: de aquí salen la CA y los puntos de vida
+    private Integer targetArmorClass; // opcional: CA a mano si no hay objetivo
+    private Boolean advantage;
+    private Boolean disadvantage;
+}
@@ -0,0 +1,20 @@
+package kal.com.rolegames.dto.combat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiceRollDTO {
+    private String expression;
+    private String label; // p. ej. "Percepción"; lo pone el cliente
+    private Integer total;
+    private Map<String, Integer> dice; // mismas claves que ActionResult.diceResults
+    private Long userId;
+}
@@ -0,0 +1,28 @@
+package kal.com.rolegames.dto.combat;
+
+import kal.com.rolegames.models.util.DifficultyLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EncounterSimulationDTO {
+    private Long encounterId;
+    private Integer fights;
+    private Long seed; // con la misma semilla se obtiene exactamente el mismo resultado
+
+    private Double partyWinProbability;
+    private Double expectedRounds;
+    private Double expectedPartyHitPointsLost;
+    private Double expectedPartyHitPointsLostRatio; // sobre los PV con los que empieza el grupo
+    private Double expectedPartyDeaths;
+
+    private DifficultyLevel currentDifficulty; // la que puso el DM
+    private DifficultyLevel suggestedDifficulty;
+
+    private Long elapsedMillis;
+}
@@ -0,0 +1,17 @@
+package kal.com.rolegames.dto.combat;
+
+import kal.com.rolegames.models.util.TerrainType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TerrainCellDTO {
+    private Integer x;
+    private Integer y;
+    private TerrainType terrain; // NORMAL borra lo que hubiera
+}
@@ -0,0 +1,16 @@
+package kal.com.rolegames.dto.combat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenPositionDTO {
+    private Long characterId;
+    private Integer x; // casillas de 5 pies
+    private Integer y;
+}
@@ -20,6 +20,7 @@ public class EffectDTO {
     private Long spellId;
     private String spellName;
     private Integer duration;
+    private Integer expiresAtRound;
     private Boolean isActive;
     private LocalDateTime startTime;
     private LocalDateTime endTime;
@@ -0,0 +1,24 @@
+package kal.com.rolegames.dto.notifications;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkNotificationProgressDTO {
+
+    private String jobId;
+    private Long campaignId;
+    private String status; // "RUNNING", "COMPLETED", "FAILED"
+    private long totalRecipients;
+    private long sentRecipients;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
@@ -0,0 +1,19 @@
+package kal.com.rolegames.dto.notifications;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationPageDTO {
+
+    private List<NotificationSummaryDTO> items;
+    private String nextCursor; // null cuando no hay más
+    private boolean hasMore;
+}
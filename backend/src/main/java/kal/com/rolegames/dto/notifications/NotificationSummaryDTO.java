@@ -0,0 +1,32 @@
+package kal.com.rolegames.dto.notifications;
+
+import kal.com.rolegames.models.util.NotificationType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// lo que muestra la bandeja; actionData y el destinatario vienen en NotificationDTO al abrirla
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationSummaryDTO {
+
+    private Long notificationId;
+    private String senderUsername;
+    private NotificationType type;
+    private String title;
+    private String message;
+    private Boolean isRead;
+    private String actionUrl;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+    private Boolean isExpired;
+
+    private String timeAgo;
+    private String priority;
+    private String icon;
+}
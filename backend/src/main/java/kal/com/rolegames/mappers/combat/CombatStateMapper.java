@@ -22,12 +22,6 @@ public interface CombatStateMapper {
     @Mapping(target = "encounter", ignore = true)
     void updateFromDto(CombatStateDTO source, @MappingTarget CombatState target);
 
-    @AfterMapping
-    default void additionalProcessing(CombatState source, @MappingTarget CombatStateDTO target) {
-        //ordenamos la lista
-        if (target.getInitiativeOrder() != null) {
-            target.getInitiativeOrder().sort((a, b) -> b.getInitiativeRoll().compareTo(a.getInitiativeRoll()));
-        }
-    }
+    // initiativeOrder ya viene en orden de turnos (CombatState.restoreTurnOrder), no se vuelve a ordenar
 
 }
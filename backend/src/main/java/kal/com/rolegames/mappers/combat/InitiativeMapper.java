@@ -14,6 +14,12 @@ import java.util.List;
 @Mapper(componentModel = "spring", nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
 public interface InitiativeMapper {
 
+    @Mapping(target = "characterId", source = "character.characterId")
+    @Mapping(target = "characterName", source = "character.name")
+    @Mapping(target = "hitPoints", source = "character.hitPoints")
+    @Mapping(target = "maxHitPoints", source = "character.maxHitPoints")
+    @Mapping(target = "armorClass", source = "character.armorClass")
+    @Mapping(target = "maxMovement", source = "character.speed")
     InitiativeDTO toDTO(Initiative spell);
 
     Initiative toEntity(InitiativeDTO dto);
@@ -1,8 +1,10 @@
 package kal.com.rolegames.mappers.notifications;
 
 import kal.com.rolegames.dto.notifications.NotificationDTO;
+import kal.com.rolegames.dto.notifications.NotificationSummaryDTO;
 import kal.com.rolegames.models.notifications.Notification;
 import kal.com.rolegames.models.util.NotificationType;
+import kal.com.rolegames.repositories.notifications.NotificationRepository;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
@@ -28,11 +30,24 @@ public interface NotificationMapper {
 
     List<NotificationDTO> toNotificationListDto(List<Notification> notifications);
 
+    @Mapping(target = "isExpired", source = "expiresAt", qualifiedByName = "isPast")
+    @Mapping(target = "timeAgo", source = "createdAt", qualifiedByName = "calculateTimeAgo")
+    @Mapping(target = "priority", source = "type", qualifiedByName = "calculatePriority")
+    @Mapping(target = "icon", source = "type", qualifiedByName = "getIconForType")
+    NotificationSummaryDTO toSummaryDTO(NotificationRepository.InboxItem item);
+
+    List<NotificationSummaryDTO> toSummaryListDto(List<NotificationRepository.InboxItem> items);
+
     @Named("calculateIsExpired")
     default Boolean calculateIsExpired(Notification notification) {
         return notification.isExpired();
     }
 
+    @Named("isPast")
+    default Boolean isPast(LocalDateTime expiresAt) {
+        return expiresAt != null && LocalDateTime.now().isAfter(expiresAt);
+    }
+
     @Named("calculateTimeAgo")
     default String calculateTimeAgo(LocalDateTime createdAt) {
         if (createdAt == null) return "";
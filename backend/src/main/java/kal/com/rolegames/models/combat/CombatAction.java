@@ -55,6 +55,10 @@ public class CombatAction {
     @Temporal(TemporalType.TIMESTAMP)
     private LocalDateTime timestamp;
 
+    // con la semilla del combate reproduce exactamente las tiradas de esta acción
+    @Column(name = "dice_sequence")
+    private Long diceSequence;
+
     @PrePersist
     protected void prePersist() {
         this.timestamp = LocalDateTime.now();
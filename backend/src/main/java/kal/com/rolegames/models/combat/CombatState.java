@@ -33,8 +33,31 @@ public class CombatState {
 
     @OneToMany(mappedBy = "combatState", cascade = CascadeType.ALL, orphanRemoval = true)
     @OrderBy("initiativeRoll DESC")
+    @Builder.Default
     private List<Initiative> initiativeOrder = new ArrayList<>();
 
+    // posición en initiativeOrder del participante en turno; null si no hay turno en curso
+    @Column(name = "current_turn_index")
+    private Integer currentTurnIndex;
+
+    // initiativeOrder ya se ordenó con Initiative.TURN_ORDER en esta instancia
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean turnOrderRestored;
+
+    // vencimientos de los efectos temporales; se arma al primer uso a partir de activeEffects
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private EffectTimerWheel effectWheel;
+
+    // efectos que vencieron y todavía no se avisan, ver drainExpiredEffects
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private List<Effect> expiredEffects;
+
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "combat_state_id")
     @Builder.Default
@@ -49,8 +72,23 @@ public class CombatState {
     @Temporal(TemporalType.TIMESTAMP)
     private LocalDateTime endTime;
 
+    // semilla de las tiradas del combate, se fija al crearlo (ver DiceRandomSource)
+    @Column(name = "dice_seed")
+    private Long diceSeed;
+
+    // secuencia de la última acción que tiró dados
+    @Column(name = "dice_roll_sequence")
+    @Builder.Default
+    private Long diceRollSequence = 0L;
+
+    // secuencia del último cambio publicado por el canal del encuentro (ver CombatDeltaDTO)
+    @Column(name = "delta_sequence")
+    @Builder.Default
+    private Long deltaSequence = 0L;
+
     @OneToMany(mappedBy = "combat", cascade = CascadeType.ALL, orphanRemoval = true)
     @OrderBy("timestamp ASC")
+    @Builder.Default
     private List<CombatAction> actionHistory = new ArrayList<>();
 
     @Version
@@ -59,84 +97,221 @@ public class CombatState {
 
     /*
     Relacionado con participantes
+
+    initiativeOrder se mantiene ordenada con Initiative.TURN_ORDER y currentTurnIndex apunta al
+    participante en turno, así que avanzar o consultar el turno es O(1) y solo se tocan las dos
+    iniciativas que cambian de estado.
      */
 
-    public void addParticipant(GameCharacter character, int initiativeRoll) {
-        initiativeOrder.add(Initiative.builder().combatState(this).character(character).initiativeRoll(initiativeRoll)
-                .currentTurn(false).hasActed(false).bonusActionsUsed(0).reactionsUsed(0).reactionsUsed(0)
-                .movementUsed(0).build());
-        initiativeOrder.sort((a, b)-> b.getInitiativeRoll() - a.getInitiativeRoll());
+    /**
+     * Deja la lista en el orden de turnos y recupera el índice del turno actual. La BD solo ordena
+     * por tirada, los empates se resuelven aquí; se hace una vez por instancia cargada.
+     * Los combates guardados antes de existir current_turn_index lo derivan de la bandera currentTurn.
+     */
+    public void restoreTurnOrder() {
+        if (turnOrderRestored) {
+            return;
+        }
+        initiativeOrder.sort(Initiative.TURN_ORDER);
+        if (currentTurnIndex != null && (currentTurnIndex < 0 || currentTurnIndex >= initiativeOrder.size())) {
+            currentTurnIndex = null;
+        }
+        if (currentTurnIndex == null) {
+            for (int i = 0; i < initiativeOrder.size(); i++) {
+                if (Boolean.TRUE.equals(initiativeOrder.get(i).getCurrentTurn())) {
+                    currentTurnIndex = i;
+                    break;
+                }
+            }
+        }
+        turnOrderRestored = true;
+    }
+
+    /**
+     * Da el primer turno al participante con la mejor iniciativa.
+     */
+    public void startFirstTurn() {
+        restoreTurnOrder();
+        if (!initiativeOrder.isEmpty()) {
+            beginTurn(0);
+        }
     }
 
-    public void removeParticipant(GameCharacter character) {
-        Initiative toRemove = initiativeOrder.stream()
-                .filter(initiative -> initiative.getCharacter().equals(character))
-                .findFirst()
-                .orElse(null);
+    /**
+     * @return la posición en la que quedó el participante
+     */
+    public int addParticipant(GameCharacter character, int initiativeRoll) {
+        restoreTurnOrder();
+        Initiative initiative = Initiative.builder().combatState(this).character(character).initiativeRoll(initiativeRoll)
+                .currentTurn(false).hasActed(false).bonusActionsUsed(0).reactionsUsed(0)
+                .movementUsed(0).build();
 
-        if (toRemove != null) {
-            boolean wasCurrentTurn = toRemove.getCurrentTurn();
+        int position = Collections.binarySearch(initiativeOrder, initiative, Initiative.TURN_ORDER);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        initiativeOrder.add(position, initiative);
 
-            initiativeOrder.remove(toRemove);
+        // si entra antes del participante en turno, el índice se recorre
+        if (currentTurnIndex != null && position <= currentTurnIndex) {
+            currentTurnIndex++;
+        }
+        return position;
+    }
 
-            if (wasCurrentTurn && !initiativeOrder.isEmpty()) {
-                int nextIndex = 0;
-                if (!initiativeOrder.isEmpty()) {
-                    Initiative next = initiativeOrder.get(nextIndex);
-                    next.setCurrentTurn(true);
-                }
+    /**
+     * @return la posición que tenía el participante, o -1 si no estaba en el combate
+     */
+    public int removeParticipant(GameCharacter character) {
+        restoreTurnOrder();
+        int index = -1;
+        for (int i = 0; i < initiativeOrder.size(); i++) {
+            if (initiativeOrder.get(i).getCharacter().equals(character)) {
+                index = i;
+                break;
             }
+        }
+        if (index < 0) {
+            return -1;
+        }
 
-            if (initiativeOrder.isEmpty()) {
-                endCombat();
+        boolean wasCurrentTurn = currentTurnIndex != null && index == currentTurnIndex;
+        initiativeOrder.remove(index);
+
+        if (initiativeOrder.isEmpty()) {
+            endCombat();
+            return index;
+        }
+
+        if (currentTurnIndex != null && index < currentTurnIndex) {
+            currentTurnIndex--;
+        } else if (wasCurrentTurn) {
+            // el turno pasa al siguiente; si era el último de la ronda, empieza otra
+            if (index == initiativeOrder.size()) {
+                startNextRound();
+                beginTurn(0);
+            } else {
+                beginTurn(index);
             }
         }
+        return index;
     }
 
-
     public void endCombat() {
         isActive = false;
         endTime = LocalDateTime.now();
-        for(Initiative ini : initiativeOrder){
-            ini.setCurrentTurn(false);
+        if (currentTurnIndex != null && currentTurnIndex < initiativeOrder.size()) {
+            initiativeOrder.get(currentTurnIndex).setCurrentTurn(false);
         }
+        currentTurnIndex = null;
     }
 
     public void nextTurn() {
-        // el indice actual
-        int index = -1;
-        for(int i=0; i < initiativeOrder.size();i++){
-            if(initiativeOrder.get(i).getCurrentTurn()){
-                index = i;
-                break;
-            }
+        restoreTurnOrder();
+        if (initiativeOrder.isEmpty()) {
+            throw new IllegalStateException("El combate no tiene participantes");
         }
-        if(index >=0){
+
+        int index = currentTurnIndex != null ? currentTurnIndex : -1;
+        if (index >= 0) {
             Initiative current = initiativeOrder.get(index);
             current.setCurrentTurn(false);
             current.setHasActed(true);
-
         }
 
         //al final es como un arreglo circular
         int nextIndex = (index + 1) % initiativeOrder.size();
         //cuando volvemos a empezar una nueva ronda
-        if(nextIndex == 0){
-            currentRound++;
-            for(Initiative initiative : initiativeOrder){
-                initiative.setHasActed(false);
-                initiative.setBonusActionsUsed(0);
-                initiative.setReactionsUsed(0);
-                initiative.setMovementUsed(0);
-            }
+        if (nextIndex == 0) {
+            startNextRound();
         }
+        beginTurn(nextIndex);
+    }
 
-        Initiative next = initiativeOrder.get(nextIndex);
+    public Initiative getCurrentTurnParticipant() {
+        restoreTurnOrder();
+        if (currentTurnIndex == null) {
+            throw new NoSuchElementException("No hay ningún turno en curso");
+        }
+        return initiativeOrder.get(currentTurnIndex);
+    }
+
+    // los contadores se reinician al empezar el turno de cada uno, no para todos al cambiar de ronda
+    private void beginTurn(int index) {
+        Initiative next = initiativeOrder.get(index);
+        next.setHasActed(false);
+        next.setBonusActionsUsed(0);
+        next.setReactionsUsed(0);
+        next.setMovementUsed(0);
         next.setCurrentTurn(true);
+        currentTurnIndex = index;
     }
 
-    public Initiative getCurrentTurnParticipant() {
-        return initiativeOrder.stream().filter(initiative -> initiative.getCurrentTurn()).findFirst().orElseThrow(NoSuchElementException::new); // Default return for compilation
+    /*
+    Relacionado con efectos
+     */
+
+    /**
+     * Activa el efecto en este combate. Si es temporal vence al empezar la ronda
+     * currentRound + duration.
+     */
+    public void applyEffect(Effect effect) {
+        // la rueda se arma antes de agregarlo, si no lo agendaría dos veces
+        EffectTimerWheel wheel = effectWheel();
+        effect.activate();
+        effect.setExpiresAtRound(effect.isPermanent() ? null : currentRound + effect.getDuration());
+        activeEffects.add(effect);
+        if (effect.getExpiresAtRound() != null) {
+            wheel.schedule(effect, currentRound);
+        }
+    }
+
+    /**
+     * Devuelve los efectos que vencieron desde la última llamada y los olvida.
+     */
+    public List<Effect> drainExpiredEffects() {
+        if (expiredEffects == null || expiredEffects.isEmpty()) {
+            return List.of();
+        }
+        List<Effect> drained = expiredEffects;
+        expiredEffects = null;
+        return drained;
+    }
+
+    private void startNextRound() {
+        EffectTimerWheel wheel = effectWheel();
+        currentRound++;
+        if (expiredEffects == null) {
+            expiredEffects = new ArrayList<>();
+        }
+        wheel.expire(currentRound, expiredEffects);
+    }
+
+    private EffectTimerWheel effectWheel() {
+        if (effectWheel == null) {
+            effectWheel = new EffectTimerWheel();
+            for (Effect effect : activeEffects) {
+                if (!Boolean.TRUE.equals(effect.getIsActive()) || effect.isPermanent()) {
+                    continue;
+                }
+                if (effect.getExpiresAtRound() == null) {
+                    // efectos guardados antes de existir expires_at_round: duran desde ahora
+                    effect.setExpiresAtRound(currentRound + effect.getDuration());
+                }
+                effectWheel.schedule(effect, currentRound);
+            }
+        }
+        return effectWheel;
+    }
+
+    public long nextDiceSequence() {
+        diceRollSequence = (diceRollSequence == null ? 0L : diceRollSequence) + 1;
+        return diceRollSequence;
+    }
+
+    public long nextDeltaSequence() {
+        deltaSequence = (deltaSequence == null ? 0L : deltaSequence) + 1;
+        return deltaSequence;
     }
 
     public void addAction(CombatAction action) {
@@ -0,0 +1,57 @@
+package kal.com.rolegames.models.combat;
+
+import kal.com.rolegames.models.effects.Effect;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Rueda de vencimientos de los efectos de un combate, indexada por ronda.
+ *
+ * Cada efecto temporal cae en la casilla de la ronda en la que vence (módulo SLOTS). Al empezar
+ * una ronda solo se revisa su casilla: salen los efectos que vencen y los que se quitaron antes,
+ * y se quedan los que vencen una vuelta más adelante. Con duraciones menores a SLOTS rondas,
+ * que son casi todas, el costo es proporcional a lo que vence.
+ */
+final class EffectTimerWheel {
+
+    // una vuelta de la rueda: 64 rondas, poco más de 6 minutos de juego; los efectos más
+    // largos (10 minutos son 100 rondas) esperan una vuelta más en su casilla
+    static final int SLOTS = 64;
+
+    private final List<List<Effect>> slots = new ArrayList<>(SLOTS);
+
+    EffectTimerWheel() {
+        for (int i = 0; i < SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Agenda el efecto en la ronda effect.expiresAtRound. Si esa ronda ya pasó
+     * vence al empezar la siguiente.
+     */
+    void schedule(Effect effect, int currentRound) {
+        int round = Math.max(effect.getExpiresAtRound(), currentRound + 1);
+        slots.get(Math.floorMod(round, SLOTS)).add(effect);
+    }
+
+    /**
+     * Desactiva los efectos que vencen al empezar la ronda y los agrega a expired.
+     */
+    void expire(int round, List<Effect> expired) {
+        Iterator<Effect> iterator = slots.get(Math.floorMod(round, SLOTS)).iterator();
+        while (iterator.hasNext()) {
+            Effect effect = iterator.next();
+            if (!Boolean.TRUE.equals(effect.getIsActive())) {
+                // se quitó antes de vencer
+                iterator.remove();
+            } else if (effect.getExpiresAtRound() <= round) {
+                effect.deactivate();
+                expired.add(effect);
+                iterator.remove();
+            }
+        }
+    }
+}
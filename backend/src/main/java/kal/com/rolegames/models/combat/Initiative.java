@@ -2,8 +2,11 @@ package kal.com.rolegames.models.combat;
 
 import jakarta.persistence.*;
 import kal.com.rolegames.models.characters.GameCharacter;
+import kal.com.rolegames.models.util.AbilityType;
 import lombok.*;
 
+import java.util.Comparator;
+
 @Entity
 @Table(name = "initiatives")
 //lombok annotations
@@ -53,6 +56,17 @@ public class Initiative {
     @Setter(AccessLevel.NONE)
     private Long version;
 
+    /**
+     * Orden de los turnos: tirada más alta primero; a igual tirada, mayor modificador de destreza;
+     * y si siguen empatados, el id del personaje para que el orden sea siempre el mismo.
+     */
+    public static final Comparator<Initiative> TURN_ORDER = Comparator
+            .comparing(Initiative::getInitiativeRoll, Comparator.reverseOrder())
+            .thenComparing((Initiative initiative) ->
+                    initiative.getCharacter().getAbilityModifier(AbilityType.DEXTERITY), Comparator.reverseOrder())
+            .thenComparing((Initiative initiative) -> initiative.getCharacter().getCharacterId(),
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+
     /**
      * Verifica si el personaje puede realizar una acción.
      * @return true si el personaje no ha actuado todavía
@@ -48,6 +48,10 @@ public class Effect {
     @Basic(optional = false)
     private Integer duration; // in rounds, -1 for until dispelled
 
+    // ronda del combate en la que vence; null si es permanente o no se aplicó en un combate
+    @Column(name = "expires_at_round")
+    private Integer expiresAtRound;
+
     @Basic(optional = false)
     private Boolean isActive;
 
@@ -13,7 +13,13 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+// las dos sirven a la bandeja paginada: la búsqueda sigue el orden del índice desde el cursor
+@Table(name = "notifications",
+        indexes = {
+                @Index(name = "idx_notifications_inbox", columnList = "recipient_id, created_at, notification_id"),
+                @Index(name = "idx_notifications_unread",
+                        columnList = "recipient_id, is_read, created_at, notification_id")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -42,6 +48,7 @@ public class Notification {
     @Column(length = 500)
     private String message;
 
+    @Builder.Default
     @Column(name = "is_read", nullable = false)
     private Boolean isRead = false;
 
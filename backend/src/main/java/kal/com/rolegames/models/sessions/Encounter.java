@@ -12,7 +12,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "encounters")
+@Table(name = "encounters",
+        indexes = @Index(name = "idx_encounters_combat_state", columnList = "combat_state_id"))
 //lombok annotations
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor
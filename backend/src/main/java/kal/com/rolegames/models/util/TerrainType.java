@@ -0,0 +1,7 @@
+package kal.com.rolegames.models.util;
+
+public enum TerrainType {
+    NORMAL,
+    DIFFICULT, // cuesta el doble de movimiento
+    BLOCKED
+}
@@ -2,9 +2,24 @@ package kal.com.rolegames.repositories.combat;
 
 import kal.com.rolegames.models.combat.CombatState;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
 public interface CombatStateRepository extends JpaRepository<CombatState, Long> {
-    Optional<CombatState> findByIsActiveTrue();
-}
\ No newline at end of file
+
+    /**
+     * Encuentra el combate activo de un encuentro específico.
+     * El encuentro es dueño de la FK (encounters.combat_state_id), así que la búsqueda
+     * entra por la PK del encuentro, sigue la FK hasta la PK de combat_states y revisa
+     * is_active en esa única fila: no necesita un índice propio sobre combat_states.
+     */
+    @Query("SELECT c FROM Encounter e JOIN e.combatState c " +
+            "WHERE e.encounterId = :encounterId AND c.isActive = true")
+    Optional<CombatState> findActiveByEncounterId(@Param("encounterId") Long encounterId);
+
+    @Query("SELECT COUNT(c) > 0 FROM Encounter e JOIN e.combatState c " +
+            "WHERE e.encounterId = :encounterId AND c.isActive = true")
+    boolean existsActiveByEncounterId(@Param("encounterId") Long encounterId);
+}
@@ -0,0 +1,7 @@
+package kal.com.rolegames.repositories.effects;
+
+import kal.com.rolegames.models.effects.Effect;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface EffectRepository extends JpaRepository<Effect, Long> {
+}
@@ -0,0 +1,80 @@
+package kal.com.rolegames.repositories.notifications;
+
+import kal.com.rolegames.models.notifications.Notification;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Inserciones de notificaciones por lotes JDBC. Con ids IDENTITY Hibernate inserta fila por fila
+ * para conocer cada id; aquí va un lote por llamada (con rewriteBatchedStatements el driver de
+ * MySQL lo manda como un INSERT de varias filas) y los ids se leen de las claves generadas.
+ *
+ * Usa la conexión de la transacción en curso, igual que los repositorios JPA.
+ */
+@Repository
+@AllArgsConstructor(onConstructor=@__({@Autowired}))
+public class NotificationBatchRepository {
+
+    private static final String INSERT_NOTIFICATION = "INSERT INTO notifications " +
+            "(recipient_id, sender_id, type, title, message, is_read, action_url, action_data, created_at, expires_at) " +
+            "VALUES (?, ?, ?, ?, ?, false, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserta las notificaciones (todas sin leer) y les asigna notificationId y createdAt.
+     */
+    public void insertAll(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_NOTIFICATION,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (Notification notification : notifications) {
+                    statement.setLong(1, notification.getRecipient().getUserId());
+                    setNullableLong(statement, 2, notification.getSender() != null
+                            ? notification.getSender().getUserId() : null);
+                    statement.setString(3, notification.getType().name());
+                    statement.setString(4, notification.getTitle());
+                    statement.setString(5, notification.getMessage());
+                    statement.setString(6, notification.getActionUrl());
+                    statement.setString(7, notification.getActionData());
+                    statement.setTimestamp(8, Timestamp.valueOf(now));
+                    statement.setTimestamp(9, notification.getExpiresAt() != null
+                            ? Timestamp.valueOf(notification.getExpiresAt()) : null);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (Notification notification : notifications) {
+                        if (!keys.next()) {
+                            throw new IllegalStateException("El driver no devolvió todos los ids generados");
+                        }
+                        notification.setNotificationId(keys.getLong(1));
+                        notification.setCreatedAt(now);
+                        notification.setIsRead(false);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private void setNullableLong(PreparedStatement statement, int index, Long value) throws SQLException {
+        if (value != null) {
+            statement.setLong(index, value);
+        } else {
+            statement.setNull(index, Types.BIGINT);
+        }
+    }
+}
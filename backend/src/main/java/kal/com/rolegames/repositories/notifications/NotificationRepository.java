@@ -1,12 +1,16 @@
 package kal.com.rolegames.repositories.notifications;
 
 import kal.com.rolegames.models.notifications.Notification;
+import kal.com.rolegames.models.util.NotificationType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -16,16 +20,126 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
 
     List<Notification> findByRecipientUserIdAndIsReadFalseOrderByCreatedAtDesc(Long recipientId);
 
-    List<Notification> findByRecipientUserIdAndIsReadFalse(Long recipientId);
-
     long countByRecipientUserIdAndIsReadFalse(Long recipientId);
 
-    List<Notification> findByIsReadTrueAndCreatedAtBefore(LocalDateTime cutoffDate);
+    // ========================================
+    // BANDEJA POR CURSOR
+    // ========================================
+    // (createdAt, notificationId) descendente: la página siguiente empieza justo después del
+    // último elemento, sin OFFSET. Sin actionData, que se pide al abrir la notificación.
+
+    @Query("SELECT n.notificationId AS notificationId, n.type AS type, n.title AS title, n.message AS message, " +
+            "n.isRead AS isRead, n.actionUrl AS actionUrl, s.username AS senderUsername, " +
+            "n.createdAt AS createdAt, n.expiresAt AS expiresAt " +
+            "FROM Notification n LEFT JOIN n.sender s WHERE n.recipient.userId = :recipientId " +
+            "ORDER BY n.createdAt DESC, n.notificationId DESC")
+    List<InboxItem> findInboxFirstPage(@Param("recipientId") Long recipientId, Pageable page);
+
+    @Query("SELECT n.notificationId AS notificationId, n.type AS type, n.title AS title, n.message AS message, " +
+            "n.isRead AS isRead, n.actionUrl AS actionUrl, s.username AS senderUsername, " +
+            "n.createdAt AS createdAt, n.expiresAt AS expiresAt " +
+            "FROM Notification n LEFT JOIN n.sender s WHERE n.recipient.userId = :recipientId " +
+            "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.notificationId < :notificationId)) " +
+            "ORDER BY n.createdAt DESC, n.notificationId DESC")
+    List<InboxItem> findInboxPageAfter(@Param("recipientId") Long recipientId,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("notificationId") Long notificationId,
+                                       Pageable page);
+
+    @Query("SELECT n.notificationId AS notificationId, n.type AS type, n.title AS title, n.message AS message, " +
+            "n.isRead AS isRead, n.actionUrl AS actionUrl, s.username AS senderUsername, " +
+            "n.createdAt AS createdAt, n.expiresAt AS expiresAt " +
+            "FROM Notification n LEFT JOIN n.sender s WHERE n.recipient.userId = :recipientId AND n.isRead = false " +
+            "ORDER BY n.createdAt DESC, n.notificationId DESC")
+    List<InboxItem> findUnreadInboxFirstPage(@Param("recipientId") Long recipientId, Pageable page);
+
+    @Query("SELECT n.notificationId AS notificationId, n.type AS type, n.title AS title, n.message AS message, " +
+            "n.isRead AS isRead, n.actionUrl AS actionUrl, s.username AS senderUsername, " +
+            "n.createdAt AS createdAt, n.expiresAt AS expiresAt " +
+            "FROM Notification n LEFT JOIN n.sender s WHERE n.recipient.userId = :recipientId AND n.isRead = false " +
+            "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.notificationId < :notificationId)) " +
+            "ORDER BY n.createdAt DESC, n.notificationId DESC")
+    List<InboxItem> findUnreadInboxPageAfter(@Param("recipientId") Long recipientId,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("notificationId") Long notificationId,
+                                             Pageable page);
+
+    // los usuarios sin no leídas no aparecen
+    @Query("SELECT n.recipient.userId AS userId, COUNT(n) AS unreadCount FROM Notification n " +
+            "WHERE n.isRead = false AND n.recipient.userId IN :recipientIds GROUP BY n.recipient.userId")
+    List<UnreadCount> countUnreadByRecipientIds(@Param("recipientIds") Collection<Long> recipientIds);
+
+    // las operaciones condicionales devuelven cuántas filas cambiaron, para ajustar el contador de no leídas
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.notificationId = :id AND n.isRead = false")
+    int markAsReadIfUnread(@Param("id") Long notificationId);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.notificationId = :id AND n.isRead = false")
+    int deleteIfUnread(@Param("id") Long notificationId);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.notificationId = :id")
+    int deleteNotificationById(@Param("id") Long notificationId);
+
+    @Query("SELECT DISTINCT n.recipient.userId FROM Notification n " +
+            "WHERE n.isRead = false AND n.expiresAt IS NOT NULL AND n.expiresAt < :now")
+    List<Long> findRecipientsWithExpiredUnread(@Param("now") LocalDateTime now);
+
+    // ========================================
+    // OPERACIONES MASIVAS POR TANDAS
+    // ========================================
+    // SQL nativo porque JPQL no tiene LIMIT en UPDATE/DELETE: cada llamada toca como mucho
+    // :limit filas y se repite hasta que devuelve menos (ver NotificationBulkService)
+
+    @Modifying
+    @Query(value = "UPDATE notifications SET is_read = true WHERE recipient_id = :recipientId AND is_read = false " +
+            "LIMIT :limit", nativeQuery = true)
+    int markUnreadAsReadChunk(@Param("recipientId") Long recipientId, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM notifications WHERE recipient_id = :recipientId AND is_read = false " +
+            "AND expires_at IS NOT NULL AND expires_at < :now LIMIT :limit", nativeQuery = true)
+    int deleteExpiredUnreadChunk(@Param("recipientId") Long recipientId, @Param("now") LocalDateTime now,
+                                 @Param("limit") int limit);
 
-    @Query("SELECT n FROM Notification n WHERE n.expiresAt IS NOT NULL AND n.expiresAt < CURRENT_TIMESTAMP")
-    List<Notification> findExpiredNotifications();
+    @Modifying
+    @Query(value = "DELETE FROM notifications WHERE is_read = true " +
+            "AND expires_at IS NOT NULL AND expires_at < :now LIMIT :limit", nativeQuery = true)
+    int deleteExpiredReadChunk(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM notifications WHERE is_read = true AND created_at < :cutoff LIMIT :limit",
+            nativeQuery = true)
+    int deleteReadCreatedBeforeChunk(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
 
     @Query("SELECT n FROM Notification n WHERE n.recipient.userId = :recipientId AND n.type = :type ORDER BY n.createdAt DESC")
     List<Notification> findByRecipientAndType(@Param("recipientId") Long recipientId,
                                               @Param("type") kal.com.rolegames.models.util.NotificationType type);
-}
\ No newline at end of file
+
+    interface InboxItem {
+        Long getNotificationId();
+
+        NotificationType getType();
+
+        String getTitle();
+
+        String getMessage();
+
+        Boolean getIsRead();
+
+        String getActionUrl();
+
+        String getSenderUsername();
+
+        LocalDateTime getCreatedAt();
+
+        LocalDateTime getExpiresAt();
+    }
+
+    interface UnreadCount {
+        Long getUserId();
+
+        long getUnreadCount();
+    }
+}
@@ -0,0 +1,38 @@
+package kal.com.rolegames.repositories.notifications;
+
+import kal.com.rolegames.models.notifications.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    // SKIP LOCKED: con varios nodos cada uno toma filas distintas sin esperar a los demás
+    @Query(value = "SELECT * FROM notification_outbox WHERE delivered_at IS NULL AND next_attempt_at <= :now " +
+            "ORDER BY outbox_id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxMessage> lockPending(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage o SET o.nextAttemptAt = :until WHERE o.outboxId IN :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage o SET o.deliveredAt = :now WHERE o.outboxId IN :ids")
+    int markDelivered(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage o SET o.attempts = o.attempts + 1, o.nextAttemptAt = :retryAt " +
+            "WHERE o.outboxId IN :ids")
+    int scheduleRetry(@Param("ids") Collection<Long> ids, @Param("retryAt") LocalDateTime retryAt);
+
+    @Modifying
+    @Query(value = "DELETE FROM notification_outbox WHERE delivered_at < :cutoff LIMIT :limit", nativeQuery = true)
+    int deleteDeliveredBeforeChunk(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -3,7 +3,10 @@ package kal.com.rolegames.repositories.sessions;
 import kal.com.rolegames.dto.sessions.CampaignDTO;
 import kal.com.rolegames.models.sessions.Campaign;
 import kal.com.rolegames.models.users.Player;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Set;
@@ -11,4 +14,20 @@ import java.util.Set;
 public interface CampaignRepository extends JpaRepository<Campaign, Long> {
 
     List<Campaign> findByPlayersContains(Player player);
+
+    // usuarios de los jugadores por orden de id, a partir del último de la página anterior
+    @Query("SELECT u.userId AS userId, u.username AS username FROM Campaign c JOIN c.players p JOIN p.user u " +
+            "WHERE c.campaignId = :campaignId AND u.userId > :afterUserId ORDER BY u.userId")
+    List<CampaignMember> findPlayerUsersAfter(@Param("campaignId") Long campaignId,
+                                              @Param("afterUserId") Long afterUserId,
+                                              Pageable page);
+
+    @Query("SELECT COUNT(p) FROM Campaign c JOIN c.players p WHERE c.campaignId = :campaignId")
+    long countPlayers(@Param("campaignId") Long campaignId);
+
+    interface CampaignMember {
+        Long getUserId();
+
+        String getUsername();
+    }
 }
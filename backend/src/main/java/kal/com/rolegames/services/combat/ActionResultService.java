@@ -6,6 +6,9 @@ import kal.com.rolegames.models.items.Item;
 import kal.com.rolegames.models.items.Weapon;
 import kal.com.rolegames.models.spells.Spell;
 import kal.com.rolegames.models.util.ActionType;
+import kal.com.rolegames.services.combat.dice.DiceExpression;
+import kal.com.rolegames.services.combat.dice.DiceExpressionCompiler;
+import kal.com.rolegames.services.combat.dice.DiceRollBreakdown;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,25 +17,25 @@ import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 @Service
 @AllArgsConstructor(onConstructor=@__({@Autowired}))
 public class ActionResultService {
 
     private static final Logger logger = LoggerFactory.getLogger(ActionResultService.class);
-    private final Random random = new Random();
+    private final DiceExpressionCompiler diceCompiler;
 
     public ActionResult processAction(ActionType actionType, GameCharacter character,
                                       GameCharacter target, Item item, Spell spell,
-                                      Boolean diceResult) {
+                                      Boolean diceResult, RandomGenerator random) {
 
         logger.info("[ACTION RESULT SERVICE] Processing action {} for character {}",
                 actionType, character.getName());
 
         return switch (actionType) {
-            case ATTACK -> processAttack(character, target, item, diceResult);
-            case CAST_SPELL -> processCastSpell(character, target, spell, diceResult);
+            case ATTACK -> processAttack(character, target, item, diceResult, random);
+            case CAST_SPELL -> processCastSpell(character, target, spell, diceResult, random);
             case DASH -> processDash(character);
             case HELP -> processHelp(character, target);
             case HIDE -> processHide(character, diceResult);
@@ -46,7 +49,7 @@ public class ActionResultService {
     }
 
     private ActionResult processAttack(GameCharacter attacker, GameCharacter target,
-                                       Item item, Boolean diceResult) {
+                                       Item item, Boolean diceResult, RandomGenerator random) {
         if (target == null) {
             return createFailureResult("No se especificó un objetivo para el ataque");
         }
@@ -65,15 +68,14 @@ public class ActionResultService {
         description.append(String.format("%s ataca a %s", attacker.getName(), target.getName()));
 
         if (item instanceof Weapon weapon) {
-            DamageRollResult damageResult = calculateWeaponDamage(weapon, attacker);
+            DamageRollResult damageResult = calculateWeaponDamage(weapon, attacker, random);
             damage = damageResult.totalDamage;
             damageRoll = damageResult.rollExpression;
             diceResults = damageResult.diceResults;
             description.append(String.format(" con %s", weapon.getName()));
         } else {
             // Ataque desarmado
-            damage = 1 + attacker.getAbilityModifier(kal.com.rolegames.models.util.AbilityType.STRENGTH);
-            damage = Math.max(1, damage); // Mínimo 1 de daño
+            damage = unarmedDamage(attacker).roll(random);
             damageRoll = "1";
             diceResults.put("unarmed_1", 1);
             description.append(" con un ataque desarmado");
@@ -99,7 +101,7 @@ public class ActionResultService {
     }
 
     private ActionResult processCastSpell(GameCharacter caster, GameCharacter target,
-                                          Spell spell, Boolean diceResult) {
+                                          Spell spell, Boolean diceResult, RandomGenerator random) {
         if (spell == null) {
             return createFailureResult("No se especificó un hechizo para lanzar");
         }
@@ -122,7 +124,7 @@ public class ActionResultService {
 
         // Calcular daño del hechizo si tiene
         if (spell.getDamageDice() != null && !spell.getDamageDice().isEmpty()) {
-            DamageRollResult damageResult = calculateSpellDamage(spell, caster);
+            DamageRollResult damageResult = calculateSpellDamage(spell, caster, random);
             damage = damageResult.totalDamage;
             damageRoll = damageResult.rollExpression;
             diceResults = damageResult.diceResults;
@@ -326,29 +328,68 @@ public class ActionResultService {
         }
     }
 
-    private DamageRollResult calculateWeaponDamage(Weapon weapon, GameCharacter wielder) {
-        String damageDice = weapon.getDamageDice();
-        DiceRollResult diceRoll = rollDiceDetailed(damageDice);
+    /**
+     * Daño de un ataque que impactó: dados (si hay) más modificador, nunca menos de 1. Es la regla
+     * de processAttack y processCastSpell; la vista previa y el simulador la usan para no
+     * separarse del motor. Si impacta o no lo decide quien tira el d20 (diceResult).
+     */
+    public record DamageFormula(DiceExpression dice, int modifier) {
 
-        // Agregar modificador de habilidad
-        int abilityModifier;
+        public int roll(RandomGenerator random) {
+            return apply(dice != null ? dice.roll(random) : 0);
+        }
+
+        public int apply(int diceTotal) {
+            return Math.max(1, diceTotal + modifier);
+        }
+    }
+
+    // el arma suma su modificador de habilidad y su damageBonus
+    public DamageFormula weaponDamage(Weapon weapon, GameCharacter wielder) {
+        int modifier = weaponAbilityModifier(weapon, wielder)
+                + (weapon.getDamageBonus() != null ? weapon.getDamageBonus() : 0);
+        return new DamageFormula(diceCompiler.compile(weapon.getDamageDice()), modifier);
+    }
+
+    public DamageFormula spellDamage(Spell spell, GameCharacter caster) {
+        return new DamageFormula(diceCompiler.compile(spell.getDamageDice()), spellcastingModifier(caster));
+    }
+
+    // desarmado: 1 + fuerza
+    public DamageFormula unarmedDamage(GameCharacter attacker) {
+        return new DamageFormula(null,
+                1 + attacker.getAbilityModifier(kal.com.rolegames.models.util.AbilityType.STRENGTH));
+    }
+
+    /**
+     * Modificador de habilidad que se suma al daño de un arma: FINESSE usa el mejor entre
+     * fuerza y destreza, las armas a distancia destreza y el resto fuerza.
+     */
+    int weaponAbilityModifier(Weapon weapon, GameCharacter wielder) {
         if (weapon.getProperties().contains(kal.com.rolegames.models.util.WeaponProperty.FINESSE)) {
             int strMod = wielder.getAbilityModifier(kal.com.rolegames.models.util.AbilityType.STRENGTH);
             int dexMod = wielder.getAbilityModifier(kal.com.rolegames.models.util.AbilityType.DEXTERITY);
-            abilityModifier = Math.max(strMod, dexMod);
+            return Math.max(strMod, dexMod);
         } else if (weapon.getRange() != null && weapon.getRange().isRanged()) {
-            abilityModifier = wielder.getAbilityModifier(kal.com.rolegames.models.util.AbilityType.DEXTERITY);
-        } else {
-            abilityModifier = wielder.getAbilityModifier(kal.com.rolegames.models.util.AbilityType.STRENGTH);
+            return wielder.getAbilityModifier(kal.com.rolegames.models.util.AbilityType.DEXTERITY);
         }
+        return wielder.getAbilityModifier(kal.com.rolegames.models.util.AbilityType.STRENGTH);
+    }
 
-        int totalDamage = diceRoll.total + abilityModifier;
+    // Modificador de habilidad de lanzamiento de hechizos (simplificado)
+    int spellcastingModifier(GameCharacter caster) {
+        return caster.getAbilityModifier(kal.com.rolegames.models.util.AbilityType.INTELLIGENCE);
+    }
 
-        if (weapon.getDamageBonus() != null) {
-            totalDamage += weapon.getDamageBonus();
-        }
+    private DamageRollResult calculateWeaponDamage(Weapon weapon, GameCharacter wielder, RandomGenerator random) {
+        String damageDice = weapon.getDamageDice();
+        DiceRollResult diceRoll = rollDiceDetailed(damageDice, random);
 
-        totalDamage = Math.max(1, totalDamage);
+        // Agregar modificador de habilidad
+        int abilityModifier = weaponAbilityModifier(weapon, wielder);
+
+        int bonus = weapon.getDamageBonus() != null ? weapon.getDamageBonus() : 0;
+        int totalDamage = new DamageFormula(null, abilityModifier + bonus).apply(diceRoll.total);
 
         // Construir expresión de daño
         StringBuilder rollExpression = new StringBuilder(damageDice);
@@ -362,17 +403,17 @@ public class ActionResultService {
         return new DamageRollResult(totalDamage, rollExpression.toString(), diceRoll.individualResults);
     }
 
-    private DamageRollResult calculateSpellDamage(Spell spell, GameCharacter caster) {
+    private DamageRollResult calculateSpellDamage(Spell spell, GameCharacter caster, RandomGenerator random) {
         if (spell.getDamageDice() == null || spell.getDamageDice().isEmpty()) {
             return new DamageRollResult(0, null, new HashMap<>());
         }
 
-        DiceRollResult diceRoll = rollDiceDetailed(spell.getDamageDice());
+        DiceRollResult diceRoll = rollDiceDetailed(spell.getDamageDice(), random);
 
         // Agregar modificador de habilidad de lanzamiento de hechizos (simplificado)
-        int spellcastingModifier = caster.getAbilityModifier(kal.com.rolegames.models.util.AbilityType.INTELLIGENCE);
+        int spellcastingModifier = spellcastingModifier(caster);
 
-        int totalDamage = Math.max(1, diceRoll.total + spellcastingModifier);
+        int totalDamage = new DamageFormula(null, spellcastingModifier).apply(diceRoll.total);
 
         // Construir expresión de daño
         StringBuilder rollExpression = new StringBuilder(spell.getDamageDice());
@@ -383,36 +424,19 @@ public class ActionResultService {
         return new DamageRollResult(totalDamage, rollExpression.toString(), diceRoll.individualResults);
     }
 
-    private DiceRollResult rollDiceDetailed(String diceExpression) {
-        Map<String, Integer> results = new HashMap<>();
-        int total = 0;
-
+    private DiceRollResult rollDiceDetailed(String diceExpression, RandomGenerator random) {
         try {
-            if (diceExpression.contains("d")) {
-                String[] parts = diceExpression.split("d");
-                int numberOfDice = Integer.parseInt(parts[0]);
-                int sidesOfDie = Integer.parseInt(parts[1]);
-
-                for (int i = 1; i <= numberOfDice; i++) {
-                    int roll = random.nextInt(sidesOfDie) + 1;
-                    results.put("d" + sidesOfDie + "_" + i, roll);
-                    total += roll;
-                }
-            } else {
-                int fixedValue = Integer.parseInt(diceExpression);
-                results.put("fixed_1", fixedValue);
-                total = fixedValue;
-            }
-        } catch (Exception e) {
-            logger.warn("Error parsing dice expression: {}", diceExpression);
+            DiceRollBreakdown roll = diceCompiler.compile(diceExpression).rollDetailed(random);
+            return new DiceRollResult(roll.total(), roll.dice());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error parsing dice expression: {}", e.getMessage());
+            Map<String, Integer> results = new HashMap<>();
             results.put("error_1", 1);
-            total = 1;
+            return new DiceRollResult(1, results);
         }
-
-        return new DiceRollResult(total, results);
     }
 
-    private int rollDice(String diceExpression) {
-        return rollDiceDetailed(diceExpression).total;
+    private int rollDice(String diceExpression, RandomGenerator random) {
+        return diceCompiler.compile(diceExpression).roll(random);
     }
-}
\ No newline at end of file
+}
@@ -1,21 +1,26 @@
 package kal.com.rolegames.services.combat;
 
-import jakarta.transaction.Transactional;
 import kal.com.rolegames.dto.combat.CombatActionDTO;
+import kal.com.rolegames.dto.combat.CombatDeltaDTO;
 import kal.com.rolegames.dto.combat.PerformActionRequest;
 import kal.com.rolegames.mappers.combat.CombatActionMapper;
+import kal.com.rolegames.mappers.combat.InitiativeMapper;
 import kal.com.rolegames.models.characters.GameCharacter;
 import kal.com.rolegames.models.combat.ActionResult;
 import kal.com.rolegames.models.combat.CombatAction;
 import kal.com.rolegames.models.combat.CombatState;
 import kal.com.rolegames.models.combat.Initiative;
 import kal.com.rolegames.models.items.Item;
+import kal.com.rolegames.models.items.Weapon;
 import kal.com.rolegames.models.spells.Spell;
 import kal.com.rolegames.models.util.ActionType;
 import kal.com.rolegames.repositories.characters.GameCharacterRepository;
+import kal.com.rolegames.repositories.combat.CombatActionRepository;
 import kal.com.rolegames.repositories.combat.CombatStateRepository;
 import kal.com.rolegames.repositories.items.ItemRepository;
 import kal.com.rolegames.repositories.spells.SpellRepository;
+import kal.com.rolegames.services.combat.dice.DiceRandomSource;
+import kal.com.rolegames.services.combat.map.BattleMapService;
 import kal.com.rolegames.websockets.EncounterWebSocketService;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
@@ -24,6 +29,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.random.RandomGenerator;
 
 @Service
 @AllArgsConstructor(onConstructor=@__({@Autowired}))
@@ -31,34 +38,56 @@ public class CombatActionService {
 
     private final CombatStateRepository combatStateRepository;
     private final GameCharacterRepository characterRepository;
-
-    //faltan los repositories de las acciones
+    private final CombatActionRepository combatActionRepository;
 
     private final ItemRepository itemRepository;
     private final SpellRepository spellRepository;
 
     private final ActionResultService actionResultService;
+    private final CombatEngine combatEngine;
+    private final DiceRandomSource diceRandomSource;
+    private final BattleMapService battleMapService;
     private final EncounterWebSocketService webSocketService;
 
     private final CombatActionMapper combatActionMapper;
+    private final InitiativeMapper initiativeMapper;
 
     private static final Logger logger = LoggerFactory.getLogger(CombatActionService.class);
 
-    @Transactional
-    public CombatActionDTO performAction(PerformActionRequest request) {
-        logger.info("[COMBAT ACTION SERVICE] Processing action {} for character {}",
-                request.getActionType(), request.getCharacterId());
+    // sin @Transactional: la acción se ejecuta en el buzón del encuentro, dentro de su propia transacción
+    public CombatActionDTO performAction(Long encounterId, PerformActionRequest request) {
+        logger.info("[COMBAT ACTION SERVICE] Processing action {} for character {} in encounter {}",
+                request.getActionType(), request.getCharacterId(), encounterId);
+
+        // La validación del turno y el consumo de la acción se hacen sobre el combate en memoria,
+        // en orden con el resto de comandos del encuentro; la acción y el daño sí se escriben en la BD
+        CombatActionDTO resultAction = combatEngine.applyInTransaction(encounterId,
+                activeCombat -> executeAction(activeCombat, encounterId, request),
+                (activeCombat, executed) -> commitAction(activeCombat, encounterId, request, executed));
+
+        logger.info("[COMBAT ACTION SERVICE] Action {} completed successfully",
+                request.getActionType());
+
+        // Notificar acción realizada; los cambios de estado (acciones gastadas, PV) ya salieron
+        // como COMBAT_DELTA desde el buzón
+        webSocketService.notifyActionPerformed(encounterId, resultAction);
+
+        return resultAction;
+    }
 
-        // Obtener el combate activo
-        CombatState activeCombat = combatStateRepository.findByIsActiveTrue()
-                .orElseThrow(() -> new IllegalStateException("No hay combate activo"));
+    // lo que executeAction deja pendiente de aplicar a la copia viva cuando la transacción se confirma
+    private record ExecutedAction(CombatActionDTO action, Initiative initiative, long diceSeed,
+                                  GameCharacter target, boolean hitPointsChanged) {
+    }
 
+    // corre dentro de la transacción: solo lee el combate vivo, no lo modifica
+    private ExecutedAction executeAction(CombatState activeCombat, Long encounterId, PerformActionRequest request) {
         // Obtener el personaje que realiza la acción
         GameCharacter character = characterRepository.findById(request.getCharacterId())
                 .orElseThrow(() -> new NoSuchElementException("Personaje no encontrado"));
 
         // Verificar que el personaje puede realizar la acción
-        validateCanPerformAction(activeCombat, character, request.getActionType());
+        Initiative initiative = validateCanPerformAction(activeCombat, character, request.getActionType());
 
         // Obtener entidades relacionadas
         GameCharacter target = null;
@@ -79,70 +108,87 @@ public class CombatActionService {
                     .orElseThrow(() -> new NoSuchElementException("Hechizo no encontrado"));
         }
 
+        // Alcance según las posiciones del mapa; antes de tirar, para no gastar la secuencia de dados
+        validateRange(encounterId, request.getActionType(), character, target, item, spell);
+
+        // Cada acción tira con su propio generador, derivado de la semilla del combate
+        // (combates creados antes de guardar semilla reciben una nueva)
+        long diceSeed = activeCombat.getDiceSeed() != null
+                ? activeCombat.getDiceSeed()
+                : diceRandomSource.newCombatSeed();
+        long diceSequence = (activeCombat.getDiceRollSequence() == null ? 0L : activeCombat.getDiceRollSequence()) + 1;
+        RandomGenerator dice = diceRandomSource.stream(diceSeed, diceSequence);
+
+        Integer targetHitPointsBefore = target != null ? target.getHitPoints() : null;
+
         // Procesar el resultado de la acción
         ActionResult result = actionResultService.processAction(
-                request.getActionType(), character, target, item, spell, request.getDiceResult()
+                request.getActionType(), character, target, item, spell, request.getDiceResult(), dice
         );
 
-        // Crear la acción de combate
+        // Crear la acción de combate; se inserta sola, sin recargar el historial completo del combate
         CombatAction combatAction = CombatAction.builder()
-                .combat(activeCombat)
+                .combat(combatStateRepository.getReferenceById(activeCombat.getCombatStateId()))
                 .character(character)
                 .actionType(request.getActionType())
                 .target(target)
                 .item(item)
                 .spell(spell)
                 .result(result)
+                .diceSequence(diceSequence)
                 .build();
 
-        // Agregar la acción al combate
-        activeCombat.addAction(combatAction);
+        CombatAction savedAction = combatActionRepository.save(combatAction);
 
-        // Actualizar el estado de la iniciativa
-        updateInitiativeState(activeCombat, character, request.getActionType());
-
-        // Guardar el combate actualizado
-        CombatState updatedCombat = combatStateRepository.save(activeCombat);
-
-        // Buscar la acción guardada en el historial
-        CombatAction savedAction = updatedCombat.getActionHistory()
-                .get(updatedCombat.getActionHistory().size() - 1);
-
-        logger.info("[COMBAT ACTION SERVICE] Action {} completed successfully",
-                request.getActionType());
-
-        CombatActionDTO resultAction = combatActionMapper.toDTO(savedAction);
-
-        // Obtener encounterId del combate activo
-        Long encounterId = activeCombat.getEncounter().getEncounterId();
-
-        // Notificar acción realizada
-        webSocketService.notifyActionPerformed(encounterId, resultAction);
+        boolean hitPointsChanged = target != null && !Objects.equals(targetHitPointsBefore, target.getHitPoints());
+        return new ExecutedAction(combatActionMapper.toDTO(savedAction), initiative, diceSeed,
+                target, hitPointsChanged);
+    }
 
-        // Si hubo daño, notificar actualización de salud
-        if (resultAction.getResult().getDamageDealt() > 0 && request.getTargetId() != null) {
-            GameCharacter targetDamaged = characterRepository.findById(request.getTargetId()).orElse(null);
-            if (targetDamaged != null) {
-                webSocketService.notifyHealthUpdate(encounterId,
-                        targetDamaged.getCharacterId(), targetDamaged.getHitPoints());
-            }
+    // corre en el buzón después del commit: si la transacción falla la copia viva queda como estaba
+    private CombatActionDTO commitAction(CombatState activeCombat, Long encounterId, PerformActionRequest request,
+                                         ExecutedAction executed) {
+        if (activeCombat.getDiceSeed() == null) {
+            activeCombat.setDiceSeed(executed.diceSeed());
+        }
+        activeCombat.nextDiceSequence();
+
+        // Actualizar el estado de la iniciativa (en memoria)
+        Initiative initiative = executed.initiative();
+        updateInitiativeState(initiative, request.getActionType());
+        webSocketService.publishCombatDelta(CombatDeltaDTO.builder()
+                .sequence(activeCombat.nextDeltaSequence())
+                .encounterId(encounterId)
+                .type(CombatDeltaDTO.Type.INITIATIVE_UPDATED)
+                .index(activeCombat.getCurrentTurnIndex())
+                .initiative(initiativeMapper.toDTO(initiative))
+                .build());
+
+        GameCharacter target = executed.target();
+        if (executed.hitPointsChanged()) {
+            updateLiveHitPoints(activeCombat, target);
+            webSocketService.publishCombatDelta(CombatDeltaDTO.builder()
+                    .sequence(activeCombat.nextDeltaSequence())
+                    .encounterId(encounterId)
+                    .type(CombatDeltaDTO.Type.HP_CHANGED)
+                    .characterId(target.getCharacterId())
+                    .hitPoints(target.getHitPoints())
+                    .build());
         }
 
-        return resultAction;
+        return executed.action();
     }
 
-    private void validateCanPerformAction(CombatState combat, GameCharacter character,
-                                          ActionType actionType) {
-        // Buscar la iniciativa del personaje
-        Initiative initiative = combat.getInitiativeOrder().stream()
-                .filter(init -> init.getCharacter().equals(character))
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException(
-                        "El personaje no participa en este combate"));
-
-        // Verificar que es su turno
-        if (!initiative.getCurrentTurn()) {
-            throw new IllegalStateException("No es el turno de este personaje");
+    private Initiative validateCanPerformAction(CombatState combat, GameCharacter character,
+                                                ActionType actionType) {
+        // Verificar que es su turno; solo si no lo es se busca en toda la lista para dar el error correcto
+        Initiative initiative = combat.getCurrentTurnIndex() != null ? combat.getCurrentTurnParticipant() : null;
+        if (initiative == null || !initiative.getCharacter().getCharacterId().equals(character.getCharacterId())) {
+            boolean participates = combat.getInitiativeOrder().stream()
+                    .anyMatch(init -> init.getCharacter().getCharacterId().equals(character.getCharacterId()));
+            throw new IllegalStateException(participates
+                    ? "No es el turno de este personaje"
+                    : "El personaje no participa en este combate");
         }
 
         // Verificar restricciones según el tipo de acción
@@ -163,15 +209,35 @@ public class CombatActionService {
                 }
             }
         }
+
+        return initiative;
+    }
+
+    private void validateRange(Long encounterId, ActionType actionType, GameCharacter character,
+                               GameCharacter target, Item item, Spell spell) {
+        if (target == null || target.getCharacterId().equals(character.getCharacterId())) {
+            return;
+        }
+        if (actionType == ActionType.ATTACK) {
+            battleMapService.validateWeaponRange(encounterId, character.getCharacterId(), target.getCharacterId(),
+                    item instanceof Weapon weapon ? weapon : null);
+        } else if (actionType == ActionType.CAST_SPELL && spell != null) {
+            battleMapService.validateSpellRange(encounterId, character.getCharacterId(), target.getCharacterId(), spell);
+        }
     }
 
-    private void updateInitiativeState(CombatState combat, GameCharacter character,
-                                       ActionType actionType) {
-        Initiative initiative = combat.getInitiativeOrder().stream()
-                .filter(init -> init.getCharacter().equals(character))
-                .findFirst()
-                .orElseThrow();
+    // el personaje de la copia en memoria no es el que se guardó, así que el estado completo
+    // (el que se pide para resincronizar) mostraría los PV viejos
+    private void updateLiveHitPoints(CombatState activeCombat, GameCharacter target) {
+        for (Initiative participant : activeCombat.getInitiativeOrder()) {
+            GameCharacter character = participant.getCharacter();
+            if (character != target && character.getCharacterId().equals(target.getCharacterId())) {
+                character.setHitPoints(target.getHitPoints());
+            }
+        }
+    }
 
+    private void updateInitiativeState(Initiative initiative, ActionType actionType) {
         // Marcar la acción como usada según su tipo
         switch (actionType) {
             case ATTACK, CAST_SPELL, DASH, HELP, HIDE, READY, SEARCH, USE_ITEM ->
@@ -0,0 +1,617 @@
+package kal.com.rolegames.services.combat;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import kal.com.rolegames.models.combat.CombatState;
+import kal.com.rolegames.models.combat.Initiative;
+import kal.com.rolegames.models.effects.Effect;
+import kal.com.rolegames.repositories.combat.CombatStateRepository;
+import kal.com.rolegames.repositories.combat.InitiativeRepository;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Motor de combate en memoria.
+ *
+ * Mantiene por encounterId una copia viva (desconectada de JPA) del CombatState con su
+ * initiativeOrder y activeEffects. Los cambios de turno y de iniciativa se aplican sobre esa
+ * copia y se vuelcan a MySQL en lotes (write-behind). Los cambios de estructura (agregar o
+ * quitar participantes) van directo a la BD y la copia se recarga en el siguiente acceso.
+ * Al terminar un combate y al apagar la aplicación se vuelca todo lo pendiente.
+ *
+ * Cada encuentro tiene un buzón de comandos: todo lo que lee o modifica su combate se ejecuta
+ * en orden, de a uno, sobre un pool compartido. Así dos jugadores que hacen clic a la vez no
+ * compiten por el @Version de CombatState/Initiative; el segundo comando simplemente espera.
+ */
+@Service
+public class CombatEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(CombatEngine.class);
+
+    // comandos que un buzón ejecuta seguidos antes de ceder el hilo a otro encuentro
+    private static final int MAX_COMMANDS_PER_DRAIN = 32;
+    // encuentros que salen en el reporte periódico de los más lentos
+    private static final int SLOWEST_REPORT_SIZE = 5;
+
+    private final CombatStateRepository combatStateRepository;
+    private final InitiativeRepository initiativeRepository;
+    private final Timer commandLatency;
+
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final int flushBatchSize;
+    private final long commandTimeoutMs;
+
+    private final ExecutorService mailboxExecutor;
+    private final ReentrantLock persistLock = new ReentrantLock();
+
+    // encounterId -> combate vivo con su buzón
+    private final Map<Long, LiveCombat> liveCombats = new ConcurrentHashMap<>();
+    // encounterIds con cambios que todavía no llegan a la BD
+    private final Set<Long> dirtyEncounters = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public CombatEngine(CombatStateRepository combatStateRepository,
+                        InitiativeRepository initiativeRepository,
+                        PlatformTransactionManager transactionManager,
+                        MeterRegistry meterRegistry,
+                        @Value("${rolegames.combat.flush-batch-size:50}") int flushBatchSize,
+                        @Value("${rolegames.combat.mailbox-threads:0}") int mailboxThreads,
+                        @Value("${rolegames.combat.command-timeout-ms:10000}") long commandTimeoutMs) {
+        this.combatStateRepository = combatStateRepository;
+        this.initiativeRepository = initiativeRepository;
+        this.flushBatchSize = flushBatchSize;
+        this.commandTimeoutMs = commandTimeoutMs;
+
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+
+        int threads = mailboxThreads > 0 ? mailboxThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.mailboxExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "combat-mailbox-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("rolegames.combat.live", liveCombats, Map::size)
+                .description("Combates cargados en memoria")
+                .register(meterRegistry);
+        Gauge.builder("rolegames.combat.pending.flush", dirtyEncounters, Set::size)
+                .description("Combates con cambios pendientes de volcar a la BD")
+                .register(meterRegistry);
+
+        // sin tag por encuentro: cada combate nuevo crearía series que nunca se reutilizan.
+        // Los encuentros más lentos salen en el log con reportSlowestEncounters
+        this.commandLatency = Timer.builder("rolegames.combat.command.latency")
+                .description("Tiempo desde que se encola un comando hasta que termina")
+                .register(meterRegistry);
+        Gauge.builder("rolegames.combat.command.queue.depth", liveCombats,
+                        combats -> combats.values().stream().mapToInt(live -> live.depth.get()).sum())
+                .description("Comandos esperando en los buzones de todos los encuentros")
+                .register(meterRegistry);
+        Gauge.builder("rolegames.combat.command.queue.depth.max", liveCombats,
+                        combats -> combats.values().stream().mapToInt(live -> live.depth.get()).max().orElse(0))
+                .description("Comandos esperando en el buzón más cargado")
+                .register(meterRegistry);
+    }
+
+    // ========================================
+    // COMANDOS
+    // ========================================
+
+    /**
+     * Encola un comando en el buzón del encuentro y lo deja pendiente de volcar a la BD.
+     * Si el comando lanza una excepción el combate no se marca como modificado,
+     * así que los comandos deben validar antes de mutar.
+     */
+    public <T> CompletableFuture<T> submit(Long encounterId, Function<CombatState, T> command) {
+        return enqueue(encounterId, live -> {
+            T result = command.apply(loaded(live));
+            markDirty(live);
+            return result;
+        });
+    }
+
+    /**
+     * Consulta el combate vivo del encuentro sin marcarlo como modificado.
+     */
+    public <T> T read(Long encounterId, Function<CombatState, T> query) {
+        return await(encounterId, enqueue(encounterId, live -> query.apply(loaded(live))));
+    }
+
+    /**
+     * Aplica un comando sobre el combate vivo y espera su resultado.
+     */
+    public <T> T apply(Long encounterId, Function<CombatState, T> command) {
+        return await(encounterId, submit(encounterId, command));
+    }
+
+    /**
+     * Igual que {@link #apply} pero en dos fases, para comandos que además escriben filas
+     * (acciones, daño). {@code work} corre dentro de una transacción en el hilo del buzón y
+     * solo debe leer el combate vivo; {@code onCommit} aplica los cambios en memoria y solo
+     * se llama si la transacción se confirmó, así un rollback no deja la copia viva adelantada.
+     */
+    public <R, T> T applyInTransaction(Long encounterId, Function<CombatState, R> work,
+                                       BiFunction<CombatState, R, T> onCommit) {
+        return apply(encounterId, combat -> {
+            R committed = writeTransaction.execute(status -> work.apply(combat));
+            return onCommit.apply(combat, committed);
+        });
+    }
+
+    /**
+     * Ejecuta un comando sobre la entidad administrada en su propia transacción.
+     * Sirve para cambios de estructura (nuevas filas de Initiative): primero se vuelca lo
+     * pendiente, luego se aplica el comando y la copia viva se recarga en el siguiente acceso.
+     */
+    public <T> T writeThrough(Long encounterId, Function<CombatState, T> command) {
+        return await(encounterId, enqueue(encounterId, live -> {
+            flush(live);
+            T result = writeTransaction.execute(status -> command.apply(
+                    combatStateRepository.findActiveByEncounterId(encounterId)
+                            .orElseThrow(() -> new NoSuchElementException(
+                                    "No active combat found for encounter " + encounterId))));
+            live.state = null;
+            return result;
+        }));
+    }
+
+    /**
+     * Vuelca el estado pendiente del encuentro y suelta su copia en memoria.
+     * Se usa al terminar o reemplazar un combate.
+     */
+    public void release(Long encounterId) {
+        LiveCombat live = liveCombats.get(encounterId);
+        if (live == null) {
+            return;
+        }
+
+        await(encounterId, enqueue(live, current -> {
+            flush(current);
+            retire(current);
+            return null;
+        }));
+        logger.info("[COMBAT ENGINE] Combate del encuentro {} liberado de memoria", encounterId);
+    }
+
+    /**
+     * Si el encuentro tiene su combate cargado en memoria; false no quiere decir que no tenga combate.
+     */
+    public boolean isLive(Long encounterId) {
+        return liveCombats.containsKey(encounterId);
+    }
+
+    public int getLiveCombatCount() {
+        return liveCombats.size();
+    }
+
+    public int getPendingFlushCount() {
+        return dirtyEncounters.size();
+    }
+
+    public int getQueueDepth(Long encounterId) {
+        LiveCombat live = liveCombats.get(encounterId);
+        return live != null ? live.depth.get() : 0;
+    }
+
+    // ========================================
+    // BUZÓN POR ENCUENTRO
+    // ========================================
+
+    private <T> CompletableFuture<T> enqueue(Long encounterId, Function<LiveCombat, T> task) {
+        return enqueue(liveCombats.computeIfAbsent(encounterId, LiveCombat::new), task);
+    }
+
+    private <T> CompletableFuture<T> enqueue(LiveCombat live, Function<LiveCombat, T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+
+        live.queue.add(() -> {
+            if (future.isDone()) {
+                // quien lo encoló ya se rindió (await canceló el futuro): no se aplica tarde
+                return;
+            }
+            if (live.retired) {
+                // el buzón se cerró mientras el comando esperaba: pasa al buzón nuevo del encuentro
+                CompletableFuture<T> forwarded = enqueue(live.encounterId, task);
+                forwarded.whenComplete((result, error) -> {
+                    if (error != null) {
+                        future.completeExceptionally(error);
+                    } else {
+                        future.complete(result);
+                    }
+                });
+                future.whenComplete((result, error) -> {
+                    if (future.isCancelled()) {
+                        forwarded.cancel(false);
+                    }
+                });
+                return;
+            }
+            try {
+                future.complete(task.apply(live));
+            } catch (RuntimeException e) {
+                // no hay combate activo que cargar: no dejamos un buzón vacío en el mapa
+                if (live.state == null && !dirtyEncounters.contains(live.encounterId)) {
+                    retire(live);
+                }
+                future.completeExceptionally(e);
+            } catch (Error e) {
+                // sin esto quien espera no se entera hasta que vence el tiempo
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                long elapsed = System.nanoTime() - enqueuedAt;
+                commandLatency.record(elapsed, TimeUnit.NANOSECONDS);
+                live.slowestCommandNanos.accumulateAndGet(elapsed, Math::max);
+            }
+        });
+        live.depth.incrementAndGet();
+        schedule(live);
+        return future;
+    }
+
+    private void schedule(LiveCombat live) {
+        if (live.scheduled.compareAndSet(false, true)) {
+            mailboxExecutor.execute(() -> drain(live));
+        }
+    }
+
+    private void drain(LiveCombat live) {
+        try {
+            Runnable command;
+            int executed = 0;
+            while (executed < MAX_COMMANDS_PER_DRAIN && (command = live.queue.poll()) != null) {
+                live.depth.decrementAndGet();
+                command.run();
+                executed++;
+            }
+        } finally {
+            live.scheduled.set(false);
+            if (!live.queue.isEmpty()) {
+                schedule(live);
+            }
+        }
+    }
+
+    private <T> T await(Long encounterId, CompletableFuture<T> future) {
+        try {
+            return future.get(commandTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Error ejecutando comando de combate", e.getCause());
+        } catch (TimeoutException e) {
+            // el comando sigue en el buzón: se cancela para que no se aplique después de dar el error
+            if (!future.cancel(false)) {
+                // terminó justo ahora: se devuelve su resultado
+                return await(encounterId, future);
+            }
+            throw new IllegalStateException("El combate del encuentro " + encounterId + " no respondió a tiempo");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Comando de combate interrumpido");
+        }
+    }
+
+    // se llama desde el buzón del combate
+    private void retire(LiveCombat live) {
+        live.state = null;
+        live.retired = true;
+        liveCombats.remove(live.encounterId, live);
+    }
+
+    // se llama desde el buzón del combate
+    private void markDirty(LiveCombat live) {
+        live.mutations++;
+        dirtyEncounters.add(live.encounterId);
+    }
+
+    // ========================================
+    // WRITE-BEHIND
+    // ========================================
+
+    /**
+     * Deja en el log los encuentros con el comando más lento desde el último reporte,
+     * en lugar de una serie de métricas por encuentro.
+     */
+    @Scheduled(fixedDelayString = "${rolegames.combat.slow-report-interval-ms:60000}")
+    public void reportSlowestEncounters() {
+        List<Map.Entry<Long, Long>> slowest = new ArrayList<>();
+        for (LiveCombat live : liveCombats.values()) {
+            long nanos = live.slowestCommandNanos.getAndSet(0);
+            if (nanos > 0) {
+                slowest.add(Map.entry(live.encounterId, nanos));
+            }
+        }
+        if (slowest.isEmpty()) {
+            return;
+        }
+
+        slowest.sort(Map.Entry.<Long, Long>comparingByValue().reversed());
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<Long, Long> entry : slowest.subList(0, Math.min(SLOWEST_REPORT_SIZE, slowest.size()))) {
+            report.append(String.format(" %d=%.1fms", entry.getKey(), entry.getValue() / 1_000_000.0));
+        }
+        logger.info("[COMBAT ENGINE] Encuentros con comandos más lentos:{}", report);
+    }
+
+    @Scheduled(fixedDelayString = "${rolegames.combat.flush-interval-ms:500}")
+    public void flushDirtyCombats() {
+        List<Long> batch = new ArrayList<>(flushBatchSize);
+        for (Long encounterId : dirtyEncounters) {
+            batch.add(encounterId);
+            if (batch.size() == flushBatchSize) {
+                flushBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flushBatch(batch);
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        logger.info("[COMBAT ENGINE] Volcando {} combates pendientes antes de apagar", dirtyEncounters.size());
+        flushDirtyCombats();
+        mailboxExecutor.shutdown();
+    }
+
+    private void flushBatch(List<Long> encounterIds) {
+        // las copias se toman dentro de cada buzón para no leer un combate a medio comando
+        List<CompletableFuture<CombatSnapshot>> pending = new ArrayList<>(encounterIds.size());
+        for (Long encounterId : encounterIds) {
+            LiveCombat live = liveCombats.get(encounterId);
+            if (live == null) {
+                dirtyEncounters.remove(encounterId);
+                continue;
+            }
+            pending.add(enqueue(live, this::takeSnapshot));
+        }
+
+        List<CombatSnapshot> snapshots = new ArrayList<>(pending.size());
+        for (CompletableFuture<CombatSnapshot> future : pending) {
+            try {
+                CombatSnapshot snapshot = future.get(commandTimeoutMs, TimeUnit.MILLISECONDS);
+                if (snapshot != null) {
+                    snapshots.add(snapshot);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException e) {
+                // el encuentro sigue marcado y se intenta en el siguiente ciclo
+                logger.warn("[COMBAT ENGINE] No se pudo copiar un combate para volcarlo: {}", e.getMessage());
+            }
+        }
+        persist(snapshots);
+    }
+
+    // se llama desde el buzón del combate
+    private void flush(LiveCombat live) {
+        CombatSnapshot snapshot = takeSnapshot(live);
+        if (snapshot != null) {
+            persist(new ArrayList<>(List.of(snapshot)));
+        }
+    }
+
+    // se llama desde el buzón del combate
+    private CombatSnapshot takeSnapshot(LiveCombat live) {
+        if (!dirtyEncounters.remove(live.encounterId)) {
+            return null;
+        }
+        if (live.state == null) {
+            return null;
+        }
+        return new CombatSnapshot(live, live.state);
+    }
+
+    private void persist(List<CombatSnapshot> snapshots) {
+        persistLock.lock();
+        try {
+            // una copia vieja del ciclo programado no pisa a una más nueva ya volcada por el buzón
+            snapshots.removeIf(snapshot -> snapshot.mutations <= snapshot.live.persistedMutations);
+            if (snapshots.isEmpty()) {
+                return;
+            }
+
+            writeTransaction.executeWithoutResult(status -> {
+                Map<Long, CombatState> combats = new HashMap<>();
+                combatStateRepository.findAllById(snapshots.stream().map(s -> s.combatStateId).toList())
+                        .forEach(combat -> combats.put(combat.getCombatStateId(), combat));
+
+                Map<Long, Initiative> initiatives = new HashMap<>();
+                initiativeRepository.findAllById(snapshots.stream()
+                                .flatMap(s -> s.initiatives.keySet().stream())
+                                .toList())
+                        .forEach(initiative -> initiatives.put(initiative.getInitiativeId(), initiative));
+
+                for (CombatSnapshot snapshot : snapshots) {
+                    CombatState combat = combats.get(snapshot.combatStateId);
+                    if (combat != null) {
+                        snapshot.applyTo(combat, initiatives);
+                    }
+                }
+
+                combatStateRepository.saveAll(combats.values());
+                initiativeRepository.saveAll(initiatives.values());
+            });
+
+            snapshots.forEach(snapshot -> snapshot.live.persistedMutations = snapshot.mutations);
+            logger.debug("[COMBAT ENGINE] {} combates volcados a la BD", snapshots.size());
+        } catch (RuntimeException e) {
+            // se reintentan en el siguiente ciclo
+            snapshots.forEach(s -> dirtyEncounters.add(s.live.encounterId));
+            logger.error("[COMBAT ENGINE] Error volcando {} combates: {}", snapshots.size(), e.getMessage());
+        } finally {
+            persistLock.unlock();
+        }
+    }
+
+    // ========================================
+    // CARGA
+    // ========================================
+
+    // se llama desde el buzón del combate
+    private CombatState loaded(LiveCombat live) {
+        if (live.state == null) {
+            live.state = loadDetached(live.encounterId);
+        }
+        return live.state;
+    }
+
+    private CombatState loadDetached(Long encounterId) {
+        CombatState combat = readTransaction.execute(status -> {
+            CombatState active = combatStateRepository.findActiveByEncounterId(encounterId)
+                    .orElseThrow(() -> new NoSuchElementException("No active combat found for encounter " + encounterId));
+            // el historial de acciones no se carga: las acciones se insertan directo en la BD
+            Hibernate.initialize(active.getInitiativeOrder());
+            Hibernate.initialize(active.getActiveEffects());
+            // el desempate por destreza lee las habilidades, así que se ordena aquí dentro
+            active.restoreTurnOrder();
+            return active;
+        });
+        logger.info("[COMBAT ENGINE] Combate {} del encuentro {} cargado en memoria",
+                combat.getCombatStateId(), encounterId);
+        return combat;
+    }
+
+    private static class LiveCombat {
+        final Long encounterId;
+        final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger depth = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // comando más lento desde el último reporte
+        final AtomicLong slowestCommandNanos = new AtomicLong();
+
+        // solo se tocan desde el buzón
+        CombatState state;
+        long mutations;
+        volatile boolean retired;
+
+        // se escribe con persistLock tomado
+        volatile long persistedMutations;
+
+        LiveCombat(Long encounterId) {
+            this.encounterId = encounterId;
+        }
+    }
+
+    // Copia de lo que se vuelca a la BD, tomada desde el buzón del combate
+    private static class CombatSnapshot {
+        final LiveCombat live;
+        final long mutations;
+        final Long combatStateId;
+        final Integer currentRound;
+        final Integer currentTurnIndex;
+        final Boolean isActive;
+        final LocalDateTime endTime;
+        final Long diceSeed;
+        final Long diceRollSequence;
+        final Long deltaSequence;
+        final Map<Long, InitiativeSnapshot> initiatives = new HashMap<>();
+        // effectId -> fin de los efectos que ya no están activos en la copia viva
+        final Map<Long, LocalDateTime> endedEffects = new HashMap<>();
+
+        CombatSnapshot(LiveCombat live, CombatState combat) {
+            this.live = live;
+            this.mutations = live.mutations;
+            this.combatStateId = combat.getCombatStateId();
+            this.currentRound = combat.getCurrentRound();
+            this.currentTurnIndex = combat.getCurrentTurnIndex();
+            this.isActive = combat.getIsActive();
+            this.endTime = combat.getEndTime();
+            this.diceSeed = combat.getDiceSeed();
+            this.diceRollSequence = combat.getDiceRollSequence();
+            this.deltaSequence = combat.getDeltaSequence();
+            for (Initiative initiative : combat.getInitiativeOrder()) {
+                if (initiative.getInitiativeId() != null) {
+                    initiatives.put(initiative.getInitiativeId(), new InitiativeSnapshot(initiative));
+                }
+            }
+            for (Effect effect : combat.getActiveEffects()) {
+                if (effect.getEffectId() != null && !Boolean.TRUE.equals(effect.getIsActive())) {
+                    endedEffects.put(effect.getEffectId(), effect.getEndTime());
+                }
+            }
+        }
+
+        void applyTo(CombatState combat, Map<Long, Initiative> managedInitiatives) {
+            combat.setCurrentRound(currentRound);
+            combat.setCurrentTurnIndex(currentTurnIndex);
+            combat.setIsActive(isActive);
+            combat.setEndTime(endTime);
+            combat.setDiceSeed(diceSeed);
+            combat.setDiceRollSequence(diceRollSequence);
+            combat.setDeltaSequence(deltaSequence);
+            initiatives.forEach((initiativeId, snapshot) -> {
+                Initiative managed = managedInitiatives.get(initiativeId);
+                if (managed != null) {
+                    snapshot.applyTo(managed);
+                }
+            });
+            if (!endedEffects.isEmpty()) {
+                for (Effect effect : combat.getActiveEffects()) {
+                    LocalDateTime endTime = endedEffects.get(effect.getEffectId());
+                    if (endTime != null && Boolean.TRUE.equals(effect.getIsActive())) {
+                        effect.setIsActive(false);
+                        effect.setEndTime(endTime);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class InitiativeSnapshot {
+        final Boolean currentTurn;
+        final Boolean hasActed;
+        final Integer bonusActionsUsed;
+        final Integer reactionsUsed;
+        final Integer movementUsed;
+
+        InitiativeSnapshot(Initiative initiative) {
+            this.currentTurn = initiative.getCurrentTurn();
+            this.hasActed = initiative.getHasActed();
+            this.bonusActionsUsed = initiative.getBonusActionsUsed();
+            this.reactionsUsed = initiative.getReactionsUsed();
+            this.movementUsed = initiative.getMovementUsed();
+        }
+
+        void applyTo(Initiative initiative) {
+            initiative.setCurrentTurn(currentTurn);
+            initiative.setHasActed(hasActed);
+            initiative.setBonusActionsUsed(bonusActionsUsed);
+            initiative.setReactionsUsed(reactionsUsed);
+            initiative.setMovementUsed(movementUsed);
+        }
+    }
+}
@@ -1,18 +1,27 @@
 package kal.com.rolegames.services.combat;
 
 import jakarta.transaction.Transactional;
+import kal.com.rolegames.dto.combat.ApplyEffectRequest;
+import kal.com.rolegames.dto.combat.CombatDeltaDTO;
 import kal.com.rolegames.dto.combat.CombatStateDTO;
+import kal.com.rolegames.dto.effects.EffectDTO;
 import kal.com.rolegames.mappers.combat.CombatStateMapper;
 import kal.com.rolegames.mappers.effects.EffectMapper;
 import kal.com.rolegames.mappers.combat.InitiativeMapper;
 import kal.com.rolegames.models.characters.GameCharacter;
 import kal.com.rolegames.models.combat.CombatState;
 import kal.com.rolegames.models.combat.Initiative;
+import kal.com.rolegames.models.effects.Effect;
 import kal.com.rolegames.models.sessions.Encounter;
+import kal.com.rolegames.models.spells.Spell;
 import kal.com.rolegames.models.util.EncounterType;
 import kal.com.rolegames.repositories.characters.GameCharacterRepository;
 import kal.com.rolegames.repositories.combat.CombatStateRepository;
+import kal.com.rolegames.repositories.effects.EffectRepository;
 import kal.com.rolegames.repositories.sessions.EncounterRepository;
+import kal.com.rolegames.repositories.spells.SpellRepository;
+import kal.com.rolegames.services.combat.dice.DiceRandomSource;
+import kal.com.rolegames.websockets.EncounterWebSocketService;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +29,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 @Service
@@ -29,30 +39,45 @@ public class CombatService {
     private final CombatStateRepository combatStateRepository;
     private final EncounterRepository encounterRepository;
     private final GameCharacterRepository characterRepository;
+    private final EffectRepository effectRepository;
+    private final SpellRepository spellRepository;
+
+    // estado vivo de los combates, ver CombatEngine
+    private final CombatEngine combatEngine;
+    private final DiceRandomSource diceRandomSource;
+    private final EncounterWebSocketService webSocketService;
 
     //mappers
-//    private InitiativeMapper initiativeMapper;
-//    private EffectMapper effectMapper;
+    private InitiativeMapper initiativeMapper;
+    private EffectMapper effectMapper;
     private CombatStateMapper combatMapper;
 
 
     private static final Logger logger = LoggerFactory.getLogger(CombatService.class);
 
-    public CombatStateDTO getCurrentCombat() {
-        CombatState activeState = combatStateRepository.findByIsActiveTrue()
-                .orElseThrow(() -> new NoSuchElementException("No active combat found"));
+    public CombatStateDTO getCurrentCombat(Long encounterId) {
+        return combatEngine.read(encounterId, combatMapper::toDTO);
+    }
 
-        return combatMapper.toDTO(activeState);
+    /**
+     * Vuelca a la BD el estado en memoria del combate del encuentro y lo suelta.
+     * Debe llamarse antes de cargar el encuentro en una transacción que vaya a terminar
+     * o reemplazar su combate, para no pisar la versión recién volcada.
+     */
+    public void releaseLiveCombat(Long encounterId) {
+        combatEngine.release(encounterId);
     }
 
     @Transactional
     public CombatState createCombatForEncounter(Long encounterId){
+        releaseLiveCombat(encounterId);
+
         Encounter encounter = encounterRepository.findById(encounterId)
                 .orElseThrow(() -> new NoSuchElementException("Encounter not found"));
 
 
-        // terminar el ultimo combate activo
-        combatStateRepository.findByIsActiveTrue().ifPresent(active -> {
+        // terminar el combate activo de ESTE encuentro; los combates de otras mesas no se tocan
+        combatStateRepository.findActiveByEncounterId(encounterId).ifPresent(active -> {
             active.setIsActive(false);
             active.setEndTime(LocalDateTime.now());
             combatStateRepository.save(active);
@@ -68,6 +93,7 @@ public class CombatService {
                 .currentRound(1)
                 .isActive(true)
                 .startTime(LocalDateTime.now())
+                .diceSeed(diceRandomSource.newCombatSeed())
                 .build();
         CombatState savedCombat = combatStateRepository.save(newCombat);
 
@@ -80,44 +106,153 @@ public class CombatService {
     }
 
 
-    @Transactional
-    public CombatStateDTO nextTurn() {
-        CombatState activeState = combatStateRepository.findByIsActiveTrue()
-                .orElseThrow(() -> new NoSuchElementException("No active combat found"));
+    // solo en memoria: el CombatEngine lo vuelca a la BD en el siguiente lote,
+    // junto con los efectos que vencieron al empezar la ronda
+    public CombatStateDTO nextTurn(Long encounterId) {
+        return combatEngine.apply(encounterId, activeState -> {
+            activeState.nextTurn();
 
-        activeState.nextTurn();
-        CombatState updatedState = combatStateRepository.save(activeState);
+            webSocketService.publishCombatDelta(CombatDeltaDTO.builder()
+                    .sequence(activeState.nextDeltaSequence())
+                    .encounterId(encounterId)
+                    .type(CombatDeltaDTO.Type.TURN_CHANGED)
+                    .currentRound(activeState.getCurrentRound())
+                    .currentTurnIndex(activeState.getCurrentTurnIndex())
+                    .initiative(initiativeMapper.toDTO(activeState.getCurrentTurnParticipant()))
+                    .build());
+            publishExpiredEffects(encounterId, activeState);
 
-        return combatMapper.toDTO(updatedState);
+            return combatMapper.toDTO(activeState);
+        });
     }
 
-    @Transactional
-    public CombatStateDTO addParticipant(Long characterId, Integer initiativeRoll) {
-        CombatState activeState = combatStateRepository.findByIsActiveTrue()
-                .orElseThrow(() -> new NoSuchElementException("No active combat found"));
+    public CombatStateDTO addParticipant(Long encounterId, Long characterId, Integer initiativeRoll) {
+        return combatEngine.writeThrough(encounterId, activeState -> {
+            GameCharacter character = characterRepository.findById(characterId)
+                    .orElseThrow(() -> new NoSuchElementException("Character not found"));
 
-        GameCharacter character = characterRepository.findById(characterId)
-                .orElseThrow(() -> new NoSuchElementException("Character not found"));
+            int position = activeState.addParticipant(character, initiativeRoll);
+            long sequence = activeState.nextDeltaSequence();
+            CombatState updatedState = combatStateRepository.save(activeState);
 
-        activeState.addParticipant(character, initiativeRoll);
-        CombatState updatedState = combatStateRepository.save(activeState);
+            webSocketService.publishCombatDelta(CombatDeltaDTO.builder()
+                    .sequence(sequence)
+                    .encounterId(encounterId)
+                    .type(CombatDeltaDTO.Type.INITIATIVE_INSERTED)
+                    .index(position)
+                    .initiative(initiativeMapper.toDTO(updatedState.getInitiativeOrder().get(position)))
+                    .currentTurnIndex(updatedState.getCurrentTurnIndex())
+                    .build());
 
-        return combatMapper.toDTO(updatedState);
+            return combatMapper.toDTO(updatedState);
+        });
     }
 
-    @Transactional
-    public CombatStateDTO removeParticipant(Long characterId) {
-        CombatState activeState = combatStateRepository.findByIsActiveTrue()
-                .orElseThrow(() -> new NoSuchElementException("No active combat found"));
+    /**
+     * Activa un efecto en el combate del encuentro. Es una fila nueva, así que va por writeThrough
+     * como los participantes: CombatState.applyEffect fija la ronda en la que vence y la copia viva,
+     * al recargarse, lo agenda en su rueda de vencimientos.
+     */
+    public EffectDTO applyEffect(Long encounterId, ApplyEffectRequest request) {
+        if (request.getName() == null || request.getName().isBlank() || request.getEffectType() == null) {
+            throw new IllegalArgumentException("El efecto necesita nombre y tipo");
+        }
+        if (request.getDuration() == null || (request.getDuration() < 1 && request.getDuration() != -1)) {
+            throw new IllegalArgumentException("La duración debe ser de al menos 1 ronda, o -1 hasta que se disipe");
+        }
+
+        EffectDTO result = combatEngine.writeThrough(encounterId, activeState -> {
+            GameCharacter source = request.getSourceId() != null
+                    ? characterRepository.findById(request.getSourceId())
+                            .orElseThrow(() -> new NoSuchElementException("Character not found"))
+                    : null;
+            GameCharacter target = request.getTargetId() != null
+                    ? characterRepository.findById(request.getTargetId())
+                            .orElseThrow(() -> new NoSuchElementException("Character not found"))
+                    : null;
+            Spell spell = request.getSpellId() != null
+                    ? spellRepository.findById(request.getSpellId())
+                            .orElseThrow(() -> new NoSuchElementException("Spell not found"))
+                    : null;
+
+            // se inserta antes de agregarlo a activeEffects: el set usa el id en el hash
+            Effect effect = effectRepository.save(Effect.builder()
+                    .name(request.getName())
+                    .effectType(request.getEffectType())
+                    .description(request.getDescription())
+                    .source(source)
+                    .target(target)
+                    .spell(spell)
+                    .duration(request.getDuration())
+                    .isActive(false)
+                    .build());
+            activeState.applyEffect(effect);
+            long sequence = activeState.nextDeltaSequence();
+            combatStateRepository.save(activeState);
 
-        GameCharacter character = characterRepository.findById(characterId)
-                .orElseThrow(() -> new NoSuchElementException("Character not found"));
+            EffectDTO dto = effectMapper.toDTO(effect);
+            webSocketService.publishCombatDelta(CombatDeltaDTO.builder()
+                    .sequence(sequence)
+                    .encounterId(encounterId)
+                    .type(CombatDeltaDTO.Type.EFFECT_ADDED)
+                    .effect(dto)
+                    .build());
 
-        activeState.removeParticipant(character);
-        CombatState updatedState = combatStateRepository.save(activeState);
+            return dto;
+        });
+
+        logger.info("[COMBAT SERVICE] Efecto {} aplicado en el encuentro {}", request.getName(), encounterId);
+        return result;
+    }
+
+    public CombatStateDTO removeParticipant(Long encounterId, Long characterId) {
+        CombatStateDTO result = combatEngine.writeThrough(encounterId, activeState -> {
+            GameCharacter character = characterRepository.findById(characterId)
+                    .orElseThrow(() -> new NoSuchElementException("Character not found"));
+
+            int index = activeState.removeParticipant(character);
+            if (index >= 0) {
+                webSocketService.publishCombatDelta(CombatDeltaDTO.builder()
+                        .sequence(activeState.nextDeltaSequence())
+                        .encounterId(encounterId)
+                        .type(CombatDeltaDTO.Type.INITIATIVE_REMOVED)
+                        .index(index)
+                        .characterId(characterId)
+                        .currentRound(activeState.getCurrentRound())
+                        .currentTurnIndex(activeState.getCurrentTurnIndex())
+                        .build());
+                // si se quitó al último de la ronda empezó otra y pudieron vencer efectos
+                publishExpiredEffects(encounterId, activeState);
+            }
+            CombatState updatedState = combatStateRepository.save(activeState);
+
+            return combatMapper.toDTO(updatedState);
+        });
+
+        // si era el último participante el combate terminó
+        if (!Boolean.TRUE.equals(result.getIsActive())) {
+            releaseLiveCombat(encounterId);
+        }
 
-        logger.info("[COMBAT SERVICE] Character {} removed from combat", characterId);
-        return combatMapper.toDTO(updatedState);
+        logger.info("[COMBAT SERVICE] Character {} removed from combat of encounter {}", characterId, encounterId);
+        return result;
     }
 
-}
\ No newline at end of file
+    // se llama desde el buzón del encuentro
+    private void publishExpiredEffects(Long encounterId, CombatState activeState) {
+        List<Effect> expired = activeState.drainExpiredEffects();
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        webSocketService.publishCombatDelta(CombatDeltaDTO.builder()
+                .sequence(activeState.nextDeltaSequence())
+                .encounterId(encounterId)
+                .type(CombatDeltaDTO.Type.EFFECT_EXPIRED)
+                .currentRound(activeState.getCurrentRound())
+                .effectIds(expired.stream().map(Effect::getEffectId).toList())
+                .build());
+        logger.info("[COMBAT SERVICE] {} efectos vencieron en la ronda {} del encuentro {}",
+                expired.size(), activeState.getCurrentRound(), encounterId);
+    }
+}
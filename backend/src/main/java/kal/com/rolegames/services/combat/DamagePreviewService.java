@@ -0,0 +1,161 @@
+package kal.com.rolegames.services.combat;
+
+import kal.com.rolegames.dto.combat.DamagePreviewDTO;
+import kal.com.rolegames.dto.combat.DamagePreviewRequest;
+import kal.com.rolegames.models.characters.GameCharacter;
+import kal.com.rolegames.models.items.Item;
+import kal.com.rolegames.models.items.Weapon;
+import kal.com.rolegames.models.spells.Spell;
+import kal.com.rolegames.models.util.AbilityType;
+import kal.com.rolegames.repositories.characters.GameCharacterRepository;
+import kal.com.rolegames.repositories.items.ItemRepository;
+import kal.com.rolegames.repositories.spells.SpellRepository;
+import kal.com.rolegames.services.combat.dice.DamageDistribution;
+import kal.com.rolegames.services.combat.dice.DiceDistributionCalculator;
+import kal.com.rolegames.services.combat.ActionResultService.DamageFormula;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Responde "¿cuánto daño hace esto contra esta CA?" sin tirar dados: calcula la distribución
+ * exacta del daño con la DamageFormula de ActionResultService y la combina con la probabilidad
+ * de impactar.
+ *
+ * El motor no tira para impactar (recibe diceResult del cliente) ni tiene críticos, así que la
+ * probabilidad de impactar es una suposición sobre la tirada del jugador: d20 + bonificador contra
+ * la CA, con el 1 natural fallando y el 20 natural impactando sin daño extra.
+ */
+@Service
+@AllArgsConstructor(onConstructor=@__({@Autowired}))
+public class DamagePreviewService {
+
+    private final GameCharacterRepository characterRepository;
+    private final ItemRepository itemRepository;
+    private final SpellRepository spellRepository;
+
+    private final ActionResultService actionResultService;
+    private final DiceDistributionCalculator distributionCalculator;
+
+    private static final Logger logger = LoggerFactory.getLogger(DamagePreviewService.class);
+
+    public DamagePreviewDTO preview(Long encounterId, DamagePreviewRequest request) {
+        GameCharacter character = characterRepository.findById(request.getCharacterId())
+                .orElseThrow(() -> new NoSuchElementException("Personaje no encontrado"));
+
+        GameCharacter target = null;
+        if (request.getTargetId() != null) {
+            target = characterRepository.findById(request.getTargetId())
+                    .orElseThrow(() -> new NoSuchElementException("Objetivo no encontrado"));
+        }
+
+        Integer armorClass = request.getTargetArmorClass() != null ? request.getTargetArmorClass()
+                : target != null ? target.getArmorClass() : null;
+        int proficiency = character.getProficiencyBonus() != null ? character.getProficiencyBonus() : 0;
+
+        DamageFormula damage;
+        int attackBonus;
+        boolean savingThrow = false;
+
+        if (request.getItemId() != null) {
+            Item item = itemRepository.findById(request.getItemId())
+                    .orElseThrow(() -> new NoSuchElementException("Objeto no encontrado"));
+            if (!(item instanceof Weapon weapon)) {
+                throw new IllegalArgumentException("El objeto " + item.getName() + " no es un arma");
+            }
+
+            damage = actionResultService.weaponDamage(weapon, character);
+            attackBonus = weapon.getTotalAttackBonus(character, character.getProficiencyBonus() != null);
+        } else if (request.getSpellId() != null) {
+            Spell spell = spellRepository.findById(request.getSpellId())
+                    .orElseThrow(() -> new NoSuchElementException("Hechizo no encontrado"));
+            if (spell.getDamageDice() == null || spell.getDamageDice().isEmpty()) {
+                throw new IllegalArgumentException("El hechizo " + spell.getName() + " no hace daño");
+            }
+
+            damage = actionResultService.spellDamage(spell, character);
+            attackBonus = damage.modifier() + proficiency;
+            savingThrow = spell.requiresSavingThrow();
+        } else {
+            // Ataque desarmado, igual que processAttack
+            damage = actionResultService.unarmedDamage(character);
+            attackBonus = character.getAbilityModifier(AbilityType.STRENGTH) + proficiency;
+        }
+
+        DamageDistribution onHit;
+        String damageRoll;
+        if (damage.dice() != null) {
+            onHit = distributionCalculator.distributionOf(damage.dice()).shift(damage.modifier()).atLeast(1);
+            damageRoll = withModifier(damage.dice().getSource(), damage.modifier());
+        } else {
+            onHit = DamageDistribution.constant(damage.apply(0));
+            damageRoll = "1";
+        }
+
+        double hitChance = 1.0;
+        if (!savingThrow && armorClass != null) {
+            double[] d20 = d20Faces(Boolean.TRUE.equals(request.getAdvantage()),
+                    Boolean.TRUE.equals(request.getDisadvantage()));
+            // supuesto: el 1 natural siempre falla y el 20 natural siempre impacta
+            hitChance = d20[20];
+            for (int face = 2; face <= 19; face++) {
+                if (face + attackBonus >= armorClass) {
+                    hitChance += d20[face];
+                }
+            }
+        }
+
+        DamageDistribution overall = DamageDistribution.mixture(
+                new double[]{1.0 - hitChance, hitChance},
+                DamageDistribution.constant(0), onHit);
+
+        Double knockOutChance = null;
+        if (target != null && target.getHitPoints() != null) {
+            knockOutChance = overall.probabilityAtLeast(Math.max(1, target.getHitPoints()));
+        }
+
+        logger.info("[DAMAGE PREVIEW] {} en encuentro {}: {} contra CA {} -> {} de daño esperado",
+                character.getName(), encounterId, damageRoll, armorClass, overall.mean());
+
+        return DamagePreviewDTO.builder()
+                .damageRoll(damageRoll)
+                .armorClass(armorClass)
+                .attackBonus(attackBonus)
+                .savingThrow(savingThrow)
+                .hitChance(hitChance)
+                .minDamage(onHit.getMin())
+                .maxDamage(onHit.getMax())
+                .averageDamageOnHit(onHit.mean())
+                .standardDeviationOnHit(onHit.standardDeviation())
+                .expectedDamage(overall.mean())
+                .knockOutChance(knockOutChance)
+                .distribution(overall.asMap())
+                .build();
+    }
+
+    // probabilidad de cada cara del d20; ventaja y desventaja a la vez se anulan
+    private double[] d20Faces(boolean advantage, boolean disadvantage) {
+        double[] faces = new double[21];
+        for (int face = 1; face <= 20; face++) {
+            if (advantage == disadvantage) {
+                faces[face] = 1.0 / 20;
+            } else if (advantage) {
+                faces[face] = (face * face - (face - 1) * (face - 1)) / 400.0;
+            } else {
+                faces[face] = ((21 - face) * (21 - face) - (20 - face) * (20 - face)) / 400.0;
+            }
+        }
+        return faces;
+    }
+
+    private String withModifier(String dice, int modifier) {
+        if (modifier == 0) {
+            return dice;
+        }
+        return dice + (modifier > 0 ? "+" : "") + modifier;
+    }
+}
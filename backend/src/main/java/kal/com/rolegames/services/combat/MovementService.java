@@ -0,0 +1,92 @@
+package kal.com.rolegames.services.combat;
+
+import kal.com.rolegames.dto.combat.CombatDeltaDTO;
+import kal.com.rolegames.mappers.combat.InitiativeMapper;
+import kal.com.rolegames.models.combat.CombatState;
+import kal.com.rolegames.models.combat.Initiative;
+import kal.com.rolegames.repositories.combat.CombatStateRepository;
+import kal.com.rolegames.services.combat.map.BattleMapService;
+import kal.com.rolegames.websockets.EncounterWebSocketService;
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Movimiento de las fichas en el mapa de batalla.
+ *
+ * Fuera de combate las fichas se colocan libremente. En combate el movimiento de un participante
+ * se valida en el buzón del encuentro (ver {@link CombatEngine}): solo en su turno y por un camino
+ * que no cueste más que lo que le queda de velocidad; lo gastado se suma a Initiative.movementUsed
+ * y sale como INITIATIVE_UPDATED.
+ */
+@Service
+@AllArgsConstructor(onConstructor=@__({@Autowired}))
+public class MovementService {
+
+    // velocidad de un personaje sin velocidad cargada
+    private static final int DEFAULT_SPEED_FEET = 30;
+
+    private final CombatEngine combatEngine;
+    private final CombatStateRepository combatStateRepository;
+    private final BattleMapService battleMapService;
+    private final EncounterWebSocketService webSocketService;
+
+    private final InitiativeMapper initiativeMapper;
+
+    private static final Logger logger = LoggerFactory.getLogger(MovementService.class);
+
+    public void moveToken(Long encounterId, Long characterId, int x, int y) {
+        if (!combatEngine.isLive(encounterId) && !combatStateRepository.existsActiveByEncounterId(encounterId)) {
+            battleMapService.moveToken(encounterId, characterId, x, y);
+            return;
+        }
+
+        try {
+            combatEngine.apply(encounterId, combat -> moveInCombat(combat, encounterId, characterId, x, y));
+        } catch (NoSuchElementException e) {
+            // el combate terminó entre la consulta y el comando
+            battleMapService.moveToken(encounterId, characterId, x, y);
+        }
+    }
+
+    // se llama desde el buzón del encuentro
+    private Void moveInCombat(CombatState combat, Long encounterId, Long characterId, int x, int y) {
+        Initiative initiative = combat.getInitiativeOrder().stream()
+                .filter(init -> characterId.equals(init.getCharacter().getCharacterId()))
+                .findFirst()
+                .orElse(null);
+        if (initiative == null) {
+            // fichas que no participan en el combate
+            battleMapService.moveToken(encounterId, characterId, x, y);
+            return null;
+        }
+
+        Initiative current = combat.getCurrentTurnIndex() != null ? combat.getCurrentTurnParticipant() : null;
+        if (current != initiative) {
+            throw new IllegalStateException("No es el turno de este personaje");
+        }
+
+        Integer speed = initiative.getCharacter().getSpeed();
+        int remaining = (speed != null ? speed : DEFAULT_SPEED_FEET) - initiative.getMovementUsed();
+        int spent = battleMapService.moveToken(encounterId, characterId, x, y, remaining);
+        if (spent == 0) {
+            return null;
+        }
+
+        initiative.useMovement(spent);
+        webSocketService.publishCombatDelta(CombatDeltaDTO.builder()
+                .sequence(combat.nextDeltaSequence())
+                .encounterId(encounterId)
+                .type(CombatDeltaDTO.Type.INITIATIVE_UPDATED)
+                .index(combat.getCurrentTurnIndex())
+                .initiative(initiativeMapper.toDTO(initiative))
+                .build());
+
+        logger.debug("[MOVEMENT SERVICE] Personaje {} se movió {} pies en el encuentro {}", characterId, spent, encounterId);
+        return null;
+    }
+}
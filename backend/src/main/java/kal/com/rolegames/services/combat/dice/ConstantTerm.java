@@ -0,0 +1,22 @@
+package kal.com.rolegames.services.combat.dice;
+
+/**
+ * Modificador fijo, por ejemplo el "+2" de "1d8+2".
+ */
+public record ConstantTerm(int sign, int value) implements DiceTerm {
+
+    @Override
+    public int min() {
+        return sign * value;
+    }
+
+    @Override
+    public int max() {
+        return sign * value;
+    }
+
+    @Override
+    public String toString() {
+        return (sign < 0 ? "-" : "+") + value;
+    }
+}
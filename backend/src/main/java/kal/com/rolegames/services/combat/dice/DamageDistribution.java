@@ -0,0 +1,180 @@
+package kal.com.rolegames.services.combat.dice;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Distribución de probabilidad exacta de un resultado entero (daño, total de una tirada).
+ * probabilities[i] es la probabilidad de obtener min + i. Inmutable.
+ */
+public final class DamageDistribution {
+
+    private final int min;
+    private final double[] probabilities;
+
+    private DamageDistribution(int min, double[] probabilities) {
+        this.min = min;
+        this.probabilities = probabilities;
+    }
+
+    public static DamageDistribution constant(int value) {
+        return new DamageDistribution(value, new double[]{1.0});
+    }
+
+    static DamageDistribution of(int min, double[] probabilities) {
+        // se recortan los extremos imposibles para que getMin/getMax sean los reales
+        int from = 0;
+        int to = probabilities.length;
+        while (from < to - 1 && probabilities[from] == 0) {
+            from++;
+        }
+        while (to - 1 > from && probabilities[to - 1] == 0) {
+            to--;
+        }
+        return new DamageDistribution(min + from, Arrays.copyOfRange(probabilities, from, to));
+    }
+
+    /**
+     * Mezcla de distribuciones: con probabilidad weights[i] el resultado sale de parts[i].
+     * Se usa para combinar fallo / impacto.
+     */
+    public static DamageDistribution mixture(double[] weights, DamageDistribution... parts) {
+        int low = Integer.MAX_VALUE;
+        int high = Integer.MIN_VALUE;
+        for (int i = 0; i < parts.length; i++) {
+            if (weights[i] > 0) {
+                low = Math.min(low, parts[i].getMin());
+                high = Math.max(high, parts[i].getMax());
+            }
+        }
+        if (low == Integer.MAX_VALUE) {
+            return constant(0);
+        }
+
+        double[] result = new double[high - low + 1];
+        for (int i = 0; i < parts.length; i++) {
+            if (weights[i] <= 0) {
+                continue;
+            }
+            DamageDistribution part = parts[i];
+            for (int j = 0; j < part.probabilities.length; j++) {
+                result[part.min + j - low] += weights[i] * part.probabilities[j];
+            }
+        }
+        return new DamageDistribution(low, result);
+    }
+
+    /**
+     * Distribución de la suma de dos resultados independientes.
+     */
+    public DamageDistribution convolve(DamageDistribution other) {
+        double[] result = new double[probabilities.length + other.probabilities.length - 1];
+        for (int i = 0; i < probabilities.length; i++) {
+            double p = probabilities[i];
+            if (p == 0) {
+                continue;
+            }
+            for (int j = 0; j < other.probabilities.length; j++) {
+                result[i + j] += p * other.probabilities[j];
+            }
+        }
+        return new DamageDistribution(min + other.min, result);
+    }
+
+    public DamageDistribution shift(int delta) {
+        return delta == 0 ? this : new DamageDistribution(min + delta, probabilities);
+    }
+
+    public DamageDistribution negate() {
+        double[] result = new double[probabilities.length];
+        for (int i = 0; i < probabilities.length; i++) {
+            result[probabilities.length - 1 - i] = probabilities[i];
+        }
+        return new DamageDistribution(-getMax(), result);
+    }
+
+    /**
+     * Sube a floor todo lo que quede por debajo, como el Math.max(1, daño) de ActionResultService.
+     */
+    public DamageDistribution atLeast(int floor) {
+        if (min >= floor) {
+            return this;
+        }
+        if (getMax() <= floor) {
+            return constant(floor);
+        }
+        double[] result = new double[getMax() - floor + 1];
+        for (int i = 0; i < probabilities.length; i++) {
+            int value = min + i;
+            result[Math.max(value, floor) - floor] += probabilities[i];
+        }
+        return new DamageDistribution(floor, result);
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return min + probabilities.length - 1;
+    }
+
+    public double probability(int value) {
+        int index = value - min;
+        return index >= 0 && index < probabilities.length ? probabilities[index] : 0.0;
+    }
+
+    public double probabilityAtLeast(int value) {
+        double total = 0;
+        for (int i = Math.max(0, value - min); i < probabilities.length; i++) {
+            total += probabilities[i];
+        }
+        return Math.min(1.0, total);
+    }
+
+    public double mean() {
+        double total = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            total += (min + i) * probabilities[i];
+        }
+        return total;
+    }
+
+    public double standardDeviation() {
+        double mean = mean();
+        double variance = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            double delta = min + i - mean;
+            variance += delta * delta * probabilities[i];
+        }
+        return Math.sqrt(variance);
+    }
+
+    /**
+     * Menor valor cuyo acumulado alcanza q (0.5 = mediana).
+     */
+    public int percentile(double q) {
+        double accumulated = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            accumulated += probabilities[i];
+            if (accumulated >= q - 1e-12) {
+                return min + i;
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Valor -> probabilidad, sin los valores imposibles.
+     */
+    public Map<Integer, Double> asMap() {
+        Map<Integer, Double> result = new LinkedHashMap<>();
+        for (int i = 0; i < probabilities.length; i++) {
+            if (probabilities[i] > 0) {
+                result.put(min + i, probabilities[i]);
+            }
+        }
+        return result;
+    }
+}
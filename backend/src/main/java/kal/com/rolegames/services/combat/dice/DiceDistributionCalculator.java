@@ -0,0 +1,182 @@
+package kal.com.rolegames.services.combat.dice;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Calcula la distribución exacta de una expresión de dados: cada grupo NdM es la convolución
+ * de N dados (o, con kh/kl, la suma de los N mejores/peores por estadísticos de orden) y la
+ * expresión completa es la convolución de sus grupos más los modificadores.
+ *
+ * Los resultados se guardan por expresión normalizada ("1d8 + 2" y "1D8+2" comparten entrada),
+ * igual que los grupos sueltos, que se repiten mucho entre armas ("1d8", "2d6").
+ */
+@Component
+public class DiceDistributionCalculator {
+
+    private final DiceExpressionCompiler compiler;
+    private final int maxCachedDistributions;
+
+    private final Map<String, DamageDistribution> expressionCache = new ConcurrentHashMap<>();
+    private final Map<DiceGroupTerm, DamageDistribution> groupCache = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DiceDistributionCalculator(DiceExpressionCompiler compiler,
+                                      @Value("${rolegames.dice.cache-size:512}") int maxCachedDistributions) {
+        this.compiler = compiler;
+        this.maxCachedDistributions = maxCachedDistributions;
+    }
+
+    public DamageDistribution distributionOf(String expression) {
+        return distributionOf(compiler.compile(expression));
+    }
+
+    public DamageDistribution distributionOf(DiceExpression expression) {
+        String key = normalize(expression);
+        DamageDistribution cached = expressionCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        DamageDistribution result = DamageDistribution.constant(0);
+        for (DiceTerm term : expression.getTerms()) {
+            if (term instanceof ConstantTerm constant) {
+                result = result.shift(constant.sign() * constant.value());
+            } else if (term instanceof DiceGroupTerm group) {
+                DamageDistribution groupDistribution = groupDistribution(group);
+                result = result.convolve(group.sign() < 0 ? groupDistribution.negate() : groupDistribution);
+            }
+        }
+
+        evictIfFull(expressionCache);
+        expressionCache.put(key, result);
+        return result;
+    }
+
+    public String normalize(DiceExpression expression) {
+        StringBuilder key = new StringBuilder();
+        for (DiceTerm term : expression.getTerms()) {
+            key.append(term);
+        }
+        return key.toString();
+    }
+
+    // distribución positiva del grupo (el signo lo aplica quien llama)
+    private DamageDistribution groupDistribution(DiceGroupTerm group) {
+        DiceGroupTerm key = new DiceGroupTerm(1, group.count(), group.sides(), group.keep(),
+                group.keepCount(), group.rerollAtOrBelow(), group.rerollOnce());
+        DamageDistribution cached = groupCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        double[] face = faceProbabilities(key);
+        DamageDistribution result;
+        if (key.keep() == DiceGroupTerm.KeepMode.NONE || key.keepCount() >= key.count()) {
+            DamageDistribution single = DamageDistribution.of(1, Arrays.copyOfRange(face, 1, face.length));
+            result = single;
+            for (int i = 1; i < key.count(); i++) {
+                result = result.convolve(single);
+            }
+        } else {
+            result = keptSumDistribution(face, key.count(), key.keepCount(),
+                    key.keep() == DiceGroupTerm.KeepMode.HIGHEST);
+        }
+
+        evictIfFull(groupCache);
+        groupCache.put(key, result);
+        return result;
+    }
+
+    // face[v] = probabilidad de que un dado quede en v, ya con las repeticiones
+    private double[] faceProbabilities(DiceGroupTerm group) {
+        int sides = group.sides();
+        int threshold = group.rerollAtOrBelow();
+        double[] face = new double[sides + 1];
+
+        for (int v = 1; v <= sides; v++) {
+            if (threshold == 0) {
+                face[v] = 1.0 / sides;
+            } else if (group.rerollOnce()) {
+                // sale v de primera, o sale algo repetible y la segunda tirada da v
+                face[v] = (v > threshold ? 1.0 / sides : 0.0) + ((double) threshold / sides) / sides;
+            } else {
+                face[v] = v > threshold ? 1.0 / (sides - threshold) : 0.0;
+            }
+        }
+        return face;
+    }
+
+    /**
+     * Suma de los keep dados más altos (o más bajos) de count dados independientes.
+     * Recorre las caras de la más conveniente a la menos y reparte cuántos dados caen en cada una
+     * (coeficiente multinomial); los primeros keep dados repartidos son los que se conservan.
+     */
+    private DamageDistribution keptSumDistribution(double[] face, int count, int keep, boolean highest) {
+        int sides = face.length - 1;
+        int maxSum = keep * sides;
+
+        double[][] dp = new double[count + 1][maxSum + 1];
+        dp[0][0] = 1.0;
+
+        double[][] binomial = binomials(count);
+
+        for (int step = 0; step < sides; step++) {
+            int v = highest ? sides - step : step + 1;
+            double q = face[v];
+            if (q == 0) {
+                continue;
+            }
+
+            double[] powers = new double[count + 1];
+            powers[0] = 1.0;
+            for (int c = 1; c <= count; c++) {
+                powers[c] = powers[c - 1] * q;
+            }
+
+            double[][] next = new double[count + 1][maxSum + 1];
+            for (int used = 0; used <= count; used++) {
+                for (int sum = 0; sum <= maxSum; sum++) {
+                    double p = dp[used][sum];
+                    if (p == 0) {
+                        continue;
+                    }
+                    for (int c = 0; c <= count - used; c++) {
+                        int kept = Math.min(c, Math.max(0, keep - used));
+                        next[used + c][sum + kept * v] += p * binomial[count - used][c] * powers[c];
+                    }
+                }
+            }
+            dp = next;
+        }
+
+        return DamageDistribution.of(0, dp[count]);
+    }
+
+    private double[][] binomials(int n) {
+        double[][] result = new double[n + 1][n + 1];
+        for (int i = 0; i <= n; i++) {
+            result[i][0] = 1.0;
+            for (int j = 1; j <= i; j++) {
+                result[i][j] = result[i - 1][j - 1] + (j <= i - 1 ? result[i - 1][j] : 0.0);
+            }
+        }
+        return result;
+    }
+
+    private <K> void evictIfFull(Map<K, DamageDistribution> cache) {
+        if (cache.size() >= maxCachedDistributions) {
+            Iterator<K> keys = cache.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+    }
+}
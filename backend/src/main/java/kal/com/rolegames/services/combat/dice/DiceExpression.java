@@ -0,0 +1,93 @@
+package kal.com.rolegames.services.combat.dice;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Expresión de dados compilada e inmutable ("1d8+2", "2d6+1d4-1", "2d20kh1").
+ * Se obtiene con {@link DiceExpressionCompiler}; se puede compartir entre hilos.
+ */
+public final class DiceExpression {
+
+    // ningún grupo puede tener más dados que esto (lo valida el parser)
+    static final int MAX_DICE_PER_GROUP = 100;
+
+    private static final ThreadLocal<int[]> SCRATCH =
+            ThreadLocal.withInitial(() -> new int[MAX_DICE_PER_GROUP]);
+
+    private final String source;
+    private final DiceTerm[] terms;
+    private final int min;
+    private final int max;
+
+    DiceExpression(String source, List<DiceTerm> terms) {
+        this.source = source;
+        this.terms = terms.toArray(new DiceTerm[0]);
+
+        int minTotal = 0;
+        int maxTotal = 0;
+        for (DiceTerm term : this.terms) {
+            minTotal += term.min();
+            maxTotal += term.max();
+        }
+        this.min = minTotal;
+        this.max = maxTotal;
+    }
+
+    /**
+     * Tira la expresión y devuelve solo el total. No reserva memoria.
+     */
+    public int roll(RandomGenerator random) {
+        int[] scratch = null;
+        int total = 0;
+        for (DiceTerm term : terms) {
+            if (term instanceof DiceGroupTerm group) {
+                if (scratch == null && group.keep() != DiceGroupTerm.KeepMode.NONE) {
+                    scratch = SCRATCH.get();
+                }
+                total += group.roll(random, scratch);
+            } else if (term instanceof ConstantTerm constant) {
+                total += constant.sign() * constant.value();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Tira la expresión guardando el resultado de cada dado, para el historial de combate.
+     */
+    public DiceRollBreakdown rollDetailed(RandomGenerator random) {
+        DiceRollBreakdown.Builder breakdown = new DiceRollBreakdown.Builder();
+        int total = 0;
+        for (DiceTerm term : terms) {
+            if (term instanceof DiceGroupTerm group) {
+                total += group.rollDetailed(random, breakdown);
+            } else if (term instanceof ConstantTerm constant) {
+                breakdown.constant(constant.sign() * constant.value());
+                total += constant.sign() * constant.value();
+            }
+        }
+        return breakdown.build(total);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public List<DiceTerm> getTerms() {
+        return List.of(terms);
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,61 @@
+package kal.com.rolegames.services.combat.dice;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compila expresiones de dados una sola vez y las guarda en una caché acotada.
+ * Las armas y hechizos usan pocas expresiones distintas ("1d8", "2d6+1d4", "8d6"),
+ * así que después del primer ataque la tirada ya no vuelve a parsear texto.
+ */
+@Component
+public class DiceExpressionCompiler {
+
+    private final Map<String, DiceExpression> cache = new ConcurrentHashMap<>();
+    private final int maxCachedExpressions;
+
+    @Autowired
+    public DiceExpressionCompiler(@Value("${rolegames.dice.cache-size:512}") int maxCachedExpressions) {
+        this.maxCachedExpressions = maxCachedExpressions;
+    }
+
+    /**
+     * Devuelve la expresión compilada.
+     *
+     * @throws IllegalArgumentException si la expresión no es válida
+     */
+    public DiceExpression compile(String expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("La expresión de dados está vacía");
+        }
+
+        DiceExpression compiled = cache.get(expression);
+        if (compiled != null) {
+            return compiled;
+        }
+
+        compiled = DiceExpressionParser.parse(expression);
+        if (cache.size() >= maxCachedExpressions) {
+            evictOne();
+        }
+        DiceExpression previous = cache.putIfAbsent(expression, compiled);
+        return previous != null ? previous : compiled;
+    }
+
+    public int getCachedCount() {
+        return cache.size();
+    }
+
+    private void evictOne() {
+        Iterator<String> keys = cache.keySet().iterator();
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
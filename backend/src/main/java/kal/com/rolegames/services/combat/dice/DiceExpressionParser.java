@@ -0,0 +1,168 @@
+package kal.com.rolegames.services.combat.dice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parser de expresiones de dados.
+ *
+ * <pre>
+ * expresion := ["+"|"-"] termino (("+"|"-") termino)*
+ * termino   := NUMERO | [NUMERO] "d" (NUMERO | "%") [keep] [reroll]
+ * keep      := ("kh" | "kl" | "k") [NUMERO]     quedarse con los N más altos / más bajos
+ * reroll    := ("r" | "ro") ["<"] NUMERO        repetir resultados menores o iguales (ro = una vez)
+ * </pre>
+ *
+ * Los espacios se ignoran y no distingue mayúsculas. Cualquier error lanza IllegalArgumentException.
+ */
+final class DiceExpressionParser {
+
+    private static final int MAX_SIDES = 1000;
+    private static final int MAX_TERMS = 32;
+    private static final int MAX_CONSTANT = 10_000;
+
+    private final String source;
+    private final String text;
+    private int position;
+
+    private DiceExpressionParser(String source) {
+        this.source = source;
+        this.text = source.replaceAll("\\s+", "").toLowerCase(Locale.ROOT);
+    }
+
+    static DiceExpression parse(String source) {
+        if (source == null || source.isBlank()) {
+            throw new IllegalArgumentException("La expresión de dados está vacía");
+        }
+        return new DiceExpressionParser(source).parseExpression();
+    }
+
+    private DiceExpression parseExpression() {
+        List<DiceTerm> terms = new ArrayList<>();
+
+        int sign = 1;
+        if (peek() == '+' || peek() == '-') {
+            sign = next() == '-' ? -1 : 1;
+        }
+        terms.add(parseTerm(sign));
+
+        while (position < text.length()) {
+            char operator = next();
+            if (operator != '+' && operator != '-') {
+                throw error("se esperaba '+' o '-'");
+            }
+            terms.add(parseTerm(operator == '-' ? -1 : 1));
+            if (terms.size() > MAX_TERMS) {
+                throw error("demasiados términos");
+            }
+        }
+
+        return new DiceExpression(source.trim(), terms);
+    }
+
+    private DiceTerm parseTerm(int sign) {
+        Integer number = readNumber();
+
+        if (peek() != 'd') {
+            if (number == null) {
+                throw error("se esperaba un número o un dado");
+            }
+            if (number > MAX_CONSTANT) {
+                throw error("modificador demasiado grande");
+            }
+            return new ConstantTerm(sign, number);
+        }
+        position++;
+
+        int count = number != null ? number : 1;
+        int sides;
+        if (peek() == '%') {
+            position++;
+            sides = 100;
+        } else {
+            Integer parsedSides = readNumber();
+            if (parsedSides == null) {
+                throw error("falta el número de caras");
+            }
+            sides = parsedSides;
+        }
+
+        if (count < 1 || count > DiceExpression.MAX_DICE_PER_GROUP) {
+            throw error("la cantidad de dados debe estar entre 1 y " + DiceExpression.MAX_DICE_PER_GROUP);
+        }
+        if (sides < 1 || sides > MAX_SIDES) {
+            throw error("el dado debe tener entre 1 y " + MAX_SIDES + " caras");
+        }
+
+        DiceGroupTerm.KeepMode keep = DiceGroupTerm.KeepMode.NONE;
+        int keepCount = 0;
+        if (peek() == 'k') {
+            position++;
+            keep = DiceGroupTerm.KeepMode.HIGHEST;
+            if (peek() == 'h') {
+                position++;
+            } else if (peek() == 'l') {
+                position++;
+                keep = DiceGroupTerm.KeepMode.LOWEST;
+            }
+            Integer parsedKeep = readNumber();
+            keepCount = parsedKeep != null ? parsedKeep : 1;
+            if (keepCount < 1 || keepCount > count) {
+                throw error("no se pueden conservar " + keepCount + " de " + count + " dados");
+            }
+        }
+
+        int rerollAtOrBelow = 0;
+        boolean rerollOnce = false;
+        if (peek() == 'r') {
+            position++;
+            if (peek() == 'o') {
+                position++;
+                rerollOnce = true;
+            }
+            boolean strictlyBelow = false;
+            if (peek() == '<') {
+                position++;
+                strictlyBelow = true;
+            }
+            Integer threshold = readNumber();
+            if (threshold == null) {
+                throw error("falta el valor a repetir");
+            }
+            rerollAtOrBelow = strictlyBelow ? threshold - 1 : threshold;
+            if (rerollAtOrBelow < 1 || rerollAtOrBelow >= sides) {
+                throw error("el valor a repetir debe estar entre 1 y " + (sides - 1));
+            }
+        }
+
+        return new DiceGroupTerm(sign, count, sides, keep, keepCount, rerollAtOrBelow, rerollOnce);
+    }
+
+    private Integer readNumber() {
+        int start = position;
+        while (position < text.length() && Character.isDigit(text.charAt(position))) {
+            position++;
+        }
+        if (start == position) {
+            return null;
+        }
+        if (position - start > 6) {
+            throw error("número demasiado grande");
+        }
+        return Integer.parseInt(text, start, position, 10);
+    }
+
+    private char peek() {
+        return position < text.length() ? text.charAt(position) : '\0';
+    }
+
+    private char next() {
+        return text.charAt(position++);
+    }
+
+    private IllegalArgumentException error(String reason) {
+        return new IllegalArgumentException(
+                String.format("Expresión de dados inválida '%s': %s", source, reason));
+    }
+}
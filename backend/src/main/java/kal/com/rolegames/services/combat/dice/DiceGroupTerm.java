@@ -0,0 +1,133 @@
+package kal.com.rolegames.services.combat.dice;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Grupo de dados iguales con sus modificadores: "2d20kh1" (ventaja), "4d6kl3", "2d6r2", "1d20ro1".
+ *
+ * @param keep            si se quedan los más altos o los más bajos
+ * @param keepCount       cuántos dados se conservan (solo con keep distinto de NONE)
+ * @param rerollAtOrBelow se repiten los resultados menores o iguales a este valor (0 = sin repetir)
+ * @param rerollOnce      si la repetición se hace una sola vez ("ro") o hasta superar el valor ("r")
+ */
+public record DiceGroupTerm(int sign, int count, int sides,
+                            KeepMode keep, int keepCount,
+                            int rerollAtOrBelow, boolean rerollOnce) implements DiceTerm {
+
+    public enum KeepMode { NONE, HIGHEST, LOWEST }
+
+    public int keptDice() {
+        return keep == KeepMode.NONE ? count : keepCount;
+    }
+
+    private int minFace() {
+        return rerollAtOrBelow > 0 && !rerollOnce ? rerollAtOrBelow + 1 : 1;
+    }
+
+    @Override
+    public int min() {
+        return sign > 0 ? keptDice() * minFace() : -keptDice() * sides;
+    }
+
+    @Override
+    public int max() {
+        return sign > 0 ? keptDice() * sides : -keptDice() * minFace();
+    }
+
+    int rollFace(RandomGenerator random) {
+        int face = random.nextInt(sides) + 1;
+        if (rerollAtOrBelow > 0) {
+            if (rerollOnce) {
+                if (face <= rerollAtOrBelow) {
+                    face = random.nextInt(sides) + 1;
+                }
+            } else {
+                // el parser garantiza rerollAtOrBelow < sides, así que termina
+                while (face <= rerollAtOrBelow) {
+                    face = random.nextInt(sides) + 1;
+                }
+            }
+        }
+        return face;
+    }
+
+    /**
+     * Tirada sin desglose. No reserva memoria: para quedarse con los más altos o más bajos
+     * usa el arreglo de trabajo del hilo que le pasa la expresión.
+     */
+    int roll(RandomGenerator random, int[] scratch) {
+        int total = 0;
+        if (keep == KeepMode.NONE || keepCount >= count) {
+            for (int i = 0; i < count; i++) {
+                total += rollFace(random);
+            }
+        } else if (keepCount == 1) {
+            // ventaja / desventaja: basta con el máximo o el mínimo
+            int best = rollFace(random);
+            for (int i = 1; i < count; i++) {
+                int face = rollFace(random);
+                best = keep == KeepMode.HIGHEST ? Math.max(best, face) : Math.min(best, face);
+            }
+            total = best;
+        } else {
+            for (int i = 0; i < count; i++) {
+                scratch[i] = rollFace(random);
+            }
+            Arrays.sort(scratch, 0, count);
+            int from = keep == KeepMode.HIGHEST ? count - keepCount : 0;
+            for (int i = from; i < from + keepCount; i++) {
+                total += scratch[i];
+            }
+        }
+        return sign * total;
+    }
+
+    /**
+     * Tirada con desglose dado por dado; los dados descartados se anotan pero no suman.
+     */
+    int rollDetailed(RandomGenerator random, DiceRollBreakdown.Builder breakdown) {
+        int[] faces = new int[count];
+        for (int i = 0; i < count; i++) {
+            faces[i] = rollFace(random);
+        }
+
+        boolean[] kept = new boolean[count];
+        if (keep == KeepMode.NONE || keepCount >= count) {
+            Arrays.fill(kept, true);
+        } else {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> keep == KeepMode.HIGHEST
+                    ? Integer.compare(faces[b], faces[a])
+                    : Integer.compare(faces[a], faces[b]));
+            for (int i = 0; i < keepCount; i++) {
+                kept[order[i]] = true;
+            }
+        }
+
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            breakdown.die(sides, faces[i], kept[i]);
+            if (kept[i]) {
+                total += faces[i];
+            }
+        }
+        return sign * total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(sign < 0 ? "-" : "+")
+                .append(count).append('d').append(sides);
+        if (keep != KeepMode.NONE) {
+            text.append(keep == KeepMode.HIGHEST ? "kh" : "kl").append(keepCount);
+        }
+        if (rerollAtOrBelow > 0) {
+            text.append(rerollOnce ? "ro" : "r").append(rerollAtOrBelow);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,24 @@
+package kal.com.rolegames.services.combat.dice;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Origen de los números aleatorios de las tiradas.
+ *
+ * Cada combate guarda una semilla al empezar (CombatState.diceSeed) y cada acción guarda su número
+ * de secuencia (CombatAction.diceSequence). Con esos dos valores se obtiene siempre el mismo
+ * generador, así que cualquier tirada de un combate se puede repetir exactamente.
+ */
+public interface DiceRandomSource {
+
+    /**
+     * Semilla nueva para un combate que empieza.
+     */
+    long newCombatSeed();
+
+    /**
+     * Generador de una acción del combate. Solo lo usa el buzón del encuentro,
+     * así que no necesita ser seguro entre hilos.
+     */
+    RandomGenerator stream(long combatSeed, long sequence);
+}
@@ -0,0 +1,32 @@
+package kal.com.rolegames.services.combat.dice;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resultado de una tirada con el detalle de cada dado, con las mismas claves que ya se guardan
+ * en ActionResult.diceResults: "d8_1", "d8_2", "fixed_1". Los dados descartados por kh/kl
+ * se anotan con el sufijo "_dropped".
+ */
+public record DiceRollBreakdown(int total, Map<String, Integer> dice) {
+
+    static final class Builder {
+        private final Map<String, Integer> dice = new LinkedHashMap<>();
+        private final Map<Integer, Integer> countersBySides = new HashMap<>();
+        private int constants;
+
+        void die(int sides, int face, boolean kept) {
+            int index = countersBySides.merge(sides, 1, Integer::sum);
+            dice.put("d" + sides + "_" + index + (kept ? "" : "_dropped"), face);
+        }
+
+        void constant(int value) {
+            dice.put("fixed_" + (++constants), value);
+        }
+
+        DiceRollBreakdown build(int total) {
+            return new DiceRollBreakdown(total, dice);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package kal.com.rolegames.services.combat.dice;
+
+import kal.com.rolegames.dto.combat.DiceRollDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tiradas libres de la mesa (DICE_ROLL por WebSocket): las tira el servidor con el mismo motor que
+ * el combate, así el resultado que ven todos no depende de lo que diga el cliente.
+ *
+ * Igual que en combate cada tirada usa su propio generador, derivado de una semilla de la mesa y
+ * de un número de secuencia; la semilla no sale del servidor.
+ */
+@Service
+public class DiceRollService {
+
+    private static final int MAX_LABEL_LENGTH = 60;
+
+    private final DiceExpressionCompiler diceCompiler;
+    private final DiceRandomSource diceRandomSource;
+
+    private final long tableSeed;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Autowired
+    public DiceRollService(DiceExpressionCompiler diceCompiler, DiceRandomSource diceRandomSource) {
+        this.diceCompiler = diceCompiler;
+        this.diceRandomSource = diceRandomSource;
+        this.tableSeed = diceRandomSource.newCombatSeed();
+    }
+
+    /**
+     * @throws IllegalArgumentException si la expresión no es válida
+     */
+    public DiceRollDTO roll(String expression, String label, Long userId) {
+        if (expression == null || expression.isBlank()) {
+            throw new IllegalArgumentException("La expresión de dados está vacía");
+        }
+        String source = expression.trim();
+        DiceExpression compiled = diceCompiler.compile(source);
+        DiceRollBreakdown breakdown = compiled.rollDetailed(
+                diceRandomSource.stream(tableSeed, sequence.incrementAndGet()));
+
+        return DiceRollDTO.builder()
+                .expression(source)
+                .label(label != null && label.length() > MAX_LABEL_LENGTH ? label.substring(0, MAX_LABEL_LENGTH) : label)
+                .total(breakdown.total())
+                .dice(breakdown.dice())
+                .userId(userId)
+                .build();
+    }
+}
@@ -0,0 +1,17 @@
+package kal.com.rolegames.services.combat.dice;
+
+/**
+ * Término de una expresión de dados ya compilada: una constante o un grupo de dados.
+ * El signo va en el término para que la expresión sea solo una suma.
+ */
+public sealed interface DiceTerm permits ConstantTerm, DiceGroupTerm {
+
+    /** +1 o -1 */
+    int sign();
+
+    /** Valor mínimo que puede aportar el término, ya con su signo */
+    int min();
+
+    /** Valor máximo que puede aportar el término, ya con su signo */
+    int max();
+}
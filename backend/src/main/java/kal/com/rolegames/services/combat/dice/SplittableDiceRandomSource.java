@@ -0,0 +1,55 @@
+package kal.com.rolegames.services.combat.dice;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Implementación con SplittableRandom: cada acción tira con su propio generador, derivado de la
+ * semilla del combate y del número de secuencia. No hay ningún Random compartido entre hilos.
+ *
+ * Con rolegames.dice.fixed-seed todos los combates usan la misma semilla (modo de pruebas).
+ */
+@Component
+public class SplittableDiceRandomSource implements DiceRandomSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(SplittableDiceRandomSource.class);
+
+    // el mismo incremento que usa SplittableRandom internamente
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final SecureRandom seeds = new SecureRandom();
+    private final Long fixedSeed;
+
+    @Autowired
+    public SplittableDiceRandomSource(@Value("${rolegames.dice.fixed-seed:#{null}}") Long fixedSeed) {
+        this.fixedSeed = fixedSeed;
+        if (fixedSeed != null) {
+            logger.warn("[DICE] Semilla fija {} para todas las tiradas (modo de pruebas)", fixedSeed);
+        }
+    }
+
+    @Override
+    public long newCombatSeed() {
+        return fixedSeed != null ? fixedSeed : seeds.nextLong();
+    }
+
+    @Override
+    public RandomGenerator stream(long combatSeed, long sequence) {
+        // semillas cercanas (seq, seq + 1) no deben dar secuencias solapadas: se mezclan antes
+        return new SplittableRandom(mix64(combatSeed + (sequence + 1) * GOLDEN_GAMMA));
+    }
+
+    // finalizador de MurmurHash3 / variante 13 de Stafford, el mismo que usa SplittableRandom
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
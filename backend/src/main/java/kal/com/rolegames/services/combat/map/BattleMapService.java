@@ -0,0 +1,407 @@
+package kal.com.rolegames.services.combat.map;
+
+import kal.com.rolegames.dto.combat.TerrainCellDTO;
+import kal.com.rolegames.dto.combat.TokenPositionDTO;
+import kal.com.rolegames.models.items.Range;
+import kal.com.rolegames.models.items.Weapon;
+import kal.com.rolegames.models.spells.Spell;
+import kal.com.rolegames.models.util.TerrainType;
+import kal.com.rolegames.models.util.WeaponProperty;
+import kal.com.rolegames.websockets.EncounterWebSocketService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Posiciones de las fichas en el mapa de batalla de cada encuentro. El servidor es la fuente de
+ * verdad: los clientes mandan PLAYER_POSITION_UPDATE y reciben TOKEN_POSITIONS.
+ *
+ * Cada encuentro tiene un {@link SpatialGrid}, así mover una ficha es O(1) y las búsquedas por
+ * radio (conjuros de área) solo revisan las celdas cercanas. Los movimientos no se anuncian uno por
+ * uno: cada rolegames.map.position-tick-ms sale un solo TOKEN_POSITIONS por encuentro con las
+ * fichas que se movieron, por rápido que arrastre el jugador.
+ *
+ * En combate los movimientos se validan con A* contra el movimiento que le queda al personaje, el
+ * terreno marcado por el DM (difícil o bloqueado) y las casillas ocupadas (ver MovementService).
+ *
+ * Las posiciones viven en memoria de este nodo y se pierden al terminar el encuentro.
+ */
+@Service
+public class BattleMapService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BattleMapService.class);
+
+    private static final int MELEE_REACH_FEET = 5;
+    private static final int DIFFICULT_TERRAIN_FEET = 2 * GridPosition.FEET_PER_SQUARE;
+    private static final int REACH_WEAPON_FEET = 10;
+
+    // "60 feet", "30 ft.", "1 mile"; el manual usa pies
+    private static final Pattern SPELL_RANGE = Pattern.compile("(\\d+)\\s*(feet|foot|ft|pies|mile|miles|milla|millas)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private final EncounterWebSocketService encounterWebSocketService;
+    private final int maxCoordinate;
+
+    private final Map<Long, EncounterMap> maps = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BattleMapService(EncounterWebSocketService encounterWebSocketService,
+                            @Value("${rolegames.map.max-coordinate:1000}") int maxCoordinate) {
+        this.encounterWebSocketService = encounterWebSocketService;
+        this.maxCoordinate = maxCoordinate;
+    }
+
+    // ========================================
+    // POSICIONES
+    // ========================================
+
+    /**
+     * Pone la ficha en la casilla sin contar movimiento (fuera de combate o al colocarla).
+     */
+    public void moveToken(Long encounterId, Long characterId, int x, int y) {
+        GridPosition to = validPosition(encounterId, characterId, x, y);
+
+        EncounterMap map = maps.computeIfAbsent(encounterId, id -> new EncounterMap());
+        synchronized (map) {
+            checkDestination(map, characterId, to);
+            map.grid.move(characterId, to);
+            map.moved.add(characterId);
+        }
+    }
+
+    /**
+     * Mueve la ficha por el camino más barato (A*, ver {@link PathFinder}) si cuesta budgetFeet o
+     * menos, y devuelve los pies gastados. El espacio de otra ficha se puede cruzar como terreno
+     * difícil pero no se puede terminar ahí. Si la ficha todavía no está en el mapa se coloca gratis.
+     */
+    public int moveToken(Long encounterId, Long characterId, int x, int y, int budgetFeet) {
+        GridPosition to = validPosition(encounterId, characterId, x, y);
+
+        EncounterMap map = maps.computeIfAbsent(encounterId, id -> new EncounterMap());
+        synchronized (map) {
+            checkDestination(map, characterId, to);
+
+            GridPosition from = map.grid.positionOf(characterId);
+            int spent = 0;
+            if (from != null) {
+                spent = PathFinder.cheapestPath(from, to, Math.max(0, budgetFeet), maxCoordinate,
+                        cellCosts(map, characterId, from, budgetFeet));
+                if (spent == PathFinder.UNREACHABLE) {
+                    throw new IllegalStateException("No hay un camino hasta (" + x + ", " + y + ") con los "
+                            + Math.max(0, budgetFeet) + " pies de movimiento que quedan");
+                }
+            }
+
+            map.grid.move(characterId, to);
+            map.moved.add(characterId);
+            return spent;
+        }
+    }
+
+    /**
+     * Marca el terreno de las casillas; NORMAL lo borra.
+     */
+    public void setTerrain(Long encounterId, List<TerrainCellDTO> cells) {
+        // se valida todo antes de tocar el mapa
+        for (TerrainCellDTO cell : cells) {
+            validPosition(cell.getX(), cell.getY());
+            if (cell.getTerrain() == null) {
+                throw new IllegalArgumentException("Falta el terreno de la casilla (" + cell.getX() + ", " + cell.getY() + ")");
+            }
+        }
+
+        EncounterMap map = maps.computeIfAbsent(encounterId, id -> new EncounterMap());
+        synchronized (map) {
+            for (TerrainCellDTO cell : cells) {
+                long key = cellKey(cell.getX(), cell.getY());
+                if (cell.getTerrain() == TerrainType.NORMAL) {
+                    map.terrain.remove(key);
+                } else {
+                    map.terrain.put(key, cell.getTerrain());
+                }
+            }
+        }
+    }
+
+    public List<TerrainCellDTO> terrain(Long encounterId) {
+        EncounterMap map = maps.get(encounterId);
+        if (map == null) {
+            return List.of();
+        }
+        synchronized (map) {
+            return map.terrain.entrySet().stream()
+                    .map(entry -> TerrainCellDTO.builder()
+                            .x((int) (entry.getKey() >> 32))
+                            .y((int) (long) entry.getKey())
+                            .terrain(entry.getValue())
+                            .build())
+                    .toList();
+        }
+    }
+
+    public void removeToken(Long encounterId, Long characterId) {
+        EncounterMap map = maps.get(encounterId);
+        if (map == null) {
+            return;
+        }
+        synchronized (map) {
+            map.grid.remove(characterId);
+            map.moved.remove(characterId);
+        }
+    }
+
+    public GridPosition positionOf(Long encounterId, Long characterId) {
+        EncounterMap map = maps.get(encounterId);
+        if (map == null) {
+            return null;
+        }
+        synchronized (map) {
+            return map.grid.positionOf(characterId);
+        }
+    }
+
+    public List<TokenPositionDTO> positions(Long encounterId) {
+        EncounterMap map = maps.get(encounterId);
+        if (map == null) {
+            return List.of();
+        }
+        synchronized (map) {
+            return map.grid.positions().entrySet().stream()
+                    .map(entry -> toDTO(entry.getKey(), entry.getValue()))
+                    .toList();
+        }
+    }
+
+    /**
+     * Personajes a radiusFeet pies o menos de la casilla, p. ej. los afectados por una bola de fuego.
+     */
+    public List<Long> charactersWithin(Long encounterId, GridPosition center, int radiusFeet) {
+        if (radiusFeet < 0) {
+            throw new IllegalArgumentException("El radio no puede ser negativo");
+        }
+        EncounterMap map = maps.get(encounterId);
+        if (map == null) {
+            return List.of();
+        }
+        synchronized (map) {
+            return map.grid.within(center, radiusFeet / GridPosition.FEET_PER_SQUARE);
+        }
+    }
+
+    public List<Long> charactersInRectangle(Long encounterId, int minX, int minY, int maxX, int maxY) {
+        EncounterMap map = maps.get(encounterId);
+        if (map == null) {
+            return List.of();
+        }
+        synchronized (map) {
+            return map.grid.inRectangle(Math.min(minX, maxX), Math.min(minY, maxY),
+                    Math.max(minX, maxX), Math.max(minY, maxY));
+        }
+    }
+
+    /**
+     * Distancia en pies entre dos fichas, o null si alguna no está en el mapa.
+     */
+    public Integer distanceInFeet(Long encounterId, Long fromCharacterId, Long toCharacterId) {
+        EncounterMap map = maps.get(encounterId);
+        if (map == null) {
+            return null;
+        }
+        synchronized (map) {
+            GridPosition from = map.grid.positionOf(fromCharacterId);
+            GridPosition to = map.grid.positionOf(toCharacterId);
+            return from != null && to != null ? from.feetTo(to) : null;
+        }
+    }
+
+    public void clear(Long encounterId) {
+        maps.remove(encounterId);
+    }
+
+    // ========================================
+    // ALCANCE
+    // ========================================
+
+    /**
+     * Comprueba que el objetivo esté al alcance del arma (null = ataque desarmado). Con un arma a
+     * distancia vale el alcance máximo (más allá del normal el ataque va con desventaja, pero se
+     * puede hacer). Si alguna ficha no está en el mapa no se comprueba nada.
+     */
+    public void validateWeaponRange(Long encounterId, Long attackerId, Long targetId, Weapon weapon) {
+        Integer distance = distanceInFeet(encounterId, attackerId, targetId);
+        if (distance == null) {
+            return;
+        }
+
+        int limit = weaponRangeInFeet(weapon);
+        if (distance > limit) {
+            throw new IllegalStateException("El objetivo está a " + distance + " pies y el alcance es de "
+                    + limit + " pies");
+        }
+    }
+
+    /**
+     * Igual que validateWeaponRange con el alcance del conjuro. Si el texto del alcance no se
+     * entiende (p. ej. "Special") no se comprueba.
+     */
+    public void validateSpellRange(Long encounterId, Long casterId, Long targetId, Spell spell) {
+        Integer limit = spellRangeInFeet(spell.getRange());
+        if (limit == null) {
+            return;
+        }
+        Integer distance = distanceInFeet(encounterId, casterId, targetId);
+        if (distance == null) {
+            return;
+        }
+        if (distance > limit) {
+            throw new IllegalStateException("El objetivo está a " + distance + " pies y " + spell.getName()
+                    + " tiene un alcance de " + limit + " pies");
+        }
+    }
+
+    static int weaponRangeInFeet(Weapon weapon) {
+        if (weapon == null) {
+            return MELEE_REACH_FEET;
+        }
+        int reach = weapon.getProperties().contains(WeaponProperty.REACH) ? REACH_WEAPON_FEET : MELEE_REACH_FEET;
+
+        Range range = weapon.getRange();
+        if (range == null || (range.isMelee() && !weapon.getProperties().contains(WeaponProperty.THROWN))) {
+            return reach;
+        }
+        Integer limit = range.getMaximum() != null ? range.getMaximum() : range.getNormal();
+        return limit != null ? Math.max(reach, limit) : reach;
+    }
+
+    static Integer spellRangeInFeet(String range) {
+        if (range == null || range.isBlank()) {
+            return null;
+        }
+        String text = range.trim().toLowerCase(Locale.ROOT);
+        if (text.startsWith("touch") || text.startsWith("toque")) {
+            return MELEE_REACH_FEET;
+        }
+        if (text.startsWith("self") || text.startsWith("personal")) {
+            return 0;
+        }
+
+        Matcher matcher = SPELL_RANGE.matcher(text);
+        if (!matcher.find()) {
+            return null;
+        }
+        int value = Integer.parseInt(matcher.group(1));
+        return matcher.group(2).startsWith("m") ? value * 5280 : value;
+    }
+
+    // ========================================
+    // TICK
+    // ========================================
+
+    /**
+     * Anuncia las fichas que se movieron desde el último tick, un mensaje por encuentro.
+     */
+    @Scheduled(fixedRateString = "${rolegames.map.position-tick-ms:100}")
+    public void flushPositions() {
+        maps.forEach((encounterId, map) -> {
+            List<TokenPositionDTO> moved;
+            synchronized (map) {
+                if (map.moved.isEmpty()) {
+                    return;
+                }
+                moved = new ArrayList<>(map.moved.size());
+                for (Long characterId : map.moved) {
+                    GridPosition position = map.grid.positionOf(characterId);
+                    if (position != null) {
+                        moved.add(toDTO(characterId, position));
+                    }
+                }
+                map.moved.clear();
+            }
+
+            try {
+                encounterWebSocketService.notifyEncounterUpdate(encounterId, "TOKEN_POSITIONS", moved);
+            } catch (Exception e) {
+                logger.error("[BATTLE MAP] Error anunciando posiciones del encuentro {}: {}", encounterId, e.getMessage());
+            }
+        });
+    }
+
+    private GridPosition validPosition(Long encounterId, Long characterId, int x, int y) {
+        if (encounterId == null || characterId == null) {
+            throw new IllegalArgumentException("Encounter and character are required");
+        }
+        return validPosition(x, y);
+    }
+
+    private GridPosition validPosition(Integer x, Integer y) {
+        if (x == null || y == null || x < 0 || y < 0 || x > maxCoordinate || y > maxCoordinate) {
+            throw new IllegalArgumentException("La posición (" + x + ", " + y + ") está fuera del mapa");
+        }
+        return new GridPosition(x, y);
+    }
+
+    // se llama con el lock del mapa
+    private void checkDestination(EncounterMap map, Long characterId, GridPosition to) {
+        if (map.terrain.get(cellKey(to.x(), to.y())) == TerrainType.BLOCKED) {
+            throw new IllegalStateException("La casilla (" + to.x() + ", " + to.y() + ") está bloqueada");
+        }
+        for (Long occupant : map.grid.inRectangle(to.x(), to.y(), to.x(), to.y())) {
+            if (!occupant.equals(characterId)) {
+                throw new IllegalStateException("La casilla (" + to.x() + ", " + to.y() + ") está ocupada");
+            }
+        }
+    }
+
+    // se llama con el lock del mapa; las fichas se buscan una vez, solo en la zona alcanzable
+    private PathFinder.CellCost cellCosts(EncounterMap map, Long characterId, GridPosition from, int budgetFeet) {
+        int radius = Math.max(0, budgetFeet) / GridPosition.FEET_PER_SQUARE;
+        Set<Long> occupied = new HashSet<>();
+        for (Long occupant : map.grid.inRectangle(from.x() - radius, from.y() - radius,
+                from.x() + radius, from.y() + radius)) {
+            if (!occupant.equals(characterId)) {
+                GridPosition position = map.grid.positionOf(occupant);
+                occupied.add(cellKey(position.x(), position.y()));
+            }
+        }
+
+        return (x, y) -> {
+            long key = cellKey(x, y);
+            TerrainType terrain = map.terrain.getOrDefault(key, TerrainType.NORMAL);
+            if (terrain == TerrainType.BLOCKED) {
+                return PathFinder.BLOCKED;
+            }
+            // el espacio de otra criatura cuenta como terreno difícil
+            return terrain == TerrainType.DIFFICULT || occupied.contains(key)
+                    ? DIFFICULT_TERRAIN_FEET
+                    : GridPosition.FEET_PER_SQUARE;
+        };
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private TokenPositionDTO toDTO(Long characterId, GridPosition position) {
+        return TokenPositionDTO.builder()
+                .characterId(characterId)
+                .x(position.x())
+                .y(position.y())
+                .build();
+    }
+
+    private static final class EncounterMap {
+        private final SpatialGrid grid = new SpatialGrid();
+        // fichas movidas desde el último tick; LinkedHashSet para anunciarlas en orden
+        private final Set<Long> moved = new LinkedHashSet<>();
+        // casilla -> terreno, solo las que no son normales
+        private final Map<Long, TerrainType> terrain = new HashMap<>();
+    }
+}
@@ -0,0 +1,20 @@
+package kal.com.rolegames.services.combat.map;
+
+/**
+ * Casilla del mapa de batalla. Cada casilla mide {@value #FEET_PER_SQUARE} pies.
+ */
+public record GridPosition(int x, int y) {
+
+    public static final int FEET_PER_SQUARE = 5;
+
+    /**
+     * Distancia en casillas con la regla básica de 5e: una diagonal cuesta lo mismo que un paso recto.
+     */
+    public int squaresTo(GridPosition other) {
+        return Math.max(Math.abs(x - other.x), Math.abs(y - other.y));
+    }
+
+    public int feetTo(GridPosition other) {
+        return squaresTo(other) * FEET_PER_SQUARE;
+    }
+}
@@ -0,0 +1,176 @@
+package kal.com.rolegames.services.combat.map;
+
+import java.util.Arrays;
+
+/**
+ * A* sobre la rejilla del mapa de batalla para validar un movimiento.
+ *
+ * La búsqueda se limita a la ventana de casillas que el personaje podría alcanzar con su movimiento
+ * restante (radio = pies / 5), así que con 30 pies son 13x13 casillas sin importar el tamaño del
+ * mapa. El costo de cada casilla se pide una sola vez por búsqueda y queda en la ventana.
+ *
+ * Reglas: cada paso, recto o en diagonal, cuesta lo que cuesta entrar a la casilla (5 pies, 10 en
+ * terreno difícil); no se puede cortar en diagonal entre dos casillas bloqueadas.
+ */
+final class PathFinder {
+
+    static final int BLOCKED = -1;
+    static final int UNREACHABLE = -1;
+
+    /**
+     * Pies que cuesta entrar a la casilla, o {@link #BLOCKED}.
+     */
+    @FunctionalInterface
+    interface CellCost {
+        int feetToEnter(int x, int y);
+    }
+
+    private static final int UNKNOWN = 0;
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DY = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private PathFinder() {
+    }
+
+    /**
+     * Costo en pies del camino más barato de from a to, o {@link #UNREACHABLE} si no hay camino
+     * que cueste budgetFeet o menos. Las coordenadas válidas van de 0 a maxCoordinate.
+     */
+    static int cheapestPath(GridPosition from, GridPosition to, int budgetFeet, int maxCoordinate, CellCost cellCost) {
+        if (from.equals(to)) {
+            return 0;
+        }
+        int radius = budgetFeet / GridPosition.FEET_PER_SQUARE;
+        if (from.squaresTo(to) > radius) {
+            return UNREACHABLE;
+        }
+
+        int minX = Math.max(0, from.x() - radius);
+        int minY = Math.max(0, from.y() - radius);
+        int width = Math.min(maxCoordinate, from.x() + radius) - minX + 1;
+        int height = Math.min(maxCoordinate, from.y() + radius) - minY + 1;
+        int cells = width * height;
+
+        int[] costs = new int[cells];        // UNKNOWN hasta que se consulta
+        int[] spent = new int[cells];
+        boolean[] closed = new boolean[cells];
+        Arrays.fill(spent, Integer.MAX_VALUE);
+        Heap open = new Heap(Math.min(cells * 2, 1024));
+
+        int start = (from.y() - minY) * width + (from.x() - minX);
+        int goal = (to.y() - minY) * width + (to.x() - minX);
+        spent[start] = 0;
+        open.push(estimate(from.x(), from.y(), to), start);
+
+        while (!open.isEmpty()) {
+            int current = open.pop();
+            if (closed[current]) {
+                continue;
+            }
+            if (current == goal) {
+                return spent[current];
+            }
+            closed[current] = true;
+
+            int cx = current % width;
+            int cy = current / width;
+            for (int d = 0; d < DX.length; d++) {
+                int nx = cx + DX[d];
+                int ny = cy + DY[d];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+                int next = ny * width + nx;
+                if (closed[next]) {
+                    continue;
+                }
+                int cost = cost(costs, next, nx + minX, ny + minY, cellCost);
+                if (cost == BLOCKED) {
+                    continue;
+                }
+                if (d >= 4
+                        && cost(costs, cy * width + nx, nx + minX, cy + minY, cellCost) == BLOCKED
+                        && cost(costs, ny * width + cx, cx + minX, ny + minY, cellCost) == BLOCKED) {
+                    continue;
+                }
+
+                int total = spent[current] + cost;
+                if (total <= budgetFeet && total < spent[next]) {
+                    spent[next] = total;
+                    open.push(total + estimate(nx + minX, ny + minY, to), next);
+                }
+            }
+        }
+        return UNREACHABLE;
+    }
+
+    private static int cost(int[] costs, int index, int x, int y, CellCost cellCost) {
+        int cost = costs[index];
+        if (cost == UNKNOWN) {
+            cost = cellCost.feetToEnter(x, y);
+            costs[index] = cost;
+        }
+        return cost;
+    }
+
+    // nunca sobreestima: cada paso cuesta al menos 5 pies
+    private static int estimate(int x, int y, GridPosition to) {
+        return Math.max(Math.abs(x - to.x()), Math.abs(y - to.y())) * GridPosition.FEET_PER_SQUARE;
+    }
+
+    /**
+     * Montículo binario de casillas por prioridad, sin objetos por entrada: prioridad e índice van
+     * juntos en un long.
+     */
+    private static final class Heap {
+        private long[] entries;
+        private int size;
+
+        Heap(int capacity) {
+            entries = new long[Math.max(capacity, 16)];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(int priority, int index) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            long entry = ((long) priority << 32) | index;
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (entries[parent] <= entry) {
+                    break;
+                }
+                entries[i] = entries[parent];
+                i = parent;
+            }
+            entries[i] = entry;
+        }
+
+        int pop() {
+            long top = entries[0];
+            long last = entries[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && entries[child + 1] < entries[child]) {
+                    child++;
+                }
+                if (entries[child] >= last) {
+                    break;
+                }
+                entries[i] = entries[child];
+                i = child;
+            }
+            entries[i] = last;
+            return (int) top;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package kal.com.rolegames.services.combat.map;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Índice espacial de las fichas de un encuentro: una rejilla uniforme de celdas de
+ * {@value #CELL_SIZE}x{@value #CELL_SIZE} casillas, cada una con las fichas que tiene adentro.
+ *
+ * Mover una ficha es quitarla de una celda y ponerla en otra (O(1)); una búsqueda por radio o
+ * rectángulo solo revisa las celdas que lo tocan. No es thread-safe: BattleMapService lo usa con
+ * el lock del mapa del encuentro.
+ */
+final class SpatialGrid {
+
+    static final int CELL_SIZE = 8;
+
+    private final Map<Long, GridPosition> positions = new HashMap<>();
+    private final Map<Long, Set<Long>> cells = new HashMap<>();
+
+    /**
+     * Pone la ficha en la casilla. Devuelve la posición anterior o null si no estaba en el mapa.
+     */
+    GridPosition move(Long characterId, GridPosition to) {
+        GridPosition from = positions.put(characterId, to);
+        if (from != null) {
+            long fromCell = cellKey(from);
+            if (fromCell == cellKey(to)) {
+                return from;
+            }
+            removeFromCell(fromCell, characterId);
+        }
+        cells.computeIfAbsent(cellKey(to), key -> new HashSet<>()).add(characterId);
+        return from;
+    }
+
+    void remove(Long characterId) {
+        GridPosition position = positions.remove(characterId);
+        if (position != null) {
+            removeFromCell(cellKey(position), characterId);
+        }
+    }
+
+    GridPosition positionOf(Long characterId) {
+        return positions.get(characterId);
+    }
+
+    Map<Long, GridPosition> positions() {
+        return Collections.unmodifiableMap(positions);
+    }
+
+    /**
+     * Fichas a radiusSquares casillas o menos del centro.
+     */
+    List<Long> within(GridPosition center, int radiusSquares) {
+        List<Long> found = new ArrayList<>();
+        forEachInBox(center.x() - radiusSquares, center.y() - radiusSquares,
+                center.x() + radiusSquares, center.y() + radiusSquares,
+                (characterId, position) -> {
+                    if (position.squaresTo(center) <= radiusSquares) {
+                        found.add(characterId);
+                    }
+                });
+        return found;
+    }
+
+    /**
+     * Fichas dentro del rectángulo, bordes incluidos.
+     */
+    List<Long> inRectangle(int minX, int minY, int maxX, int maxY) {
+        List<Long> found = new ArrayList<>();
+        forEachInBox(minX, minY, maxX, maxY, (characterId, position) -> found.add(characterId));
+        return found;
+    }
+
+    private void forEachInBox(int minX, int minY, int maxX, int maxY,
+                              BiConsumer<Long, GridPosition> action) {
+        for (int cellX = Math.floorDiv(minX, CELL_SIZE); cellX <= Math.floorDiv(maxX, CELL_SIZE); cellX++) {
+            for (int cellY = Math.floorDiv(minY, CELL_SIZE); cellY <= Math.floorDiv(maxY, CELL_SIZE); cellY++) {
+                Set<Long> cell = cells.get(cellKey(cellX, cellY));
+                if (cell == null) {
+                    continue;
+                }
+                for (Long characterId : cell) {
+                    GridPosition position = positions.get(characterId);
+                    if (position.x() >= minX && position.x() <= maxX
+                            && position.y() >= minY && position.y() <= maxY) {
+                        action.accept(characterId, position);
+                    }
+                }
+            }
+        }
+    }
+
+    private void removeFromCell(long key, Long characterId) {
+        Set<Long> cell = cells.get(key);
+        if (cell != null) {
+            cell.remove(characterId);
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    private static long cellKey(GridPosition position) {
+        return cellKey(Math.floorDiv(position.x(), CELL_SIZE), Math.floorDiv(position.y(), CELL_SIZE));
+    }
+
+    private static long cellKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,22 @@
+package kal.com.rolegames.services.combat.simulation;
+
+import kal.com.rolegames.services.combat.ActionResultService.DamageFormula;
+
+/**
+ * Lo que el simulador necesita de un participante, copiado de la entidad una sola vez
+ * para no tocar JPA desde los hilos del pool.
+ *
+ * @param party          true para jugadores y PNJ aliados, false para PNJ hostiles
+ * @param damage         daño si impacta, con la regla de ActionResultService
+ * @param savingThrow    hechizos con tirada de salvación: se aplican sin tirar ataque
+ */
+public record CombatantProfile(String name,
+                               boolean party,
+                               int startHitPoints,
+                               int armorClass,
+                               int initiativeModifier,
+                               String attackName,
+                               int attackBonus,
+                               DamageFormula damage,
+                               boolean savingThrow) {
+}
@@ -0,0 +1,251 @@
+package kal.com.rolegames.services.combat.simulation;
+
+import jakarta.annotation.PreDestroy;
+import kal.com.rolegames.dto.combat.EncounterSimulationDTO;
+import kal.com.rolegames.models.characters.GameCharacter;
+import kal.com.rolegames.models.characters.NonPlayerCharacter;
+import kal.com.rolegames.models.characters.PlayerCharacter;
+import kal.com.rolegames.models.items.Item;
+import kal.com.rolegames.models.items.Weapon;
+import kal.com.rolegames.models.sessions.Encounter;
+import kal.com.rolegames.models.spells.Spell;
+import kal.com.rolegames.models.util.AbilityType;
+import kal.com.rolegames.models.util.DifficultyLevel;
+import kal.com.rolegames.repositories.sessions.EncounterRepository;
+import kal.com.rolegames.services.combat.ActionResultService;
+import kal.com.rolegames.services.combat.ActionResultService.DamageFormula;
+import kal.com.rolegames.services.combat.dice.DiceDistributionCalculator;
+import kal.com.rolegames.services.combat.dice.DiceRandomSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Simulador Monte Carlo de encuentros: juega miles de peleas entre los participantes del encuentro
+ * (jugadores y PNJ aliados contra PNJ hostiles) y estima la probabilidad de victoria del grupo,
+ * cuántas rondas dura la pelea y cuántos puntos de vida cuesta.
+ *
+ * Los participantes se copian a {@link CombatantProfile} en una transacción corta y las peleas
+ * corren en un ForkJoinPool propio, sin tocar la BD.
+ */
+@Service
+public class EncounterSimulator {
+
+    private static final Logger logger = LoggerFactory.getLogger(EncounterSimulator.class);
+
+    private final EncounterRepository encounterRepository;
+    private final ActionResultService actionResultService;
+    private final DiceDistributionCalculator distributionCalculator;
+    private final DiceRandomSource diceRandomSource;
+
+    private final TransactionTemplate readTransaction;
+    private final ForkJoinPool pool;
+    private final int maxFights;
+
+    @Autowired
+    public EncounterSimulator(EncounterRepository encounterRepository,
+                              ActionResultService actionResultService,
+                              DiceDistributionCalculator distributionCalculator,
+                              DiceRandomSource diceRandomSource,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${rolegames.simulation.parallelism:0}") int parallelism,
+                              @Value("${rolegames.simulation.max-fights:200000}") int maxFights) {
+        this.encounterRepository = encounterRepository;
+        this.actionResultService = actionResultService;
+        this.distributionCalculator = distributionCalculator;
+        this.diceRandomSource = diceRandomSource;
+        this.maxFights = maxFights;
+
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public EncounterSimulationDTO simulate(Long encounterId, int fights, Long seed) {
+        if (fights < 1 || fights > maxFights) {
+            throw new IllegalArgumentException("El número de peleas debe estar entre 1 y " + maxFights);
+        }
+
+        EncounterSetup setup = readTransaction.execute(status -> {
+            Encounter encounter = encounterRepository.findById(encounterId)
+                    .orElseThrow(() -> new NoSuchElementException("Encounter not found"));
+            List<CombatantProfile> profiles = encounter.getParticipants().stream()
+                    .map(this::toProfile)
+                    .toList();
+            return new EncounterSetup(encounter.getDifficulty(), profiles);
+        });
+
+        long usedSeed = seed != null ? seed : diceRandomSource.newCombatSeed();
+        long start = System.nanoTime();
+        SimulationTally tally = simulate(setup.profiles(), fights, usedSeed);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        int partyHitPoints = setup.profiles().stream()
+                .filter(CombatantProfile::party)
+                .mapToInt(CombatantProfile::startHitPoints)
+                .sum();
+
+        double winProbability = (double) tally.partyWins / tally.fights;
+        double hitPointsLost = (double) tally.totalPartyHitPointsLost / tally.fights;
+        double lostRatio = partyHitPoints > 0 ? hitPointsLost / partyHitPoints : 1.0;
+
+        logger.info("[ENCOUNTER SIMULATOR] Encuentro {}: {} peleas en {} ms, victoria {}",
+                encounterId, fights, elapsedMillis, String.format("%.3f", winProbability));
+
+        return EncounterSimulationDTO.builder()
+                .encounterId(encounterId)
+                .fights(fights)
+                .seed(usedSeed)
+                .partyWinProbability(winProbability)
+                .expectedRounds((double) tally.totalRounds / tally.fights)
+                .expectedPartyHitPointsLost(hitPointsLost)
+                .expectedPartyHitPointsLostRatio(lostRatio)
+                .expectedPartyDeaths((double) tally.totalPartyDeaths / tally.fights)
+                .currentDifficulty(setup.difficulty())
+                .suggestedDifficulty(suggestDifficulty(winProbability, lostRatio))
+                .elapsedMillis(elapsedMillis)
+                .build();
+    }
+
+    /**
+     * Corre las peleas sobre perfiles ya armados. Con la misma semilla el resultado es idéntico.
+     */
+    SimulationTally simulate(List<CombatantProfile> profiles, int fights, long seed) {
+        boolean hasParty = profiles.stream().anyMatch(p -> p.party() && p.startHitPoints() > 0);
+        boolean hasEnemies = profiles.stream().anyMatch(p -> !p.party() && p.startHitPoints() > 0);
+        if (!hasParty || !hasEnemies) {
+            throw new IllegalStateException("El encuentro necesita participantes de ambos bandos para simularlo");
+        }
+
+        CombatantProfile[] combatants = profiles.toArray(new CombatantProfile[0]);
+        return pool.invoke(new SimulationTask(combatants, fights, new SplittableRandom(seed)));
+    }
+
+    private DifficultyLevel suggestDifficulty(double winProbability, double lostRatio) {
+        if (winProbability < 0.6 || lostRatio > 0.75) {
+            return DifficultyLevel.DEADLY;
+        } else if (winProbability < 0.9 || lostRatio > 0.5) {
+            return DifficultyLevel.HARD;
+        } else if (lostRatio > 0.25) {
+            return DifficultyLevel.MEDIUM;
+        } else if (lostRatio > 0.1) {
+            return DifficultyLevel.EASY;
+        }
+        return DifficultyLevel.TRIVIAL;
+    }
+
+    // ========================================
+    // PERFILES
+    // ========================================
+
+    private CombatantProfile toProfile(GameCharacter character) {
+        boolean party = !(character instanceof NonPlayerCharacter npc) || !Boolean.TRUE.equals(npc.getIsHostile());
+        int proficiency = character.getProficiencyBonus() != null ? character.getProficiencyBonus() : 0;
+        int strength = character.getAbilityModifier(AbilityType.STRENGTH);
+
+        // ataque desarmado, igual que processAttack
+        DamageFormula unarmed = actionResultService.unarmedDamage(character);
+        Attack best = new Attack("Desarmado", strength + proficiency, unarmed, false, expectedDamage(unarmed));
+
+        for (Weapon weapon : weaponsOf(character)) {
+            DamageFormula damage = damageOrNull(weapon.getDamageDice(),
+                    () -> actionResultService.weaponDamage(weapon, character));
+            if (damage == null) {
+                continue;
+            }
+            best = better(best, new Attack(weapon.getName(),
+                    weapon.getTotalAttackBonus(character, character.getProficiencyBonus() != null),
+                    damage, false, expectedDamage(damage)));
+        }
+
+        if (character instanceof PlayerCharacter player) {
+            // solo trucos: no gastan espacios de conjuro y se pueden lanzar cada ronda
+            for (Spell spell : player.getSpells()) {
+                if (!spell.isCantrip()) {
+                    continue;
+                }
+                DamageFormula damage = damageOrNull(spell.getDamageDice(),
+                        () -> actionResultService.spellDamage(spell, character));
+                if (damage == null) {
+                    continue;
+                }
+                // el bonificador de ataque del hechizo es el modificador de lanzamiento + competencia
+                best = better(best, new Attack(spell.getName(), damage.modifier() + proficiency, damage,
+                        spell.requiresSavingThrow(), expectedDamage(damage)));
+            }
+        }
+
+        return new CombatantProfile(
+                character.getName(),
+                party,
+                character.getHitPoints() != null ? character.getHitPoints() : 0,
+                character.getArmorClass() != null ? character.getArmorClass() : 10,
+                character.getAbilityModifier(AbilityType.DEXTERITY),
+                best.name(),
+                best.attackBonus(),
+                best.damage(),
+                best.savingThrow());
+    }
+
+    private List<Weapon> weaponsOf(GameCharacter character) {
+        Set<Item> items = new HashSet<>();
+        if (character instanceof PlayerCharacter player) {
+            items.addAll(player.getEquippedItems().values());
+            items.addAll(player.getInventory());
+        } else if (character instanceof NonPlayerCharacter npc && npc.getInventory() != null) {
+            items.addAll(npc.getInventory());
+        }
+
+        List<Weapon> weapons = new ArrayList<>();
+        for (Item item : items) {
+            if (item instanceof Weapon weapon) {
+                weapons.add(weapon);
+            }
+        }
+        return weapons;
+    }
+
+    private DamageFormula damageOrNull(String expression, Supplier<DamageFormula> formula) {
+        if (expression == null || expression.isBlank()) {
+            return null;
+        }
+        try {
+            return formula.get();
+        } catch (IllegalArgumentException e) {
+            logger.warn("[ENCOUNTER SIMULATOR] Se ignora un ataque: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private double expectedDamage(DamageFormula damage) {
+        if (damage.dice() == null) {
+            return damage.apply(0);
+        }
+        return distributionCalculator.distributionOf(damage.dice()).shift(damage.modifier()).atLeast(1).mean();
+    }
+
+    private Attack better(Attack current, Attack candidate) {
+        return candidate.expectedDamage() > current.expectedDamage() ? candidate : current;
+    }
+
+    private record Attack(String name, int attackBonus, DamageFormula damage,
+                          boolean savingThrow, double expectedDamage) {
+    }
+
+    private record EncounterSetup(DifficultyLevel difficulty, List<CombatantProfile> profiles) {
+    }
+}
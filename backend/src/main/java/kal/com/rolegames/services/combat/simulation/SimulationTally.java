@@ -0,0 +1,22 @@
+package kal.com.rolegames.services.combat.simulation;
+
+/**
+ * Acumulado de un lote de peleas simuladas. Cada tarea del pool llena el suyo y se suman al final.
+ */
+final class SimulationTally {
+
+    long fights;
+    long partyWins;
+    long totalRounds;
+    long totalPartyHitPointsLost;
+    long totalPartyDeaths;
+
+    SimulationTally merge(SimulationTally other) {
+        fights += other.fights;
+        partyWins += other.partyWins;
+        totalRounds += other.totalRounds;
+        totalPartyHitPointsLost += other.totalPartyHitPointsLost;
+        totalPartyDeaths += other.totalPartyDeaths;
+        return this;
+    }
+}
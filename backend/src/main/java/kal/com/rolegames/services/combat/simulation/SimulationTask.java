@@ -0,0 +1,149 @@
+package kal.com.rolegames.services.combat.simulation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simula un rango de peleas. Si el rango es grande se parte en dos y cada mitad recibe su propio
+ * generador (SplittableRandom.split), así que el resultado depende solo de la semilla y no del
+ * reparto entre hilos.
+ *
+ * El daño de un ataque que impacta sale de ActionResultService.DamageFormula, igual que en el
+ * motor. Si impacta o no, el motor lo recibe del cliente (diceResult); aquí lo reemplaza una tirada
+ * de d20 + bonificador contra la CA, con el 1 natural fallando y el 20 natural impactando. Como el
+ * motor no tiene críticos, el 20 no duplica dados.
+ */
+final class SimulationTask extends RecursiveTask<SimulationTally> {
+
+    // peleas que una tarea simula sin volver a partirse
+    static final int FIGHTS_PER_LEAF = 1_000;
+
+    // tope para peleas en las que nadie puede dañar a nadie
+    static final int MAX_ROUNDS = 100;
+
+    private final CombatantProfile[] combatants;
+    private final int fights;
+    private final SplittableRandom random;
+
+    SimulationTask(CombatantProfile[] combatants, int fights, SplittableRandom random) {
+        this.combatants = combatants;
+        this.fights = fights;
+        this.random = random;
+    }
+
+    @Override
+    protected SimulationTally compute() {
+        if (fights <= FIGHTS_PER_LEAF) {
+            return simulateFights();
+        }
+
+        int half = fights / 2;
+        SimulationTask left = new SimulationTask(combatants, half, random.split());
+        SimulationTask right = new SimulationTask(combatants, fights - half, random);
+        left.fork();
+        SimulationTally rightTally = right.compute();
+        return left.join().merge(rightTally);
+    }
+
+    private SimulationTally simulateFights() {
+        int n = combatants.length;
+        int[] hitPoints = new int[n];
+        int[] initiative = new int[n];
+        int[] order = new int[n];
+
+        SimulationTally tally = new SimulationTally();
+        for (int fight = 0; fight < fights; fight++) {
+            int partyAlive = 0;
+            int enemiesAlive = 0;
+
+            for (int i = 0; i < n; i++) {
+                hitPoints[i] = combatants[i].startHitPoints();
+                initiative[i] = random.nextInt(20) + 1 + combatants[i].initiativeModifier();
+                order[i] = i;
+                if (hitPoints[i] > 0) {
+                    if (combatants[i].party()) {
+                        partyAlive++;
+                    } else {
+                        enemiesAlive++;
+                    }
+                }
+            }
+            sortByInitiative(order, initiative);
+
+            int rounds = 0;
+            while (partyAlive > 0 && enemiesAlive > 0 && rounds < MAX_ROUNDS) {
+                rounds++;
+                for (int k = 0; k < n && partyAlive > 0 && enemiesAlive > 0; k++) {
+                    int attacker = order[k];
+                    if (hitPoints[attacker] <= 0) {
+                        continue;
+                    }
+
+                    int target = weakestOpponent(attacker, hitPoints);
+                    int damage = attack(combatants[attacker], combatants[target]);
+                    if (damage > 0 && hitPoints[target] > 0) {
+                        hitPoints[target] -= damage;
+                        if (hitPoints[target] <= 0) {
+                            if (combatants[target].party()) {
+                                partyAlive--;
+                            } else {
+                                enemiesAlive--;
+                            }
+                        }
+                    }
+                }
+            }
+
+            tally.fights++;
+            tally.totalRounds += rounds;
+            if (enemiesAlive == 0 && partyAlive > 0) {
+                tally.partyWins++;
+            }
+            for (int i = 0; i < n; i++) {
+                if (combatants[i].party()) {
+                    tally.totalPartyHitPointsLost += combatants[i].startHitPoints() - Math.max(0, hitPoints[i]);
+                    if (hitPoints[i] <= 0 && combatants[i].startHitPoints() > 0) {
+                        tally.totalPartyDeaths++;
+                    }
+                }
+            }
+        }
+        return tally;
+    }
+
+    private int attack(CombatantProfile attacker, CombatantProfile target) {
+        if (!attacker.savingThrow()) {
+            int d20 = random.nextInt(20) + 1;
+            if (d20 == 1 || (d20 != 20 && d20 + attacker.attackBonus() < target.armorClass())) {
+                return 0;
+            }
+        }
+        return attacker.damage().roll(random);
+    }
+
+    // se ataca al enemigo vivo con menos puntos de vida
+    private int weakestOpponent(int attacker, int[] hitPoints) {
+        boolean attackerParty = combatants[attacker].party();
+        int target = -1;
+        for (int i = 0; i < combatants.length; i++) {
+            if (combatants[i].party() != attackerParty && hitPoints[i] > 0
+                    && (target < 0 || hitPoints[i] < hitPoints[target])) {
+                target = i;
+            }
+        }
+        return target;
+    }
+
+    // inserción: pocos participantes y sin reservar memoria
+    private static void sortByInitiative(int[] order, int[] initiative) {
+        for (int i = 1; i < order.length; i++) {
+            int current = order[i];
+            int j = i - 1;
+            while (j >= 0 && initiative[order[j]] < initiative[current]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = current;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package kal.com.rolegames.services.notifications;
+
+import jakarta.annotation.PreDestroy;
+import kal.com.rolegames.dto.notifications.BulkNotificationProgressDTO;
+import kal.com.rolegames.mappers.notifications.NotificationMapper;
+import kal.com.rolegames.models.notifications.Notification;
+import kal.com.rolegames.models.users.User;
+import kal.com.rolegames.models.util.NotificationType;
+import kal.com.rolegames.repositories.notifications.NotificationBatchRepository;
+import kal.com.rolegames.repositories.sessions.CampaignRepository;
+import kal.com.rolegames.repositories.sessions.CampaignRepository.CampaignMember;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Notificaciones a muchos destinatarios (por ejemplo un anuncio a toda una campaña).
+ *
+ * Los destinatarios se leen por páginas con keyset (id mayor que el último de la página anterior)
+ * y cada página es una tanda en su propia transacción: un INSERT por lotes JDBC de las
+ * notificaciones (ver NotificationBatchRepository), otro de sus mensajes en el outbox y el ajuste
+ * de los contadores de no leídas. En memoria solo está la tanda actual. El envío por WebSocket lo
+ * hace NotificationOutboxDispatcher, repartido por usuario entre sus hilos.
+ *
+ * Los anuncios a campañas corren en segundo plano; su avance se consulta con getProgress.
+ */
+@Service
+public class BulkNotificationSender {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkNotificationSender.class);
+
+    // las tareas terminadas se olvidan pasado este tiempo
+    private static final long FINISHED_JOB_RETENTION_MINUTES = 60;
+
+    private final NotificationBatchRepository batchRepository;
+    private final CampaignRepository campaignRepository;
+    private final NotificationMapper notificationMapper;
+    private final NotificationOutbox outbox;
+    private final UnreadCountCache unreadCounts;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+
+    // un solo hilo: los anuncios grandes se hacen de uno en uno
+    private final ExecutorService jobExecutor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BulkNotificationSender(NotificationBatchRepository batchRepository,
+                                  CampaignRepository campaignRepository,
+                                  NotificationMapper notificationMapper,
+                                  NotificationOutbox outbox,
+                                  UnreadCountCache unreadCounts,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${rolegames.notifications.bulk-send-chunk-size:1000}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("rolegames.notifications.bulk-send-chunk-size debe ser positivo");
+        }
+        this.batchRepository = batchRepository;
+        this.campaignRepository = campaignRepository;
+        this.notificationMapper = notificationMapper;
+        this.outbox = outbox;
+        this.unreadCounts = unreadCounts;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.jobExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bulk-notifications");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdown();
+    }
+
+    /**
+     * Anuncia a todos los jugadores de la campaña en segundo plano y devuelve la tarea recién creada.
+     */
+    public BulkNotificationProgressDTO announceToCampaign(Long campaignId, User sender, NotificationType type,
+                                                         String title, String message, String actionUrl) {
+        forgetFinishedJobs();
+        Content content = new Content(sender, type, title, message, actionUrl);
+        Job job = new Job(UUID.randomUUID().toString(), campaignId, campaignRepository.countPlayers(campaignId));
+        jobs.put(job.id, job);
+
+        jobExecutor.execute(() -> {
+            try {
+                Long afterUserId = 0L;
+                List<CampaignMember> page;
+                do {
+                    page = campaignRepository.findPlayerUsersAfter(campaignId, afterUserId, PageRequest.of(0, chunkSize));
+                    if (page.isEmpty()) {
+                        break;
+                    }
+                    sendChunk(page.stream().map(this::toUser).toList(), content);
+                    afterUserId = page.get(page.size() - 1).getUserId();
+
+                    long sent = job.sent.addAndGet(page.size());
+                    logger.info("[BULK NOTIFICATIONS] Tarea {}: {} de {} destinatarios", job.id, sent, job.total);
+                } while (page.size() == chunkSize);
+                job.finish("COMPLETED", null);
+            } catch (RuntimeException e) {
+                logger.error("[BULK NOTIFICATIONS] Tarea {} falló tras {} destinatarios: {}",
+                        job.id, job.sent.get(), e.getMessage());
+                job.finish("FAILED", e.getMessage());
+            }
+        });
+        return job.toDTO();
+    }
+
+    public BulkNotificationProgressDTO getProgress(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new NoSuchElementException("Bulk notification job not found");
+        }
+        return job.toDTO();
+    }
+
+    /**
+     * Envío en el hilo de quien llama, por tandas, a usuarios ya cargados. Devuelve cuántos se
+     * notificaron.
+     */
+    public int send(List<User> recipients, User sender, NotificationType type,
+                    String title, String message, String actionUrl) {
+        Content content = new Content(sender, type, title, message, actionUrl);
+        for (int from = 0; from < recipients.size(); from += chunkSize) {
+            sendChunk(recipients.subList(from, Math.min(from + chunkSize, recipients.size())), content);
+        }
+        return recipients.size();
+    }
+
+    private void sendChunk(List<User> recipients, Content content) {
+        chunkTransaction.executeWithoutResult(status -> {
+            List<Notification> notifications = recipients.stream()
+                    .map(recipient -> Notification.builder()
+                            .recipient(recipient)
+                            .sender(content.sender())
+                            .type(content.type())
+                            .title(content.title())
+                            .message(content.message())
+                            .actionUrl(content.actionUrl())
+                            .build())
+                    .toList();
+
+            batchRepository.insertAll(notifications);
+            outbox.enqueueAll(notificationMapper.toNotificationListDto(notifications));
+            recipients.forEach(recipient -> unreadCounts.change(recipient.getUserId(), 1));
+        });
+    }
+
+    // solo lo que usa el mapper: no es una entidad cargada
+    private User toUser(CampaignMember member) {
+        return User.builder()
+                .userId(member.getUserId())
+                .username(member.getUsername())
+                .build();
+    }
+
+    private void forgetFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(FINISHED_JOB_RETENTION_MINUTES);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    private record Content(User sender, NotificationType type, String title, String message, String actionUrl) {
+    }
+
+    private static final class Job {
+        private final String id;
+        private final Long campaignId;
+        private final long total;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong sent = new AtomicLong();
+        private volatile String status = "RUNNING";
+        private volatile String error;
+        private volatile LocalDateTime finishedAt;
+
+        private Job(String id, Long campaignId, long total) {
+            this.id = id;
+            this.campaignId = campaignId;
+            this.total = total;
+        }
+
+        private void finish(String status, String error) {
+            this.error = error;
+            this.status = status;
+            this.finishedAt = LocalDateTime.now();
+        }
+
+        private BulkNotificationProgressDTO toDTO() {
+            return BulkNotificationProgressDTO.builder()
+                    .jobId(id)
+                    .campaignId(campaignId)
+                    .status(status)
+                    .totalRecipients(total)
+                    .sentRecipients(sent.get())
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .error(error)
+                    .build();
+        }
+    }
+}
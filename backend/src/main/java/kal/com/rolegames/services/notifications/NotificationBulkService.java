@@ -0,0 +1,108 @@
+package kal.com.rolegames.services.notifications;
+
+import kal.com.rolegames.repositories.notifications.NotificationRepository;
+import kal.com.rolegames.repositories.notifications.OutboxMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+
+/**
+ * Operaciones sobre muchas notificaciones a la vez: marcar todas como leídas y la limpieza
+ * periódica. Ninguna carga entidades: son UPDATE/DELETE con LIMIT que se repiten hasta tocar menos
+ * filas que la tanda, cada tanda en su propia transacción corta, así que nunca bloquean la tabla
+ * mucho tiempo. Devuelven cuántas filas cambiaron.
+ *
+ * Las no leídas se borran por destinatario para descontarlas de {@link UnreadCountCache}.
+ */
+@Service
+public class NotificationBulkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationBulkService.class);
+
+    private final NotificationRepository notificationRepository;
+    private final OutboxMessageRepository outboxRepository;
+    private final UnreadCountCache unreadCounts;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+    private final int readRetentionDays;
+
+    @Autowired
+    public NotificationBulkService(NotificationRepository notificationRepository,
+                                   OutboxMessageRepository outboxRepository,
+                                   UnreadCountCache unreadCounts,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${rolegames.notifications.bulk-chunk-size:1000}") int chunkSize,
+                                   @Value("${rolegames.notifications.read-retention-days:30}") int readRetentionDays) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("rolegames.notifications.bulk-chunk-size debe ser positivo");
+        }
+        this.notificationRepository = notificationRepository;
+        this.outboxRepository = outboxRepository;
+        this.unreadCounts = unreadCounts;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.readRetentionDays = readRetentionDays;
+    }
+
+    public int markAllAsRead(Long userId) {
+        return inChunks(() -> {
+            int marked = notificationRepository.markUnreadAsReadChunk(userId, chunkSize);
+            unreadCounts.change(userId, -marked);
+            return marked;
+        });
+    }
+
+    public int deleteExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = 0;
+        for (Long recipientId : notificationRepository.findRecipientsWithExpiredUnread(now)) {
+            deleted += inChunks(() -> {
+                int unread = notificationRepository.deleteExpiredUnreadChunk(recipientId, now, chunkSize);
+                unreadCounts.change(recipientId, -unread);
+                return unread;
+            });
+        }
+        return deleted + inChunks(() -> notificationRepository.deleteExpiredReadChunk(now, chunkSize));
+    }
+
+    public int deleteReadOlderThan(int daysOld) {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(daysOld);
+        return inChunks(() -> notificationRepository.deleteReadCreatedBeforeChunk(cutoff, chunkSize));
+    }
+
+    // los mensajes del outbox ya enviados solo sirven para investigar un envío
+    public int deleteDeliveredOutboxMessages() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(1);
+        return inChunks(() -> outboxRepository.deleteDeliveredBeforeChunk(cutoff, chunkSize));
+    }
+
+    @Scheduled(fixedDelayString = "${rolegames.notifications.maintenance-interval-ms:3600000}")
+    public void runMaintenance() {
+        long start = System.nanoTime();
+        int expired = deleteExpired();
+        int oldRead = deleteReadOlderThan(readRetentionDays);
+        int outbox = deleteDeliveredOutboxMessages();
+        logger.info("[NOTIFICATION MAINTENANCE] {} vencidas, {} leídas de más de {} días y {} del outbox borradas en {} ms",
+                expired, oldRead, readRetentionDays, outbox, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // repite la tanda, cada una en su transacción, hasta que toca menos filas que chunkSize
+    private int inChunks(IntSupplier chunk) {
+        int total = 0;
+        int affected;
+        do {
+            Integer result = chunkTransaction.execute(status -> chunk.getAsInt());
+            affected = result != null ? result : 0;
+            total += affected;
+        } while (affected == chunkSize);
+        return total;
+    }
+}
@@ -0,0 +1,70 @@
+package kal.com.rolegames.services.notifications;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kal.com.rolegames.dto.notifications.NotificationDTO;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Lado de escritura del outbox: guarda el envío de cada notificación en la transacción de quien la
+ * crea. Si la transacción se deshace no queda nada que enviar; si se confirma, el dispatcher la
+ * envía aunque el nodo se caiga antes de hacerlo.
+ *
+ * Los mensajes se insertan en un solo lote JDBC (ver NotificationBatchRepository).
+ */
+@Service
+@AllArgsConstructor(onConstructor=@__({@Autowired}))
+public class NotificationOutbox {
+
+    private static final String INSERT_MESSAGE = "INSERT INTO notification_outbox " +
+            "(recipient_id, notification_id, payload, attempts, next_attempt_at, created_at) VALUES (?, ?, ?, 0, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationOutboxDispatcher dispatcher;
+    private final ObjectMapper objectMapper;
+
+    public void enqueue(NotificationDTO notification) {
+        enqueueAll(List.of(notification));
+    }
+
+    public void enqueueAll(List<NotificationDTO> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = notifications.stream()
+                .map(notification -> new Object[]{
+                        notification.getRecipientId(), notification.getNotificationId(), toJson(notification), now, now})
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_MESSAGE, rows);
+
+        // el dispatcher revisa el outbox periódicamente; esto solo adelanta el envío
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.wakeUp();
+                }
+            });
+        } else {
+            dispatcher.wakeUp();
+        }
+    }
+
+    private String toJson(NotificationDTO notification) {
+        try {
+            return objectMapper.writeValueAsString(notification);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la notificación " + notification.getNotificationId(), e);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package kal.com.rolegames.services.notifications;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kal.com.rolegames.dto.notifications.NotificationDTO;
+import kal.com.rolegames.models.notifications.OutboxMessage;
+import kal.com.rolegames.repositories.notifications.OutboxMessageRepository;
+import kal.com.rolegames.websockets.NotificationWebSocketService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Envía por WebSocket lo que hay en el outbox de notificaciones.
+ *
+ * Cada vuelta toma una tanda de mensajes pendientes (SKIP LOCKED) y los reserva por
+ * rolegames.notifications.outbox.lease-ms en una transacción corta, los envía fuera de la
+ * transacción, juntando los de un mismo destinatario en un solo mensaje, y después los marca
+ * entregados. Si el nodo se cae antes de marcarlos, la reserva vence y se envían otra vez: la
+ * entrega es al menos una vez y el cliente descarta las notificaciones que ya tiene.
+ *
+ * Con fan-out-threads > 1 los destinatarios de una tanda se reparten entre esos hilos por
+ * userId, así los mensajes de un usuario siguen saliendo en orden.
+ *
+ * Un envío que falla se reintenta con espera exponencial hasta max-attempts; después se deja de
+ * intentar (la notificación sigue en la BD y el usuario la ve al recargar).
+ */
+@Service
+public class NotificationOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationOutboxDispatcher.class);
+
+    private final OutboxMessageRepository outboxRepository;
+    private final NotificationWebSocketService webSocketService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaction;
+
+    private final long pollMillis;
+    private final int batchSize;
+    private final long leaseMillis;
+    private final int maxAttempts;
+    private final long retryBaseMillis;
+    private final long retryMaxMillis;
+
+    // un solo hilo: las tandas salen en orden y nunca hay dos a la vez en este nodo
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+    private final int fanOutThreads;
+    private final ExecutorService fanOut;
+
+    @Autowired
+    public NotificationOutboxDispatcher(OutboxMessageRepository outboxRepository,
+                                        NotificationWebSocketService webSocketService,
+                                        ObjectMapper objectMapper,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${rolegames.notifications.outbox.poll-ms:1000}") long pollMillis,
+                                        @Value("${rolegames.notifications.outbox.batch-size:200}") int batchSize,
+                                        @Value("${rolegames.notifications.outbox.lease-ms:30000}") long leaseMillis,
+                                        @Value("${rolegames.notifications.outbox.max-attempts:10}") int maxAttempts,
+                                        @Value("${rolegames.notifications.outbox.retry-base-ms:1000}") long retryBaseMillis,
+                                        @Value("${rolegames.notifications.outbox.retry-max-ms:300000}") long retryMaxMillis,
+                                        @Value("${rolegames.notifications.outbox.fan-out-threads:4}") int fanOutThreads) {
+        if (batchSize < 1 || maxAttempts < 1 || fanOutThreads < 1) {
+            throw new IllegalArgumentException("El tamaño de tanda y los intentos del outbox deben ser positivos");
+        }
+        this.outboxRepository = outboxRepository;
+        this.webSocketService = webSocketService;
+        this.objectMapper = objectMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.pollMillis = pollMillis;
+        this.batchSize = batchSize;
+        this.leaseMillis = leaseMillis;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMillis = retryBaseMillis;
+        this.retryMaxMillis = retryMaxMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.fanOutThreads = fanOutThreads;
+        this.fanOut = fanOutThreads > 1
+                ? Executors.newFixedThreadPool(fanOutThreads, runnable -> {
+                    Thread thread = new Thread(runnable, "notification-fan-out");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor.scheduleWithFixedDelay(this::drainSafely, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        if (fanOut != null) {
+            fanOut.shutdown();
+        }
+    }
+
+    /**
+     * Pide una vuelta ya, sin esperar al siguiente poll. Varias llamadas seguidas son una vuelta.
+     */
+    public void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                wakeUpPending.set(false);
+                drainSafely();
+            });
+        }
+    }
+
+    /**
+     * Envía tandas hasta vaciar lo pendiente. Devuelve cuántos mensajes tomó.
+     */
+    int drain() {
+        int total = 0;
+        int claimed;
+        do {
+            List<OutboxMessage> batch = claim();
+            claimed = batch.size();
+            if (claimed > 0) {
+                deliver(batch);
+                total += claimed;
+            }
+        } while (claimed == batchSize);
+        return total;
+    }
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            logger.error("[NOTIFICATION OUTBOX] Error vaciando el outbox: {}", e.getMessage());
+        }
+    }
+
+    private List<OutboxMessage> claim() {
+        List<OutboxMessage> batch = transaction.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxMessage> pending = outboxRepository.lockPending(now, batchSize);
+            if (!pending.isEmpty()) {
+                outboxRepository.lease(idsOf(pending), now.plus(leaseMillis, ChronoUnit.MILLIS));
+            }
+            return pending;
+        });
+        return batch != null ? batch : List.of();
+    }
+
+    private void deliver(List<OutboxMessage> batch) {
+        Map<Long, List<OutboxMessage>> byRecipient = new LinkedHashMap<>();
+        for (OutboxMessage message : batch) {
+            byRecipient.computeIfAbsent(message.getRecipientId(), id -> new ArrayList<>()).add(message);
+        }
+
+        Queue<Long> delivered = new ConcurrentLinkedQueue<>();
+        Queue<OutboxMessage> failed = new ConcurrentLinkedQueue<>();
+        if (fanOut == null || byRecipient.size() == 1) {
+            byRecipient.forEach((recipientId, messages) -> sendTo(recipientId, messages, delivered, failed));
+        } else {
+            List<List<Map.Entry<Long, List<OutboxMessage>>>> partitions = new ArrayList<>(fanOutThreads);
+            for (int i = 0; i < fanOutThreads; i++) {
+                partitions.add(new ArrayList<>());
+            }
+            for (Map.Entry<Long, List<OutboxMessage>> entry : byRecipient.entrySet()) {
+                partitions.get(Math.floorMod(entry.getKey(), fanOutThreads)).add(entry);
+            }
+            CompletableFuture.allOf(partitions.stream()
+                    .filter(partition -> !partition.isEmpty())
+                    .map(partition -> CompletableFuture.runAsync(() -> partition.forEach(entry ->
+                            sendTo(entry.getKey(), entry.getValue(), delivered, failed)), fanOut))
+                    .toArray(CompletableFuture[]::new)).join();
+        }
+
+        transaction.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (!delivered.isEmpty()) {
+                outboxRepository.markDelivered(List.copyOf(delivered), now);
+            }
+            scheduleRetries(List.copyOf(failed), now);
+        });
+    }
+
+    private void sendTo(Long recipientId, List<OutboxMessage> messages,
+                        Queue<Long> delivered, Queue<OutboxMessage> failed) {
+        List<NotificationDTO> notifications = new ArrayList<>(messages.size());
+        List<OutboxMessage> sent = new ArrayList<>(messages.size());
+        for (OutboxMessage message : messages) {
+            try {
+                notifications.add(objectMapper.readValue(message.getPayload(), NotificationDTO.class));
+                sent.add(message);
+            } catch (JsonProcessingException e) {
+                logger.warn("[NOTIFICATION OUTBOX] Mensaje {} ilegible: {}", message.getOutboxId(), e.getMessage());
+                failed.add(message);
+            }
+        }
+        if (notifications.isEmpty()) {
+            return;
+        }
+        try {
+            webSocketService.sendNotificationsToUser(recipientId, notifications);
+            sent.forEach(message -> delivered.add(message.getOutboxId()));
+        } catch (RuntimeException e) {
+            logger.warn("[NOTIFICATION OUTBOX] No se pudo enviar a usuario {}: {}", recipientId, e.getMessage());
+            failed.addAll(sent);
+        }
+    }
+
+    private void scheduleRetries(List<OutboxMessage> failed, LocalDateTime now) {
+        List<Long> abandoned = new ArrayList<>();
+        // attempts -> ids: misma espera para los que llevan los mismos intentos
+        Map<Integer, List<Long>> byAttempts = new HashMap<>();
+        for (OutboxMessage message : failed) {
+            int attempts = message.getAttempts() + 1;
+            if (attempts >= maxAttempts) {
+                abandoned.add(message.getOutboxId());
+            } else {
+                byAttempts.computeIfAbsent(attempts, key -> new ArrayList<>()).add(message.getOutboxId());
+            }
+        }
+
+        if (!abandoned.isEmpty()) {
+            logger.warn("[NOTIFICATION OUTBOX] Se dejan de intentar {} mensajes tras {} intentos",
+                    abandoned.size(), maxAttempts);
+            outboxRepository.markDelivered(abandoned, now);
+        }
+        byAttempts.forEach((attempts, ids) -> {
+            long delay = Math.min(retryMaxMillis, retryBaseMillis << Math.min(attempts - 1, 20));
+            outboxRepository.scheduleRetry(ids, now.plus(delay, ChronoUnit.MILLIS));
+        });
+    }
+
+    private List<Long> idsOf(List<OutboxMessage> messages) {
+        return messages.stream().map(OutboxMessage::getOutboxId).toList();
+    }
+}
@@ -2,18 +2,22 @@ package kal.com.rolegames.services.notifications;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.transaction.Transactional;
+import kal.com.rolegames.dto.notifications.BulkNotificationProgressDTO;
 import kal.com.rolegames.dto.notifications.NotificationDTO;
+import kal.com.rolegames.dto.notifications.NotificationPageDTO;
+import kal.com.rolegames.dto.notifications.NotificationSummaryDTO;
 import kal.com.rolegames.mappers.notifications.NotificationMapper;
 import kal.com.rolegames.models.notifications.Notification;
 import kal.com.rolegames.models.sessions.Campaign;
 import kal.com.rolegames.models.users.User;
 import kal.com.rolegames.models.util.NotificationType;
 import kal.com.rolegames.repositories.notifications.NotificationRepository;
-import kal.com.rolegames.websockets.NotificationWebSocketService;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -27,11 +31,16 @@ public class NotificationService {
 
     private final NotificationRepository notificationRepository;
     private final NotificationMapper notificationMapper;
-    private final NotificationWebSocketService webSocketService;
+    private final NotificationOutbox outbox;
     private final ObjectMapper objectMapper;
+    private final UnreadCountCache unreadCounts;
+    private final NotificationBulkService bulkService;
+    private final BulkNotificationSender bulkSender;
 
     private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
 
+    private static final int MAX_INBOX_PAGE_SIZE = 100;
+
     // ========================================
     // CRUD BÁSICO
     // ========================================
@@ -48,8 +57,59 @@ public class NotificationService {
         );
     }
 
+    /**
+     * Una página de la bandeja, de la más reciente a la más vieja, a partir del cursor que devolvió
+     * la página anterior (null para la primera). Cada página lee solo sus filas por el índice
+     * (recipient, [is_read,] created_at, notification_id), sin importar cuánto historial haya.
+     */
+    public NotificationPageDTO getInbox(Long userId, String cursor, int size, boolean unreadOnly) {
+        int pageSize = Math.max(1, Math.min(size, MAX_INBOX_PAGE_SIZE));
+        // una de más para saber si hay otra página
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<NotificationRepository.InboxItem> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = unreadOnly
+                    ? notificationRepository.findUnreadInboxFirstPage(userId, limit)
+                    : notificationRepository.findInboxFirstPage(userId, limit);
+        } else {
+            InboxCursor after = InboxCursor.decode(cursor);
+            rows = unreadOnly
+                    ? notificationRepository.findUnreadInboxPageAfter(userId, after.createdAt(), after.notificationId(), limit)
+                    : notificationRepository.findInboxPageAfter(userId, after.createdAt(), after.notificationId(), limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<NotificationSummaryDTO> items = notificationMapper.toSummaryListDto(
+                hasMore ? rows.subList(0, pageSize) : rows);
+        String nextCursor = null;
+        if (hasMore) {
+            NotificationSummaryDTO last = items.get(items.size() - 1);
+            nextCursor = new InboxCursor(last.getCreatedAt(), last.getNotificationId()).encode();
+        }
+
+        return NotificationPageDTO.builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * La notificación completa, con actionData, para cuando el usuario la abre
+     */
+    public NotificationDTO getNotification(Long notificationId, Long userId) {
+        Notification notification = notificationRepository.findById(notificationId)
+                .orElseThrow(() -> new NoSuchElementException("Notification not found"));
+
+        if (!notification.getRecipient().getUserId().equals(userId)) {
+            throw new IllegalArgumentException("User cannot access this notification");
+        }
+        return notificationMapper.toDTO(notification);
+    }
+
     public long getUnreadCount(Long userId) {
-        return notificationRepository.countByRecipientUserIdAndIsReadFalse(userId);
+        return unreadCounts.get(userId);
     }
 
     @Transactional
@@ -61,21 +121,19 @@ public class NotificationService {
             throw new IllegalArgumentException("User cannot access this notification");
         }
 
+        // condicional: si dos peticiones la marcan a la vez, solo una descuenta
+        int marked = notificationRepository.markAsReadIfUnread(notificationId);
+        unreadCounts.change(userId, -marked);
         notification.markAsRead();
-        Notification updated = notificationRepository.save(notification);
 
-        return notificationMapper.toDTO(updated);
+        return notificationMapper.toDTO(notification);
     }
 
-    @Transactional
+    // por tandas, sin una transacción que abarque todas
     public void markAllAsRead(Long userId) {
-        List<Notification> unreadNotifications = notificationRepository
-                .findByRecipientUserIdAndIsReadFalse(userId);
+        int marked = bulkService.markAllAsRead(userId);
 
-        unreadNotifications.forEach(Notification::markAsRead);
-        notificationRepository.saveAll(unreadNotifications);
-
-        logger.info("Marked {} notifications as read for user {}", unreadNotifications.size(), userId);
+        logger.info("Marked {} notifications as read for user {}", marked, userId);
     }
 
     @Transactional
@@ -87,7 +145,11 @@ public class NotificationService {
             throw new IllegalArgumentException("User cannot delete this notification");
         }
 
-        notificationRepository.delete(notification);
+        int unread = notificationRepository.deleteIfUnread(notificationId);
+        if (unread == 0) {
+            notificationRepository.deleteNotificationById(notificationId);
+        }
+        unreadCounts.change(userId, -unread);
     }
 
     // ========================================
@@ -116,18 +178,14 @@ public class NotificationService {
                     .actionUrl("/campaigns/" + campaign.getCampaignId())
                     .actionData(objectMapper.writeValueAsString(actionData))
                     .expiresAt(LocalDateTime.now().plusDays(7)) // Expira en 7 días
-                    //arreglar esta leido
-                    .isRead(false)
                     .build();
 
             Notification saved = notificationRepository.save(notification);
             NotificationDTO dto = notificationMapper.toDTO(saved);
 
-            // Enviar por WebSocket
-            webSocketService.sendNotificationToUser(recipient.getUserId(), dto);
-
-            long unreadCount = getUnreadCount(recipient.getUserId());
-            webSocketService.sendUnreadCountUpdate(recipient.getUserId(), unreadCount);
+            // se envía por WebSocket después del commit (ver NotificationOutbox)
+            outbox.enqueue(dto);
+            unreadCounts.change(recipient.getUserId(), 1);
 
             logger.info("Campaign invitation sent from {} to {} for campaign {}",
                     sender.getUsername(), recipient.getUsername(), campaign.getName());
@@ -152,7 +210,8 @@ public class NotificationService {
         Notification saved = notificationRepository.save(notification);
         NotificationDTO dto = notificationMapper.toDTO(saved);
 
-        webSocketService.sendNotificationToUser(recipient.getUserId(), dto);
+        outbox.enqueue(dto);
+        unreadCounts.change(recipient.getUserId(), 1);
         return dto;
     }
 
@@ -170,7 +229,8 @@ public class NotificationService {
         Notification saved = notificationRepository.save(notification);
         NotificationDTO dto = notificationMapper.toDTO(saved);
 
-        webSocketService.sendNotificationToUser(recipient.getUserId(), dto);
+        outbox.enqueue(dto);
+        unreadCounts.change(recipient.getUserId(), 1);
         return dto;
     }
 
@@ -188,55 +248,29 @@ public class NotificationService {
         Notification saved = notificationRepository.save(notification);
         NotificationDTO dto = notificationMapper.toDTO(saved);
 
-        webSocketService.sendNotificationToUser(recipient.getUserId(), dto);
+        outbox.enqueue(dto);
+        unreadCounts.change(recipient.getUserId(), 1);
         return dto;
     }
 
-    @Transactional
+    // por tandas con lotes JDBC, cada tanda en su transacción (ver BulkNotificationSender)
     public void sendBulkNotification(List<User> recipients, NotificationType type,
                                      String title, String message, String actionUrl) {
-        List<Notification> notifications = recipients.stream()
-                .map(user -> Notification.builder()
-                        .recipient(user)
-                        .type(type)
-                        .title(title)
-                        .message(message)
-                        .actionUrl(actionUrl)
-                        .build())
-                .toList();
-
-        List<Notification> saved = notificationRepository.saveAll(notifications);
-
-        // Enviar por WebSocket a cada usuario
-        saved.forEach(notification -> {
-            NotificationDTO dto = notificationMapper.toDTO(notification);
-            webSocketService.sendNotificationToUser(
-                    notification.getRecipient().getUserId(), dto);
-        });
+        bulkSender.send(recipients, null, type, title, message, actionUrl);
 
         logger.info("Bulk notification sent to {} users: {}", recipients.size(), title);
     }
 
-    // ========================================
-    // LIMPIEZA AUTOMÁTICA
-    // ========================================
-
-    @Transactional
-    public void cleanupExpiredNotifications() {
-        List<Notification> expired = notificationRepository.findExpiredNotifications();
-        notificationRepository.deleteAll(expired);
-
-        logger.info("Cleaned up {} expired notifications", expired.size());
+    /**
+     * Anuncio a todos los jugadores de la campaña, en segundo plano.
+     */
+    public BulkNotificationProgressDTO announceToCampaign(User sender, Campaign campaign,
+                                                          String title, String message, String actionUrl) {
+        return bulkSender.announceToCampaign(campaign.getCampaignId(), sender,
+                NotificationType.GENERAL_ANNOUNCEMENT, title, message, actionUrl);
     }
 
-    @Transactional
-    public void cleanupOldReadNotifications(int daysOld) {
-        LocalDateTime cutoff = LocalDateTime.now().minusDays(daysOld);
-        List<Notification> oldRead = notificationRepository
-                .findByIsReadTrueAndCreatedAtBefore(cutoff);
-
-        notificationRepository.deleteAll(oldRead);
-
-        logger.info("Cleaned up {} old read notifications", oldRead.size());
+    public BulkNotificationProgressDTO getBulkProgress(String jobId) {
+        return bulkSender.getProgress(jobId);
     }
-}
\ No newline at end of file
+}
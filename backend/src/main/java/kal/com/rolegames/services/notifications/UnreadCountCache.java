@@ -0,0 +1,202 @@
+package kal.com.rolegames.services.notifications;
+
+import kal.com.rolegames.repositories.notifications.NotificationRepository;
+import kal.com.rolegames.websockets.NotificationWebSocketService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conteo de notificaciones no leídas por usuario, en memoria.
+ *
+ * El conteo se carga con una consulta la primera vez que se pide y después se mantiene con los
+ * cambios que hace NotificationService (+n al crear, -n al leer, borrar o vencer), aplicados al
+ * confirmar la transacción. Cada cambio se anuncia al usuario con UNREAD_COUNT_UPDATE, así que el
+ * contador no cuesta consultas mientras no haya que cargarlo.
+ *
+ * Una carga solo se guarda si durante la consulta no hubo cambios del usuario en curso ni
+ * aplicados (pending y version); si los hubo, se devuelve el valor leído sin guardarlo. Con eso
+ * la carga no puede contar dos veces un cambio que ya vio la consulta. La lectura es sin
+ * bloqueos; aplicar un cambio y guardar una carga se hacen con el monitor del contador.
+ *
+ * Con varios nodos cada uno tiene su propio contador y solo ve los cambios que hace él: la
+ * reconciliación periódica corrige la diferencia con la BD y suelta los usuarios desconectados.
+ */
+@Component
+public class UnreadCountCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnreadCountCache.class);
+
+    private static final long UNKNOWN = -1;
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationWebSocketService webSocketService;
+    private final int reconcileBatchSize;
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UnreadCountCache(NotificationRepository notificationRepository,
+                            NotificationWebSocketService webSocketService,
+                            @Value("${rolegames.notifications.unread-reconcile-batch-size:500}") int reconcileBatchSize) {
+        this.notificationRepository = notificationRepository;
+        this.webSocketService = webSocketService;
+        this.reconcileBatchSize = reconcileBatchSize;
+    }
+
+    public long get(Long userId) {
+        Counter counter = counters.computeIfAbsent(userId, id -> new Counter());
+        long count = counter.count.get();
+        return count != UNKNOWN ? count : load(userId, counter);
+    }
+
+    /**
+     * Suma delta al conteo del usuario cuando se confirme la transacción actual (o ya, si no hay
+     * transacción) y le manda el conteo nuevo.
+     */
+    public void change(Long userId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        Counter counter = counters.compute(userId, (id, current) -> {
+            Counter target = current != null ? current : new Counter();
+            target.pending.incrementAndGet();
+            return target;
+        });
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete(userId, counter, delta, true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                complete(userId, counter, delta, status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    /**
+     * Compara los conteos guardados con la BD (una consulta agrupada por lote), corrige los que se
+     * desviaron y suelta los de usuarios que ya no están conectados.
+     */
+    @Scheduled(fixedDelayString = "${rolegames.notifications.unread-reconcile-ms:300000}")
+    public void reconcile() {
+        List<Long> userIds = new ArrayList<>();
+        for (Long userId : counters.keySet()) {
+            boolean connected = webSocketService.isUserConnected(userId);
+            Counter counter = counters.computeIfPresent(userId, (id, current) ->
+                    connected || current.pending.get() > 0 ? current : null);
+            if (counter != null && counter.count.get() != UNKNOWN) {
+                userIds.add(userId);
+            }
+        }
+
+        int corrected = 0;
+        for (int from = 0; from < userIds.size(); from += reconcileBatchSize) {
+            corrected += reconcileBatch(userIds.subList(from, Math.min(from + reconcileBatchSize, userIds.size())));
+        }
+        if (corrected > 0) {
+            logger.warn("[UNREAD COUNT] Se corrigieron {} de {} contadores", corrected, userIds.size());
+        }
+    }
+
+    private int reconcileBatch(List<Long> userIds) {
+        Map<Long, Snapshot> snapshots = new HashMap<>();
+        for (Long userId : userIds) {
+            Counter counter = counters.get(userId);
+            if (counter != null && counter.pending.get() == 0) {
+                snapshots.put(userId, new Snapshot(counter, counter.version.get()));
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Long> stored = new HashMap<>();
+        notificationRepository.countUnreadByRecipientIds(snapshots.keySet())
+                .forEach(row -> stored.put(row.getUserId(), row.getUnreadCount()));
+
+        int corrected = 0;
+        for (Map.Entry<Long, Snapshot> entry : snapshots.entrySet()) {
+            Long userId = entry.getKey();
+            long actual = stored.getOrDefault(userId, 0L);
+            long cached = entry.getValue().counter.count.get();
+            // si algo cambió durante la consulta se revisa en la próxima vuelta
+            if (cached != actual && entry.getValue().replace(cached, actual)) {
+                logger.debug("[UNREAD COUNT] Usuario {}: {} en memoria, {} en la BD", userId, cached, actual);
+                webSocketService.sendUnreadCountUpdate(userId, actual);
+                corrected++;
+            }
+        }
+        return corrected;
+    }
+
+    private long load(Long userId, Counter counter) {
+        long version = counter.version.get();
+        boolean quiet = counter.pending.get() == 0;
+        long loaded = notificationRepository.countByRecipientUserIdAndIsReadFalse(userId);
+        synchronized (counter) {
+            if (quiet && counter.pending.get() == 0 && counter.version.get() == version) {
+                counter.count.compareAndSet(UNKNOWN, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    private void complete(Long userId, Counter counter, long delta, boolean committed) {
+        long count;
+        synchronized (counter) {
+            count = counter.count.get();
+            if (committed) {
+                if (count != UNKNOWN) {
+                    count = Math.max(0, count + delta);
+                    counter.count.set(count);
+                }
+                counter.version.incrementAndGet();
+            }
+            counter.pending.decrementAndGet();
+        }
+        if (!committed) {
+            return;
+        }
+
+        if (count != UNKNOWN) {
+            webSocketService.sendUnreadCountUpdate(userId, count);
+        } else if (webSocketService.isUserConnected(userId)) {
+            webSocketService.sendUnreadCountUpdate(userId, load(userId, counter));
+        }
+    }
+
+    private static final class Counter {
+        private final AtomicLong count = new AtomicLong(UNKNOWN);
+        // cambios registrados que todavía no se aplicaron
+        private final AtomicInteger pending = new AtomicInteger();
+        // cambios aplicados
+        private final AtomicLong version = new AtomicLong();
+    }
+
+    private record Snapshot(Counter counter, long version) {
+        boolean replace(long expected, long actual) {
+            synchronized (counter) {
+                if (counter.pending.get() != 0 || counter.version.get() != version) {
+                    return false;
+                }
+                return counter.count.compareAndSet(expected, actual);
+            }
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package kal.com.rolegames.services.sessions;
 
 import jakarta.transaction.Transactional;
-import kal.com.rolegames.dto.combat.CombatStateDTO;
-import kal.com.rolegames.dto.combat.InitiativeDTO;
 import kal.com.rolegames.dto.items.RewardDTO;
 import kal.com.rolegames.dto.sessions.EncounterDTO;
+import kal.com.rolegames.mappers.combat.CombatStateMapper;
 import kal.com.rolegames.mappers.items.RewardMapper;
 import kal.com.rolegames.mappers.sessions.EncounterMapper;
 import kal.com.rolegames.models.characters.GameCharacter;
@@ -28,14 +27,18 @@ import kal.com.rolegames.repositories.sessions.SessionRepository;
 import kal.com.rolegames.repositories.users.DungeonMasterRepository;
 import kal.com.rolegames.repositories.users.PlayerRepository;
 import kal.com.rolegames.services.combat.CombatService;
+import kal.com.rolegames.services.combat.map.BattleMapService;
 import kal.com.rolegames.websockets.EncounterWebSocketService;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -52,14 +55,20 @@ public class EncounterService {
     private final InitiativeRepository initiativeRepository;
 
     private final CombatService combatService;
+    private final BattleMapService battleMapService;
     private final EncounterWebSocketService webSocketService;
 
 
     private final EncounterMapper encounterMapper;
     private final RewardMapper rewardMapper;
+    private final CombatStateMapper combatStateMapper;
+
+    private final PlatformTransactionManager transactionManager;
 
     private static final Logger logger = LoggerFactory.getLogger(EncounterService.class);
 
+    private static final int DEFAULT_INITIATIVE_ROLL = 10;
+
     public List<EncounterDTO> getAllEncounters(User user) {
 
         //refactorizar para hacer usar el mapper (todavia no implementado)
@@ -145,6 +154,7 @@ public class EncounterService {
             throw new NoSuchElementException("Encounter not found");
         }
         encounterRepository.deleteById(encounterId);
+        battleMapService.clear(encounterId);
     }
 
 
@@ -155,6 +165,11 @@ public class EncounterService {
     // USO DE TEMPLATE
     @Transactional
     public EncounterDTO completeEncounterBase(Long encounterId, boolean endCombatIfActive) {
+        // volcar el combate en memoria antes de cargar el encuentro
+        if (endCombatIfActive) {
+            combatService.releaseLiveCombat(encounterId);
+        }
+
         Encounter encounter = encounterRepository.findById(encounterId)
                 .orElseThrow(() -> new NoSuchElementException("Encounter not found"));
 
@@ -167,6 +182,7 @@ public class EncounterService {
         }
 
         Encounter updatedEncounter = encounterRepository.save(encounter);
+        battleMapService.clear(encounterId);
         logger.info("[ENCOUNTER SERVICE] Encounter {} marked as completed", encounterId);
         return mapToDetailedDTO(updatedEncounter);
     }
@@ -218,6 +234,9 @@ public class EncounterService {
     // e indicar el primer turno
     @Transactional
     public EncounterDTO startCombat(Long encounterId, Map<Long, Integer> diceThrows) {
+        // si el encuentro ya tenía un combate en memoria se vuelca antes de reemplazarlo
+        combatService.releaseLiveCombat(encounterId);
+
         Encounter encounter = encounterRepository.findById(encounterId)
                 .orElseThrow(() -> new NoSuchElementException("Encounter not found"));
 
@@ -239,17 +258,18 @@ public class EncounterService {
         List<Initiative> initiatives  = encounter.getParticipants().stream().map( (GameCharacter character)->{
             Initiative newInitiative = Initiative.builder()
                     .combatState(createdCombat)
-                    .initiativeRoll(diceThrows.get(character.getCharacterId()))
+                    .initiativeRoll(diceThrows.getOrDefault(character.getCharacterId(), 0))
                     .character(character)
+                    .currentTurn(false).hasActed(false).bonusActionsUsed(0).reactionsUsed(0).movementUsed(0)
                     .build();
             return initiativeRepository.save(newInitiative);
-            //ademas abajo los ordenamos
-        }).sorted(Comparator.comparing(Initiative::getInitiativeRoll)).collect(Collectors.toList());
+            //ademas abajo los ordenamos (tirada más alta primero, ver Initiative.TURN_ORDER)
+        }).sorted(Initiative.TURN_ORDER).collect(Collectors.toList());
         createdCombat.setInitiativeOrder(initiatives);
 
 
         //inicializar el primer turno
-        initiatives.get(0).setCurrentTurn(true);
+        createdCombat.startFirstTurn();
 
         //guardar combat
         CombatState updatedCombatWithInitiatives = combatStateRepository.save(createdCombat);
@@ -260,9 +280,10 @@ public class EncounterService {
         logger.info("[ENCOUNTER SERVICE] Combat se ha iniciado para encuentro {}", encounterId);
         EncounterDTO result = mapToDetailedDTO(updatedEncounter);
 
-        // Notificar por WebSocket
+        // Notificar por WebSocket (el combate todavía no está confirmado en la BD,
+        // así que se mapea directo en lugar de pedirlo al CombatEngine)
         webSocketService.notifyCombatStarted(encounterId,
-                combatService.getCurrentCombat());
+                combatStateMapper.toDTO(updatedCombatWithInitiatives));
 
         return result;
     }
@@ -280,64 +301,39 @@ public class EncounterService {
             throw new IllegalStateException("No se encontro combate active para este encuentro");
         }
 
-        combatService.nextTurn();
+        // el cambio de turno pasa por el buzón del encuentro, que también publica el cambio
+        // (TURN_CHANGED y EFFECT_EXPIRED) por el canal del encuentro
+        combatService.nextTurn(encounterId);
 
         logger.info("[ENCOUNTER SERVICE] siguiente turno para el encuentro {}", encounterId);
 
-        Encounter refreshedEncounter = encounterRepository.findById(encounterId).orElseThrow();
-
-
-        EncounterDTO result = mapToDetailedDTO(refreshedEncounter);
-
-        // Notificar cambio de turno
-        webSocketService.notifyTurnChanged(encounterId,
-                getCurrentTurnInfo(encounterId));
-
-        return result;
-    }
-
-    private InitiativeDTO getCurrentTurnInfo(Long encounterId) {
-        try {
-            // Obtener el combate activo del encounter
-            Encounter encounter = encounterRepository.findById(encounterId)
-                    .orElseThrow(() -> new NoSuchElementException("Encounter not found"));
-
-            if (encounter.getCombatState() != null && encounter.getCombatState().getIsActive()) {
-                CombatStateDTO combatState = combatService.getCurrentCombat();
-
-                // Buscar la iniciativa con currentTurn = true
-                return combatState.getInitiativeOrder().stream()
-                        .filter(InitiativeDTO::getCurrentTurn)
-                        .findFirst()
-                        .orElse(null);
-            }
-
-            return null;
-        } catch (Exception e) {
-            logger.warn("Error obteniendo información del turno actual: {}", e.getMessage());
-            return null;
-        }
+        return mapToDetailedDTO(encounter);
     }
 
-    @Transactional
     public EncounterDTO addParticipant(Long encounterId, Long characterId) {
-        Encounter encounter = encounterRepository.findById(encounterId)
-                .orElseThrow(() -> new NoSuchElementException("Encuentro no encontrado"));
+        return addParticipant(encounterId, characterId, null);
+    }
 
-        GameCharacter character = characterRepository.findById(characterId)
-                .orElseThrow(() -> new NoSuchElementException("Personaje no encontrado"));
+    // sin @Transactional: el combate se actualiza en el buzón del encuentro con su propia
+    // transacción, así que no se deja una abierta en este hilo mientras se espera
+    public EncounterDTO addParticipant(Long encounterId, Long characterId, Integer initiativeRoll) {
+        boolean inCombat = inTransaction(() -> {
+            Encounter encounter = encounterRepository.findById(encounterId)
+                    .orElseThrow(() -> new NoSuchElementException("Encuentro no encontrado"));
 
-        encounter.addParticipant(character);
-        Encounter updatedEncounter = encounterRepository.save(encounter);
+            GameCharacter character = characterRepository.findById(characterId)
+                    .orElseThrow(() -> new NoSuchElementException("Personaje no encontrado"));
 
-        if (encounter.getEncounterType() == EncounterType.COMBAT &&
-                encounter.getCombatState() != null &&
-                encounter.getCombatState().getIsActive()) {
+            encounter.addParticipant(character);
+            encounterRepository.save(encounter);
+            return hasActiveCombat(encounter);
+        });
 
-            // Delegar al CombatService: necesitaremos una tirada de iniciativa
-            // Por ahora usamos un valor por defecto, pero deberías pasarlo como parámetro
+        if (inCombat) {
+            // Delegar al CombatService: si no llega tirada de iniciativa usamos un valor por defecto
             try {
-                combatService.addParticipant(characterId, 10);
+                combatService.addParticipant(encounterId, characterId,
+                        initiativeRoll != null ? initiativeRoll : DEFAULT_INITIATIVE_ROLL);
                 logger.info("[ENCOUNTER SERVICE] Character {} se ha añadido al combato", characterId);
             } catch (Exception e) {
                 logger.warn("[ENCOUNTER SERVICE] Could not add character to combat: {}", e.getMessage());
@@ -345,7 +341,8 @@ public class EncounterService {
         }
 
         logger.info("[ENCOUNTER SERVICE] Character {} added to encounter {}", characterId, encounterId);
-        EncounterDTO result = mapToDetailedDTO(updatedEncounter);
+        EncounterDTO result = inTransaction(() -> mapToDetailedDTO(encounterRepository.findById(encounterId)
+                .orElseThrow(() -> new NoSuchElementException("Encuentro no encontrado"))));
 
         // Notificar nuevo participante
         webSocketService.notifyParticipantAdded(encounterId, characterId);
@@ -353,32 +350,45 @@ public class EncounterService {
         return result;
     }
 
-    @Transactional
+    // sin @Transactional, igual que addParticipant
     public EncounterDTO removeParticipant(Long encounterId, Long characterId) {
-        Encounter encounter = encounterRepository.findById(encounterId)
-                .orElseThrow(() -> new NoSuchElementException("Encounter not found"));
-
-        GameCharacter character = characterRepository.findById(characterId)
-                .orElseThrow(() -> new NoSuchElementException("Character not found"));
+        boolean inCombat = inTransaction(() -> {
+            Encounter encounter = encounterRepository.findById(encounterId)
+                    .orElseThrow(() -> new NoSuchElementException("Encounter not found"));
 
-        // Remover del encuentro
-        encounter.removeParticipant(character);
+            GameCharacter character = characterRepository.findById(characterId)
+                    .orElseThrow(() -> new NoSuchElementException("Character not found"));
 
-        if (encounter.getEncounterType() == EncounterType.COMBAT &&
-                encounter.getCombatState() != null &&
-                encounter.getCombatState().getIsActive()) {
+            // Remover del encuentro
+            encounter.removeParticipant(character);
+            encounterRepository.save(encounter);
+            return hasActiveCombat(encounter);
+        });
 
+        if (inCombat) {
             try {
-                combatService.removeParticipant(characterId);
+                combatService.removeParticipant(encounterId, characterId);
                 logger.info("[ENCOUNTER SERVICE] Character {} se ha removido del combate actual", characterId);
             } catch (Exception e) {
                 logger.warn("[ENCOUNTER SERVICE] No se pudo remover del combate: {}", e.getMessage());
             }
         }
 
-        Encounter updatedEncounter = encounterRepository.save(encounter);
+        battleMapService.removeToken(encounterId, characterId);
         logger.info("[ENCOUNTER SERVICE] Character {} removed from encounter {}", characterId, encounterId);
-        return mapToDetailedDTO(updatedEncounter);
+        return inTransaction(() -> mapToDetailedDTO(encounterRepository.findById(encounterId)
+                .orElseThrow(() -> new NoSuchElementException("Encounter not found"))));
+    }
+
+    private boolean hasActiveCombat(Encounter encounter) {
+        return encounter.getEncounterType() == EncounterType.COMBAT &&
+                encounter.getCombatState() != null &&
+                Boolean.TRUE.equals(encounter.getCombatState().getIsActive());
+    }
+
+    // transacción corta en el hilo de la petición
+    private <T> T inTransaction(Supplier<T> work) {
+        return new TransactionTemplate(transactionManager).execute(status -> work.get());
     }
 
     @Transactional
@@ -0,0 +1,114 @@
+package kal.com.rolegames.websockets;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Límite de tiradas de dados por sesión WebSocket y por usuario (un usuario puede tener varias
+ * pestañas abiertas). Cada sesión guarda su {@link TokenBucket} en sus atributos al conectarse, y
+ * los del usuario se comparten entre sus sesiones, así que comprobar una tirada no reserva memoria.
+ *
+ * El usuario es el del handshake autenticado. Las sesiones sin usuario comparten el cubo de su
+ * dirección remota, así que abrir más conexiones no da más tiradas.
+ */
+@Component
+public class DiceRollLimiter {
+
+    static final String SESSION_BUCKET_ATTRIBUTE = "diceRollBucket";
+    static final String USER_ID_ATTRIBUTE = "userId";
+    static final String LIMIT_KEY_ATTRIBUTE = "diceRollLimitKey";
+
+    private final double sessionRate;
+    private final int sessionBurst;
+    private final double userRate;
+    private final int userBurst;
+
+    // "user:{id}" o "addr:{ip}"
+    private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DiceRollLimiter(@Value("${rolegames.dice.rate-limit.session-per-second:2}") double sessionRate,
+                           @Value("${rolegames.dice.rate-limit.session-burst:5}") int sessionBurst,
+                           @Value("${rolegames.dice.rate-limit.user-per-second:3}") double userRate,
+                           @Value("${rolegames.dice.rate-limit.user-burst:8}") int userBurst) {
+        this.sessionRate = sessionRate;
+        this.sessionBurst = sessionBurst;
+        this.userRate = userRate;
+        this.userBurst = userBurst;
+    }
+
+    /**
+     * Prepara los cubos de una sesión recién conectada. userId es el del handshake autenticado;
+     * si es null la sesión cuenta contra su dirección remota.
+     */
+    public void register(WebSocketSession session, Long userId) {
+        long now = System.nanoTime();
+        Map<String, Object> attributes = session.getAttributes();
+        attributes.put(SESSION_BUCKET_ATTRIBUTE, new TokenBucket(sessionRate, sessionBurst, now));
+        if (userId != null) {
+            attributes.put(USER_ID_ATTRIBUTE, userId);
+        }
+
+        String key = limitKey(session, userId);
+        if (key != null) {
+            attributes.put(LIMIT_KEY_ATTRIBUTE, key);
+            userBuckets.computeIfAbsent(key, k -> new TokenBucket(userRate, userBurst, now));
+        }
+    }
+
+    /**
+     * Gasta una tirada de la sesión y de su usuario. Devuelve 0 si se puede tirar, o cuántos
+     * nanosegundos hay que esperar.
+     */
+    public long tryAcquire(WebSocketSession session) {
+        long now = System.nanoTime();
+        Map<String, Object> attributes = session.getAttributes();
+
+        if (attributes.get(SESSION_BUCKET_ATTRIBUTE) instanceof TokenBucket sessionBucket) {
+            long wait = sessionBucket.tryAcquire(now);
+            if (wait > 0) {
+                return wait;
+            }
+        }
+
+        if (attributes.get(LIMIT_KEY_ATTRIBUTE) instanceof String key) {
+            TokenBucket userBucket = userBuckets.get(key);
+            if (userBucket == null) {
+                // se borró por inactivo mientras la sesión seguía abierta
+                userBucket = userBuckets.computeIfAbsent(key, k -> new TokenBucket(userRate, userBurst, now));
+            }
+            return userBucket.tryAcquire(now);
+        }
+        return 0;
+    }
+
+    private String limitKey(WebSocketSession session, Long userId) {
+        if (userId != null) {
+            return "user:" + userId;
+        }
+        InetSocketAddress remote = session.getRemoteAddress();
+        if (remote != null && remote.getAddress() != null) {
+            return "addr:" + remote.getAddress().getHostAddress();
+        }
+        // sin usuario ni dirección solo queda el cubo de la sesión
+        return null;
+    }
+
+    // un cubo lleno es igual a uno nuevo: se borra para no guardar uno por cada usuario que pasó
+    @Scheduled(fixedDelayString = "${rolegames.dice.rate-limit.evict-interval-ms:60000}")
+    public void evictFullUserBuckets() {
+        long now = System.nanoTime();
+        userBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    int getUserBucketCount() {
+        return userBuckets.size();
+    }
+}
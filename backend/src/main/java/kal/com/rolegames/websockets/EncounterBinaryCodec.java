@@ -0,0 +1,183 @@
+package kal.com.rolegames.websockets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Protocolo binario del canal de un encuentro (subprotocolo {@value #SUBPROTOCOL}).
+ *
+ * Cada frame empieza con enteros varint (LEB128 sin signo):
+ * <ol>
+ *     <li>id del tipo ({@link EncounterMessageType}) desplazado un bit; el bit bajo indica si el
+ *     cuerpo es el campo data (0) o el resto de los campos del mensaje (1). Con id 0 sigue el
+ *     nombre del tipo: longitud y UTF-8.</li>
+ *     <li>encounterId + 1, sequence + 1 y timestamp en milisegundos + 1; 0 si el mensaje no lo trae.</li>
+ * </ol>
+ * Lo que queda del frame es el cuerpo en CBOR, donde los enteros (ids de personaje, PV,
+ * tiradas) también ocupan de 1 a 9 bytes según su valor.
+ */
+@Component
+public class EncounterBinaryCodec {
+
+    private static final Logger logger = LoggerFactory.getLogger(EncounterBinaryCodec.class);
+
+    public static final String SUBPROTOCOL = "rolegames.bin.v1";
+    public static final String JSON_SUBPROTOCOL = "rolegames.json";
+
+    private static final int DATA_BODY = 0;
+    private static final int FIELDS_BODY = 1;
+
+    private final ObjectMapper cborMapper;
+
+    @Autowired
+    public EncounterBinaryCodec(ObjectMapper objectMapper) {
+        // misma configuración y módulos que el JSON, con CBOR como formato
+        this.cborMapper = objectMapper.copyWith(new CBORFactory());
+    }
+
+    public byte[] encode(Object message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+
+        if (message instanceof EncounterWebSocketService.WebSocketMessage webSocketMessage) {
+            LocalDateTime timestamp = webSocketMessage.getTimestamp();
+            writeHeader(out, webSocketMessage.getType(), DATA_BODY,
+                    webSocketMessage.getEncounterId(),
+                    webSocketMessage.getSequence(),
+                    timestamp != null ? timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : null);
+            cborMapper.writeValue(out, webSocketMessage.getData());
+        } else if (message instanceof Map<?, ?> map) {
+            Map<Object, Object> fields = new LinkedHashMap<>(map);
+            Object type = fields.remove("type");
+            writeHeader(out, type != null ? type.toString() : null, FIELDS_BODY,
+                    takeId(fields, "encounterId"), takeId(fields, "sequence"), takeId(fields, "timestamp"));
+            cborMapper.writeValue(out, fields);
+        } else {
+            writeHeader(out, null, DATA_BODY, null, null, null);
+            cborMapper.writeValue(out, message);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Lee un frame y lo devuelve con la misma forma que tendría el JSON equivalente.
+     */
+    public Map<String, Object> decode(ByteBuffer frame) throws IOException {
+        try {
+            long head = readVarint(frame);
+            int typeId = (int) (head >>> 1);
+            String type = typeId == 0 ? readString(frame) : EncounterMessageType.fromId(typeId).name();
+
+            Map<String, Object> message = new LinkedHashMap<>();
+            if (type != null) {
+                message.put("type", type);
+            }
+            putIfPresent(message, "encounterId", readOptional(frame));
+            putIfPresent(message, "sequence", readOptional(frame));
+            putIfPresent(message, "timestamp", readOptional(frame));
+
+            byte[] body = new byte[frame.remaining()];
+            frame.get(body);
+            Object content = body.length > 0 ? cborMapper.readValue(body, Object.class) : null;
+
+            if ((head & 1) == FIELDS_BODY && content instanceof Map<?, ?> fields) {
+                fields.forEach((key, value) -> message.put(String.valueOf(key), value));
+            } else {
+                message.put("data", content);
+            }
+            return message;
+        } catch (RuntimeException e) {
+            throw new IOException("Frame binario inválido: " + e.getMessage(), e);
+        }
+    }
+
+    // ========================================
+    // VARINT
+    // ========================================
+
+    private void writeHeader(ByteArrayOutputStream out, String type, int bodyKind,
+                             Long encounterId, Long sequence, Long timestamp) {
+        EncounterMessageType knownType = EncounterMessageType.fromName(type);
+        if (knownType != null) {
+            writeVarint(out, ((long) knownType.getId() << 1) | bodyKind);
+        } else {
+            writeVarint(out, bodyKind);
+            byte[] name = type != null ? type.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            writeVarint(out, name.length);
+            out.writeBytes(name);
+            if (type != null) {
+                logger.debug("Tipo de mensaje sin id en el protocolo binario: {}", type);
+            }
+        }
+        writeOptional(out, encounterId);
+        writeOptional(out, sequence);
+        writeOptional(out, timestamp);
+    }
+
+    // solo los valores numéricos no negativos van en la cabecera; el resto se queda en el cuerpo
+    private static Long takeId(Map<Object, Object> fields, String key) {
+        if (fields.get(key) instanceof Number number && number.longValue() >= 0) {
+            fields.remove(key);
+            return number.longValue();
+        }
+        return null;
+    }
+
+    private static void writeOptional(ByteArrayOutputStream out, Long value) {
+        writeVarint(out, value != null ? value + 1 : 0);
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint demasiado largo");
+    }
+
+    private static Long readOptional(ByteBuffer in) {
+        long value = readVarint(in);
+        return value == 0 ? null : value - 1;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarint(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putIfPresent(Map<String, Object> message, String key, Long value) {
+        if (value != null) {
+            message.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package kal.com.rolegames.websockets;
+
+import kal.com.rolegames.dto.combat.CombatDeltaDTO;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Eventos de un encuentro acumulados durante una ventana del modo tick.
+ *
+ * Un cambio que deja obsoleto a otro anterior de la misma ventana lo reemplaza: HP_CHANGED del
+ * mismo personaje o INITIATIVE_UPDATED de la misma posición (los dos traen el valor completo).
+ * El reemplazado deja su secuencia en skippedSequences para que el cliente no la tome como un hueco.
+ *
+ * Se usa una sola vez: al vaciarla queda retirada y los eventos nuevos van a otra ventana.
+ */
+final class EncounterEventBatch {
+
+    private final List<EncounterWebSocketService.WebSocketMessage> events = new ArrayList<>();
+    private final List<Long> skippedSequences = new ArrayList<>();
+    // clave de fusión -> posición en events
+    private final Map<String, Integer> mergeable = new HashMap<>();
+    private boolean retired;
+
+    /**
+     * Agrega el evento a la ventana. Devuelve false si la ventana ya se envió.
+     */
+    synchronized boolean add(EncounterWebSocketService.WebSocketMessage message) {
+        if (retired) {
+            return false;
+        }
+
+        if (message.getData() instanceof CombatDeltaDTO delta) {
+            CombatDeltaDTO.Type type = delta.getType();
+            if (type == CombatDeltaDTO.Type.INITIATIVE_INSERTED || type == CombatDeltaDTO.Type.INITIATIVE_REMOVED) {
+                // las posiciones se corren: lo anterior ya no se puede fusionar por índice
+                mergeable.clear();
+            }
+
+            String key = mergeKey(delta);
+            if (key != null) {
+                Integer previous = mergeable.put(key, events.size());
+                if (previous != null) {
+                    CombatDeltaDTO replaced = (CombatDeltaDTO) events.set(previous, null).getData();
+                    skippedSequences.add(replaced.getSequence());
+                }
+            }
+        } else {
+            // un combate que empieza o termina reinicia las secuencias
+            mergeable.clear();
+        }
+
+        events.add(message);
+        return true;
+    }
+
+    /**
+     * Retira la ventana y devuelve sus eventos en orden, sin los reemplazados.
+     */
+    synchronized List<EncounterWebSocketService.WebSocketMessage> retire() {
+        retired = true;
+        List<EncounterWebSocketService.WebSocketMessage> pending = new ArrayList<>(events.size());
+        for (EncounterWebSocketService.WebSocketMessage event : events) {
+            if (event != null) {
+                pending.add(event);
+            }
+        }
+        return pending;
+    }
+
+    synchronized List<Long> getSkippedSequences() {
+        return List.copyOf(skippedSequences);
+    }
+
+    private static String mergeKey(CombatDeltaDTO delta) {
+        return switch (delta.getType()) {
+            case HP_CHANGED -> "HP:" + delta.getCharacterId();
+            case INITIATIVE_UPDATED -> "INITIATIVE:" + delta.getIndex();
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package kal.com.rolegames.websockets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Últimos mensajes enviados por el canal de un encuentro, ya serializados, para reenviárselos a un
+ * cliente que se reconecta.
+ *
+ * Cada mensaje lleva un número de secuencia consecutivo; el búfer es circular y guarda los
+ * últimos capacity. streamId cambia cada vez que se crea el registro (por ejemplo al reiniciar el
+ * servidor), así un número viejo no se confunde con uno del registro nuevo.
+ *
+ * Quien publica debe sincronizar sobre el registro para que asignar la secuencia, guardar el
+ * frame y enviarlo ocurran en el mismo orden para todos.
+ */
+final class EncounterEventLog<F> {
+
+    private final String streamId = UUID.randomUUID().toString();
+    private final Object[] frames;
+    private long lastSequence;
+
+    // momento en que se fue la última sesión; 0 mientras haya alguna conectada
+    private long idleSince;
+
+    EncounterEventLog(int capacity) {
+        this.frames = new Object[capacity];
+    }
+
+    String getStreamId() {
+        return streamId;
+    }
+
+    synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    synchronized long nextSequence() {
+        return lastSequence + 1;
+    }
+
+    /**
+     * Guarda el frame con la secuencia que devolvió nextSequence().
+     */
+    synchronized void append(long sequence, F frame) {
+        if (sequence != lastSequence + 1) {
+            throw new IllegalStateException("Secuencia fuera de orden: " + sequence + " después de " + lastSequence);
+        }
+        frames[(int) (sequence % frames.length)] = frame;
+        lastSequence = sequence;
+    }
+
+    /**
+     * Frames posteriores a lastSeen, en orden. Devuelve null si alguno ya salió del búfer
+     * (o lastSeen no corresponde a este registro): el cliente necesita el estado completo.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized List<F> since(long lastSeen) {
+        long oldest = Math.max(1, lastSequence - frames.length + 1);
+        if (lastSeen > lastSequence || lastSeen < oldest - 1) {
+            return null;
+        }
+
+        List<F> missed = new ArrayList<>((int) (lastSequence - lastSeen));
+        for (long sequence = lastSeen + 1; sequence <= lastSequence; sequence++) {
+            missed.add((F) frames[(int) (sequence % frames.length)]);
+        }
+        return missed;
+    }
+
+    synchronized void markIdle(long now) {
+        idleSince = now;
+    }
+
+    synchronized void markActive() {
+        idleSince = 0;
+    }
+
+    synchronized boolean idleLongerThan(long millis, long now) {
+        return idleSince > 0 && now - idleSince > millis;
+    }
+}
@@ -0,0 +1,50 @@
+package kal.com.rolegames.websockets;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Un mensaje del canal de un encuentro listo para enviarse en el protocolo de cada sesión.
+ * Se serializa a lo sumo una vez por protocolo, la primera vez que alguna sesión lo pide, y esa
+ * versión se comparte entre todas las sesiones (y con el registro de reconexión).
+ */
+final class EncounterFrame {
+
+    private final Object message;
+    private final WebSocketFrameEncoder textEncoder;
+    private final EncounterBinaryCodec binaryCodec;
+
+    private TextMessage text;
+    private ByteBuffer binary;
+
+    EncounterFrame(Object message, WebSocketFrameEncoder textEncoder, EncounterBinaryCodec binaryCodec) {
+        this.message = message;
+        this.textEncoder = textEncoder;
+        this.binaryCodec = binaryCodec;
+    }
+
+    synchronized WebSocketMessage<?> forSession(WebSocketSession session) {
+        if (!EncounterBinaryCodec.SUBPROTOCOL.equals(session.getAcceptedProtocol())) {
+            if (text == null) {
+                text = textEncoder.encode(message);
+            }
+            return text;
+        }
+
+        if (binary == null) {
+            try {
+                binary = ByteBuffer.wrap(binaryCodec.encode(message));
+            } catch (IOException e) {
+                // el cliente sigue recibiendo algo que puede leer
+                return textEncoder.encode(message);
+            }
+        }
+        // enviar consume la posición del buffer: cada sesión recibe su propia vista de los mismos bytes
+        return new BinaryMessage(binary.duplicate());
+    }
+}
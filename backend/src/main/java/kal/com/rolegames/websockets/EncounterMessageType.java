@@ -0,0 +1,70 @@
+package kal.com.rolegames.websockets;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tipos de mensaje del canal de un encuentro con su id en el protocolo binario.
+ *
+ * Los ids no se reutilizan: un tipo nuevo va al final con el siguiente número (el frontend tiene
+ * la misma tabla en encounterProtocol.js). Un tipo que no esté aquí viaja con su nombre.
+ */
+public enum EncounterMessageType {
+    CONNECTION_ESTABLISHED(1),
+    USER_JOINED(2),
+    USER_LEFT(3),
+    ACTION_PERFORMED(4),
+    COMBAT_DELTA(5),
+    ENCOUNTER_BATCH(6),
+    COMBAT_STARTED(7),
+    COMBAT_ENDED(8),
+    PARTICIPANT_ADDED(9),
+    PARTICIPANT_REMOVED(10),
+    TURN_CHANGED(11),
+    ENCOUNTER_COMPLETED(12),
+    DICE_ROLL(13),
+    DICE_ROLLED(14),
+    CHAT_MESSAGE(15),
+    PERFORM_ACTION(16),
+    PLAYER_POSITION_UPDATE(17),
+    TOKEN_POSITIONS(18),
+    MOVE_REJECTED(19),
+    DICE_ROLL_REJECTED(20),
+    PING(21);
+
+    private static final Map<String, EncounterMessageType> BY_NAME = new HashMap<>();
+    private static final EncounterMessageType[] BY_ID;
+
+    static {
+        int maxId = 0;
+        for (EncounterMessageType type : values()) {
+            BY_NAME.put(type.name(), type);
+            maxId = Math.max(maxId, type.id);
+        }
+        BY_ID = new EncounterMessageType[maxId + 1];
+        for (EncounterMessageType type : values()) {
+            BY_ID[type.id] = type;
+        }
+    }
+
+    private final int id;
+
+    EncounterMessageType(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public static EncounterMessageType fromName(String name) {
+        return name != null ? BY_NAME.get(name) : null;
+    }
+
+    public static EncounterMessageType fromId(int id) {
+        if (id <= 0 || id >= BY_ID.length || BY_ID[id] == null) {
+            throw new IllegalArgumentException("Tipo de mensaje desconocido: " + id);
+        }
+        return BY_ID[id];
+    }
+}
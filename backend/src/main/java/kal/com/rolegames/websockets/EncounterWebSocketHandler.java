@@ -5,35 +5,91 @@
 package kal.com.rolegames.websockets;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import kal.com.rolegames.dto.sessions.EncounterDTO;
-import kal.com.rolegames.services.sessions.EncounterService;
-import lombok.AllArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import kal.com.rolegames.dto.combat.DiceRollDTO;
+import kal.com.rolegames.models.users.User;
+import kal.com.rolegames.services.combat.MovementService;
+import kal.com.rolegames.services.combat.dice.DiceRollService;
+import kal.com.rolegames.websockets.bus.BroadcastBus;
+import kal.com.rolegames.websockets.bus.BroadcastReceiver;
+import kal.com.rolegames.websockets.bus.BroadcastTopic;
+import kal.com.rolegames.websockets.presence.PresenceService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Component
-@AllArgsConstructor(onConstructor=@__({@Autowired}))
-public class EncounterWebSocketHandler extends TextWebSocketHandler {
+public class EncounterWebSocketHandler extends AbstractWebSocketHandler implements SubProtocolCapable, BroadcastReceiver {
 
     private static final Logger logger = LoggerFactory.getLogger(EncounterWebSocketHandler.class);
 
     private final ObjectMapper objectMapper;
+    private final WebSocketSendPipeline sendPipeline;
+    private final WebSocketFrameEncoder frameEncoder;
+    private final EncounterBinaryCodec binaryCodec;
+    private final BroadcastBus broadcastBus;
+    private final MovementService movementService;
+    private final DiceRollService diceRollService;
+    private final DiceRollLimiter diceRollLimiter;
+    private final PresenceService presenceService;
 
     // Mapa de encounterId -> Set de sesiones conectadas
     private final Map<Long, Set<WebSocketSession>> encounterSessions = new ConcurrentHashMap<>();
     // Mapa de sessionId -> encounterId para tracking
     private final Map<String, Long> sessionToEncounter = new ConcurrentHashMap<>();
+    // encounterId -> últimos mensajes enviados, para reanudar tras una reconexión
+    private final Map<Long, EncounterEventLog<EncounterFrame>> encounterLogs = new ConcurrentHashMap<>();
+
+    private final int resumeBufferSize;
+    private final long resumeRetentionMillis;
+
+    @Autowired
+    public EncounterWebSocketHandler(ObjectMapper objectMapper,
+                                     WebSocketSendPipeline sendPipeline,
+                                     WebSocketFrameEncoder frameEncoder,
+                                     EncounterBinaryCodec binaryCodec,
+                                     BroadcastBus broadcastBus,
+                                     MovementService movementService,
+                                     DiceRollService diceRollService,
+                                     DiceRollLimiter diceRollLimiter,
+                                     PresenceService presenceService,
+                                     @Value("${rolegames.websocket.resume-buffer-size:200}") int resumeBufferSize,
+                                     @Value("${rolegames.websocket.resume-retention-ms:300000}") long resumeRetentionMillis) {
+        this.objectMapper = objectMapper;
+        this.sendPipeline = sendPipeline;
+        this.frameEncoder = frameEncoder;
+        this.binaryCodec = binaryCodec;
+        this.broadcastBus = broadcastBus;
+        this.movementService = movementService;
+        this.diceRollService = diceRollService;
+        this.diceRollLimiter = diceRollLimiter;
+        this.presenceService = presenceService;
+        this.resumeBufferSize = resumeBufferSize;
+        this.resumeRetentionMillis = resumeRetentionMillis;
+    }
+
+    @PostConstruct
+    public void registerWithBus() {
+        broadcastBus.register(BroadcastTopic.Kind.ENCOUNTER, this);
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
@@ -45,30 +101,67 @@ public class EncounterWebSocketHandler extends TextWebSocketHandler {
             return;
         }
 
-        encounterSessions.computeIfAbsent(encounterId, k -> ConcurrentHashMap.newKeySet())
-                .add(session);
+        Long userId = getUserIdFromSession(session);
+        sendPipeline.register(session);
+        diceRollLimiter.register(session, userId);
         sessionToEncounter.put(session.getId(), encounterId);
 
-        logger.info("Cliente conectado al encounter {}: {} (Total: {} clientes)",
-                encounterId, session.getId(), encounterSessions.get(encounterId).size());
+        EncounterEventLog<EncounterFrame> log = encounterLogs.compute(encounterId, (id, current) -> {
+            EncounterEventLog<EncounterFrame> existing = current != null ? current : new EncounterEventLog<>(resumeBufferSize);
+            existing.markActive();
+            return existing;
+        });
+
+        // con el registro tomado no sale ningún broadcast: los mensajes perdidos llegan antes que los nuevos
+        synchronized (log) {
+            List<EncounterFrame> missed = missedEvents(session, log);
+            sendConnectionSuccessMessage(session, encounterId, log, missed != null);
+            if (missed != null) {
+                missed.forEach(frame -> sendMessageToSession(session, frame.forSession(session)));
+                logger.info("Sesión {} reanudada en el encounter {}: {} mensajes reenviados",
+                        session.getId(), encounterId, missed.size());
+            }
 
-        // Enviar estado inicial del encounter
-        sendConnectionSuccessMessage(session, encounterId);
+            // la suscripción al bus cambia junto con el set, dentro de compute
+            encounterSessions.compute(encounterId, (id, sessions) -> {
+                if (sessions == null) {
+                    sessions = ConcurrentHashMap.newKeySet();
+                    broadcastBus.subscribe(BroadcastTopic.encounter(id));
+                }
+                sessions.add(session);
+                return sessions;
+            });
+        }
+
+        // anuncia USER_JOINED si es la primera sesión del usuario en la mesa
+        presenceService.joinEncounter(session, encounterId, userId);
+
+        logger.info("Cliente conectado al encounter {}: {} (Total: {} clientes)",
+                encounterId, session.getId(), presenceService.getEncounterSessionCount(encounterId));
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        sendPipeline.unregister(session);
+        presenceService.leaveEncounter(session);
         Long encounterId = sessionToEncounter.remove(session.getId());
 
         if (encounterId != null) {
-            Set<WebSocketSession> sessions = encounterSessions.get(encounterId);
-            if (sessions != null) {
+            encounterSessions.computeIfPresent(encounterId, (id, sessions) -> {
                 sessions.remove(session);
-                if (sessions.isEmpty()) {
-                    encounterSessions.remove(encounterId);
-                    logger.info("Último cliente desconectado del encounter {}", encounterId);
+                if (!sessions.isEmpty()) {
+                    return sessions;
                 }
-            }
+
+                broadcastBus.unsubscribe(BroadcastTopic.encounter(id));
+                // el registro se guarda un tiempo por si el cliente vuelve
+                EncounterEventLog<EncounterFrame> log = encounterLogs.get(id);
+                if (log != null) {
+                    log.markIdle(System.currentTimeMillis());
+                }
+                logger.info("Último cliente desconectado del encounter {}", id);
+                return null;
+            });
         }
 
         logger.info("Cliente desconectado del encounter {}: {} (Código: {})",
@@ -90,6 +183,28 @@ public class EncounterWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    // sesiones que negociaron el protocolo binario
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        try {
+            Map<String, Object> messageData = binaryCodec.decode(message.getPayload());
+            logger.debug("Mensaje binario recibido de {}: {}", session.getId(), messageData.get("type"));
+            handleClientMessage(session, messageData);
+
+        } catch (Exception e) {
+            logger.error("Error procesando mensaje binario de {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Subprotocolos que acepta el canal, en orden de preferencia. Un cliente que no pide ninguno
+     * (o solo rolegames.json) recibe JSON como hasta ahora.
+     */
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(EncounterBinaryCodec.SUBPROTOCOL, EncounterBinaryCodec.JSON_SUBPROTOCOL);
+    }
+
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         logger.error("Error de transporte en sesión {}: {}", session.getId(), exception.getMessage());
@@ -100,24 +215,48 @@ public class EncounterWebSocketHandler extends TextWebSocketHandler {
     // MÉTODOS PÚBLICOS PARA BROADCASTING
     // ========================================
 
-    public void broadcastToEncounter(Long encounterId, Object message) {
+    /**
+     * Mensaje del bus para un encuentro: se envía a sus sesiones en este nodo.
+     */
+    @Override
+    public void deliver(BroadcastTopic topic, Object message) {
+        broadcastToEncounter(topic.id(), message);
+    }
+
+    /**
+     * Envía el mensaje a todas las sesiones del encuentro con el siguiente número de secuencia
+     * del canal y lo guarda en el registro para las reconexiones. Si nadie está conectado y
+     * tampoco hay un registro reciente, el mensaje se descarta.
+     */
+    private void broadcastToEncounter(Long encounterId, Object message) {
         Set<WebSocketSession> sessions = encounterSessions.get(encounterId);
-        if (sessions != null && !sessions.isEmpty()) {
-            String json = convertToJson(message);
-            logger.debug("Broadcasting a {} clientes del encounter {}: {}",
-                    sessions.size(), encounterId, json);
-
-            // Crear copia para evitar ConcurrentModificationException
-            Set<WebSocketSession> sessionsCopy = Set.copyOf(sessions);
-            sessionsCopy.forEach(session -> sendMessageToSession(session, json));
-        } else {
+        boolean hasSessions = sessions != null && !sessions.isEmpty();
+        EncounterEventLog<EncounterFrame> log = hasSessions
+                ? encounterLogs.computeIfAbsent(encounterId, id -> new EncounterEventLog<>(resumeBufferSize))
+                : encounterLogs.get(encounterId);
+
+        if (log == null) {
             logger.debug("No hay clientes conectados al encounter {} para broadcast", encounterId);
+            return;
+        }
+
+        synchronized (log) {
+            long sequence = log.nextSequence();
+            EncounterFrame frame = new EncounterFrame(withSequence(message, sequence), frameEncoder, binaryCodec);
+            log.append(sequence, frame);
+
+            if (hasSessions) {
+                logger.debug("Broadcasting mensaje {} a {} clientes del encounter {}",
+                        sequence, sessions.size(), encounterId);
+                // el mismo frame para todas las sesiones; el set es concurrente, se recorre sin copiarlo
+                sessions.forEach(session -> sendMessageToSession(session, frame.forSession(session)));
+            }
         }
     }
 
     public void sendToSession(WebSocketSession session, Object message) {
-        String json = convertToJson(message);
-        sendMessageToSession(session, json);
+        EncounterFrame frame = new EncounterFrame(message, frameEncoder, binaryCodec);
+        sendMessageToSession(session, frame.forSession(session));
     }
 
     // ========================================
@@ -125,6 +264,7 @@ public class EncounterWebSocketHandler extends TextWebSocketHandler {
     // ========================================
 
     private void handleClientMessage(WebSocketSession session, Map<String, Object> messageData) {
+        presenceService.heartbeat(session);
         try {
             String type = (String) messageData.get("type");
             Long encounterId = sessionToEncounter.get(session.getId());
@@ -138,8 +278,11 @@ public class EncounterWebSocketHandler extends TextWebSocketHandler {
                     type, session.getId(), encounterId);
 
             switch (type) {
+                case "PING":
+                    // solo cuenta como actividad
+                    break;
                 case "USER_JOINED":
-                    handleUserJoined(session, messageData, encounterId);
+                    // el usuario sale del handshake autenticado (joinEncounter), no de lo que manda el cliente
                     break;
                 case "PERFORM_ACTION":
                     handleActionRequest(session, messageData, encounterId);
@@ -150,6 +293,9 @@ public class EncounterWebSocketHandler extends TextWebSocketHandler {
                 case "CHAT_MESSAGE":
                     handleChatMessage(session, messageData, encounterId);
                     break;
+                case "PLAYER_POSITION_UPDATE":
+                    handlePositionUpdate(session, messageData, encounterId);
+                    break;
                 default:
                     logger.warn("Tipo de mensaje no reconocido: {}", type);
             }
@@ -159,18 +305,8 @@ public class EncounterWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
-    private void handleUserJoined(WebSocketSession session, Map<String, Object> messageData, Long encounterId) {
-        // Notificar a otros usuarios que alguien se unió
-        Map<String, Object> userJoinedMessage = Map.of(
-                "type", "USER_JOINED",
-                "data", messageData.get("data"),
-                "timestamp", System.currentTimeMillis()
-        );
-
-        // Broadcast a todos EXCEPTO al que se conectó
-        broadcastToOthers(encounterId, session, userJoinedMessage);
-    }
-
+    // la presencia la anuncia PresenceService al conectarse; este mensaje solo sirve a clientes que
+    // no mandan userId en la URL
     private void handleActionRequest(WebSocketSession session, Map<String, Object> messageData, Long encounterId) {
         // Este mensaje debería ser manejado por el controller REST,
         // aquí solo lo notificamos para logging
@@ -178,16 +314,53 @@ public class EncounterWebSocketHandler extends TextWebSocketHandler {
                 encounterId, messageData.get("data"));
     }
 
+    // el servidor tira los dados: el resultado que mande el cliente no se usa.
+    // data: {expression: "1d20+5", label?}; se acepta {type: "d20"} de clientes viejos
     private void handleDiceRoll(WebSocketSession session, Map<String, Object> messageData, Long encounterId) {
-        // Broadcast la tirada de dados a todos los usuarios
+        long waitNanos = diceRollLimiter.tryAcquire(session);
+        if (waitNanos > 0) {
+            long retryAfterMs = Math.max(1, waitNanos / 1_000_000);
+            logger.debug("Tirada limitada en la sesión {}: reintentar en {} ms", session.getId(), retryAfterMs);
+            sendDiceRollRejected(session, encounterId, "Demasiadas tiradas seguidas", retryAfterMs);
+            return;
+        }
+
+        Map<?, ?> data = messageData.get("data") instanceof Map<?, ?> map ? map : Map.of();
+        Object expression = data.get("expression") != null ? data.get("expression") : data.get("type");
+        Object label = data.get("label");
+
+        DiceRollDTO roll;
+        try {
+            roll = diceRollService.roll(expression != null ? expression.toString() : null,
+                    label != null ? label.toString() : null,
+                    (Long) session.getAttributes().get(DiceRollLimiter.USER_ID_ATTRIBUTE));
+        } catch (IllegalArgumentException e) {
+            sendDiceRollRejected(session, encounterId, e.getMessage(), null);
+            return;
+        }
+
         Map<String, Object> diceMessage = Map.of(
                 "type", "DICE_ROLLED",
-                "data", messageData.get("data"),
+                "data", roll,
                 "sessionId", session.getId(),
                 "timestamp", System.currentTimeMillis()
         );
 
-        broadcastToEncounter(encounterId, diceMessage);
+        broadcastBus.publish(BroadcastTopic.encounter(encounterId), diceMessage);
+    }
+
+    private void sendDiceRollRejected(WebSocketSession session, Long encounterId, String reason, Long retryAfterMs) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("reason", reason);
+        if (retryAfterMs != null) {
+            data.put("retryAfterMs", retryAfterMs);
+        }
+        sendToSession(session, Map.of(
+                "type", "DICE_ROLL_REJECTED",
+                "encounterId", encounterId,
+                "data", data,
+                "timestamp", System.currentTimeMillis()
+        ));
     }
 
     private void handleChatMessage(WebSocketSession session, Map<String, Object> messageData, Long encounterId) {
@@ -199,15 +372,55 @@ public class EncounterWebSocketHandler extends TextWebSocketHandler {
                 "timestamp", System.currentTimeMillis()
         );
 
-        broadcastToEncounter(encounterId, chatMessage);
+        broadcastBus.publish(BroadcastTopic.encounter(encounterId), chatMessage);
+    }
+
+    // data: {playerId|characterId, position: {x, y}}. No se reenvía: BattleMapService anuncia las
+    // posiciones de todos en el siguiente tick. Si el movimiento no vale solo se avisa a quien lo pidió
+    @SuppressWarnings("unchecked")
+    private void handlePositionUpdate(WebSocketSession session, Map<String, Object> messageData, Long encounterId) {
+        if (!(messageData.get("data") instanceof Map<?, ?> data)) {
+            logger.warn("PLAYER_POSITION_UPDATE sin datos en la sesión {}", session.getId());
+            return;
+        }
+        Object characterId = data.get("characterId") != null ? data.get("characterId") : data.get("playerId");
+        Map<String, Object> position = data.get("position") instanceof Map<?, ?> nested
+                ? (Map<String, Object>) nested
+                : (Map<String, Object>) data;
+
+        if (!(characterId instanceof Number id)
+                || !(position.get("x") instanceof Number x)
+                || !(position.get("y") instanceof Number y)) {
+            logger.warn("PLAYER_POSITION_UPDATE inválido en la sesión {}: {}", session.getId(), data);
+            return;
+        }
+
+        try {
+            movementService.moveToken(encounterId, id.longValue(),
+                    (int) Math.round(x.doubleValue()), (int) Math.round(y.doubleValue()));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            logger.info("Movimiento rechazado en el encounter {}: {}", encounterId, e.getMessage());
+            sendToSession(session, Map.of(
+                    "type", "MOVE_REJECTED",
+                    "encounterId", encounterId,
+                    "data", Map.of("characterId", id.longValue(), "reason", e.getMessage()),
+                    "timestamp", System.currentTimeMillis()
+            ));
+        }
     }
 
-    private void sendConnectionSuccessMessage(WebSocketSession session, Long encounterId) {
+    // resumed indica si a continuación llegan los mensajes perdidos; si no, el cliente pide el estado completo
+    private void sendConnectionSuccessMessage(WebSocketSession session, Long encounterId,
+                                              EncounterEventLog<EncounterFrame> log, boolean resumed) {
         try {
             Map<String, Object> connectionMessage = Map.of(
                     "type", "CONNECTION_ESTABLISHED",
                     "encounterId", encounterId,
                     "sessionId", session.getId(),
+                    "streamId", log.getStreamId(),
+                    "sequence", log.getLastSequence(),
+                    "resumed", resumed,
+                    "presentUsers", presenceService.getUsersAt(encounterId),
                     "timestamp", System.currentTimeMillis()
             );
 
@@ -221,41 +434,49 @@ public class EncounterWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
-    private void sendMessageToSession(WebSocketSession session, String json) {
+    // solo encola: el envío real lo hace WebSocketSendPipeline en su propio hilo
+    private void sendMessageToSession(WebSocketSession session, WebSocketMessage<?> frame) {
+        sendPipeline.send(session, frame);
+    }
+
+    /**
+     * Mensajes que se perdió el cliente según el streamId y lastSequence que manda al conectarse
+     * (/ws/encounters/{id}?streamId=...&lastSequence=...). null si no los mandó o ya no están.
+     */
+    private List<EncounterFrame> missedEvents(WebSocketSession session, EncounterEventLog<EncounterFrame> log) {
+        Map<String, List<String>> params = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+        String streamId = params.containsKey("streamId") ? params.get("streamId").get(0) : null;
+        String lastSequence = params.containsKey("lastSequence") ? params.get("lastSequence").get(0) : null;
+
+        if (streamId == null || lastSequence == null || !streamId.equals(log.getStreamId())) {
+            return null;
+        }
         try {
-            if (session.isOpen()) {
-                session.sendMessage(new TextMessage(json));
-            } else {
-                logger.warn("Intentando enviar mensaje a sesión cerrada: {}", session.getId());
-            }
-        } catch (IOException e) {
-            logger.error("Error enviando mensaje a sesión {}: {}", session.getId(), e.getMessage());
-            // Remover sesión problemática
-            removeSessionFromMaps(session);
+            return log.since(Long.parseLong(lastSequence));
+        } catch (NumberFormatException e) {
+            logger.warn("lastSequence inválido en la sesión {}: {}", session.getId(), lastSequence);
+            return null;
         }
     }
 
-    private void broadcastToOthers(Long encounterId, WebSocketSession excludeSession, Object message) {
-        Set<WebSocketSession> sessions = encounterSessions.get(encounterId);
-        if (sessions != null) {
-            String json = convertToJson(message);
-            sessions.stream()
-                    .filter(s -> !s.equals(excludeSession))
-                    .forEach(s -> sendMessageToSession(s, json));
+    private Object withSequence(Object message, long sequence) {
+        if (message instanceof EncounterWebSocketService.WebSocketMessage webSocketMessage) {
+            webSocketMessage.setSequence(sequence);
+            return webSocketMessage;
+        } else if (message instanceof Map<?, ?> map) {
+            Map<Object, Object> stamped = new LinkedHashMap<>(map);
+            stamped.put("sequence", sequence);
+            return stamped;
         }
+        return message;
     }
 
-    private void removeSessionFromMaps(WebSocketSession session) {
-        Long encounterId = sessionToEncounter.remove(session.getId());
-        if (encounterId != null) {
-            Set<WebSocketSession> sessions = encounterSessions.get(encounterId);
-            if (sessions != null) {
-                sessions.remove(session);
-                if (sessions.isEmpty()) {
-                    encounterSessions.remove(encounterId);
-                }
-            }
-        }
+    // los registros de encuentros sin clientes se descartan pasado el tiempo de retención
+    @Scheduled(fixedDelayString = "${rolegames.websocket.resume-retention-ms:300000}")
+    public void evictIdleEventLogs() {
+        long now = System.currentTimeMillis();
+        encounterLogs.keySet().forEach(encounterId -> encounterLogs.computeIfPresent(encounterId, (id, log) ->
+                log.idleLongerThan(resumeRetentionMillis, now) && getConnectedClientsCount(id) == 0 ? null : log));
     }
 
     private Long getEncounterIdFromSession(WebSocketSession session) {
@@ -272,13 +493,14 @@ public class EncounterWebSocketHandler extends TextWebSocketHandler {
         return null;
     }
 
-    private String convertToJson(Object message) {
-        try {
-            return objectMapper.writeValueAsString(message);
-        } catch (Exception e) {
-            logger.error("Error convirtiendo mensaje a JSON: {}", e.getMessage());
-            return "{\"error\":\"Failed to serialize message\"}";
+    // el usuario del handshake autenticado (token del JWT), no un parámetro que elija el cliente;
+    // lo usan la presencia y el límite de tiradas por usuario
+    private Long getUserIdFromSession(WebSocketSession session) {
+        if (session.getPrincipal() instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof User user) {
+            return user.getUserId();
         }
+        return null;
     }
 
     // ========================================
@@ -286,14 +508,11 @@ public class EncounterWebSocketHandler extends TextWebSocketHandler {
     // ========================================
 
     public int getConnectedClientsCount(Long encounterId) {
-        Set<WebSocketSession> sessions = encounterSessions.get(encounterId);
-        return sessions != null ? sessions.size() : 0;
+        return presenceService.getEncounterSessionCount(encounterId);
     }
 
     public int getTotalConnectedClients() {
-        return encounterSessions.values().stream()
-                .mapToInt(Set::size)
-                .sum();
+        return presenceService.getTotalEncounterSessions();
     }
 
     public Set<Long> getActiveEncounters() {
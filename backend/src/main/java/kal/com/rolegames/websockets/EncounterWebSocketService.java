@@ -1,25 +1,73 @@
 package kal.com.rolegames.websockets;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.annotation.PreDestroy;
 import kal.com.rolegames.dto.combat.CombatActionDTO;
+import kal.com.rolegames.dto.combat.CombatDeltaDTO;
 import kal.com.rolegames.dto.combat.CombatStateDTO;
-import kal.com.rolegames.dto.combat.InitiativeDTO;
-import kal.com.rolegames.services.sessions.EncounterService;
-import kal.com.rolegames.websockets.EncounterWebSocketHandler;
+import kal.com.rolegames.websockets.bus.BroadcastBus;
+import kal.com.rolegames.websockets.bus.BroadcastTopic;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Mensajes del canal de un encuentro.
+ *
+ * Con rolegames.websocket.encounter-tick-ms > 0 los eventos de cada encuentro se juntan durante
+ * esa ventana y salen en un solo mensaje ENCOUNTER_BATCH (ver {@link EncounterEventBatch}), así un
+ * conjuro de área o una ráfaga de acciones es un envío y un render en el cliente en lugar de uno
+ * por evento. Con 0 cada evento sale en cuanto se publica.
+ */
 @Service
-@AllArgsConstructor(onConstructor=@__({@Autowired}))
 public class EncounterWebSocketService {
 
-    private final EncounterWebSocketHandler webSocketHandler;
+    private static final Logger logger = LoggerFactory.getLogger(EncounterWebSocketService.class);
+
+    private final BroadcastBus broadcastBus;
+    private final long tickMillis;
+
+    // encounterId -> ventana abierta
+    private final Map<Long, EncounterEventBatch> openBatches = new ConcurrentHashMap<>();
+    // un solo hilo: las ventanas de un encuentro se envían en el orden en que se abrieron
+    private final ScheduledExecutorService tickScheduler;
+
+    @Autowired
+    public EncounterWebSocketService(BroadcastBus broadcastBus,
+                                     @Value("${rolegames.websocket.encounter-tick-ms:0}") long tickMillis) {
+        this.broadcastBus = broadcastBus;
+        this.tickMillis = tickMillis;
+        this.tickScheduler = tickMillis > 0
+                ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "encounter-tick");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (tickScheduler != null) {
+            tickScheduler.shutdown();
+        }
+    }
 
     public void notifyEncounterUpdate(Long encounterId, String eventType, Object data) {
         WebSocketMessage message = WebSocketMessage.builder()
@@ -29,15 +77,33 @@ public class EncounterWebSocketService {
                 .data(data)
                 .build();
 
-        webSocketHandler.broadcastToEncounter(encounterId, message);
+        if (tickScheduler == null) {
+            broadcastBus.publish(BroadcastTopic.encounter(encounterId), message);
+        } else {
+            enqueue(encounterId, message);
+        }
     }
 
     public void notifyActionPerformed(Long encounterId, CombatActionDTO action) {
         notifyEncounterUpdate(encounterId, "ACTION_PERFORMED", action);
     }
 
-    public void notifyTurnChanged(Long encounterId, InitiativeDTO newTurn) {
-        notifyEncounterUpdate(encounterId, "TURN_CHANGED", newTurn);
+    /**
+     * Publica un cambio del combate (mensaje COMBAT_DELTA). Se llama desde el buzón del encuentro,
+     * así que los cambios salen en el orden de su secuencia; si hay una transacción abierta
+     * se envía al confirmarla, para no anunciar algo que después se deshace.
+     */
+    public void publishCombatDelta(CombatDeltaDTO delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notifyEncounterUpdate(delta.getEncounterId(), "COMBAT_DELTA", delta);
+                }
+            });
+        } else {
+            notifyEncounterUpdate(delta.getEncounterId(), "COMBAT_DELTA", delta);
+        }
     }
 
     public void notifyCombatStarted(Long encounterId, CombatStateDTO combatState) {
@@ -53,17 +119,75 @@ public class EncounterWebSocketService {
                 Map.of("characterId", characterId));
     }
 
-    public void notifyHealthUpdate(Long encounterId, Long characterId, int newHealth) {
-        notifyEncounterUpdate(encounterId, "HEALTH_UPDATE",
-                Map.of("characterId", characterId, "health", newHealth));
+    // ========================================
+    // MODO TICK
+    // ========================================
+
+    private void enqueue(Long encounterId, WebSocketMessage message) {
+        while (true) {
+            EncounterEventBatch batch = openBatches.get(encounterId);
+            if (batch == null) {
+                EncounterEventBatch created = new EncounterEventBatch();
+                batch = openBatches.putIfAbsent(encounterId, created);
+                if (batch == null) {
+                    batch = created;
+                    tickScheduler.schedule(() -> flush(encounterId, created), tickMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            if (batch.add(message)) {
+                return;
+            }
+            // la ventana se estaba enviando: el evento va a la siguiente
+        }
+    }
+
+    private void flush(Long encounterId, EncounterEventBatch batch) {
+        try {
+            openBatches.remove(encounterId, batch);
+            List<WebSocketMessage> events = batch.retire();
+
+            if (events.size() == 1 && batch.getSkippedSequences().isEmpty()) {
+                broadcastBus.publish(BroadcastTopic.encounter(encounterId), events.get(0));
+                return;
+            }
+
+            broadcastBus.publish(BroadcastTopic.encounter(encounterId), WebSocketMessage.builder()
+                    .type("ENCOUNTER_BATCH")
+                    .encounterId(encounterId)
+                    .timestamp(LocalDateTime.now())
+                    .data(EncounterBatch.builder()
+                            .events(events)
+                            .skippedSequences(batch.getSkippedSequences())
+                            .build())
+                    .build());
+        } catch (Exception e) {
+            logger.error("Error enviando los eventos del encounter {}: {}", encounterId, e.getMessage());
+        }
     }
 
     @Data
     @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
     public static class WebSocketMessage {
         private String type;
         private Long encounterId;
+        // secuencia del canal del encuentro; la asigna EncounterWebSocketHandler al enviar
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Long sequence;
         private LocalDateTime timestamp;
         private Object data;
     }
-}
\ No newline at end of file
+
+    /**
+     * Contenido de ENCOUNTER_BATCH: los eventos de la ventana en orden y las secuencias de
+     * COMBAT_DELTA que se fusionaron con un cambio posterior de la misma ventana.
+     */
+    @Data
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class EncounterBatch {
+        private List<WebSocketMessage> events;
+        private List<Long> skippedSequences;
+    }
+}
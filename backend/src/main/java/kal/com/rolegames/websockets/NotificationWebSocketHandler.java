@@ -1,7 +1,11 @@
 package kal.com.rolegames.websockets;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import kal.com.rolegames.dto.notifications.NotificationDTO;
+import jakarta.annotation.PostConstruct;
+import kal.com.rolegames.websockets.bus.BroadcastBus;
+import kal.com.rolegames.websockets.bus.BroadcastReceiver;
+import kal.com.rolegames.websockets.bus.BroadcastTopic;
+import kal.com.rolegames.websockets.presence.PresenceService;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,24 +16,33 @@ import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 @AllArgsConstructor(onConstructor=@__({@Autowired}))
-public class NotificationWebSocketHandler extends TextWebSocketHandler {
+public class NotificationWebSocketHandler extends TextWebSocketHandler implements BroadcastReceiver {
 
     private static final Logger logger = LoggerFactory.getLogger(NotificationWebSocketHandler.class);
 
     private final ObjectMapper objectMapper;
+    private final WebSocketSendPipeline sendPipeline;
+    private final WebSocketFrameEncoder frameEncoder;
+    private final BroadcastBus broadcastBus;
+    private final PresenceService presenceService;
 
     // userId -> Set de sesiones WebSocket
     private final Map<Long, Set<WebSocketSession>> userSessions = new ConcurrentHashMap<>();
     // sessionId -> userId para tracking
     private final Map<String, Long> sessionToUser = new ConcurrentHashMap<>();
 
+    @PostConstruct
+    public void registerWithBus() {
+        broadcastBus.register(BroadcastTopic.Kind.USER, this);
+        broadcastBus.register(BroadcastTopic.Kind.ALL_USERS, this);
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         Long userId = getUserIdFromSession(session);
@@ -40,12 +53,21 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
             return;
         }
 
-        userSessions.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet())
-                .add(session);
+        sendPipeline.register(session);
+        // la suscripción al bus cambia junto con el set, dentro de compute
+        userSessions.compute(userId, (id, sessions) -> {
+            if (sessions == null) {
+                sessions = ConcurrentHashMap.newKeySet();
+                broadcastBus.subscribe(BroadcastTopic.user(id));
+            }
+            sessions.add(session);
+            return sessions;
+        });
         sessionToUser.put(session.getId(), userId);
+        presenceService.connectUser(session, userId);
 
         logger.info("Cliente conectado para notificaciones - Usuario {}: {} (Total sesiones: {})",
-                userId, session.getId(), userSessions.get(userId).size());
+                userId, session.getId(), presenceService.getTotalNotificationSessions());
 
         // Enviar confirmación de conexión
         sendConnectionSuccessMessage(session, userId);
@@ -53,17 +75,20 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        sendPipeline.unregister(session);
+        presenceService.disconnectUser(session);
         Long userId = sessionToUser.remove(session.getId());
 
         if (userId != null) {
-            Set<WebSocketSession> sessions = userSessions.get(userId);
-            if (sessions != null) {
+            userSessions.computeIfPresent(userId, (id, sessions) -> {
                 sessions.remove(session);
-                if (sessions.isEmpty()) {
-                    userSessions.remove(userId);
-                    logger.info("Todas las sesiones desconectadas para usuario {}", userId);
+                if (!sessions.isEmpty()) {
+                    return sessions;
                 }
-            }
+                broadcastBus.unsubscribe(BroadcastTopic.user(id));
+                logger.info("Todas las sesiones desconectadas para usuario {}", id);
+                return null;
+            });
         }
 
         logger.info("Cliente desconectado de notificaciones - Usuario {}: {} (Código: {})",
@@ -94,47 +119,39 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
     // MÉTODOS PÚBLICOS
     // ========================================
 
-    public void sendNotificationToUser(Long userId, NotificationDTO notification) {
-        Set<WebSocketSession> sessions = userSessions.get(userId);
-        if (sessions != null && !sessions.isEmpty()) {
-            Map<String, Object> message = Map.of(
-                    "type", "NEW_NOTIFICATION",
-                    "notification", notification,
-                    "timestamp", System.currentTimeMillis()
-            );
-
-            String json = convertToJson(message);
-            logger.debug("Enviando notificación a usuario {} en {} sesiones: {}",
-                    userId, sessions.size(), notification.getTitle());
-
-            // Crear copia para evitar ConcurrentModificationException
-            Set<WebSocketSession> sessionsCopy = Set.copyOf(sessions);
-            sessionsCopy.forEach(session -> sendMessageToSession(session, json));
+    /**
+     * Mensaje del bus: a las sesiones de un usuario o a todas las de este nodo.
+     */
+    @Override
+    public void deliver(BroadcastTopic topic, Object message) {
+        if (topic.kind() == BroadcastTopic.Kind.ALL_USERS) {
+            broadcastToAllUsers(message);
         } else {
-            logger.debug("Usuario {} no está conectado para recibir notificación: {}",
-                    userId, notification.getTitle());
+            sendToUser(topic.id(), message);
         }
     }
 
-    public void sendUnreadCountUpdate(Long userId, long unreadCount) {
+    private void sendToUser(Long userId, Object message) {
         Set<WebSocketSession> sessions = userSessions.get(userId);
-        if (sessions != null && !sessions.isEmpty()) {
-            Map<String, Object> message = Map.of(
-                    "type", "UNREAD_COUNT_UPDATE",
-                    "unreadCount", unreadCount,
-                    "timestamp", System.currentTimeMillis()
-            );
-
-            String json = convertToJson(message);
-            Set<WebSocketSession> sessionsCopy = Set.copyOf(sessions);
-            sessionsCopy.forEach(session -> sendMessageToSession(session, json));
+        if (sessions == null || sessions.isEmpty()) {
+            logger.debug("Usuario {} no está conectado en este nodo", userId);
+            return;
         }
+
+        TextMessage frame = frameEncoder.encode(message);
+        // si el cliente va atrasado solo le sirve el último conteo
+        String coalesceKey = message instanceof Map<?, ?> map && "UNREAD_COUNT_UPDATE".equals(map.get("type"))
+                ? "UNREAD_COUNT_UPDATE"
+                : null;
+
+        // el set es concurrente, se recorre sin copiarlo
+        sessions.forEach(session -> sendPipeline.send(session, frame, coalesceKey));
     }
 
-    public void broadcastToAllUsers(Map<String, Object> message) {
-        String json = convertToJson(message);
+    private void broadcastToAllUsers(Object message) {
+        TextMessage frame = frameEncoder.encode(message);
         userSessions.values().forEach(sessions ->
-                sessions.forEach(session -> sendMessageToSession(session, json))
+                sessions.forEach(session -> sendMessageToSession(session, frame))
         );
     }
 
@@ -143,6 +160,7 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
     // ========================================
 
     private void handleClientMessage(WebSocketSession session, Map<String, Object> messageData) {
+        presenceService.heartbeat(session);
         try {
             String type = (String) messageData.get("type");
             Long userId = sessionToUser.get(session.getId());
@@ -191,7 +209,7 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
                         "notificationId", notificationId,
                         "timestamp", System.currentTimeMillis()
                 );
-                sendMessageToSession(session, convertToJson(response));
+                sendMessageToSession(session, frameEncoder.encode(response));
             }
         } catch (Exception e) {
             logger.error("Error marcando notificación como leída: {}", e.getMessage());
@@ -206,7 +224,7 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
                     "type", "ALL_NOTIFICATIONS_MARKED_READ",
                     "timestamp", System.currentTimeMillis()
             );
-            sendMessageToSession(session, convertToJson(response));
+            sendMessageToSession(session, frameEncoder.encode(response));
         } catch (Exception e) {
             logger.error("Error marcando todas las notificaciones como leídas: {}", e.getMessage());
         }
@@ -225,7 +243,7 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
                         "notificationId", notificationId,
                         "timestamp", System.currentTimeMillis()
                 );
-                sendMessageToSession(session, convertToJson(response));
+                sendMessageToSession(session, frameEncoder.encode(response));
             }
         } catch (Exception e) {
             logger.error("Error eliminando notificación: {}", e.getMessage());
@@ -238,7 +256,7 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
                 "userId", userId,
                 "timestamp", System.currentTimeMillis()
         );
-        sendMessageToSession(session, convertToJson(pong));
+        sendMessageToSession(session, frameEncoder.encode(pong));
     }
 
     private void sendConnectionSuccessMessage(WebSocketSession session, Long userId) {
@@ -250,7 +268,7 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
                     "timestamp", System.currentTimeMillis()
             );
 
-            sendMessageToSession(session, convertToJson(connectionMessage));
+            sendMessageToSession(session, frameEncoder.encode(connectionMessage));
 
             logger.debug("Mensaje de conexión de notificaciones enviado a usuario {} (sesión {})",
                     userId, session.getId());
@@ -260,31 +278,9 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
-    private void sendMessageToSession(WebSocketSession session, String json) {
-        try {
-            if (session.isOpen()) {
-                session.sendMessage(new TextMessage(json));
-            } else {
-                logger.warn("Intentando enviar mensaje a sesión cerrada: {}", session.getId());
-                removeSessionFromMaps(session);
-            }
-        } catch (IOException e) {
-            logger.error("Error enviando mensaje a sesión {}: {}", session.getId(), e.getMessage());
-            removeSessionFromMaps(session);
-        }
-    }
-
-    private void removeSessionFromMaps(WebSocketSession session) {
-        Long userId = sessionToUser.remove(session.getId());
-        if (userId != null) {
-            Set<WebSocketSession> sessions = userSessions.get(userId);
-            if (sessions != null) {
-                sessions.remove(session);
-                if (sessions.isEmpty()) {
-                    userSessions.remove(userId);
-                }
-            }
-        }
+    // solo encola: el envío real lo hace WebSocketSendPipeline en su propio hilo
+    private void sendMessageToSession(WebSocketSession session, TextMessage frame) {
+        sendPipeline.send(session, frame);
     }
 
     private Long getUserIdFromSession(WebSocketSession session) {
@@ -301,31 +297,19 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
         return null;
     }
 
-    private String convertToJson(Object message) {
-        try {
-            return objectMapper.writeValueAsString(message);
-        } catch (Exception e) {
-            logger.error("Error convirtiendo mensaje a JSON: {}", e.getMessage());
-            return "{\"error\":\"Failed to serialize message\"}";
-        }
-    }
-
     // ========================================
     // ESTADÍSTICAS
     // ========================================
 
     public int getConnectedUsersCount() {
-        return userSessions.size();
+        return presenceService.getConnectedUserCount();
     }
 
     public int getTotalActiveSessions() {
-        return userSessions.values().stream()
-                .mapToInt(Set::size)
-                .sum();
+        return presenceService.getTotalNotificationSessions();
     }
 
     public boolean isUserConnected(Long userId) {
-        Set<WebSocketSession> sessions = userSessions.get(userId);
-        return sessions != null && !sessions.isEmpty();
+        return presenceService.isUserConnected(userId);
     }
 }
@@ -1,10 +1,13 @@
 package kal.com.rolegames.websockets;
 
 import kal.com.rolegames.dto.notifications.NotificationDTO;
+import kal.com.rolegames.websockets.bus.BroadcastBus;
+import kal.com.rolegames.websockets.bus.BroadcastTopic;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -12,13 +15,44 @@ import java.util.Map;
 public class NotificationWebSocketService {
 
     private final NotificationWebSocketHandler webSocketHandler;
+    private final BroadcastBus broadcastBus;
 
     public void sendNotificationToUser(Long userId, NotificationDTO notification) {
-        webSocketHandler.sendNotificationToUser(userId, notification);
+        Map<String, Object> message = Map.of(
+                "type", "NEW_NOTIFICATION",
+                "notification", notification,
+                "timestamp", System.currentTimeMillis()
+        );
+
+        broadcastBus.publish(BroadcastTopic.user(userId), message);
+    }
+
+    /**
+     * Varias notificaciones para el mismo usuario (ver NotificationOutboxDispatcher): una sola va
+     * como NEW_NOTIFICATION, más de una en un solo NEW_NOTIFICATIONS.
+     */
+    public void sendNotificationsToUser(Long userId, List<NotificationDTO> notifications) {
+        if (notifications.size() == 1) {
+            sendNotificationToUser(userId, notifications.get(0));
+            return;
+        }
+        Map<String, Object> message = Map.of(
+                "type", "NEW_NOTIFICATIONS",
+                "notifications", notifications,
+                "timestamp", System.currentTimeMillis()
+        );
+
+        broadcastBus.publish(BroadcastTopic.user(userId), message);
     }
 
     public void sendUnreadCountUpdate(Long userId, long unreadCount) {
-        webSocketHandler.sendUnreadCountUpdate(userId, unreadCount);
+        Map<String, Object> message = Map.of(
+                "type", "UNREAD_COUNT_UPDATE",
+                "unreadCount", unreadCount,
+                "timestamp", System.currentTimeMillis()
+        );
+
+        broadcastBus.publish(BroadcastTopic.user(userId), message);
     }
 
     public void broadcastSystemNotification(String title, String message) {
@@ -29,10 +63,11 @@ public class NotificationWebSocketService {
                 "timestamp", System.currentTimeMillis()
         );
 
-        webSocketHandler.broadcastToAllUsers(systemMessage);
+        broadcastBus.publish(BroadcastTopic.allUsers(), systemMessage);
     }
 
+    // solo las sesiones de este nodo
     public boolean isUserConnected(Long userId) {
         return webSocketHandler.isUserConnected(userId);
     }
-}
\ No newline at end of file
+}
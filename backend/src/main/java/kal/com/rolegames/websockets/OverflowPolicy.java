@@ -0,0 +1,14 @@
+package kal.com.rolegames.websockets;
+
+/**
+ * Qué hace WebSocketSendPipeline cuando la cola de salida de una sesión está llena.
+ */
+public enum OverflowPolicy {
+    // se descarta el mensaje más viejo de la cola
+    DROP_OLDEST,
+    // un mensaje con clave reemplaza al que está en cola con la misma clave (conteos, estados);
+    // si no hay con cuál juntarlo se descarta el más viejo
+    COALESCE,
+    // el cliente no está leyendo: se cierra la sesión y él se reconecta
+    DISCONNECT
+}
@@ -0,0 +1,47 @@
+package kal.com.rolegames.websockets;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket sin locks: en lugar de guardar fichas y la hora de la última recarga guarda un solo
+ * long, el instante en que el cubo vuelve a estar lleno (algoritmo GCRA). Cada ficha gastada lo
+ * empuja nanosPerToken hacia adelante; si queda más lejos que la capacidad del cubo, no hay fichas.
+ *
+ * tryAcquire es un CAS sobre ese long: no bloquea ni reserva memoria.
+ */
+final class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long capacityNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(double tokensPerSecond, int capacity, long now) {
+        if (tokensPerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("El cubo necesita una tasa positiva y capacidad de al menos 1");
+        }
+        this.nanosPerToken = Math.max(1L, Math.round(1_000_000_000L / tokensPerSecond));
+        this.capacityNanos = nanosPerToken * capacity;
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * Gasta una ficha. Devuelve 0 si había, o cuántos nanosegundos faltan para la siguiente.
+     */
+    long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + nanosPerToken;
+            long wait = next - now - capacityNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    boolean isFull(long now) {
+        return fullAt.get() - now <= 0;
+    }
+}
@@ -39,7 +39,8 @@ public class WebSocketConfig implements WebSocketConfigurer {
         ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
         container.setMaxTextMessageBufferSize(8192);
         container.setMaxBinaryMessageBufferSize(8192);
-        container.setMaxSessionIdleTimeout(300000L); // 5 minutos
+        // sin límite del contenedor: las sesiones inactivas las cierra PresenceService
+        container.setMaxSessionIdleTimeout(0L);
         return container;
     }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package kal.com.rolegames.websockets;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Serializa un mensaje una sola vez a un TextMessage inmutable que se comparte entre todos los
+ * destinatarios de un broadcast (y entre las colas de WebSocketSendPipeline), en lugar de armar
+ * un TextMessage por sesión.
+ *
+ * Los tipos de mensaje conocidos usan un ObjectWriter ya resuelto, así Jackson no busca el
+ * serializador en cada envío.
+ */
+@Component
+public class WebSocketFrameEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketFrameEncoder.class);
+
+    private static final TextMessage SERIALIZATION_ERROR =
+            new TextMessage("{\"error\":\"Failed to serialize message\"}".getBytes(StandardCharsets.UTF_8));
+
+    private final ObjectWriter encounterMessageWriter;
+    private final ObjectWriter mapWriter;
+    private final ObjectWriter defaultWriter;
+
+    @Autowired
+    public WebSocketFrameEncoder(ObjectMapper objectMapper) {
+        this.encounterMessageWriter = objectMapper.writerFor(EncounterWebSocketService.WebSocketMessage.class);
+        this.mapWriter = objectMapper.writerFor(Map.class);
+        this.defaultWriter = objectMapper.writer();
+    }
+
+    public TextMessage encode(Object message) {
+        try {
+            return new TextMessage(writerFor(message).writeValueAsBytes(message));
+        } catch (JsonProcessingException e) {
+            logger.error("Error convirtiendo mensaje a JSON: {}", e.getMessage());
+            return SERIALIZATION_ERROR;
+        }
+    }
+
+    private ObjectWriter writerFor(Object message) {
+        if (message instanceof EncounterWebSocketService.WebSocketMessage) {
+            return encounterMessageWriter;
+        } else if (message instanceof Map) {
+            return mapWriter;
+        }
+        return defaultWriter;
+    }
+}
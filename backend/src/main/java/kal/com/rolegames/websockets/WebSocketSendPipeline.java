@@ -0,0 +1,257 @@
+package kal.com.rolegames.websockets;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envío de mensajes WebSocket sin bloquear a quien los publica.
+ *
+ * Cada sesión tiene una cola de salida acotada. Publicar solo encola y regresa; un pool compartido
+ * vacía cada cola de a un mensaje a la vez (igual que los buzones del CombatEngine), así que un
+ * cliente lento no frena la petición que originó el mensaje y dos envíos a la misma sesión nunca
+ * se cruzan. Si la cola se llena se aplica la OverflowPolicy configurada.
+ */
+@Component
+public class WebSocketSendPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketSendPipeline.class);
+
+    // mensajes que una sesión envía seguidos antes de ceder el hilo a otra
+    private static final int MAX_SENDS_PER_DRAIN = 64;
+
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final ExecutorService sendExecutor;
+
+    // sessionId -> cola de salida
+    private final Map<String, Outbox> outboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedMessages = new AtomicInteger();
+
+    private final Counter droppedOverflow;
+    private final Counter droppedCoalesced;
+    private final Counter droppedDisconnected;
+
+    @Autowired
+    public WebSocketSendPipeline(MeterRegistry meterRegistry,
+                                 @Value("${rolegames.websocket.outbound-queue-size:256}") int queueCapacity,
+                                 @Value("${rolegames.websocket.overflow-policy:COALESCE}") OverflowPolicy overflowPolicy,
+                                 @Value("${rolegames.websocket.send-threads:0}") int sendThreads) {
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+
+        // los envíos bloquean mientras el socket no acepta datos, por eso más hilos que núcleos
+        int threads = sendThreads > 0 ? sendThreads : 2 * Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sendExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "websocket-send-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("rolegames.websocket.outbound.queue.depth", queuedMessages, AtomicInteger::get)
+                .description("Mensajes esperando en las colas de salida de todas las sesiones")
+                .register(meterRegistry);
+        Gauge.builder("rolegames.websocket.outbound.sessions", outboxes, Map::size)
+                .description("Sesiones WebSocket con cola de salida")
+                .register(meterRegistry);
+        this.droppedOverflow = droppedCounter(meterRegistry, "overflow");
+        this.droppedCoalesced = droppedCounter(meterRegistry, "coalesced");
+        this.droppedDisconnected = droppedCounter(meterRegistry, "disconnected");
+    }
+
+    private static Counter droppedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("rolegames.websocket.outbound.dropped")
+                .description("Mensajes que no se enviaron porque la cola de la sesión estaba llena")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdown();
+    }
+
+    public void register(WebSocketSession session) {
+        outboxes.computeIfAbsent(session.getId(), id -> new Outbox(session));
+    }
+
+    public void unregister(WebSocketSession session) {
+        Outbox outbox = outboxes.remove(session.getId());
+        if (outbox != null) {
+            synchronized (outbox) {
+                queuedMessages.addAndGet(-outbox.queue.size());
+                outbox.queue.clear();
+                outbox.closed = true;
+            }
+        }
+    }
+
+    public void send(WebSocketSession session, WebSocketMessage<?> message) {
+        send(session, message, null);
+    }
+
+    /**
+     * Encola el mensaje para la sesión y regresa de inmediato.
+     *
+     * @param coalesceKey con la política COALESCE, un mensaje con la misma clave que uno que sigue
+     *                    en cola lo reemplaza; null si el mensaje no se puede juntar con otros
+     */
+    public void send(WebSocketSession session, WebSocketMessage<?> message, String coalesceKey) {
+        Outbox outbox = outboxes.get(session.getId());
+        if (outbox == null) {
+            // la sesión ya se cerró (o se desconectó por lenta)
+            logger.debug("[WEBSOCKET SEND] Sesión {} sin cola de salida, mensaje descartado", session.getId());
+            return;
+        }
+
+        boolean disconnect = false;
+        synchronized (outbox) {
+            if (outbox.closed) {
+                return;
+            }
+            if (!offer(outbox, new Frame(message, coalesceKey))) {
+                disconnect = true;
+            }
+        }
+
+        if (disconnect) {
+            disconnectSlowConsumer(outbox);
+        } else {
+            schedule(outbox);
+        }
+    }
+
+    public int getQueueDepth(String sessionId) {
+        Outbox outbox = outboxes.get(sessionId);
+        if (outbox == null) {
+            return 0;
+        }
+        synchronized (outbox) {
+            return outbox.queue.size();
+        }
+    }
+
+    // con el monitor de outbox tomado; false si hay que desconectar a la sesión
+    private boolean offer(Outbox outbox, Frame frame) {
+        if (overflowPolicy == OverflowPolicy.COALESCE && frame.coalesceKey() != null) {
+            for (Iterator<Frame> iterator = outbox.queue.iterator(); iterator.hasNext(); ) {
+                if (frame.coalesceKey().equals(iterator.next().coalesceKey())) {
+                    iterator.remove();
+                    queuedMessages.decrementAndGet();
+                    droppedCoalesced.increment();
+                    break;
+                }
+            }
+        }
+
+        if (outbox.queue.size() >= queueCapacity) {
+            if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                return false;
+            }
+            outbox.queue.pollFirst();
+            queuedMessages.decrementAndGet();
+            droppedOverflow.increment();
+        }
+
+        outbox.queue.addLast(frame);
+        queuedMessages.incrementAndGet();
+        return true;
+    }
+
+    private void schedule(Outbox outbox) {
+        if (outbox.scheduled.compareAndSet(false, true)) {
+            sendExecutor.execute(() -> drain(outbox));
+        }
+    }
+
+    private void drain(Outbox outbox) {
+        try {
+            for (int sent = 0; sent < MAX_SENDS_PER_DRAIN; sent++) {
+                Frame frame;
+                synchronized (outbox) {
+                    frame = outbox.queue.pollFirst();
+                    if (frame == null) {
+                        break;
+                    }
+                    queuedMessages.decrementAndGet();
+                }
+
+                WebSocketSession session = outbox.session;
+                if (!session.isOpen()) {
+                    unregister(session);
+                    return;
+                }
+                try {
+                    session.sendMessage(frame.message());
+                } catch (IOException | IllegalStateException e) {
+                    logger.warn("[WEBSOCKET SEND] Error enviando a la sesión {}: {}", session.getId(), e.getMessage());
+                    unregister(session);
+                    return;
+                }
+            }
+        } finally {
+            outbox.scheduled.set(false);
+            boolean pending;
+            synchronized (outbox) {
+                pending = !outbox.queue.isEmpty() && !outbox.closed;
+            }
+            if (pending) {
+                schedule(outbox);
+            }
+        }
+    }
+
+    private void disconnectSlowConsumer(Outbox outbox) {
+        WebSocketSession session = outbox.session;
+        int discarded;
+        synchronized (outbox) {
+            discarded = outbox.queue.size() + 1;
+        }
+        droppedDisconnected.increment(discarded);
+        unregister(session);
+
+        logger.warn("[WEBSOCKET SEND] Sesión {} desconectada: su cola de salida se llenó ({} mensajes)",
+                session.getId(), queueCapacity);
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            logger.debug("[WEBSOCKET SEND] Error cerrando la sesión {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    private static class Outbox {
+        final WebSocketSession session;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // se tocan con el monitor del Outbox tomado
+        final ArrayDeque<Frame> queue = new ArrayDeque<>();
+        boolean closed;
+
+        Outbox(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+
+    private record Frame(WebSocketMessage<?> message, String coalesceKey) {
+    }
+}
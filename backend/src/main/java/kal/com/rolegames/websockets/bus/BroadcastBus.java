@@ -0,0 +1,29 @@
+package kal.com.rolegames.websockets.bus;
+
+/**
+ * Canal entre los servicios que publican mensajes WebSocket y los handlers que tienen las sesiones.
+ *
+ * Los servicios publican por tema sin saber en qué nodo está conectado cada cliente; cada handler
+ * avisa qué temas tienen sesiones en este nodo (subscribe/unsubscribe) y recibe los mensajes de
+ * esos temas. Con rolegames.bus.type=local todo queda en el proceso; con tcp los nodos se
+ * conectan entre sí y un mensaje solo viaja a los nodos suscritos a su tema.
+ */
+public interface BroadcastBus {
+
+    /**
+     * Registra quién entrega los mensajes de ese tipo de tema en este nodo.
+     */
+    void register(BroadcastTopic.Kind kind, BroadcastReceiver receiver);
+
+    void publish(BroadcastTopic topic, Object message);
+
+    /**
+     * Este nodo tiene sesiones del tema. Se puede llamar varias veces.
+     */
+    void subscribe(BroadcastTopic topic);
+
+    /**
+     * Este nodo ya no tiene sesiones del tema.
+     */
+    void unsubscribe(BroadcastTopic topic);
+}
@@ -0,0 +1,11 @@
+package kal.com.rolegames.websockets.bus;
+
+/**
+ * Lo implementan los handlers WebSocket: entrega un mensaje del bus a las sesiones de este nodo.
+ * Un mensaje que llegó de otro nodo viene con la misma clase con la que se publicó
+ * (Map o WebSocketMessage); lo que tenga adentro como Object llega como Map.
+ */
+public interface BroadcastReceiver {
+
+    void deliver(BroadcastTopic topic, Object message);
+}
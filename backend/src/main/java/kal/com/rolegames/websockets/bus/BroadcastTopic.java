@@ -0,0 +1,26 @@
+package kal.com.rolegames.websockets.bus;
+
+/**
+ * A quién va un mensaje del bus: las sesiones de un encuentro, las de un usuario o las de todos
+ * los usuarios conectados a notificaciones.
+ */
+public record BroadcastTopic(Kind kind, Long id) {
+
+    public enum Kind {
+        ENCOUNTER,
+        USER,
+        ALL_USERS
+    }
+
+    public static BroadcastTopic encounter(Long encounterId) {
+        return new BroadcastTopic(Kind.ENCOUNTER, encounterId);
+    }
+
+    public static BroadcastTopic user(Long userId) {
+        return new BroadcastTopic(Kind.USER, userId);
+    }
+
+    public static BroadcastTopic allUsers() {
+        return new BroadcastTopic(Kind.ALL_USERS, null);
+    }
+}
@@ -0,0 +1,166 @@
+package kal.com.rolegames.websockets.bus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Conexión TCP con otro nodo del bus.
+ *
+ * Cada frame es: longitud (int), operación (byte), tipo de tema (byte), id del tema (long) y, en
+ * PUBLISH, el tipo del mensaje (byte) y el mensaje en JSON. Las escrituras pasan por una cola acotada con su propio hilo, así
+ * un nodo lento no frena a quien publica; si la cola se llena el frame se descarta (los clientes
+ * se recuperan con la reanudación o el estado completo).
+ */
+final class BusConnection {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusConnection.class);
+
+    static final byte SUBSCRIBE = 1;
+    static final byte UNSUBSCRIBE = 2;
+    static final byte PUBLISH = 3;
+
+    private static final int HEADER_SIZE = 1 + 1 + 8;
+    private static final long NO_ID = Long.MIN_VALUE;
+    private static final byte[] CLOSE = new byte[0];
+
+    interface FrameHandler {
+        void onFrame(byte operation, BroadcastTopic topic, byte[] payload) throws IOException;
+    }
+
+    private final Socket socket;
+    private final String peer;
+    private final BlockingQueue<byte[]> outgoing;
+    private volatile boolean closed;
+    private Runnable onClose = () -> { };
+
+    BusConnection(Socket socket, int queueCapacity) {
+        this.socket = socket;
+        this.peer = String.valueOf(socket.getRemoteSocketAddress());
+        this.outgoing = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    void start(String name, FrameHandler handler, Runnable onClose) {
+        this.onClose = onClose;
+        startThread(name + "-writer", this::writeLoop);
+        startThread(name + "-reader", () -> readLoop(handler));
+    }
+
+    /**
+     * Encola el frame. Devuelve false si la conexión está cerrada o su cola llena.
+     */
+    boolean send(byte[] frame) {
+        return !closed && outgoing.offer(frame);
+    }
+
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            logger.debug("[BROADCAST BUS] Error cerrando la conexión con {}: {}", peer, e.getMessage());
+        }
+        outgoing.clear();
+        outgoing.offer(CLOSE);
+        onClose.run();
+    }
+
+    String getPeer() {
+        return peer;
+    }
+
+    // ========================================
+    // FRAMES
+    // ========================================
+
+    static byte[] interestFrame(byte operation, BroadcastTopic topic) {
+        return frame(operation, topic, new byte[0]);
+    }
+
+    static byte[] publishFrame(BroadcastTopic topic, byte[] payload) {
+        return frame(PUBLISH, topic, payload);
+    }
+
+    private static byte[] frame(byte operation, BroadcastTopic topic, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + HEADER_SIZE + payload.length);
+        buffer.putInt(HEADER_SIZE + payload.length);
+        buffer.put(operation);
+        buffer.put((byte) topic.kind().ordinal());
+        buffer.putLong(topic.id() != null ? topic.id() : NO_ID);
+        buffer.put(payload);
+        return buffer.array();
+    }
+
+    // ========================================
+    // HILOS
+    // ========================================
+
+    private void writeLoop() {
+        try {
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            while (!closed) {
+                byte[] frame = outgoing.take();
+                if (frame == CLOSE) {
+                    break;
+                }
+                out.write(frame);
+                // se juntan los frames que ya esperan antes de vaciar el búfer
+                byte[] next;
+                while ((next = outgoing.poll()) != null && next != CLOSE) {
+                    out.write(next);
+                }
+                out.flush();
+                if (next == CLOSE) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("[BROADCAST BUS] Error escribiendo a {}: {}", peer, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+        }
+    }
+
+    private void readLoop(FrameHandler handler) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (!closed) {
+                int length = in.readInt();
+                if (length < HEADER_SIZE) {
+                    throw new IOException("Frame inválido de " + length + " bytes");
+                }
+                byte operation = in.readByte();
+                BroadcastTopic.Kind kind = BroadcastTopic.Kind.values()[in.readByte()];
+                long id = in.readLong();
+                byte[] payload = new byte[length - HEADER_SIZE];
+                in.readFully(payload);
+
+                handler.onFrame(operation, new BroadcastTopic(kind, id != NO_ID ? id : null), payload);
+            }
+        } catch (EOFException e) {
+            logger.info("[BROADCAST BUS] {} cerró la conexión", peer);
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                logger.warn("[BROADCAST BUS] Error leyendo de {}: {}", peer, e.getMessage());
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private static void startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
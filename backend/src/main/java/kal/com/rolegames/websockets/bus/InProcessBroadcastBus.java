@@ -0,0 +1,39 @@
+package kal.com.rolegames.websockets.bus;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bus de un solo nodo: entrega cada mensaje directo al handler de este proceso.
+ */
+@Component
+@ConditionalOnProperty(name = "rolegames.bus.type", havingValue = "local", matchIfMissing = true)
+public class InProcessBroadcastBus implements BroadcastBus {
+
+    private final Map<BroadcastTopic.Kind, BroadcastReceiver> receivers = new ConcurrentHashMap<>();
+
+    @Override
+    public void register(BroadcastTopic.Kind kind, BroadcastReceiver receiver) {
+        receivers.put(kind, receiver);
+    }
+
+    @Override
+    public void publish(BroadcastTopic topic, Object message) {
+        BroadcastReceiver receiver = receivers.get(topic.kind());
+        if (receiver != null) {
+            receiver.deliver(topic, message);
+        }
+    }
+
+    @Override
+    public void subscribe(BroadcastTopic topic) {
+        // todas las sesiones están en este proceso
+    }
+
+    @Override
+    public void unsubscribe(BroadcastTopic topic) {
+    }
+}
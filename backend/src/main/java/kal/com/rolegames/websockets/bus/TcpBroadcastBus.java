@@ -0,0 +1,284 @@
+package kal.com.rolegames.websockets.bus;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kal.com.rolegames.websockets.EncounterWebSocketService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bus entre varios nodos sin broker: cada nodo abre una conexión TCP a cada uno de los demás
+ * (rolegames.bus.peers) y escucha en rolegames.bus.port.
+ *
+ * En una conexión, quien la abrió manda PUBLISH y quien la aceptó manda sus suscripciones
+ * (primero todas las que tiene y luego cada cambio). Así cada nodo sabe qué temas le interesan a
+ * los demás y manda un mensaje solo a los que tienen sesiones de ese tema; ALL_USERS va a los
+ * nodos con algún usuario conectado. Si una conexión se cae se vuelve a intentar cada pocos
+ * segundos; lo publicado mientras tanto no llega a ese nodo.
+ */
+@Component
+@ConditionalOnProperty(name = "rolegames.bus.type", havingValue = "tcp")
+public class TcpBroadcastBus implements BroadcastBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(TcpBroadcastBus.class);
+
+    private static final int CONNECT_TIMEOUT_MS = 2_000;
+
+    // clases que puede tener un mensaje publicado; su posición viaja antes del JSON para que el
+    // otro nodo lo lea con la misma clase y sus sesiones reciban lo mismo que las de este nodo
+    private static final List<Class<?>> MESSAGE_TYPES = List.of(
+            Map.class,
+            EncounterWebSocketService.WebSocketMessage.class);
+
+    private final ObjectMapper objectMapper;
+    private final int port;
+    private final List<String> peers;
+    private final int queueCapacity;
+    private final long reconnectDelayMillis;
+
+    private final Map<BroadcastTopic.Kind, BroadcastReceiver> receivers = new ConcurrentHashMap<>();
+
+    // temas con sesiones en este nodo y conexiones por las que se anuncian
+    private final Object interestLock = new Object();
+    private final Set<BroadcastTopic> localTopics = ConcurrentHashMap.newKeySet();
+    private final Set<BusConnection> inbound = ConcurrentHashMap.newKeySet();
+
+    // dirección del nodo -> conexión saliente y los temas que ese nodo tiene suscritos
+    private final Map<String, PeerLink> outbound = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService reconnectScheduler;
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+
+    @Autowired
+    public TcpBroadcastBus(ObjectMapper objectMapper,
+                           @Value("${rolegames.bus.port:7600}") int port,
+                           @Value("${rolegames.bus.peers:}") List<String> peers,
+                           @Value("${rolegames.bus.queue-size:10000}") int queueCapacity,
+                           @Value("${rolegames.bus.reconnect-delay-ms:2000}") long reconnectDelayMillis) {
+        this.objectMapper = objectMapper;
+        this.port = port;
+        this.peers = peers.stream().map(String::trim).filter(peer -> !peer.isEmpty()).toList();
+        this.queueCapacity = queueCapacity;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+        this.reconnectScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "broadcast-bus-connect");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        running = true;
+        serverSocket = new ServerSocket(port);
+
+        Thread acceptor = new Thread(this::acceptLoop, "broadcast-bus-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        peers.forEach(peer -> reconnectScheduler.execute(() -> connect(peer)));
+        logger.info("[BROADCAST BUS] Escuchando en el puerto {}, nodos: {}", port, peers);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        reconnectScheduler.shutdownNow();
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.debug("[BROADCAST BUS] Error cerrando el puerto {}: {}", port, e.getMessage());
+        }
+        inbound.forEach(BusConnection::close);
+        outbound.values().forEach(link -> link.connection().close());
+    }
+
+    // ========================================
+    // BROADCAST BUS
+    // ========================================
+
+    @Override
+    public void register(BroadcastTopic.Kind kind, BroadcastReceiver receiver) {
+        receivers.put(kind, receiver);
+    }
+
+    @Override
+    public void publish(BroadcastTopic topic, Object message) {
+        deliverLocally(topic, message);
+
+        byte[] frame = null;
+        for (PeerLink link : outbound.values()) {
+            if (!link.wants(topic)) {
+                continue;
+            }
+            if (frame == null) {
+                try {
+                    frame = BusConnection.publishFrame(topic, encode(message));
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    logger.error("[BROADCAST BUS] No se pudo serializar el mensaje de {}: {}", topic, e.getMessage());
+                    return;
+                }
+            }
+            if (!link.connection().send(frame)) {
+                logger.warn("[BROADCAST BUS] Se descartó un mensaje de {} para {}", topic, link.connection().getPeer());
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(BroadcastTopic topic) {
+        synchronized (interestLock) {
+            if (localTopics.add(topic)) {
+                announce(BusConnection.interestFrame(BusConnection.SUBSCRIBE, topic));
+            }
+        }
+    }
+
+    @Override
+    public void unsubscribe(BroadcastTopic topic) {
+        synchronized (interestLock) {
+            if (localTopics.remove(topic)) {
+                announce(BusConnection.interestFrame(BusConnection.UNSUBSCRIBE, topic));
+            }
+        }
+    }
+
+    private void announce(byte[] frame) {
+        for (BusConnection connection : inbound) {
+            if (!connection.send(frame)) {
+                // sin la suscripción el otro nodo quedaría con un interés equivocado: mejor reconectar
+                connection.close();
+            }
+        }
+    }
+
+    private byte[] encode(Object message) throws JsonProcessingException {
+        for (int type = 0; type < MESSAGE_TYPES.size(); type++) {
+            if (MESSAGE_TYPES.get(type).isInstance(message)) {
+                byte[] json = objectMapper.writeValueAsBytes(message);
+                byte[] payload = new byte[1 + json.length];
+                payload[0] = (byte) type;
+                System.arraycopy(json, 0, payload, 1, json.length);
+                return payload;
+            }
+        }
+        throw new IllegalArgumentException("Tipo de mensaje no soportado por el bus: " + message.getClass().getName());
+    }
+
+    private Object decode(byte[] payload) throws IOException {
+        if (payload.length == 0 || payload[0] < 0 || payload[0] >= MESSAGE_TYPES.size()) {
+            throw new IOException("Tipo de mensaje desconocido en el bus");
+        }
+        return objectMapper.readValue(payload, 1, payload.length - 1, MESSAGE_TYPES.get(payload[0]));
+    }
+
+    private void deliverLocally(BroadcastTopic topic, Object message) {
+        BroadcastReceiver receiver = receivers.get(topic.kind());
+        if (receiver != null) {
+            receiver.deliver(topic, message);
+        }
+    }
+
+    // ========================================
+    // CONEXIONES
+    // ========================================
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                accept(serverSocket.accept());
+            } catch (IOException e) {
+                if (running) {
+                    logger.warn("[BROADCAST BUS] Error aceptando una conexión: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    // el otro nodo publica por esta conexión; nosotros le mandamos nuestras suscripciones
+    private void accept(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        BusConnection connection = new BusConnection(socket, queueCapacity);
+
+        synchronized (interestLock) {
+            inbound.add(connection);
+            localTopics.forEach(topic -> connection.send(BusConnection.interestFrame(BusConnection.SUBSCRIBE, topic)));
+        }
+
+        connection.start("broadcast-bus-in", (operation, topic, payload) -> {
+            if (operation == BusConnection.PUBLISH) {
+                deliverLocally(topic, decode(payload));
+            }
+        }, () -> inbound.remove(connection));
+
+        logger.info("[BROADCAST BUS] Nodo conectado: {}", connection.getPeer());
+    }
+
+    // nosotros publicamos por esta conexión; el otro nodo nos manda sus suscripciones
+    private void connect(String peer) {
+        if (!running) {
+            return;
+        }
+
+        try {
+            String[] hostAndPort = peer.split(":");
+            Socket socket = new Socket();
+            socket.connect(new InetSocketAddress(hostAndPort[0], Integer.parseInt(hostAndPort[1])), CONNECT_TIMEOUT_MS);
+            socket.setTcpNoDelay(true);
+
+            PeerLink link = new PeerLink(new BusConnection(socket, queueCapacity), ConcurrentHashMap.newKeySet());
+            outbound.put(peer, link);
+
+            link.connection().start("broadcast-bus-out", (operation, topic, payload) -> {
+                if (operation == BusConnection.SUBSCRIBE) {
+                    link.topics().add(topic);
+                } else if (operation == BusConnection.UNSUBSCRIBE) {
+                    link.topics().remove(topic);
+                }
+            }, () -> {
+                outbound.remove(peer, link);
+                scheduleReconnect(peer);
+            });
+
+            logger.info("[BROADCAST BUS] Conectado al nodo {}", peer);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("[BROADCAST BUS] No se pudo conectar a {}: {}", peer, e.getMessage());
+            scheduleReconnect(peer);
+        }
+    }
+
+    private void scheduleReconnect(String peer) {
+        if (running) {
+            reconnectScheduler.schedule(() -> connect(peer), reconnectDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private record PeerLink(BusConnection connection, Set<BroadcastTopic> topics) {
+
+        boolean wants(BroadcastTopic topic) {
+            if (topic.kind() == BroadcastTopic.Kind.ALL_USERS) {
+                return topics.stream().anyMatch(t -> t.kind() == BroadcastTopic.Kind.USER);
+            }
+            return topics.contains(topic);
+        }
+    }
+}
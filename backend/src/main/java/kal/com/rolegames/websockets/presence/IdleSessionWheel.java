@@ -0,0 +1,114 @@
+package kal.com.rolegames.websockets.presence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Rueda de tiempo (hashed timer wheel) para detectar sesiones inactivas.
+ *
+ * Cada casilla de la rueda es un tick; una entrada va en la casilla de su vencimiento. Registrar
+ * actividad (touch) solo anota el tick en la entrada, sin sacarla de su casilla: cuando esa casilla
+ * se procesa, si la entrada tuvo actividad se pasa a la casilla de su nuevo vencimiento y si no,
+ * venció. Así un latido es una escritura volátil y cada tick solo revisa las entradas que vencen.
+ *
+ * La rueda tiene más casillas que ticks el tiempo de inactividad, así que una entrada nunca vuelve
+ * a la casilla que se está procesando.
+ */
+final class IdleSessionWheel<T> {
+
+    static final class Entry<T> {
+        final T value;
+        volatile long lastSeenTick;
+        volatile boolean cancelled;
+
+        private Entry(T value, long lastSeenTick) {
+            this.value = value;
+            this.lastSeenTick = lastSeenTick;
+        }
+    }
+
+    private final long tickMillis;
+    private final long timeoutTicks;
+    private final Queue<Entry<T>>[] slots;
+    private final int mask;
+
+    // solo lo cambia advance, que corre en un solo hilo
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    IdleSessionWheel(long tickMillis, long timeoutMillis, long nowMillis) {
+        if (tickMillis <= 0 || timeoutMillis < tickMillis) {
+            throw new IllegalArgumentException("El tiempo de inactividad debe ser de al menos un tick");
+        }
+        this.tickMillis = tickMillis;
+        this.timeoutTicks = (timeoutMillis + tickMillis - 1) / tickMillis;
+
+        int size = Integer.highestOneBit((int) Math.min(timeoutTicks, 1 << 20)) << 1;
+        this.slots = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    Entry<T> add(T value, long nowMillis) {
+        Entry<T> entry = new Entry<>(value, tickOf(nowMillis));
+        schedule(entry);
+        return entry;
+    }
+
+    void touch(Entry<T> entry, long nowMillis) {
+        entry.lastSeenTick = tickOf(nowMillis);
+    }
+
+    // la entrada se descarta cuando le toque a su casilla
+    void cancel(Entry<T> entry) {
+        entry.cancelled = true;
+    }
+
+    /**
+     * Procesa los ticks hasta nowMillis y devuelve los valores que vencieron.
+     */
+    List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            long tick = currentTick + 1;
+            currentTick = tick;
+
+            Queue<Entry<T>> slot = slots[(int) (tick & mask)];
+            Entry<T> entry;
+            List<Entry<T>> rescheduled = null;
+            while ((entry = slot.poll()) != null) {
+                if (entry.cancelled) {
+                    continue;
+                }
+                if (entry.lastSeenTick + timeoutTicks <= tick) {
+                    expired.add(entry.value);
+                } else {
+                    if (rescheduled == null) {
+                        rescheduled = new ArrayList<>();
+                    }
+                    rescheduled.add(entry);
+                }
+            }
+            if (rescheduled != null) {
+                rescheduled.forEach(this::schedule);
+            }
+        }
+        return expired;
+    }
+
+    private void schedule(Entry<T> entry) {
+        // nunca en una casilla ya procesada: si se atrasó, en la siguiente
+        long deadline = Math.max(entry.lastSeenTick + timeoutTicks, currentTick + 1);
+        slots[(int) (deadline & mask)].add(entry);
+    }
+
+    private long tickOf(long nowMillis) {
+        return nowMillis / tickMillis;
+    }
+}
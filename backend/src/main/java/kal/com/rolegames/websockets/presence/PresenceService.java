@@ -0,0 +1,230 @@
+package kal.com.rolegames.websockets.presence;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import kal.com.rolegames.websockets.EncounterWebSocketService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Quién está conectado: sesiones por encuentro, usuarios en cada mesa y usuarios con el canal de
+ * notificaciones abierto. Los conteos son contadores atómicos que se ajustan al conectar y
+ * desconectar, así que consultarlos es O(1).
+ *
+ * Cuando un usuario abre su primera sesión en un encuentro se anuncia USER_JOINED a la mesa, y
+ * USER_LEFT cuando cierra la última. Las sesiones que dejan de mandar mensajes (los clientes mandan
+ * PING cada 30 s) se cierran al vencer rolegames.presence.idle-timeout-ms, medido con una
+ * {@link IdleSessionWheel}.
+ *
+ * Los conteos son de este nodo.
+ */
+@Service
+public class PresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    private static final String ENTRY_ATTRIBUTE = "presence.entry";
+    private static final String ENCOUNTER_ATTRIBUTE = "presence.encounterId";
+    private static final String ENCOUNTER_USER_ATTRIBUTE = "presence.encounterUserId";
+    private static final String NOTIFICATION_USER_ATTRIBUTE = "presence.notificationUserId";
+
+    private final EncounterWebSocketService encounterWebSocketService;
+    private final IdleSessionWheel<WebSocketSession> idleWheel;
+
+    private final Map<Long, EncounterPresence> encounters = new ConcurrentHashMap<>();
+    private final AtomicInteger encounterSessions = new AtomicInteger();
+
+    // userId -> sesiones de notificaciones abiertas
+    private final Map<Long, Integer> notificationUsers = new ConcurrentHashMap<>();
+    private final AtomicInteger notificationSessions = new AtomicInteger();
+    private final AtomicInteger connectedUsers = new AtomicInteger();
+
+    @Autowired
+    public PresenceService(EncounterWebSocketService encounterWebSocketService,
+                           MeterRegistry meterRegistry,
+                           @Value("${rolegames.presence.tick-ms:1000}") long tickMillis,
+                           @Value("${rolegames.presence.idle-timeout-ms:90000}") long idleTimeoutMillis) {
+        this.encounterWebSocketService = encounterWebSocketService;
+        this.idleWheel = new IdleSessionWheel<>(tickMillis, idleTimeoutMillis, System.currentTimeMillis());
+
+        Gauge.builder("rolegames.presence.encounter.sessions", encounterSessions, AtomicInteger::get)
+                .description("Sesiones WebSocket abiertas en encuentros")
+                .register(meterRegistry);
+        Gauge.builder("rolegames.presence.notification.sessions", notificationSessions, AtomicInteger::get)
+                .description("Sesiones WebSocket de notificaciones abiertas")
+                .register(meterRegistry);
+        Gauge.builder("rolegames.presence.users", connectedUsers, AtomicInteger::get)
+                .description("Usuarios con el canal de notificaciones abierto")
+                .register(meterRegistry);
+    }
+
+    // ========================================
+    // ENCUENTROS
+    // ========================================
+
+    /**
+     * La sesión entró al encuentro. userId es el del usuario autenticado en el handshake; puede ser
+     * null (sesión sin usuario): cuenta como sesión pero no como usuario en la mesa.
+     */
+    public void joinEncounter(WebSocketSession session, Long encounterId, Long userId) {
+        Map<String, Object> attributes = session.getAttributes();
+        if (attributes.putIfAbsent(ENCOUNTER_ATTRIBUTE, encounterId) != null) {
+            return;
+        }
+        track(session);
+        encounterSessions.incrementAndGet();
+
+        boolean[] firstSession = {false};
+        encounters.compute(encounterId, (id, presence) -> {
+            EncounterPresence current = presence != null ? presence : new EncounterPresence();
+            current.sessions.incrementAndGet();
+            if (userId != null) {
+                firstSession[0] = current.users.merge(userId, 1, Integer::sum) == 1;
+            }
+            return current;
+        });
+
+        if (userId != null) {
+            attributes.put(ENCOUNTER_USER_ATTRIBUTE, userId);
+        }
+        if (firstSession[0]) {
+            publishPresence(encounterId, "USER_JOINED", userId);
+        }
+    }
+
+    public void leaveEncounter(WebSocketSession session) {
+        Map<String, Object> attributes = session.getAttributes();
+        if (!(attributes.remove(ENCOUNTER_ATTRIBUTE) instanceof Long encounterId)) {
+            return;
+        }
+        Long userId = (Long) attributes.remove(ENCOUNTER_USER_ATTRIBUTE);
+        untrack(session);
+        encounterSessions.decrementAndGet();
+
+        boolean[] lastSession = {false};
+        encounters.computeIfPresent(encounterId, (id, presence) -> {
+            if (userId != null) {
+                lastSession[0] = presence.users.computeIfPresent(userId,
+                        (user, count) -> count > 1 ? count - 1 : null) == null;
+            }
+            return presence.sessions.decrementAndGet() > 0 ? presence : null;
+        });
+
+        if (lastSession[0]) {
+            publishPresence(encounterId, "USER_LEFT", userId);
+        }
+    }
+
+    public int getEncounterSessionCount(Long encounterId) {
+        EncounterPresence presence = encounters.get(encounterId);
+        return presence != null ? presence.sessions.get() : 0;
+    }
+
+    public int getTotalEncounterSessions() {
+        return encounterSessions.get();
+    }
+
+    public Set<Long> getUsersAt(Long encounterId) {
+        EncounterPresence presence = encounters.get(encounterId);
+        return presence != null ? Set.copyOf(presence.users.keySet()) : Set.of();
+    }
+
+    // ========================================
+    // NOTIFICACIONES
+    // ========================================
+
+    public void connectUser(WebSocketSession session, Long userId) {
+        if (session.getAttributes().putIfAbsent(NOTIFICATION_USER_ATTRIBUTE, userId) != null) {
+            return;
+        }
+        track(session);
+        notificationSessions.incrementAndGet();
+        if (notificationUsers.merge(userId, 1, Integer::sum) == 1) {
+            connectedUsers.incrementAndGet();
+        }
+    }
+
+    public void disconnectUser(WebSocketSession session) {
+        if (!(session.getAttributes().remove(NOTIFICATION_USER_ATTRIBUTE) instanceof Long userId)) {
+            return;
+        }
+        untrack(session);
+        notificationSessions.decrementAndGet();
+        if (notificationUsers.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null) == null) {
+            connectedUsers.decrementAndGet();
+        }
+    }
+
+    public int getConnectedUserCount() {
+        return connectedUsers.get();
+    }
+
+    public int getTotalNotificationSessions() {
+        return notificationSessions.get();
+    }
+
+    public boolean isUserConnected(Long userId) {
+        return notificationUsers.containsKey(userId);
+    }
+
+    // ========================================
+    // INACTIVIDAD
+    // ========================================
+
+    /**
+     * Cualquier mensaje del cliente (incluido PING) cuenta como actividad.
+     */
+    @SuppressWarnings("unchecked")
+    public void heartbeat(WebSocketSession session) {
+        if (session.getAttributes().get(ENTRY_ATTRIBUTE) instanceof IdleSessionWheel.Entry<?> entry) {
+            idleWheel.touch((IdleSessionWheel.Entry<WebSocketSession>) entry, System.currentTimeMillis());
+        }
+    }
+
+    @Scheduled(fixedRateString = "${rolegames.presence.tick-ms:1000}")
+    public void closeIdleSessions() {
+        for (WebSocketSession session : idleWheel.advance(System.currentTimeMillis())) {
+            logger.info("[PRESENCE] Sesión {} sin actividad, se cierra", session.getId());
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                logger.warn("[PRESENCE] No se pudo cerrar la sesión {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void track(WebSocketSession session) {
+        session.getAttributes().computeIfAbsent(ENTRY_ATTRIBUTE,
+                key -> idleWheel.add(session, System.currentTimeMillis()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void untrack(WebSocketSession session) {
+        if (session.getAttributes().remove(ENTRY_ATTRIBUTE) instanceof IdleSessionWheel.Entry<?> entry) {
+            idleWheel.cancel((IdleSessionWheel.Entry<WebSocketSession>) entry);
+        }
+    }
+
+    private void publishPresence(Long encounterId, String type, Long userId) {
+        encounterWebSocketService.notifyEncounterUpdate(encounterId, type,
+                Map.of("userId", userId, "encounterId", encounterId));
+    }
+
+    private static final class EncounterPresence {
+        private final AtomicInteger sessions = new AtomicInteger();
+        // userId -> sesiones de ese usuario en el encuentro
+        private final Map<Long, Integer> users = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,90 @@
+package kal.com.rolegames.models.combat;
+
+import kal.com.rolegames.models.characters.NonPlayerCharacter;
+import kal.com.rolegames.models.effects.Effect;
+import kal.com.rolegames.models.util.EffectType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CombatStateEffectExpiryTest {
+
+    @Test
+    void aTemporaryEffectExpiresWhenItsLastRoundEnds() {
+        CombatState combat = combatWithTwoGoblins();
+        Effect bless = effect(1L, 2);
+        combat.applyEffect(bless);
+
+        assertEquals(3, bless.getExpiresAtRound());
+        advanceRounds(combat, 1);
+        assertTrue(combat.drainExpiredEffects().isEmpty());
+        assertTrue(bless.getIsActive());
+
+        advanceRounds(combat, 1);
+        assertEquals(List.of(bless), combat.drainExpiredEffects());
+        assertFalse(bless.getIsActive());
+        assertNotNull(bless.getEndTime());
+        assertTrue(combat.drainExpiredEffects().isEmpty());
+    }
+
+    @Test
+    void effectsLongerThanOneTurnOfTheWheelWaitForTheirRound() {
+        CombatState combat = combatWithTwoGoblins();
+        Effect longOne = effect(1L, EffectTimerWheel.SLOTS + 5);
+        combat.applyEffect(longOne);
+
+        advanceRounds(combat, EffectTimerWheel.SLOTS + 4);
+        assertTrue(longOne.getIsActive());
+
+        advanceRounds(combat, 1);
+        assertFalse(longOne.getIsActive());
+    }
+
+    @Test
+    void permanentAndRemovedEffectsNeverExpire() {
+        CombatState combat = combatWithTwoGoblins();
+        Effect curse = effect(1L, -1);
+        Effect dispelled = effect(2L, 1);
+        combat.applyEffect(curse);
+        combat.applyEffect(dispelled);
+        dispelled.deactivate();
+
+        advanceRounds(combat, 3);
+
+        assertTrue(combat.drainExpiredEffects().isEmpty());
+        assertTrue(curse.getIsActive());
+        assertNull(curse.getExpiresAtRound());
+    }
+
+    private void advanceRounds(CombatState combat, int rounds) {
+        for (int i = 0; i < rounds * combat.getInitiativeOrder().size(); i++) {
+            combat.nextTurn();
+        }
+    }
+
+    private CombatState combatWithTwoGoblins() {
+        CombatState combat = CombatState.builder()
+                .currentRound(1)
+                .isActive(true)
+                .initiativeOrder(new ArrayList<>())
+                .build();
+        for (long id = 1; id <= 2; id++) {
+            combat.addParticipant(NonPlayerCharacter.builder().characterId(id).name("Goblin " + id).build(),
+                    (int) (20 - id));
+        }
+        combat.startFirstTurn();
+        return combat;
+    }
+
+    private Effect effect(Long id, int duration) {
+        return Effect.builder()
+                .effectId(id)
+                .name("Efecto " + id)
+                .effectType(EffectType.values()[0])
+                .duration(duration)
+                .build();
+    }
+}
@@ -0,0 +1,97 @@
+package kal.com.rolegames.models.combat;
+
+import kal.com.rolegames.models.characters.NonPlayerCharacter;
+import kal.com.rolegames.models.util.AbilityType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CombatStateTurnOrderTest {
+
+    @Test
+    void tiesAreBrokenByDexterityAndThenById() {
+        CombatState combat = newCombat();
+        NonPlayerCharacter slow = goblin(3, 10);
+        NonPlayerCharacter quick = goblin(2, 16);
+        NonPlayerCharacter alsoSlow = goblin(1, 10);
+
+        combat.addParticipant(slow, 12);
+        combat.addParticipant(quick, 12);
+        combat.addParticipant(alsoSlow, 12);
+        combat.addParticipant(goblin(4, 10), 18);
+
+        assertEquals(4L, characterAt(combat, 0));
+        assertEquals(2L, characterAt(combat, 1));
+        assertEquals(1L, characterAt(combat, 2));
+        assertEquals(3L, characterAt(combat, 3));
+    }
+
+    @Test
+    void nextTurnWrapsAroundAndStartsANewRound() {
+        CombatState combat = newCombat();
+        for (long id = 1; id <= 3; id++) {
+            combat.addParticipant(goblin(id, 10), (int) (20 - id));
+        }
+        combat.startFirstTurn();
+
+        for (int i = 0; i < 3; i++) {
+            combat.nextTurn();
+        }
+
+        assertEquals(2, combat.getCurrentRound());
+        assertEquals(0, combat.getCurrentTurnIndex());
+        assertEquals(1L, combat.getCurrentTurnParticipant().getCharacter().getCharacterId());
+        assertEquals(1, combat.getInitiativeOrder().stream().filter(Initiative::getCurrentTurn).count());
+    }
+
+    @Test
+    void insertingBeforeTheCurrentTurnKeepsThePointerOnTheSameParticipant() {
+        CombatState combat = newCombat();
+        combat.addParticipant(goblin(1, 10), 15);
+        combat.addParticipant(goblin(2, 10), 10);
+        combat.startFirstTurn();
+        combat.nextTurn();
+
+        combat.addParticipant(goblin(3, 10), 20);
+
+        assertEquals(2L, combat.getCurrentTurnParticipant().getCharacter().getCharacterId());
+    }
+
+    @Test
+    void removingTheLastParticipantOfTheRoundPassesTheTurnToTheFirst() {
+        CombatState combat = newCombat();
+        NonPlayerCharacter last = goblin(2, 10);
+        combat.addParticipant(goblin(1, 10), 15);
+        combat.addParticipant(last, 10);
+        combat.startFirstTurn();
+        combat.nextTurn();
+
+        combat.removeParticipant(last);
+
+        assertEquals(2, combat.getCurrentRound());
+        assertEquals(1L, combat.getCurrentTurnParticipant().getCharacter().getCharacterId());
+    }
+
+    private CombatState newCombat() {
+        return CombatState.builder()
+                .currentRound(1)
+                .isActive(true)
+                .initiativeOrder(new ArrayList<>())
+                .build();
+    }
+
+    private NonPlayerCharacter goblin(long id, int dexterity) {
+        return NonPlayerCharacter.builder()
+                .characterId(id)
+                .name("Goblin " + id)
+                .abilities(new java.util.HashMap<>(Map.of(AbilityType.DEXTERITY, dexterity)))
+                .build();
+    }
+
+    private Long characterAt(CombatState combat, int index) {
+        return combat.getInitiativeOrder().get(index).getCharacter().getCharacterId();
+    }
+}
@@ -0,0 +1,84 @@
+package kal.com.rolegames.services.combat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kal.com.rolegames.models.combat.CombatState;
+import kal.com.rolegames.repositories.combat.CombatStateRepository;
+import kal.com.rolegames.repositories.combat.InitiativeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CombatEngineTest {
+
+    private static final Long ENCOUNTER = 1L;
+
+    @Test
+    void aCommandThatTimedOutIsNotAppliedLater() throws Exception {
+        CombatEngine engine = newEngine(100);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger applied = new AtomicInteger();
+
+        // ocupa el buzón hasta que el segundo comando vence
+        engine.submit(ENCOUNTER, combat -> {
+            await(release);
+            return null;
+        });
+
+        assertThrows(IllegalStateException.class,
+                () -> engine.apply(ENCOUNTER, combat -> applied.incrementAndGet()));
+        release.countDown();
+
+        // cuando este corre el cancelado ya pasó por el buzón
+        engine.read(ENCOUNTER, combat -> null);
+        assertEquals(0, applied.get());
+    }
+
+    @Test
+    void anErrorInACommandReachesTheCallerRightAway() {
+        CombatEngine engine = newEngine(10_000);
+
+        long start = System.nanoTime();
+        ExecutionException thrown = assertThrows(ExecutionException.class,
+                () -> engine.submit(ENCOUNTER, combat -> {
+                    throw new AssertionError("falla");
+                }).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(AssertionError.class, thrown.getCause());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    private static CombatEngine newEngine(long commandTimeoutMs) {
+        CombatState combat = CombatState.builder()
+                .combatStateId(ENCOUNTER)
+                .currentRound(1)
+                .isActive(true)
+                .initiativeOrder(new ArrayList<>())
+                .build();
+        CombatStateRepository combatStateRepository = mock(CombatStateRepository.class);
+        when(combatStateRepository.findActiveByEncounterId(ENCOUNTER)).thenReturn(Optional.of(combat));
+
+        // sin BD: el mock del TransactionManager ejecuta los callbacks tal cual
+        return new CombatEngine(combatStateRepository,
+                mock(InitiativeRepository.class),
+                mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(),
+                50, 1, commandTimeoutMs);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
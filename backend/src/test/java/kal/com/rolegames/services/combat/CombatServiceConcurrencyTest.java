@@ -0,0 +1,178 @@
+package kal.com.rolegames.services.combat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kal.com.rolegames.mappers.combat.CombatStateMapper;
+import kal.com.rolegames.mappers.combat.InitiativeMapper;
+import kal.com.rolegames.mappers.effects.EffectMapper;
+import kal.com.rolegames.models.characters.NonPlayerCharacter;
+import kal.com.rolegames.models.combat.CombatState;
+import kal.com.rolegames.models.combat.Initiative;
+import kal.com.rolegames.repositories.characters.GameCharacterRepository;
+import kal.com.rolegames.repositories.combat.CombatStateRepository;
+import kal.com.rolegames.repositories.combat.InitiativeRepository;
+import kal.com.rolegames.repositories.effects.EffectRepository;
+import kal.com.rolegames.repositories.sessions.EncounterRepository;
+import kal.com.rolegames.repositories.spells.SpellRepository;
+import kal.com.rolegames.services.combat.dice.SplittableDiceRandomSource;
+import kal.com.rolegames.websockets.EncounterWebSocketService;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Varias mesas peleando al mismo tiempo: cada combate se resuelve por su encounterId
+ * y ninguna mesa debe terminar ni avanzar el combate de otra. Los turnos/s según la cantidad
+ * de mesas se miden en CombatThroughputBenchmark (src/jmh).
+ */
+class CombatServiceConcurrencyTest {
+
+    private static final int PARTICIPANTS = 4;
+    private static final int TURNS_PER_ENCOUNTER = 40;
+
+    @Test
+    void hundredsOfEncountersAdvanceIndependently() throws Exception {
+        int encounters = 300;
+        Map<Long, CombatState> combats = createCombats(encounters);
+        CombatService combatService = newCombatService(combats);
+
+        runTables(combatService, encounters, TURNS_PER_ENCOUNTER);
+
+        int expectedRound = 1 + TURNS_PER_ENCOUNTER / PARTICIPANTS;
+        combats.forEach((encounterId, combat) -> {
+            assertTrue(combat.getIsActive(), "El combate del encuentro " + encounterId + " fue terminado por otra mesa");
+            assertEquals(expectedRound, combat.getCurrentRound(),
+                    "El combate del encuentro " + encounterId + " avanzó turnos ajenos");
+            assertEquals(1, combat.getInitiativeOrder().stream().filter(Initiative::getCurrentTurn).count());
+        });
+    }
+
+    @Test
+    void playersOfTheSameTableAreSerialized() throws Exception {
+        int players = 8;
+        int turnsPerPlayer = 50;
+        Map<Long, CombatState> combats = createCombats(1);
+        CombatService combatService = newCombatService(combats);
+
+        ExecutorService executor = Executors.newFixedThreadPool(players);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int player = 0; player < players; player++) {
+                futures.add(executor.submit(() -> {
+                    startSignal.await();
+                    for (int turn = 0; turn < turnsPerPlayer; turn++) {
+                        combatService.nextTurn(1L);
+                    }
+                    return null;
+                }));
+            }
+            startSignal.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // ningún turno se pierde aunque todos los jugadores hagan clic a la vez
+        CombatState combat = combats.get(1L);
+        assertEquals(1 + players * turnsPerPlayer / PARTICIPANTS, combat.getCurrentRound());
+        assertEquals(1, combat.getInitiativeOrder().stream().filter(Initiative::getCurrentTurn).count());
+    }
+
+    private void runTables(CombatService combatService, int encounters, int turnsPerEncounter) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(encounters, 64));
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (long encounterId = 1; encounterId <= encounters; encounterId++) {
+                long id = encounterId;
+                futures.add(executor.submit(() -> {
+                    startSignal.await();
+                    for (int turn = 0; turn < turnsPerEncounter; turn++) {
+                        combatService.nextTurn(id);
+                    }
+                    return null;
+                }));
+            }
+
+            startSignal.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CombatService newCombatService(Map<Long, CombatState> combats) {
+        CombatStateRepository combatStateRepository = mock(CombatStateRepository.class, withSettings().stubOnly());
+        when(combatStateRepository.findActiveByEncounterId(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(combats.get(invocation.<Long>getArgument(0))));
+        when(combatStateRepository.save(any(CombatState.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // sin BD: el mock del TransactionManager ejecuta los callbacks tal cual
+        CombatEngine combatEngine = new CombatEngine(combatStateRepository,
+                mock(InitiativeRepository.class, withSettings().stubOnly()),
+                mock(PlatformTransactionManager.class, withSettings().stubOnly()),
+                new SimpleMeterRegistry(),
+                50, 4, 10_000);
+
+        return new CombatService(combatStateRepository,
+                mock(EncounterRepository.class, withSettings().stubOnly()),
+                mock(GameCharacterRepository.class, withSettings().stubOnly()),
+                mock(EffectRepository.class, withSettings().stubOnly()),
+                mock(SpellRepository.class, withSettings().stubOnly()),
+                combatEngine,
+                new SplittableDiceRandomSource(42L),
+                mock(EncounterWebSocketService.class, withSettings().stubOnly()),
+                mock(InitiativeMapper.class, withSettings().stubOnly()),
+                mock(EffectMapper.class, withSettings().stubOnly()),
+                mock(CombatStateMapper.class, withSettings().stubOnly()));
+    }
+
+    private Map<Long, CombatState> createCombats(int encounters) {
+        Map<Long, CombatState> combats = new ConcurrentHashMap<>();
+        long characterId = 1;
+
+        for (long encounterId = 1; encounterId <= encounters; encounterId++) {
+            CombatState combat = CombatState.builder()
+                    .combatStateId(encounterId)
+                    .currentRound(1)
+                    .isActive(true)
+                    .initiativeOrder(new ArrayList<>())
+                    .build();
+
+            for (int i = 0; i < PARTICIPANTS; i++) {
+                NonPlayerCharacter character = NonPlayerCharacter.builder()
+                        .characterId(characterId++)
+                        .name("Goblin " + i)
+                        .build();
+                combat.getInitiativeOrder().add(Initiative.builder()
+                        .combatState(combat)
+                        .character(character)
+                        .initiativeRoll(20 - i)
+                        .currentTurn(i == 0)
+                        .hasActed(false)
+                        .bonusActionsUsed(0)
+                        .reactionsUsed(0)
+                        .movementUsed(0)
+                        .build());
+            }
+            combats.put(encounterId, combat);
+        }
+        return combats;
+    }
+}
@@ -0,0 +1,138 @@
+package kal.com.rolegames.services.combat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kal.com.rolegames.dto.combat.ApplyEffectRequest;
+import kal.com.rolegames.dto.combat.CombatDeltaDTO;
+import kal.com.rolegames.mappers.combat.CombatStateMapper;
+import kal.com.rolegames.mappers.combat.InitiativeMapper;
+import kal.com.rolegames.mappers.effects.EffectMapper;
+import kal.com.rolegames.models.characters.NonPlayerCharacter;
+import kal.com.rolegames.models.combat.CombatState;
+import kal.com.rolegames.models.effects.Effect;
+import kal.com.rolegames.models.util.EffectType;
+import kal.com.rolegames.repositories.characters.GameCharacterRepository;
+import kal.com.rolegames.repositories.combat.CombatStateRepository;
+import kal.com.rolegames.repositories.combat.InitiativeRepository;
+import kal.com.rolegames.repositories.effects.EffectRepository;
+import kal.com.rolegames.repositories.sessions.EncounterRepository;
+import kal.com.rolegames.repositories.spells.SpellRepository;
+import kal.com.rolegames.services.combat.dice.SplittableDiceRandomSource;
+import kal.com.rolegames.websockets.EncounterWebSocketService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Un efecto que el DM activa a mitad del combate entra en la rueda de vencimientos y vence
+ * cuando le toca, sin recargar el combate desde la BD.
+ */
+class CombatServiceEffectTest {
+
+    private static final long ENCOUNTER_ID = 1L;
+
+    private final EncounterWebSocketService webSocketService = mock(EncounterWebSocketService.class);
+    private CombatState combat;
+    private CombatService combatService;
+
+    @BeforeEach
+    void setUp() {
+        combat = CombatState.builder()
+                .combatStateId(ENCOUNTER_ID)
+                .currentRound(1)
+                .isActive(true)
+                .initiativeOrder(new ArrayList<>())
+                .build();
+        for (long id = 1; id <= 2; id++) {
+            combat.addParticipant(NonPlayerCharacter.builder().characterId(id).name("Goblin " + id).build(),
+                    (int) (20 - id));
+        }
+        combat.startFirstTurn();
+
+        CombatStateRepository combatStateRepository = mock(CombatStateRepository.class);
+        when(combatStateRepository.findActiveByEncounterId(ENCOUNTER_ID)).thenReturn(Optional.of(combat));
+        when(combatStateRepository.save(any(CombatState.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        AtomicLong ids = new AtomicLong(100);
+        EffectRepository effectRepository = mock(EffectRepository.class);
+        when(effectRepository.save(any(Effect.class))).thenAnswer(invocation -> {
+            Effect effect = invocation.getArgument(0);
+            effect.setEffectId(ids.incrementAndGet());
+            return effect;
+        });
+
+        // sin BD: el mock del TransactionManager ejecuta los callbacks tal cual
+        CombatEngine combatEngine = new CombatEngine(combatStateRepository,
+                mock(InitiativeRepository.class),
+                mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(),
+                50, 1, 10_000);
+
+        combatService = new CombatService(combatStateRepository,
+                mock(EncounterRepository.class),
+                mock(GameCharacterRepository.class),
+                effectRepository,
+                mock(SpellRepository.class),
+                combatEngine,
+                new SplittableDiceRandomSource(42L),
+                webSocketService,
+                mock(InitiativeMapper.class),
+                mock(EffectMapper.class),
+                mock(CombatStateMapper.class));
+    }
+
+    @Test
+    void anEffectAppliedMidCombatExpiresOnItsRound() {
+        advanceRounds(2);
+        assertEquals(3, combat.getCurrentRound());
+
+        combatService.applyEffect(ENCOUNTER_ID, new ApplyEffectRequest("Bendición", EffectType.values()[0],
+                null, null, null, null, 2));
+        Effect bless = combat.getActiveEffects().iterator().next();
+        assertTrue(bless.getIsActive());
+        assertEquals(5, bless.getExpiresAtRound());
+
+        advanceRounds(1);
+        assertTrue(bless.getIsActive());
+
+        advanceRounds(1);
+        assertFalse(bless.getIsActive());
+
+        ArgumentCaptor<CombatDeltaDTO> deltas = ArgumentCaptor.forClass(CombatDeltaDTO.class);
+        verify(webSocketService, atLeastOnce()).publishCombatDelta(deltas.capture());
+        List<CombatDeltaDTO> added = deltas.getAllValues().stream()
+                .filter(delta -> delta.getType() == CombatDeltaDTO.Type.EFFECT_ADDED)
+                .toList();
+        assertEquals(1, added.size());
+        List<CombatDeltaDTO> expired = deltas.getAllValues().stream()
+                .filter(delta -> delta.getType() == CombatDeltaDTO.Type.EFFECT_EXPIRED)
+                .toList();
+        assertEquals(1, expired.size());
+        assertEquals(List.of(bless.getEffectId()), expired.get(0).getEffectIds());
+        assertEquals(5, expired.get(0).getCurrentRound());
+        // el cliente aplica los cambios en orden de secuencia
+        assertTrue(added.get(0).getSequence() < expired.get(0).getSequence());
+    }
+
+    @Test
+    void anEffectWithoutDurationIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> combatService.applyEffect(ENCOUNTER_ID,
+                new ApplyEffectRequest("Bendición", EffectType.values()[0], null, null, null, null, 0)));
+        assertTrue(combat.getActiveEffects().isEmpty());
+    }
+
+    private void advanceRounds(int rounds) {
+        for (int i = 0; i < rounds * combat.getInitiativeOrder().size(); i++) {
+            combatService.nextTurn(ENCOUNTER_ID);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package kal.com.rolegames.services.combat.dice;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiceDistributionCalculatorTest {
+
+    private final DiceExpressionCompiler compiler = new DiceExpressionCompiler(64);
+    private final DiceDistributionCalculator calculator = new DiceDistributionCalculator(compiler, 64);
+
+    @Test
+    void exactDistributionsOfCommonExpressions() {
+        DamageDistribution longsword = calculator.distributionOf("1d8+2");
+        assertEquals(3, longsword.getMin());
+        assertEquals(10, longsword.getMax());
+        assertEquals(6.5, longsword.mean(), 1e-9);
+        assertEquals(1.0 / 8, longsword.probability(5), 1e-12);
+
+        DamageDistribution twoD6 = calculator.distributionOf("2d6");
+        assertEquals(6.0 / 36, twoD6.probability(7), 1e-12);
+
+        // 4d6 quedándose con los 3 más altos: media conocida 12.2446
+        assertEquals(12.2446, calculator.distributionOf("4d6kh3").mean(), 1e-4);
+        // ventaja y desventaja en un d20
+        assertEquals(13.825, calculator.distributionOf("2d20kh1").mean(), 1e-9);
+        assertEquals(7.175, calculator.distributionOf("2d20kl1").mean(), 1e-9);
+    }
+
+    @Test
+    void rerollsMatchSampledMeans() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (String expression : new String[]{"2d6r2", "1d20ro1", "3d8kl2"}) {
+            DiceExpression dice = compiler.compile(expression);
+            double total = 0;
+            int samples = 200_000;
+            for (int i = 0; i < samples; i++) {
+                total += dice.roll(random);
+            }
+            assertEquals(calculator.distributionOf(expression).mean(), total / samples, 0.05, expression);
+        }
+    }
+}
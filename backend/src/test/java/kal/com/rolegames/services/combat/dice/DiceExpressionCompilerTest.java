@@ -0,0 +1,90 @@
+package kal.com.rolegames.services.combat.dice;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiceExpressionCompilerTest {
+
+    private final DiceExpressionCompiler compiler = new DiceExpressionCompiler(4);
+
+    @Test
+    void weaponExpressionsThatUsedToFallIntoTheErrorBranch() {
+        SplittableRandom random = new SplittableRandom(7);
+
+        DiceExpression longsword = compiler.compile("1d8+2");
+        DiceExpression flameTongue = compiler.compile("2d6 + 1d4");
+        assertEquals(3, longsword.getMin());
+        assertEquals(10, longsword.getMax());
+        assertEquals(3, flameTongue.getMin());
+        assertEquals(16, flameTongue.getMax());
+
+        for (int i = 0; i < 1_000; i++) {
+            int damage = longsword.roll(random);
+            assertTrue(damage >= 3 && damage <= 10);
+            damage = flameTongue.roll(random);
+            assertTrue(damage >= 3 && damage <= 16);
+        }
+    }
+
+    @Test
+    void keepAndRerollModifiers() {
+        SplittableRandom random = new SplittableRandom(11);
+
+        DiceExpression advantage = compiler.compile("2d20kh1");
+        DiceRollBreakdown roll = advantage.rollDetailed(random);
+        assertEquals(2, roll.dice().size());
+        assertEquals(1, roll.dice().keySet().stream().filter(key -> key.endsWith("_dropped")).count());
+
+        DiceExpression greatWeaponFighting = compiler.compile("2d6r2");
+        assertEquals(6, greatWeaponFighting.getMin());
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(greatWeaponFighting.roll(random) >= 6);
+            int stats = compiler.compile("4d6kl3").roll(random);
+            assertTrue(stats >= 3 && stats <= 18);
+        }
+    }
+
+    @Test
+    void breakdownAndTotalAgreeForTheSameSeed() {
+        DiceExpression expression = compiler.compile("4d6kh3-1");
+        for (long seed = 0; seed < 100; seed++) {
+            assertEquals(expression.roll(new SplittableRandom(seed)),
+                    expression.rollDetailed(new SplittableRandom(seed)).total());
+        }
+    }
+
+    @Test
+    void compiledExpressionsAreCachedAndBounded() {
+        assertSame(compiler.compile("1d8"), compiler.compile("1d8"));
+        for (String expression : new String[]{"1d4", "1d6", "1d10", "1d12", "1d20"}) {
+            compiler.compile(expression);
+        }
+        assertTrue(compiler.getCachedCount() <= 4);
+    }
+
+    @Test
+    void seedAndSequenceReplayTheSameRolls() {
+        DiceRandomSource source = new SplittableDiceRandomSource(null);
+        DiceExpression fireball = compiler.compile("8d6");
+        long seed = source.newCombatSeed();
+
+        for (long sequence = 1; sequence <= 50; sequence++) {
+            assertEquals(fireball.rollDetailed(source.stream(seed, sequence)),
+                    fireball.rollDetailed(source.stream(seed, sequence)));
+        }
+        assertNotEquals(fireball.rollDetailed(source.stream(seed, 1)).dice(),
+                fireball.rollDetailed(source.stream(seed, 2)).dice());
+
+        assertEquals(42L, new SplittableDiceRandomSource(42L).newCombatSeed());
+    }
+
+    @Test
+    void invalidExpressionsAreRejected() {
+        for (String expression : new String[]{"", "d", "1d", "1d0", "2d6kh3", "1d6r6", "1d8+", "1x8", "1000d6"}) {
+            assertThrows(IllegalArgumentException.class, () -> compiler.compile(expression), expression);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package kal.com.rolegames.services.combat.map;
+
+import kal.com.rolegames.dto.combat.TerrainCellDTO;
+import kal.com.rolegames.dto.combat.TokenPositionDTO;
+import kal.com.rolegames.models.items.Range;
+import kal.com.rolegames.models.items.Weapon;
+import kal.com.rolegames.models.util.TerrainType;
+import kal.com.rolegames.models.util.WeaponProperty;
+import kal.com.rolegames.websockets.EncounterWebSocketService;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BattleMapServiceTest {
+
+    private final EncounterWebSocketService webSocketService = mock(EncounterWebSocketService.class);
+    private final BattleMapService service = new BattleMapService(webSocketService, 1000);
+
+    @Test
+    void radiusQueriesUseTheGrid() {
+        service.moveToken(1L, 10L, 5, 5);
+        service.moveToken(1L, 11L, 9, 5);   // 20 pies, en otra celda
+        service.moveToken(1L, 12L, 13, 13); // 40 pies
+        service.moveToken(2L, 13L, 5, 5);   // otro encuentro
+
+        assertEquals(Set.of(10L, 11L), Set.copyOf(service.charactersWithin(1L, new GridPosition(5, 5), 20)));
+        assertEquals(List.of(12L), service.charactersInRectangle(1L, 10, 10, 20, 20));
+
+        service.moveToken(1L, 12L, 6, 6);
+        assertEquals(3, service.charactersWithin(1L, new GridPosition(5, 5), 20).size());
+
+        service.removeToken(1L, 11L);
+        assertEquals(Set.of(10L, 12L), Set.copyOf(service.charactersWithin(1L, new GridPosition(5, 5), 20)));
+    }
+
+    @Test
+    void movesAreCoalescedPerTick() {
+        service.moveToken(1L, 10L, 1, 1);
+        service.moveToken(1L, 10L, 2, 2);
+        service.moveToken(1L, 10L, 3, 3);
+
+        service.flushPositions();
+        service.flushPositions();
+
+        verify(webSocketService, times(1)).notifyEncounterUpdate(eq(1L), eq("TOKEN_POSITIONS"),
+                eq(List.of(new TokenPositionDTO(10L, 3, 3))));
+        verify(webSocketService, times(1)).notifyEncounterUpdate(any(), any(), any());
+    }
+
+    @Test
+    void positionsOutsideTheMapAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.moveToken(1L, 10L, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.moveToken(1L, 10L, 0, 1001));
+    }
+
+    @Test
+    void movesSpendMovementAndRespectOccupiedCells() {
+        service.moveToken(1L, 10L, 0, 0);
+        service.moveToken(1L, 11L, 1, 0);
+        service.setTerrain(1L, List.of(new TerrainCellDTO(0, 1, TerrainType.BLOCKED),
+                new TerrainCellDTO(1, 1, TerrainType.BLOCKED)));
+
+        // el único paso es cruzar la casilla de 11L, que cuesta como terreno difícil
+        assertEquals(15, service.moveToken(1L, 10L, 2, 0, 30));
+        assertThrows(IllegalStateException.class, () -> service.moveToken(1L, 10L, 1, 0, 30));
+        assertThrows(IllegalStateException.class, () -> service.moveToken(1L, 10L, 1, 1, 30));
+        assertThrows(IllegalStateException.class, () -> service.moveToken(1L, 10L, 9, 0, 30));
+        assertEquals(new GridPosition(2, 0), service.positionOf(1L, 10L));
+    }
+
+    @Test
+    void weaponRangeDependsOnReachAndRange() {
+        service.moveToken(1L, 10L, 0, 0);
+        service.moveToken(1L, 11L, 2, 0); // 10 pies
+
+        Weapon sword = weapon(Set.of(), null);
+        Weapon glaive = weapon(Set.of(WeaponProperty.REACH), null);
+        Weapon longbow = weapon(Set.of(), new Range(150, 600));
+
+        assertThrows(IllegalStateException.class, () -> service.validateWeaponRange(1L, 10L, 11L, sword));
+        assertThrows(IllegalStateException.class, () -> service.validateWeaponRange(1L, 10L, 11L, null));
+        assertDoesNotThrow(() -> service.validateWeaponRange(1L, 10L, 11L, glaive));
+        assertDoesNotThrow(() -> service.validateWeaponRange(1L, 10L, 11L, longbow));
+
+        // sin posición no se puede comprobar
+        assertDoesNotThrow(() -> service.validateWeaponRange(1L, 10L, 99L, sword));
+    }
+
+    @Test
+    void spellRangesAreParsed() {
+        assertEquals(5, BattleMapService.spellRangeInFeet("Touch"));
+        assertEquals(0, BattleMapService.spellRangeInFeet("Self (15-foot cone)"));
+        assertEquals(120, BattleMapService.spellRangeInFeet("120 feet"));
+        assertEquals(5280, BattleMapService.spellRangeInFeet("1 mile"));
+        assertNull(BattleMapService.spellRangeInFeet("Special"));
+    }
+
+    private Weapon weapon(Set<WeaponProperty> properties, Range range) {
+        Weapon weapon = new Weapon();
+        weapon.setProperties(new HashSet<>(properties));
+        weapon.setRange(range);
+        return weapon;
+    }
+}
@@ -0,0 +1,71 @@
+package kal.com.rolegames.services.combat.map;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathFinderTest {
+
+    private static final PathFinder.CellCost OPEN_FIELD = (x, y) -> GridPosition.FEET_PER_SQUARE;
+
+    @Test
+    void diagonalsCostTheSameAsStraightSteps() {
+        assertEquals(30, PathFinder.cheapestPath(new GridPosition(0, 0), new GridPosition(6, 6), 30, 99, OPEN_FIELD));
+        assertEquals(PathFinder.UNREACHABLE,
+                PathFinder.cheapestPath(new GridPosition(0, 0), new GridPosition(7, 0), 30, 99, OPEN_FIELD));
+    }
+
+    @Test
+    void wallsAreWalkedAround() {
+        // pared en x = 5 de y = 0 a y = 8
+        PathFinder.CellCost wall = (x, y) -> x == 5 && y <= 8 ? PathFinder.BLOCKED : GridPosition.FEET_PER_SQUARE;
+
+        assertEquals(PathFinder.UNREACHABLE,
+                PathFinder.cheapestPath(new GridPosition(4, 0), new GridPosition(6, 0), 30, 99, wall));
+        assertEquals(90, PathFinder.cheapestPath(new GridPosition(4, 0), new GridPosition(6, 0), 120, 99, wall));
+    }
+
+    @Test
+    void difficultTerrainCostsDouble() {
+        PathFinder.CellCost mud = (x, y) -> y == 0 && x > 0 ? 10 : GridPosition.FEET_PER_SQUARE;
+
+        // por el barro costaría 30; rodeándolo por la fila de arriba, 20
+        assertEquals(20, PathFinder.cheapestPath(new GridPosition(0, 0), new GridPosition(3, 0), 30, 99, mud));
+    }
+
+    @Test
+    void diagonalsCannotSqueezeBetweenTwoBlockedCells() {
+        Set<Long> blocked = Set.of(key(1, 0), key(0, 1));
+        PathFinder.CellCost corner = (x, y) -> blocked.contains(key(x, y)) ? PathFinder.BLOCKED : GridPosition.FEET_PER_SQUARE;
+
+        assertEquals(PathFinder.UNREACHABLE,
+                PathFinder.cheapestPath(new GridPosition(0, 0), new GridPosition(1, 1), 30, 99, corner));
+    }
+
+    @Test
+    void findsEveryShortPathAcrossACrowdedHundredSquareMap() {
+        Set<Long> occupied = new HashSet<>();
+        for (int i = 0; i < 48; i++) {
+            occupied.add(key((i * 37) % 100, (i * 53) % 100));
+        }
+        PathFinder.CellCost cost = (x, y) -> occupied.contains(key(x, y)) ? 10 : GridPosition.FEET_PER_SQUARE;
+
+        int searches = 20_000;
+        int reachable = 0;
+        for (int i = 0; i < searches; i++) {
+            GridPosition from = new GridPosition(i % 100, (i / 100) % 100);
+            GridPosition to = new GridPosition(Math.min(99, from.x() + 6), Math.max(0, from.y() - 5));
+            if (PathFinder.cheapestPath(from, to, 60, 99, cost) != PathFinder.UNREACHABLE) {
+                reachable++;
+            }
+        }
+        assertEquals(searches, reachable);
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | y;
+    }
+}
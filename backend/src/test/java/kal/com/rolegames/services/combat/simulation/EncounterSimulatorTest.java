@@ -0,0 +1,72 @@
+package kal.com.rolegames.services.combat.simulation;
+
+import kal.com.rolegames.services.combat.ActionResultService.DamageFormula;
+import kal.com.rolegames.services.combat.dice.DiceExpressionCompiler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class EncounterSimulatorTest {
+
+    private final DiceExpressionCompiler compiler = new DiceExpressionCompiler(64);
+    private final EncounterSimulator simulator = new EncounterSimulator(null, null, null, null,
+            mock(PlatformTransactionManager.class), 0, 200_000);
+
+    @AfterEach
+    void tearDown() {
+        simulator.shutdown();
+    }
+
+    @Test
+    void aPartyOfFourBeatsTwoGoblins() {
+        SimulationTally tally = simulator.simulate(partyAgainst(2), 20_000, 1L);
+
+        assertEquals(20_000, tally.fights);
+        assertTrue(tally.partyWins > 19_000, "ganó " + tally.partyWins);
+    }
+
+    @Test
+    void theSameSeedGivesTheSameResult() {
+        SimulationTally first = simulator.simulate(partyAgainst(6), 10_000, 99L);
+        SimulationTally second = simulator.simulate(partyAgainst(6), 10_000, 99L);
+
+        assertEquals(first.partyWins, second.partyWins);
+        assertEquals(first.totalRounds, second.totalRounds);
+        assertEquals(first.totalPartyHitPointsLost, second.totalPartyHitPointsLost);
+    }
+
+    @Test
+    void simulatesAHundredThousandFights() {
+        SimulationTally tally = simulator.simulate(partyAgainst(8), 100_000, 7L);
+
+        assertEquals(100_000, tally.fights);
+    }
+
+    @Test
+    void anEncounterWithoutEnemiesCannotBeSimulated() {
+        assertThrows(IllegalStateException.class,
+                () -> simulator.simulate(partyAgainst(0), 10, 1L));
+    }
+
+    private List<CombatantProfile> partyAgainst(int goblins) {
+        List<CombatantProfile> profiles = new java.util.ArrayList<>(List.of(
+                new CombatantProfile("Guerrera", true, 44, 18, 1, "Espada larga", 7, damage("1d8", 4), false),
+                new CombatantProfile("Pícaro", true, 33, 15, 4, "Estoque", 7, damage("1d8", 4), false),
+                new CombatantProfile("Mago", true, 26, 12, 2, "Rayo de fuego", 6, damage("2d10", 0), false),
+                new CombatantProfile("Clériga", true, 38, 18, 0, "Maza", 5, damage("1d6", 2), false)));
+        for (int i = 0; i < goblins; i++) {
+            profiles.add(new CombatantProfile("Goblin " + i, false, 7, 15, 2, "Cimitarra", 4,
+                    damage("1d6", 2), false));
+        }
+        return profiles;
+    }
+
+    private DamageFormula damage(String dice, int modifier) {
+        return new DamageFormula(compiler.compile(dice), modifier);
+    }
+}
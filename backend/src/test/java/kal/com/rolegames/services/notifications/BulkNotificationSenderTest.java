@@ -0,0 +1,60 @@
+package kal.com.rolegames.services.notifications;
+
+import kal.com.rolegames.mappers.notifications.NotificationMapper;
+import kal.com.rolegames.models.notifications.Notification;
+import kal.com.rolegames.models.users.User;
+import kal.com.rolegames.models.util.NotificationType;
+import kal.com.rolegames.repositories.notifications.NotificationBatchRepository;
+import kal.com.rolegames.repositories.sessions.CampaignRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BulkNotificationSenderTest {
+
+    private final NotificationBatchRepository batchRepository = mock(NotificationBatchRepository.class);
+    private final NotificationMapper mapper = mock(NotificationMapper.class);
+    private final NotificationOutbox outbox = mock(NotificationOutbox.class);
+    private final UnreadCountCache unreadCounts = mock(UnreadCountCache.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final BulkNotificationSender sender = new BulkNotificationSender(batchRepository,
+            mock(CampaignRepository.class), mapper, outbox, unreadCounts, transactionManager, 1000);
+
+    @AfterEach
+    void tearDown() {
+        sender.shutdown();
+    }
+
+    @Test
+    void recipientsAreSentInChunksEachInItsOwnTransaction() {
+        List<User> recipients = LongStream.rangeClosed(1, 2500)
+                .mapToObj(id -> User.builder().userId(id).username("user" + id).build())
+                .toList();
+        List<Integer> chunkSizes = new ArrayList<>();
+        doAnswer(invocation -> chunkSizes.add(invocation.<List<Notification>>getArgument(0).size()))
+                .when(batchRepository).insertAll(anyList());
+
+        assertEquals(2500, sender.send(recipients, null, NotificationType.GENERAL_ANNOUNCEMENT,
+                "Anuncio", "Sesión el viernes", null));
+
+        assertEquals(List.of(1000, 1000, 500), chunkSizes);
+        verify(transactionManager, times(3)).commit(any());
+        verify(outbox, times(3)).enqueueAll(any());
+        verify(unreadCounts).change(1L, 1);
+        verify(unreadCounts).change(2500L, 1);
+    }
+
+    @Test
+    void anUnknownJobHasNoProgress() {
+        assertThrows(NoSuchElementException.class, () -> sender.getProgress("no-existe"));
+    }
+}
@@ -0,0 +1,30 @@
+package kal.com.rolegames.services.notifications;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InboxCursorTest {
+
+    @Test
+    void aCursorSurvivesTheRoundTrip() {
+        InboxCursor cursor = new InboxCursor(LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_000_000), 42L);
+
+        assertEquals(cursor, InboxCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void theEncodedCursorIsSafeInAUrl() {
+        String encoded = new InboxCursor(LocalDateTime.of(2025, 1, 1, 0, 0), 7L).encode();
+
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"), encoded);
+    }
+
+    @Test
+    void aTamperedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> InboxCursor.decode("no-es-un-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> InboxCursor.decode("%%%"));
+    }
+}
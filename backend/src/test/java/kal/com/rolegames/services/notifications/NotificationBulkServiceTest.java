@@ -0,0 +1,55 @@
+package kal.com.rolegames.services.notifications;
+
+import kal.com.rolegames.repositories.notifications.NotificationRepository;
+import kal.com.rolegames.repositories.notifications.OutboxMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NotificationBulkServiceTest {
+
+    private final NotificationRepository repository = mock(NotificationRepository.class);
+    private final OutboxMessageRepository outboxRepository = mock(OutboxMessageRepository.class);
+    private final UnreadCountCache unreadCounts = mock(UnreadCountCache.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final NotificationBulkService service =
+            new NotificationBulkService(repository, outboxRepository, unreadCounts, transactionManager, 100, 30);
+
+    @Test
+    void markAllAsReadRepeatsChunksUntilOneComesBackShort() {
+        when(repository.markUnreadAsReadChunk(1L, 100)).thenReturn(100, 100, 37);
+
+        assertEquals(237, service.markAllAsRead(1L));
+
+        verify(repository, times(3)).markUnreadAsReadChunk(1L, 100);
+        verify(transactionManager, times(3)).commit(any());
+        verify(unreadCounts, times(2)).change(1L, -100);
+        verify(unreadCounts).change(1L, -37);
+    }
+
+    @Test
+    void expiredUnreadNotificationsAreDeletedPerRecipient() {
+        when(repository.findRecipientsWithExpiredUnread(any())).thenReturn(List.of(1L, 2L));
+        when(repository.deleteExpiredUnreadChunk(eq(1L), any(), eq(100))).thenReturn(4);
+        when(repository.deleteExpiredUnreadChunk(eq(2L), any(), eq(100))).thenReturn(100, 0);
+        when(repository.deleteExpiredReadChunk(any(), eq(100))).thenReturn(10);
+
+        assertEquals(114, service.deleteExpired());
+
+        verify(unreadCounts).change(1L, -4);
+        verify(unreadCounts).change(2L, -100);
+        verify(unreadCounts).change(2L, 0);
+    }
+
+    @Test
+    void aChunkSizeBelowOneIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new NotificationBulkService(repository, outboxRepository, unreadCounts, transactionManager, 0, 30));
+    }
+}
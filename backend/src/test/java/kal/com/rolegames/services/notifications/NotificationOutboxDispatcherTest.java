@@ -0,0 +1,78 @@
+package kal.com.rolegames.services.notifications;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kal.com.rolegames.dto.notifications.NotificationDTO;
+import kal.com.rolegames.models.notifications.OutboxMessage;
+import kal.com.rolegames.repositories.notifications.OutboxMessageRepository;
+import kal.com.rolegames.websockets.NotificationWebSocketService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class NotificationOutboxDispatcherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OutboxMessageRepository repository = mock(OutboxMessageRepository.class);
+    private final NotificationWebSocketService webSocketService = mock(NotificationWebSocketService.class);
+    private final NotificationOutboxDispatcher dispatcher = new NotificationOutboxDispatcher(repository,
+            webSocketService, objectMapper, mock(PlatformTransactionManager.class), 1000, 2, 30_000, 3, 1000, 60_000, 2);
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void messagesAreGroupedPerRecipientAndMarkedDelivered() throws Exception {
+        when(repository.lockPending(any(), eq(2)))
+                .thenReturn(List.of(message(1L, 10L, 100L, 0), message(2L, 10L, 101L, 0)))
+                .thenReturn(List.of(message(3L, 20L, 102L, 0)));
+
+        assertEquals(3, dispatcher.drain());
+
+        verify(webSocketService).sendNotificationsToUser(eq(10L), argThat(list -> list.size() == 2));
+        verify(webSocketService).sendNotificationsToUser(eq(20L), argThat(list -> list.size() == 1));
+        verify(repository).markDelivered(argThat(ids -> Set.copyOf(ids).equals(Set.of(1L, 2L))), any());
+        verify(repository).markDelivered(eq(List.of(3L)), any());
+        verify(repository, times(2)).lease(any(), any());
+    }
+
+    @Test
+    void aFailedSendIsRetriedUntilTheLastAttempt() throws Exception {
+        when(repository.lockPending(any(), eq(2)))
+                .thenReturn(List.of(message(1L, 10L, 100L, 0), message(2L, 20L, 101L, 2)))
+                .thenReturn(List.of());
+        doThrow(new IllegalStateException("bus caído")).when(webSocketService).sendNotificationsToUser(anyLong(), any());
+
+        dispatcher.drain();
+
+        LocalDateTime before = LocalDateTime.now();
+        verify(repository).scheduleRetry(eq(List.of(1L)), argThat(retryAt -> retryAt.isAfter(before)));
+        // el segundo ya llevaba 2 de 3 intentos
+        verify(repository).markDelivered(eq(List.of(2L)), any());
+    }
+
+    private OutboxMessage message(Long id, Long recipientId, Long notificationId, int attempts) throws Exception {
+        NotificationDTO notification = NotificationDTO.builder()
+                .notificationId(notificationId)
+                .recipientId(recipientId)
+                .title("Prueba")
+                .build();
+        return OutboxMessage.builder()
+                .outboxId(id)
+                .recipientId(recipientId)
+                .notificationId(notificationId)
+                .payload(objectMapper.writeValueAsString(notification))
+                .attempts(attempts)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+}
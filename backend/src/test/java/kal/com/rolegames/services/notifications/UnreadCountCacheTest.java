@@ -0,0 +1,109 @@
+package kal.com.rolegames.services.notifications;
+
+import kal.com.rolegames.repositories.notifications.NotificationRepository;
+import kal.com.rolegames.websockets.NotificationWebSocketService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class UnreadCountCacheTest {
+
+    private final NotificationRepository repository = mock(NotificationRepository.class);
+    private final NotificationWebSocketService webSocketService = mock(NotificationWebSocketService.class);
+    private final UnreadCountCache cache = new UnreadCountCache(repository, webSocketService, 500);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void theCountIsLoadedOnceAndThenKeptByChanges() {
+        when(repository.countByRecipientUserIdAndIsReadFalse(1L)).thenReturn(3L);
+
+        assertEquals(3, cache.get(1L));
+        cache.change(1L, 2);
+        cache.change(1L, -1);
+        assertEquals(4, cache.get(1L));
+
+        verify(repository, times(1)).countByRecipientUserIdAndIsReadFalse(1L);
+        verify(webSocketService).sendUnreadCountUpdate(1L, 5);
+        verify(webSocketService).sendUnreadCountUpdate(1L, 4);
+    }
+
+    @Test
+    void theCountNeverGoesBelowZero() {
+        when(repository.countByRecipientUserIdAndIsReadFalse(1L)).thenReturn(1L);
+
+        cache.get(1L);
+        cache.change(1L, -5);
+
+        assertEquals(0, cache.get(1L));
+    }
+
+    @Test
+    void changesAreAppliedOnlyWhenTheTransactionCommits() {
+        when(repository.countByRecipientUserIdAndIsReadFalse(1L)).thenReturn(2L);
+        cache.get(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.change(1L, 1);
+        cache.change(1L, 1);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(2, cache.get(1L));
+
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(3, cache.get(1L));
+    }
+
+    @Test
+    void aUserThatWasNeverLoadedCostsNoQueries() {
+        cache.change(7L, 1);
+
+        verify(repository, never()).countByRecipientUserIdAndIsReadFalse(anyLong());
+        verify(webSocketService, never()).sendUnreadCountUpdate(anyLong(), anyLong());
+    }
+
+    @Test
+    void reconciliationFixesDriftAndForgetsDisconnectedUsers() {
+        when(repository.countByRecipientUserIdAndIsReadFalse(anyLong())).thenReturn(2L);
+        when(webSocketService.isUserConnected(1L)).thenReturn(true);
+        when(repository.countUnreadByRecipientIds(any())).thenReturn(List.of(unread(1L, 5)));
+        cache.get(1L);
+        cache.get(2L);
+
+        cache.reconcile();
+
+        assertEquals(5, cache.get(1L));
+        verify(webSocketService).sendUnreadCountUpdate(1L, 5);
+        // el usuario 2 no estaba conectado: se vuelve a cargar
+        cache.get(2L);
+        verify(repository, times(2)).countByRecipientUserIdAndIsReadFalse(2L);
+    }
+
+    private NotificationRepository.UnreadCount unread(Long userId, long count) {
+        return new NotificationRepository.UnreadCount() {
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+
+            @Override
+            public long getUnreadCount() {
+                return count;
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package kal.com.rolegames.websockets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DiceRollLimiterTest {
+
+    // la sesión deja tirar mucho; el límite compartido es de 2 tiradas sin recarga apreciable
+    private final DiceRollLimiter limiter = new DiceRollLimiter(1000, 1000, 0.001, 2);
+
+    @Test
+    void sessionsWithoutUserShareTheBucketOfTheirAddress() {
+        WebSocketSession first = session("10.0.0.7");
+        WebSocketSession second = session("10.0.0.7");
+        limiter.register(first, null);
+        limiter.register(second, null);
+
+        assertEquals(0, limiter.tryAcquire(first));
+        assertEquals(0, limiter.tryAcquire(second));
+        // una conexión nueva no da tiradas nuevas
+        assertTrue(limiter.tryAcquire(second) > 0);
+        assertTrue(limiter.tryAcquire(first) > 0);
+    }
+
+    @Test
+    void aUserKeepsItsBucketAcrossAddresses() {
+        WebSocketSession home = session("10.0.0.7");
+        WebSocketSession phone = session("10.0.0.8");
+        limiter.register(home, 42L);
+        limiter.register(phone, 42L);
+
+        assertEquals(0, limiter.tryAcquire(home));
+        assertEquals(0, limiter.tryAcquire(phone));
+        assertTrue(limiter.tryAcquire(phone) > 0);
+
+        // otro usuario en la misma dirección no se ve afectado
+        WebSocketSession other = session("10.0.0.7");
+        limiter.register(other, 7L);
+        assertEquals(0, limiter.tryAcquire(other));
+    }
+
+    private WebSocketSession session(String address) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getAttributes()).thenReturn(new HashMap<>());
+        when(session.getRemoteAddress()).thenReturn(new InetSocketAddress(address, 50_000));
+        return session;
+    }
+}
@@ -0,0 +1,85 @@
+package kal.com.rolegames.websockets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import kal.com.rolegames.dto.combat.CombatDeltaDTO;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncounterBinaryCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final EncounterBinaryCodec codec = new EncounterBinaryCodec(objectMapper);
+
+    @Test
+    void anEncounterMessageKeepsItsHeaderAndData() throws Exception {
+        EncounterWebSocketService.WebSocketMessage message = EncounterWebSocketService.WebSocketMessage.builder()
+                .type("COMBAT_DELTA")
+                .encounterId(42L)
+                .sequence(300L)
+                .timestamp(LocalDateTime.of(2025, 3, 1, 21, 30))
+                .data(CombatDeltaDTO.builder()
+                        .sequence(17L)
+                        .encounterId(42L)
+                        .type(CombatDeltaDTO.Type.HP_CHANGED)
+                        .characterId(7L)
+                        .hitPoints(12)
+                        .build())
+                .build();
+
+        byte[] frame = codec.encode(message);
+        Map<String, Object> decoded = codec.decode(ByteBuffer.wrap(frame));
+
+        assertEquals("COMBAT_DELTA", decoded.get("type"));
+        assertEquals(42L, decoded.get("encounterId"));
+        assertEquals(300L, decoded.get("sequence"));
+        Map<?, ?> data = (Map<?, ?>) decoded.get("data");
+        assertEquals("HP_CHANGED", data.get("type"));
+        assertEquals(12, ((Number) data.get("hitPoints")).intValue());
+        assertTrue(frame.length < objectMapper.writeValueAsBytes(message).length * 3 / 4,
+                "binario: " + frame.length + " bytes");
+    }
+
+    @Test
+    void aMapMessageKeepsItsFieldsAtTheTopLevel() throws Exception {
+        Map<String, Object> diceRoll = Map.of(
+                "type", "DICE_ROLLED",
+                "data", Map.of("expression", "1d20+5", "total", 18),
+                "sessionId", "abc",
+                "timestamp", 1_700_000_000_000L,
+                "sequence", 9L);
+
+        Map<String, Object> decoded = codec.decode(ByteBuffer.wrap(codec.encode(diceRoll)));
+
+        assertEquals("DICE_ROLLED", decoded.get("type"));
+        assertEquals(9L, decoded.get("sequence"));
+        assertEquals(1_700_000_000_000L, decoded.get("timestamp"));
+        assertEquals("abc", decoded.get("sessionId"));
+        assertEquals(18, ((Number) ((Map<?, ?>) decoded.get("data")).get("total")).intValue());
+    }
+
+    @Test
+    void anUnknownTypeTravelsByName() throws Exception {
+        Map<String, Object> decoded = codec.decode(ByteBuffer.wrap(codec.encode(Map.of("type", "NUEVO_TIPO"))));
+
+        assertEquals("NUEVO_TIPO", decoded.get("type"));
+    }
+
+    @Test
+    void varintsUseOneByteForSmallValues() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EncounterBinaryCodec.writeVarint(out, 127);
+        EncounterBinaryCodec.writeVarint(out, 300);
+
+        ByteBuffer in = ByteBuffer.wrap(out.toByteArray());
+        assertEquals(3, in.remaining());
+        assertEquals(127, EncounterBinaryCodec.readVarint(in));
+        assertEquals(300, EncounterBinaryCodec.readVarint(in));
+    }
+}
@@ -0,0 +1,83 @@
+package kal.com.rolegames.websockets;
+
+import kal.com.rolegames.dto.combat.CombatDeltaDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncounterEventBatchTest {
+
+    private final EncounterEventBatch batch = new EncounterEventBatch();
+
+    @Test
+    void hitPointUpdatesOfTheSameCharacterKeepTheLastValue() {
+        batch.add(delta(1, CombatDeltaDTO.Type.HP_CHANGED, 7L, 20, null));
+        batch.add(delta(2, CombatDeltaDTO.Type.HP_CHANGED, 8L, 15, null));
+        batch.add(delta(3, CombatDeltaDTO.Type.HP_CHANGED, 7L, 12, null));
+
+        List<EncounterWebSocketService.WebSocketMessage> events = batch.retire();
+
+        assertEquals(List.of(2L, 3L), sequences(events));
+        assertEquals(12, ((CombatDeltaDTO) events.get(1).getData()).getHitPoints());
+        assertEquals(List.of(1L), batch.getSkippedSequences());
+    }
+
+    @Test
+    void initiativeUpdatesAreNotMergedAcrossAnInsertion() {
+        batch.add(delta(1, CombatDeltaDTO.Type.INITIATIVE_UPDATED, null, null, 0));
+        batch.add(delta(2, CombatDeltaDTO.Type.INITIATIVE_INSERTED, null, null, 0));
+        batch.add(delta(3, CombatDeltaDTO.Type.INITIATIVE_UPDATED, null, null, 0));
+        batch.add(delta(4, CombatDeltaDTO.Type.INITIATIVE_UPDATED, null, null, 0));
+
+        assertEquals(List.of(1L, 2L, 4L), sequences(batch.retire()));
+        assertEquals(List.of(3L), batch.getSkippedSequences());
+    }
+
+    @Test
+    void otherEventsKeepTheirOrder() {
+        batch.add(delta(1, CombatDeltaDTO.Type.TURN_CHANGED, null, null, null));
+        batch.add(message("ACTION_PERFORMED", null));
+        batch.add(delta(2, CombatDeltaDTO.Type.TURN_CHANGED, null, null, null));
+
+        List<EncounterWebSocketService.WebSocketMessage> events = batch.retire();
+
+        assertEquals(List.of("COMBAT_DELTA", "ACTION_PERFORMED", "COMBAT_DELTA"),
+                events.stream().map(EncounterWebSocketService.WebSocketMessage::getType).toList());
+        assertTrue(batch.getSkippedSequences().isEmpty());
+    }
+
+    @Test
+    void aRetiredBatchRejectsNewEvents() {
+        batch.retire();
+
+        assertFalse(batch.add(message("ACTION_PERFORMED", null)));
+    }
+
+    private static EncounterWebSocketService.WebSocketMessage delta(long sequence, CombatDeltaDTO.Type type,
+                                                                    Long characterId, Integer hitPoints, Integer index) {
+        return message("COMBAT_DELTA", CombatDeltaDTO.builder()
+                .sequence(sequence)
+                .encounterId(1L)
+                .type(type)
+                .characterId(characterId)
+                .hitPoints(hitPoints)
+                .index(index)
+                .build());
+    }
+
+    private static EncounterWebSocketService.WebSocketMessage message(String type, Object data) {
+        return EncounterWebSocketService.WebSocketMessage.builder()
+                .type(type)
+                .encounterId(1L)
+                .data(data)
+                .build();
+    }
+
+    private static List<Long> sequences(List<EncounterWebSocketService.WebSocketMessage> events) {
+        return events.stream()
+                .map(event -> ((CombatDeltaDTO) event.getData()).getSequence())
+                .toList();
+    }
+}
@@ -0,0 +1,52 @@
+package kal.com.rolegames.websockets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncounterEventLogTest {
+
+    private final EncounterEventLog<TextMessage> log = new EncounterEventLog<>(4);
+
+    @Test
+    void returnsOnlyTheEventsAfterTheLastSeenOne() {
+        publish(3);
+
+        assertEquals(List.of("2", "3"), payloads(log.since(1)));
+        assertEquals(List.of(), payloads(log.since(3)));
+    }
+
+    @Test
+    void keepsOnlyTheLastEventsOnceTheBufferWraps() {
+        publish(10);
+
+        assertEquals(List.of("7", "8", "9", "10"), payloads(log.since(6)));
+        assertNull(log.since(5), "el 6 ya salió del búfer");
+    }
+
+    @Test
+    void aSequenceAheadOfTheLogNeedsTheFullState() {
+        publish(2);
+
+        assertNull(log.since(7));
+    }
+
+    @Test
+    void sequencesMustBeAppendedInOrder() {
+        assertThrows(IllegalStateException.class, () -> log.append(2, new TextMessage("2")));
+    }
+
+    private void publish(int count) {
+        for (int i = 0; i < count; i++) {
+            long sequence = log.nextSequence();
+            log.append(sequence, new TextMessage(String.valueOf(sequence)));
+        }
+    }
+
+    private static List<String> payloads(List<TextMessage> frames) {
+        return frames.stream().map(TextMessage::getPayload).toList();
+    }
+}
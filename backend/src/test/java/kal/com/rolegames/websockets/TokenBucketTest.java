@@ -0,0 +1,72 @@
+package kal.com.rolegames.websockets;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void aFullBucketAllowsItsBurstAndThenRefills() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(2, 5, now);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(now));
+        }
+        long wait = bucket.tryAcquire(now);
+        assertEquals(SECOND / 2, wait);
+
+        assertEquals(0, bucket.tryAcquire(now + wait));
+        assertTrue(bucket.tryAcquire(now + wait) > 0);
+        assertFalse(bucket.isFull(now + wait));
+        assertTrue(bucket.isFull(now + 10 * SECOND));
+    }
+
+    @Test
+    void idleTimeDoesNotAccumulateBeyondTheBurst() {
+        TokenBucket bucket = new TokenBucket(1, 3, 0);
+
+        long later = 60 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire(later));
+        }
+        assertTrue(bucket.tryAcquire(later) > 0);
+    }
+
+    @Test
+    void concurrentCallersNeverGetMoreThanTheBurst() throws InterruptedException {
+        long now = System.nanoTime();
+        TokenBucket bucket = new TokenBucket(0.001, 100, now);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1_000; i++) {
+                    if (bucket.tryAcquire(now) == 0) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(100, granted.get());
+    }
+}
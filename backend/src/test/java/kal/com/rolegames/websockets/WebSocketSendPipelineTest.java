@@ -0,0 +1,120 @@
+package kal.com.rolegames.websockets;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WebSocketSendPipelineTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch firstSendStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseSends = new CountDownLatch(1);
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+
+    private WebSocketSendPipeline pipeline;
+
+    @AfterEach
+    void tearDown() {
+        releaseSends.countDown();
+        pipeline.shutdown();
+    }
+
+    @Test
+    void aSlowClientDoesNotBlockThePublisher() throws Exception {
+        pipeline = new WebSocketSendPipeline(meterRegistry, 4, OverflowPolicy.DROP_OLDEST, 2);
+        WebSocketSession slow = stalledSession("slow");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            pipeline.send(slow, new TextMessage("m" + i));
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 1_000, "publicar tardó " + elapsedMillis + " ms");
+        assertTrue(pipeline.getQueueDepth("slow") <= 4);
+    }
+
+    @Test
+    void dropOldestKeepsTheNewestMessages() throws Exception {
+        pipeline = new WebSocketSendPipeline(meterRegistry, 2, OverflowPolicy.DROP_OLDEST, 1);
+        WebSocketSession session = stalledSession("s1");
+
+        pipeline.send(session, new TextMessage("first"));
+        assertTrue(firstSendStarted.await(5, TimeUnit.SECONDS));
+        for (String payload : List.of("a", "b", "c", "d")) {
+            pipeline.send(session, new TextMessage(payload));
+        }
+        releaseSends.countDown();
+
+        awaitDelivered(3);
+        assertEquals(List.of("first", "c", "d"), delivered);
+        assertEquals(2.0, meterRegistry.get("rolegames.websocket.outbound.dropped")
+                .tag("reason", "overflow").counter().count());
+    }
+
+    @Test
+    void coalescingKeepsOnlyTheLatestMessageOfAKey() throws Exception {
+        pipeline = new WebSocketSendPipeline(meterRegistry, 8, OverflowPolicy.COALESCE, 1);
+        WebSocketSession session = stalledSession("s1");
+
+        pipeline.send(session, new TextMessage("first"));
+        assertTrue(firstSendStarted.await(5, TimeUnit.SECONDS));
+        pipeline.send(session, new TextMessage("count=1"), "UNREAD_COUNT_UPDATE");
+        pipeline.send(session, new TextMessage("hello"));
+        pipeline.send(session, new TextMessage("count=2"), "UNREAD_COUNT_UPDATE");
+        releaseSends.countDown();
+
+        awaitDelivered(3);
+        assertEquals(List.of("first", "hello", "count=2"), delivered);
+    }
+
+    @Test
+    void disconnectClosesAClientThatFallsBehind() throws Exception {
+        pipeline = new WebSocketSendPipeline(meterRegistry, 2, OverflowPolicy.DISCONNECT, 1);
+        WebSocketSession session = stalledSession("s1");
+
+        pipeline.send(session, new TextMessage("first"));
+        assertTrue(firstSendStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            pipeline.send(session, new TextMessage("m" + i));
+        }
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, pipeline.getQueueDepth("s1"));
+    }
+
+    private WebSocketSession stalledSession(String id) throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            firstSendStarted.countDown();
+            releaseSends.await(10, TimeUnit.SECONDS);
+            WebSocketMessage<?> message = invocation.getArgument(0);
+            delivered.add((String) message.getPayload());
+            return null;
+        }).when(session).sendMessage(any());
+        pipeline.register(session);
+        return session;
+    }
+
+    private void awaitDelivered(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (delivered.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package kal.com.rolegames.websockets.bus;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kal.com.rolegames.websockets.EncounterWebSocketService.WebSocketMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TcpBroadcastBusTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<Object> receivedByA = new CopyOnWriteArrayList<>();
+    private final List<Object> receivedByB = new CopyOnWriteArrayList<>();
+
+    private TcpBroadcastBus nodeA;
+    private TcpBroadcastBus nodeB;
+
+    @AfterEach
+    void tearDown() {
+        if (nodeA != null) {
+            nodeA.stop();
+        }
+        if (nodeB != null) {
+            nodeB.stop();
+        }
+    }
+
+    @Test
+    void aMessageReachesOnlyTheNodesSubscribedToItsTopic() throws Exception {
+        startNodes();
+        nodeB.subscribe(BroadcastTopic.encounter(5L));
+        publishUntilReceived(BroadcastTopic.encounter(5L), receivedByB);
+
+        nodeA.publish(BroadcastTopic.encounter(6L), Map.of("type", "OTRO"));
+        nodeA.publish(BroadcastTopic.encounter(5L), Map.of("type", "ULTIMO"));
+        waitFor(() -> receivedByB.contains(Map.of("type", "ULTIMO")));
+
+        assertFalse(receivedByB.contains(Map.of("type", "OTRO")), "B no tiene sesiones del encuentro 6");
+        // el nodo que publica también entrega a sus propias sesiones
+        assertTrue(receivedByA.contains(Map.of("type", "OTRO")));
+    }
+
+    @Test
+    void aNodeStopsReceivingAfterUnsubscribing() throws Exception {
+        startNodes();
+        nodeB.subscribe(BroadcastTopic.user(3L));
+        publishUntilReceived(BroadcastTopic.user(3L), receivedByB);
+
+        nodeB.unsubscribe(BroadcastTopic.user(3L));
+        // la baja viaja por la misma conexión que la suscripción: se espera a que A deje de enviar
+        waitFor(() -> {
+            int before = receivedByB.size();
+            nodeA.publish(BroadcastTopic.user(3L), Map.of("type", "PRUEBA"));
+            sleep(50);
+            return receivedByB.size() == before;
+        });
+        int received = receivedByB.size();
+
+        nodeA.publish(BroadcastTopic.user(3L), Map.of("type", "TARDE"));
+        sleep(200);
+
+        assertEquals(received, receivedByB.size());
+    }
+
+    @Test
+    void allUsersGoesToNodesWithAnyConnectedUser() throws Exception {
+        startNodes();
+        nodeB.subscribe(BroadcastTopic.user(9L));
+        publishUntilReceived(BroadcastTopic.user(9L), receivedByB);
+
+        nodeA.publish(BroadcastTopic.allUsers(), Map.of("type", "SYSTEM_NOTIFICATION"));
+
+        waitFor(() -> receivedByB.contains(Map.of("type", "SYSTEM_NOTIFICATION")));
+    }
+
+    @Test
+    void aRemoteNodeReceivesTheSameMessageClassAsTheLocalOne() throws Exception {
+        startNodes();
+        nodeB.subscribe(BroadcastTopic.encounter(5L));
+        publishUntilReceived(BroadcastTopic.encounter(5L), receivedByB);
+
+        WebSocketMessage message = WebSocketMessage.builder()
+                .type("COMBAT_DELTA")
+                .encounterId(5L)
+                .timestamp(LocalDateTime.of(2026, 1, 1, 12, 0))
+                .data(Map.of("type", "HP_CHANGED", "hitPoints", 7))
+                .build();
+        nodeA.publish(BroadcastTopic.encounter(5L), message);
+
+        waitFor(() -> receivedByB.contains(message));
+        assertTrue(receivedByA.contains(message));
+    }
+
+    private void startNodes() throws IOException {
+        int portA = freePort();
+        int portB = freePort();
+        nodeA = new TcpBroadcastBus(objectMapper, portA, List.of("localhost:" + portB), 100, 50);
+        nodeB = new TcpBroadcastBus(objectMapper, portB, List.of("localhost:" + portA), 100, 50);
+        for (BroadcastTopic.Kind kind : BroadcastTopic.Kind.values()) {
+            nodeA.register(kind, (topic, message) -> receivedByA.add(message));
+            nodeB.register(kind, (topic, message) -> receivedByB.add(message));
+        }
+        nodeA.start();
+        nodeB.start();
+    }
+
+    // la suscripción llega a A en cuanto se conectan los nodos; hasta entonces se reintenta
+    private void publishUntilReceived(BroadcastTopic topic, List<Object> received) {
+        waitFor(() -> {
+            nodeA.publish(topic, Map.of("type", "HOLA"));
+            sleep(50);
+            return received.contains(Map.of("type", "HOLA"));
+        });
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("No se cumplió la condición a tiempo");
+            }
+            sleep(20);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package kal.com.rolegames.websockets.presence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdleSessionWheelTest {
+
+    private static final long TICK = 1_000;
+    private static final long TIMEOUT = 3_000;
+
+    @Test
+    void anIdleEntryExpiresAndOneThatHeartbeatsIsSpared() {
+        IdleSessionWheel<String> wheel = new IdleSessionWheel<>(TICK, TIMEOUT, 0);
+        wheel.add("idle", 0);
+        IdleSessionWheel.Entry<String> active = wheel.add("active", 0);
+
+        assertEquals(List.of(), wheel.advance(2_000));
+        wheel.touch(active, 2_000);
+
+        assertEquals(List.of("idle"), wheel.advance(3_000));
+        // el latido corrió su vencimiento hasta 2 s + 3 s
+        assertEquals(List.of(), wheel.advance(4_000));
+        assertEquals(List.of("active"), wheel.advance(5_000));
+    }
+
+    @Test
+    void anEntryThatKeepsHeartbeatingNeverExpires() {
+        IdleSessionWheel<String> wheel = new IdleSessionWheel<>(TICK, TIMEOUT, 0);
+        IdleSessionWheel.Entry<String> entry = wheel.add("session", 0);
+
+        // varias vueltas completas de la rueda
+        for (long now = TICK; now <= 20 * TICK; now += TICK) {
+            wheel.touch(entry, now);
+            assertEquals(List.of(), wheel.advance(now));
+        }
+    }
+
+    @Test
+    void aCancelledEntryIsNotReported() {
+        IdleSessionWheel<String> wheel = new IdleSessionWheel<>(TICK, TIMEOUT, 0);
+        IdleSessionWheel.Entry<String> entry = wheel.add("closed", 0);
+
+        wheel.cancel(entry);
+
+        assertEquals(List.of(), wheel.advance(10_000));
+    }
+
+    @Test
+    void aLateAdvanceReportsEverythingThatExpiredMeanwhile() {
+        IdleSessionWheel<String> wheel = new IdleSessionWheel<>(TICK, TIMEOUT, 0);
+        wheel.add("first", 0);
+        wheel.add("second", 1_000);
+
+        assertEquals(List.of("first", "second"), wheel.advance(60_000));
+    }
+
+    @Test
+    void theTimeoutMustCoverAtLeastOneTick() {
+        assertThrows(IllegalArgumentException.class, () -> new IdleSessionWheel<String>(TICK, TICK - 1, 0));
+    }
+}
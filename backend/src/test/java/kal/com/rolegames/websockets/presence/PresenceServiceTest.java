@@ -0,0 +1,118 @@
+package kal.com.rolegames.websockets.presence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kal.com.rolegames.websockets.EncounterWebSocketService;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PresenceServiceTest {
+
+    private static final Long ENCOUNTER = 1L;
+
+    private final EncounterWebSocketService encounterWebSocketService = mock(EncounterWebSocketService.class);
+    private final PresenceService presence =
+            new PresenceService(encounterWebSocketService, new SimpleMeterRegistry(), 1_000, 90_000);
+
+    @Test
+    void severalTabsOfTheSameUserCountAsOneUserAtTheTable() {
+        WebSocketSession firstTab = session("a");
+        WebSocketSession secondTab = session("b");
+        WebSocketSession otherUser = session("c");
+
+        presence.joinEncounter(firstTab, ENCOUNTER, 7L);
+        presence.joinEncounter(secondTab, ENCOUNTER, 7L);
+        presence.joinEncounter(otherUser, ENCOUNTER, 8L);
+
+        assertEquals(3, presence.getEncounterSessionCount(ENCOUNTER));
+        assertEquals(3, presence.getTotalEncounterSessions());
+        assertEquals(Set.of(7L, 8L), presence.getUsersAt(ENCOUNTER));
+
+        presence.leaveEncounter(firstTab);
+        assertEquals(2, presence.getEncounterSessionCount(ENCOUNTER));
+        assertEquals(Set.of(7L, 8L), presence.getUsersAt(ENCOUNTER));
+
+        presence.leaveEncounter(secondTab);
+        presence.leaveEncounter(otherUser);
+        assertEquals(0, presence.getEncounterSessionCount(ENCOUNTER));
+        assertEquals(0, presence.getTotalEncounterSessions());
+        assertEquals(Set.of(), presence.getUsersAt(ENCOUNTER));
+    }
+
+    @Test
+    void joinedAndLeftAreAnnouncedOnlyForTheFirstAndLastSession() {
+        WebSocketSession firstTab = session("a");
+        WebSocketSession secondTab = session("b");
+        Map<String, Object> payload = Map.of("userId", 7L, "encounterId", ENCOUNTER);
+
+        presence.joinEncounter(firstTab, ENCOUNTER, 7L);
+        presence.joinEncounter(secondTab, ENCOUNTER, 7L);
+        verify(encounterWebSocketService, times(1)).notifyEncounterUpdate(ENCOUNTER, "USER_JOINED", payload);
+
+        presence.leaveEncounter(firstTab);
+        verify(encounterWebSocketService, never()).notifyEncounterUpdate(ENCOUNTER, "USER_LEFT", payload);
+
+        presence.leaveEncounter(secondTab);
+        verify(encounterWebSocketService, times(1)).notifyEncounterUpdate(ENCOUNTER, "USER_LEFT", payload);
+    }
+
+    @Test
+    void aSessionWithoutUserCountsButIsNotAnnounced() {
+        WebSocketSession anonymous = session("a");
+
+        presence.joinEncounter(anonymous, ENCOUNTER, null);
+        presence.leaveEncounter(anonymous);
+
+        verify(encounterWebSocketService, never()).notifyEncounterUpdate(anyLong(), anyString(), any());
+        assertEquals(0, presence.getEncounterSessionCount(ENCOUNTER));
+    }
+
+    @Test
+    void joiningOrLeavingTwiceDoesNotSkewTheCounts() {
+        WebSocketSession tab = session("a");
+
+        presence.joinEncounter(tab, ENCOUNTER, 7L);
+        presence.joinEncounter(tab, ENCOUNTER, 7L);
+        assertEquals(1, presence.getEncounterSessionCount(ENCOUNTER));
+
+        presence.leaveEncounter(tab);
+        presence.leaveEncounter(tab);
+        assertEquals(0, presence.getTotalEncounterSessions());
+    }
+
+    @Test
+    void aUserStaysConnectedUntilTheLastNotificationTabCloses() {
+        WebSocketSession firstTab = session("a");
+        WebSocketSession secondTab = session("b");
+
+        presence.connectUser(firstTab, 7L);
+        presence.connectUser(secondTab, 7L);
+        assertEquals(1, presence.getConnectedUserCount());
+        assertEquals(2, presence.getTotalNotificationSessions());
+
+        presence.disconnectUser(firstTab);
+        assertTrue(presence.isUserConnected(7L));
+        assertEquals(1, presence.getConnectedUserCount());
+
+        presence.disconnectUser(secondTab);
+        assertFalse(presence.isUserConnected(7L));
+        assertEquals(0, presence.getConnectedUserCount());
+        assertEquals(0, presence.getTotalNotificationSessions());
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.getAttributes()).thenReturn(new ConcurrentHashMap<>());
+        return session;
+    }
+}
@@ -20,7 +20,9 @@ export default function NotificationBell() {
     markAsRead,
     markAllAsRead,
     deleteNotification,
-    hasUnreadNotifications
+    hasUnreadNotifications,
+    loadMoreNotifications,
+    hasMoreNotifications
   } = useNotifications();
 
   // Cerrar al hacer click fuera
@@ -198,8 +200,8 @@ export default function NotificationBell() {
                         </div>
                       </div>
                       
-                      {/* Información adicional para invitaciones */}
-                      {notification.type === 'CAMPAIGN_INVITATION' && notification.actionData && (
+                      {/* Información adicional para invitaciones (actionData llega al abrirla) */}
+                      {notification.type === 'CAMPAIGN_INVITATION' && (
                         <div className="mt-2 p-2 bg-blue-100 rounded text-xs">
                           <p>👥 Invitación de campaña</p>
                           <p>Haz clic para ver detalles</p>
@@ -219,6 +221,16 @@ export default function NotificationBell() {
                 </div>
               ))
             )}
+
+            {hasMoreNotifications && (
+              <button
+                onClick={loadMoreNotifications}
+                disabled={loading}
+                className="w-full py-2 text-xs text-blue-600 hover:text-blue-800 disabled:text-gray-400"
+              >
+                {loading ? 'Cargando...' : 'Cargar más'}
+              </button>
+            )}
           </div>
 
           {/* Footer */}
@@ -192,6 +192,8 @@ const [showCharacterModal, setShowCharacterModal] = useState(false);
 
 
   const boardRef = useRef(null);
+  // última posición del arrastre: el servidor valida el movimiento, así que se manda solo al soltar
+  const dropPositionRef = useRef(null);
 
   // ========================================
   // ACCESS CONTROL
@@ -361,11 +363,11 @@ if (currentRole === 'PLAYER' && user?.userId) {
     setShowActionMenu(false);
   };
 
+  // el servidor tira los dados y anuncia el resultado (DICE_ROLLED)
   const handleDiceRoll = (rollData) => {
     rollDice({
-      type: rollData.type || 'd20',
-      result: rollData.total,
-      timestamp: rollData.timestamp
+      expression: rollData.expression || `1${rollData.type || 'd20'}`,
+      label: rollData.label
     });
   };
 
@@ -419,11 +421,14 @@ if (currentRole === 'PLAYER' && user?.userId) {
     const clampedX = Math.max(8, Math.min(92, newX));
     const clampedY = Math.max(8, Math.min(92, newY));
     
-    // Actualizar posición localmente y via WebSocket
-    updatePlayerPosition(draggedPlayer, { x: clampedX, y: clampedY });
+    dropPositionRef.current = { x: clampedX, y: clampedY };
   };
 
   const handleMouseUp = () => {
+    if (draggedPlayer !== null && dropPositionRef.current) {
+      updatePlayerPosition(draggedPlayer, dropPositionRef.current);
+    }
+    dropPositionRef.current = null;
     setDraggedPlayer(null);
     setDragOffset({ x: 0, y: 0 });
   };
@@ -1,6 +1,8 @@
 import { useState, useEffect, useCallback, useRef } from 'react';
 import api from "../../api/axiosConfig";
 import { toast } from 'react-toastify';
+import webSocketService from '../../services/WebSocketService';
+import { applyCombatDeltaBatch } from '../../services/combatDeltas';
 
 export default function useSessionRoom(sessionId) {
   // Core session data
@@ -17,9 +19,9 @@ export default function useSessionRoom(sessionId) {
   const [error, setError] = useState('');
   const [actionLoading, setActionLoading] = useState(false);
   
-  // Polling for updates (simplificado sin WebSocket polling constante)
-  const pollIntervalRef = useRef(null);
-  const [isPolling, setIsPolling] = useState(false);
+  // Último estado de combate conocido, para aplicar los COMBAT_DELTA sin esperar al render
+  const combatStateRef = useRef(null);
+  const resyncingRef = useRef(false);
 
   // ========================================
   // FETCH SESSION DATA
@@ -36,10 +38,11 @@ export default function useSessionRoom(sessionId) {
       setSession(sessionResponse.data);
 
       // Fetch current encounter for this session (if any)
+      let activeEncounter = null;
       try {
         const encountersResponse = await api.get(`/api/encounters/session/${sessionId}`);
         const encounters = encountersResponse.data || [];
-        const activeEncounter = encounters.find(enc => !enc.isCompleted);
+        activeEncounter = encounters.find(enc => !enc.isCompleted) || null;
         
         if (activeEncounter) {
           setEncounter(activeEncounter);
@@ -56,11 +59,15 @@ export default function useSessionRoom(sessionId) {
       }
 
       // Fetch combat state if there's an active encounter
-      try {
-        const combatResponse = await api.get('/api/combat/current');
-        setCombatState(combatResponse.data);
-      } catch (combatErr) {
-        // No active combat
+      if (activeEncounter) {
+        try {
+          const combatResponse = await api.get(`/api/encounters/${activeEncounter.encounterId}/combat`);
+          setCombatState(combatResponse.data);
+        } catch (combatErr) {
+          // No active combat
+          setCombatState(null);
+        }
+      } else {
         setCombatState(null);
       }
 
@@ -72,6 +79,30 @@ export default function useSessionRoom(sessionId) {
     }
   }, [sessionId]);
 
+  // Pide el estado completo del combate; se usa al arrancar y cuando falta algún COMBAT_DELTA
+  const resyncCombatState = useCallback(async (encounterId) => {
+    if (!encounterId || resyncingRef.current) return;
+
+    resyncingRef.current = true;
+    try {
+      const combatResponse = await api.get(`/api/encounters/${encounterId}/combat`);
+      combatStateRef.current = combatResponse.data;
+      setCombatState(combatResponse.data);
+    } catch (combatErr) {
+      combatStateRef.current = null;
+      setCombatState(null);
+    } finally {
+      resyncingRef.current = false;
+    }
+  }, []);
+
+  // Si el socket está conectado los cambios llegan como COMBAT_DELTA; si no, se pide el estado
+  const refreshCombatIfDisconnected = async () => {
+    if (!webSocketService.isConnectedToEncounter()) {
+      await resyncCombatState(encounter?.encounterId);
+    }
+  };
+
   // ========================================
   // SESSION ACTIONS
   // ========================================
@@ -198,12 +229,7 @@ export default function useSessionRoom(sessionId) {
       setEncounter(response.data);
       
       // Fetch the created combat state
-      try {
-        const combatResponse = await api.get('/api/combat/current');
-        setCombatState(combatResponse.data);
-      } catch (combatErr) {
-        console.warn('Could not fetch combat state after starting combat');
-      }
+      await resyncCombatState(encounter.encounterId);
       
       toast.success('Combate iniciado');
       return response.data;
@@ -228,13 +254,8 @@ export default function useSessionRoom(sessionId) {
       
       setEncounter(response.data);
       
-      // Update combat state
-      try {
-        const combatResponse = await api.get('/api/combat/current');
-        setCombatState(combatResponse.data);
-      } catch (combatErr) {
-        console.warn('Could not fetch updated combat state');
-      }
+      // El turno nuevo llega por WebSocket (COMBAT_DELTA)
+      await refreshCombatIfDisconnected();
       
       toast.success('Turno avanzado');
       return response.data;
@@ -258,6 +279,7 @@ export default function useSessionRoom(sessionId) {
       const response = await api.post(`/api/encounters/${encounter.encounterId}/end-combat`);
       
       setEncounter(response.data);
+      combatStateRef.current = null;
       setCombatState(null);
       
       toast.success('Combate finalizado');
@@ -284,13 +306,8 @@ export default function useSessionRoom(sessionId) {
       setActionLoading(true);
       const response = await api.post(`/api/encounters/${encounter.encounterId}/perform-action`, actionData);
       
-      // Refresh combat state after action
-      try {
-        const combatResponse = await api.get('/api/combat/current');
-        setCombatState(combatResponse.data);
-      } catch (combatErr) {
-        console.warn('Could not fetch updated combat state after action');
-      }
+      // Las acciones gastadas y los PV llegan por WebSocket (COMBAT_DELTA)
+      await refreshCombatIfDisconnected();
       
       toast.success('Acción realizada exitosamente');
       return response.data;
@@ -346,8 +363,8 @@ export default function useSessionRoom(sessionId) {
   };
 
   const getCurrentTurnPlayer = () => {
-    if (!combatState?.initiativeOrder) return null;
-    return combatState.initiativeOrder.find(init => init.currentTurn);
+    if (!combatState?.initiativeOrder || combatState.currentTurnIndex == null) return null;
+    return combatState.initiativeOrder[combatState.currentTurnIndex] || null;
   };
 
   const isPlayerTurn = (playerId) => {
@@ -382,17 +399,51 @@ export default function useSessionRoom(sessionId) {
     fetchSessionData();
   }, [fetchSessionData]);
 
-  // Periodic refresh for real-time updates (más conservador que antes)
   useEffect(() => {
-    if (encounter && combatState?.isActive) {
-      const interval = setInterval(() => {
-        // Solo actualizar combat state si hay combate activo
-        fetchSessionData();
-      }, 5000); // Cada 5 segundos
+    combatStateRef.current = combatState;
+  }, [combatState]);
 
-      return () => clearInterval(interval);
-    }
-  }, [encounter, combatState?.isActive, fetchSessionData]);
+  // Cambios del combate por WebSocket en lugar de volver a pedir la sesión cada pocos segundos
+  const encounterId = encounter?.encounterId;
+  useEffect(() => {
+    if (!encounterId) return;
+
+    const handleCombatDeltaBatch = (batch) => {
+      const next = applyCombatDeltaBatch(combatStateRef.current, batch);
+      if (next === null) {
+        // falta un cambio anterior (o no hay estado todavía): se pide el estado completo
+        resyncCombatState(encounterId);
+        return;
+      }
+      combatStateRef.current = next;
+      setCombatState(next);
+    };
+
+    const handleCombatStarted = (combatData) => {
+      combatStateRef.current = combatData;
+      setCombatState(combatData);
+    };
+
+    const handleCombatEnded = () => {
+      combatStateRef.current = null;
+      setCombatState(null);
+    };
+
+    // al conectar, o si al reconectar el servidor ya no tenía los cambios perdidos
+    const handleResyncRequired = () => resyncCombatState(encounterId);
+
+    webSocketService.on('combat_delta_batch', handleCombatDeltaBatch);
+    webSocketService.on('combat_started', handleCombatStarted);
+    webSocketService.on('combat_ended', handleCombatEnded);
+    webSocketService.on('resync_required', handleResyncRequired);
+
+    return () => {
+      webSocketService.off('combat_delta_batch', handleCombatDeltaBatch);
+      webSocketService.off('combat_started', handleCombatStarted);
+      webSocketService.off('combat_ended', handleCombatEnded);
+      webSocketService.off('resync_required', handleResyncRequired);
+    };
+  }, [encounterId, resyncCombatState]);
 
   // ========================================
   // RETURN HOOK API
@@ -152,6 +152,11 @@ class NotificationWebSocketService {
       case 'NEW_NOTIFICATION':
         this.emit('new_notification', message.notification);
         break;
+
+      case 'NEW_NOTIFICATIONS':
+        // varias para este usuario juntas en un solo mensaje
+        message.notifications.forEach(notification => this.emit('new_notification', notification));
+        break;
         
       case 'UNREAD_COUNT_UPDATE':
         this.emit('unread_count_update', message.unreadCount);
@@ -243,6 +248,16 @@ function formatTimeAgo(dateString) {
   return notificationDate.toLocaleDateString();
 }
 
+const INBOX_PAGE_SIZE = 20;
+
+function withTimeAgo(notifications) {
+  return notifications.map(notification => ({
+    ...notification,
+    timeAgo: formatTimeAgo(notification.createdAt),
+    isExpired: notification.expiresAt && new Date(notification.expiresAt) < new Date()
+  }));
+}
+
 export function useNotifications() {
   const user = useUserStore(state => state.user);
   const [notifications, setNotifications] = useState([]);
@@ -250,6 +265,8 @@ export function useNotifications() {
   const [isConnected, setIsConnected] = useState(false);
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState(null);
+  // cursor de la siguiente página de la bandeja (null si no hay más)
+  const [nextCursor, setNextCursor] = useState(null);
 
   // ========================================
   // tomar las notificaiones d la api
@@ -261,18 +278,13 @@ export function useNotifications() {
       setLoading(true);
       setError(null);
 
-      const [notificationsResponse, unreadCountResponse] = await Promise.all([
-        api.get('/api/notifications'),
+      const [inboxResponse, unreadCountResponse] = await Promise.all([
+        api.get('/api/notifications/inbox', { params: { size: INBOX_PAGE_SIZE } }),
         api.get('/api/notifications/unread-count')
       ]);
 
-      const notificationsWithTimeAgo = notificationsResponse.data.map(notification => ({
-        ...notification,
-        timeAgo: formatTimeAgo(notification.createdAt),
-        isExpired: notification.expiresAt && new Date(notification.expiresAt) < new Date()
-      }));
-
-      setNotifications(notificationsWithTimeAgo);
+      setNotifications(withTimeAgo(inboxResponse.data.items));
+      setNextCursor(inboxResponse.data.nextCursor);
       setUnreadCount(unreadCountResponse.data.count || 0);
     } catch (err) {
       console.error('Error fetching notifications:', err);
@@ -283,6 +295,30 @@ export function useNotifications() {
     }
   }, [user?.userId]);
 
+  // siguiente página de la bandeja; las que llegaron por WebSocket mientras tanto no se repiten
+  const loadMoreNotifications = useCallback(async () => {
+    if (!user?.userId || !nextCursor) return;
+
+    try {
+      setLoading(true);
+      const response = await api.get('/api/notifications/inbox', {
+        params: { cursor: nextCursor, size: INBOX_PAGE_SIZE }
+      });
+
+      const page = withTimeAgo(response.data.items);
+      setNotifications(prev => {
+        const known = new Set(prev.map(n => n.notificationId));
+        return [...prev, ...page.filter(n => !known.has(n.notificationId))];
+      });
+      setNextCursor(response.data.nextCursor);
+    } catch (err) {
+      console.error('Error loading more notifications:', err);
+      toast.error('Error al cargar notificaciones');
+    } finally {
+      setLoading(false);
+    }
+  }, [user?.userId, nextCursor]);
+
   // ========================================
   // WEBSOCKET 
   // ========================================
@@ -313,8 +349,11 @@ export function useNotifications() {
         isExpired: notification.expiresAt && new Date(notification.expiresAt) < new Date()
       };
 
-      setNotifications(prev => [notificationWithTimeAgo, ...prev]);
-      setUnreadCount(prev => prev + 1);
+      // el servidor puede repetir un envío (entrega al menos una vez); el conteo llega aparte
+      // con UNREAD_COUNT_UPDATE
+      setNotifications(prev => prev.some(n => n.notificationId === notification.notificationId)
+        ? prev
+        : [notificationWithTimeAgo, ...prev]);
       
       toast.info(`📬 ${notification.title}`, {
         position: "top-right",
@@ -511,6 +550,8 @@ export function useNotifications() {
     sendCampaignInvitation,
     sendSessionReminder,
     refreshNotifications,
+    loadMoreNotifications,
+    hasMoreNotifications: nextCursor !== null,
     
     // utilidades
     hasUnreadNotifications,
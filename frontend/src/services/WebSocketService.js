@@ -1,4 +1,10 @@
 import { useState, useEffect, useCallback } from 'react';
+import {
+  BINARY_SUBPROTOCOL,
+  JSON_SUBPROTOCOL,
+  decodeEncounterMessage,
+  encodeEncounterMessage,
+} from './encounterProtocol';
 
 class WebSocketService {
   constructor() {
@@ -11,6 +17,11 @@ class WebSocketService {
     this.reconnectAttempts = 0;
     this.maxReconnectAttempts = 5;
     this.reconnectDelay = 1000;
+    // posición en el canal del encuentro, para reanudar sin pedir el estado completo
+    this.streamId = null;
+    this.lastSequence = null;
+    // el servidor cierra las sesiones que pasan rolegames.presence.idle-timeout-ms sin mandar nada
+    this.heartbeatInterval = null;
   }
 
   // ========================================
@@ -18,29 +29,42 @@ class WebSocketService {
   // ========================================
   connect(sessionId, userId, encounterId) {
     return new Promise((resolve, reject) => {
+      if (this.encounterId !== encounterId) {
+        this.streamId = null;
+        this.lastSequence = null;
+      }
       this.sessionId = sessionId;
       this.userId = userId;
       this.encounterId = encounterId;
       
       try {
-        // Construir URL del WebSocket
-        const wsUrl = `${process.env.NODE_ENV === 'production' ? 'wss:' : 'ws:'}//${window.location.host}/ws/encounters/${encounterId}`;
+        // Construir URL del WebSocket; al reconectar se manda el último mensaje recibido
+        // para que el servidor reenvíe solo los que faltan
+        // el token autentica el handshake: de ahí saca el servidor el usuario (presencia y
+        // límite de tiradas por usuario)
+        const params = new URLSearchParams();
+        const token = localStorage.getItem('token');
+        if (token) params.set('token', token);
+        if (this.streamId && this.lastSequence != null) {
+          params.set('streamId', this.streamId);
+          params.set('lastSequence', this.lastSequence);
+        }
+        const query = params.toString() ? `?${params}` : '';
+        const wsUrl = `${process.env.NODE_ENV === 'production' ? 'wss:' : 'ws:'}//${window.location.host}/ws/encounters/${encounterId}${query}`;
         
         console.log(`🔌 WebSocket: Conectando a ${wsUrl}`);
         
-        this.ws = new WebSocket(wsUrl);
+        // se ofrece el protocolo binario; si el servidor no lo acepta se sigue con JSON
+        this.ws = new WebSocket(wsUrl, [BINARY_SUBPROTOCOL, JSON_SUBPROTOCOL]);
+        this.ws.binaryType = 'arraybuffer';
         
         this.ws.onopen = () => {
           this.isConnected = true;
           this.reconnectAttempts = 0;
           console.log(`✅ WebSocket: Conectado al encounter ${encounterId}`);
           
-          // Registrar usuario
-          this.send('USER_JOINED', {
-            userId: this.userId,
-            sessionId: this.sessionId,
-            timestamp: new Date().toISOString()
-          });
+          // el usuario ya va en la URL: el servidor anuncia USER_JOINED por su cuenta
+          this.startHeartbeat();
           
           this.emit('connected', { sessionId, userId, encounterId });
           resolve();
@@ -48,7 +72,9 @@ class WebSocketService {
 
         this.ws.onmessage = (event) => {
           try {
-            const message = JSON.parse(event.data);
+            const message = typeof event.data === 'string'
+              ? JSON.parse(event.data)
+              : decodeEncounterMessage(event.data);
             this.handleMessage(message);
           } catch (error) {
             console.error('Error parsing WebSocket message:', error);
@@ -57,6 +83,7 @@ class WebSocketService {
 
         this.ws.onclose = (event) => {
           this.isConnected = false;
+          this.stopHeartbeat();
           console.log('🔌 WebSocket: Conexión cerrada', event.code, event.reason);
           
           if (event.code !== 1000 && this.reconnectAttempts < this.maxReconnectAttempts) {
@@ -80,6 +107,7 @@ class WebSocketService {
   }
 
   disconnect() {
+    this.stopHeartbeat();
     if (this.ws) {
       this.ws.close(1000, 'User disconnected');
       this.ws = null;
@@ -89,6 +117,8 @@ class WebSocketService {
     this.sessionId = null;
     this.userId = null;
     this.encounterId = null;
+    this.streamId = null;
+    this.lastSequence = null;
     this.listeners.clear();
     
     console.log('🔌 WebSocket: Desconectado');
@@ -112,6 +142,22 @@ class WebSocketService {
     }, delay);
   }
 
+  startHeartbeat() {
+    this.stopHeartbeat();
+    this.heartbeatInterval = setInterval(() => {
+      if (this.isConnected) {
+        this.send('PING', {});
+      }
+    }, 30000); // Ping cada 30 segundos
+  }
+
+  stopHeartbeat() {
+    if (this.heartbeatInterval) {
+      clearInterval(this.heartbeatInterval);
+      this.heartbeatInterval = null;
+    }
+  }
+
   // ========================================
   // MESSAGE HANDLING
   // ========================================
@@ -129,7 +175,9 @@ class WebSocketService {
     };
 
     try {
-      this.ws.send(JSON.stringify(message));
+      this.ws.send(this.ws.protocol === BINARY_SUBPROTOCOL
+        ? encodeEncounterMessage(message)
+        : JSON.stringify(message));
       console.log('📤 WebSocket: Mensaje enviado', message);
       return true;
     } catch (error) {
@@ -141,7 +189,23 @@ class WebSocketService {
   handleMessage(message) {
     console.log('📥 WebSocket: Mensaje recibido', message);
     
+    if (message.sequence != null && message.type !== 'CONNECTION_ESTABLISHED') {
+      this.lastSequence = message.sequence;
+    }
+
     switch (message.type) {
+      case 'CONNECTION_ESTABLISHED':
+        this.streamId = message.streamId;
+        if (message.resumed) {
+          // a continuación llegan los mensajes perdidos
+          this.emit('resumed', message);
+        } else {
+          // primera conexión o ya no están los mensajes perdidos: hace falta el estado completo
+          this.lastSequence = message.sequence;
+          this.emit('resync_required', message);
+        }
+        break;
+
       case 'INITIAL_STATE':
         this.emit('initial_state', message.encounter);
         break;
@@ -150,8 +214,12 @@ class WebSocketService {
         this.emit('action_performed', message.data);
         break;
         
-      case 'TURN_CHANGED':
-        this.emit('turn_changed', message.data);
+      case 'COMBAT_DELTA':
+        this.emit('combat_delta_batch', { deltas: [message.data], skippedSequences: [] });
+        break;
+
+      case 'ENCOUNTER_BATCH':
+        this.handleBatch(message.data);
         break;
         
       case 'COMBAT_STARTED':
@@ -166,10 +234,6 @@ class WebSocketService {
         this.emit('participant_added', message.data);
         break;
         
-      case 'HEALTH_UPDATE':
-        this.emit('health_update', message.data);
-        break;
-        
       case 'USER_JOINED':
         this.emit('user_joined', message.data);
         break;
@@ -177,6 +241,26 @@ class WebSocketService {
       case 'USER_LEFT':
         this.emit('user_left', message.data);
         break;
+
+      case 'TOKEN_POSITIONS':
+        // fichas que se movieron desde el último tick: [{ characterId, x, y }]
+        this.emit('token_positions', message.data);
+        break;
+
+      case 'DICE_ROLLED':
+        // tirada hecha por el servidor: { expression, label, total, dice, userId }
+        this.emit('dice_rolled', message.data);
+        break;
+
+      case 'DICE_ROLL_REJECTED':
+        // expresión inválida o demasiadas tiradas seguidas (retryAfterMs)
+        this.emit('dice_roll_rejected', message.data);
+        break;
+
+      case 'MOVE_REJECTED':
+        // solo le llega a quien pidió el movimiento: { characterId, reason }
+        this.emit('move_rejected', message.data);
+        break;
         
       default:
         console.warn('Tipo de mensaje no reconocido:', message.type);
@@ -184,6 +268,28 @@ class WebSocketService {
     }
   }
 
+  // Eventos que el servidor juntó en una ventana: los cambios del combate seguidos se entregan
+  // juntos (un solo render) y el resto uno por uno, respetando el orden
+  handleBatch({ events = [], skippedSequences = [] }) {
+    let deltas = [];
+    const flushDeltas = () => {
+      if (deltas.length > 0) {
+        this.emit('combat_delta_batch', { deltas, skippedSequences });
+        deltas = [];
+      }
+    };
+
+    events.forEach(event => {
+      if (event.type === 'COMBAT_DELTA') {
+        deltas.push(event.data);
+      } else {
+        flushDeltas();
+        this.handleMessage(event);
+      }
+    });
+    flushDeltas();
+  }
+
   // ========================================
   // EVENT HANDLING
   // ========================================
@@ -275,6 +381,8 @@ export function useWebSocket(sessionId, userId, encounterId) {
   const [combatState, setCombatState] = useState(null);
   const [participants, setParticipants] = useState([]);
   const [connectedUsers, setConnectedUsers] = useState([]);
+  // characterId -> { x, y }, según lo último que anunció el servidor
+  const [tokenPositions, setTokenPositions] = useState({});
   const [messages, setMessages] = useState([]);
   const [error, setError] = useState(null);
 
@@ -327,15 +435,27 @@ export function useWebSocket(sessionId, userId, encounterId) {
       }]);
     };
 
-    const handleTurnChanged = (turnData) => {
-      setMessages(prev => [...prev, {
-        id: Date.now(),
-        type: 'turn_change',
-        message: `Es el turno de ${turnData.character?.name || 'Siguiente jugador'}`,
-        timestamp: new Date().toISOString()
-      }]);
+    // el estado del combate lo mantiene useSessionRoom; aquí solo se anotan los mensajes
+    const handleCombatDelta = (delta) => {
+      if (delta.type === 'TURN_CHANGED') {
+        setMessages(prev => [...prev, {
+          id: Date.now(),
+          type: 'turn_change',
+          message: `Es el turno de ${delta.initiative?.characterName || 'Siguiente jugador'}`,
+          timestamp: new Date().toISOString()
+        }]);
+      } else if (delta.type === 'HP_CHANGED') {
+        setMessages(prev => [...prev, {
+          id: Date.now(),
+          type: 'health',
+          message: `Salud actualizada: ${delta.hitPoints} HP`,
+          timestamp: new Date().toISOString()
+        }]);
+      }
     };
 
+    const handleCombatDeltaBatch = ({ deltas }) => deltas.forEach(handleCombatDelta);
+
     const handleCombatStarted = (combatData) => {
       setCombatState(combatData);
       setMessages(prev => [...prev, {
@@ -366,15 +486,6 @@ export function useWebSocket(sessionId, userId, encounterId) {
       }]);
     };
 
-    const handleHealthUpdate = (data) => {
-      setMessages(prev => [...prev, {
-        id: Date.now(),
-        type: 'health',
-        message: `Salud actualizada: ${data.health} HP`,
-        timestamp: new Date().toISOString()
-      }]);
-    };
-
     const handleUserJoined = (data) => {
       setConnectedUsers(prev => {
         if (!prev.find(u => u.userId === data.userId)) {
@@ -388,19 +499,66 @@ export function useWebSocket(sessionId, userId, encounterId) {
       setConnectedUsers(prev => prev.filter(u => u.userId !== data.userId));
     };
 
+    // al (re)conectar el servidor manda quién está en la mesa
+    const handlePresence = ({ presentUsers = [] }) => {
+      setConnectedUsers(presentUsers.map(id => ({ userId: id, encounterId })));
+    };
+
+    const handleDiceRolled = (roll) => {
+      setMessages(prev => [...prev, {
+        id: Date.now(),
+        type: 'dice',
+        message: `${roll.label ? `${roll.label}: ` : ''}${roll.expression} = ${roll.total}`,
+        timestamp: new Date().toISOString()
+      }]);
+    };
+
+    const handleDiceRollRejected = ({ reason, retryAfterMs }) => {
+      setMessages(prev => [...prev, {
+        id: Date.now(),
+        type: 'dice',
+        message: retryAfterMs
+          ? `${reason}: espera ${Math.ceil(retryAfterMs / 1000)} s`
+          : reason,
+        timestamp: new Date().toISOString()
+      }]);
+    };
+
+    const handleMoveRejected = ({ reason }) => {
+      setMessages(prev => [...prev, {
+        id: Date.now(),
+        type: 'movement',
+        message: reason || 'Movimiento no permitido',
+        timestamp: new Date().toISOString()
+      }]);
+    };
+
+    const handleTokenPositions = (positions = []) => {
+      setTokenPositions(prev => {
+        const next = { ...prev };
+        positions.forEach(({ characterId, x, y }) => { next[characterId] = { x, y }; });
+        return next;
+      });
+    };
+
     // Register event listeners
     webSocketService.on('connected', handleConnected);
     webSocketService.on('disconnected', handleDisconnected);
     webSocketService.on('error', handleError);
     webSocketService.on('initial_state', handleInitialState);
     webSocketService.on('action_performed', handleActionPerformed);
-    webSocketService.on('turn_changed', handleTurnChanged);
+    webSocketService.on('combat_delta_batch', handleCombatDeltaBatch);
     webSocketService.on('combat_started', handleCombatStarted);
     webSocketService.on('combat_ended', handleCombatEnded);
     webSocketService.on('participant_added', handleParticipantAdded);
-    webSocketService.on('health_update', handleHealthUpdate);
     webSocketService.on('user_joined', handleUserJoined);
     webSocketService.on('user_left', handleUserLeft);
+    webSocketService.on('resumed', handlePresence);
+    webSocketService.on('resync_required', handlePresence);
+    webSocketService.on('token_positions', handleTokenPositions);
+    webSocketService.on('move_rejected', handleMoveRejected);
+    webSocketService.on('dice_rolled', handleDiceRolled);
+    webSocketService.on('dice_roll_rejected', handleDiceRollRejected);
 
     // Cleanup
     return () => {
@@ -409,13 +567,18 @@ export function useWebSocket(sessionId, userId, encounterId) {
       webSocketService.off('error', handleError);
       webSocketService.off('initial_state', handleInitialState);
       webSocketService.off('action_performed', handleActionPerformed);
-      webSocketService.off('turn_changed', handleTurnChanged);
+      webSocketService.off('combat_delta_batch', handleCombatDeltaBatch);
       webSocketService.off('combat_started', handleCombatStarted);
       webSocketService.off('combat_ended', handleCombatEnded);
       webSocketService.off('participant_added', handleParticipantAdded);
-      webSocketService.off('health_update', handleHealthUpdate);
       webSocketService.off('user_joined', handleUserJoined);
       webSocketService.off('user_left', handleUserLeft);
+      webSocketService.off('resumed', handlePresence);
+      webSocketService.off('resync_required', handlePresence);
+      webSocketService.off('token_positions', handleTokenPositions);
+      webSocketService.off('move_rejected', handleMoveRejected);
+      webSocketService.off('dice_rolled', handleDiceRolled);
+      webSocketService.off('dice_roll_rejected', handleDiceRollRejected);
       
       webSocketService.disconnect();
       setIsConnected(false);
@@ -449,6 +612,7 @@ export function useWebSocket(sessionId, userId, encounterId) {
     combatState,
     participants,
     connectedUsers,
+    tokenPositions,
     messages,
     error,
     performAction,
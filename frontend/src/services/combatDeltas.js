@@ -0,0 +1,89 @@
+// ========================================
+// COMBAT DELTAS
+// ========================================
+// El servidor ya no manda el combate completo en cada cambio: manda COMBAT_DELTA con una
+// secuencia consecutiva (ver CombatDeltaDTO en el backend). El estado completo
+// (GET /api/encounters/{id}/combat o COMBAT_STARTED) trae deltaSequence, que es el último
+// cambio que ya incluye.
+
+// Aplica el cambio sobre el estado. Devuelve:
+//  - el mismo estado si el cambio ya estaba incluido (llegó tarde o repetido)
+//  - null si falta algún cambio anterior: hay que pedir el estado completo
+//  - el estado nuevo en otro caso
+// skippedSequences (opcional, de ENCOUNTER_BATCH) son secuencias que el servidor fusionó con un
+// cambio posterior del mismo lote: no cuentan como hueco.
+export function applyCombatDelta(combatState, delta, skippedSequences) {
+  if (!combatState) return null;
+
+  let lastSequence = combatState.deltaSequence ?? 0;
+  while (skippedSequences?.has(lastSequence + 1)) lastSequence++;
+  if (delta.sequence <= lastSequence) return combatState;
+  if (delta.sequence !== lastSequence + 1) return null;
+
+  const next = { ...combatState, deltaSequence: delta.sequence };
+  const order = combatState.initiativeOrder || [];
+
+  switch (delta.type) {
+    case 'TURN_CHANGED':
+      next.currentRound = delta.currentRound;
+      next.currentTurnIndex = delta.currentTurnIndex;
+      next.initiativeOrder = order.map((initiative, index) => {
+        if (index === delta.currentTurnIndex) return { ...initiative, ...delta.initiative, currentTurn: true };
+        if (initiative.currentTurn) return { ...initiative, currentTurn: false, hasActed: true };
+        return initiative;
+      });
+      break;
+
+    case 'INITIATIVE_UPDATED':
+      next.initiativeOrder = order.map((initiative, index) =>
+        index === delta.index ? { ...initiative, ...delta.initiative } : initiative);
+      break;
+
+    case 'INITIATIVE_INSERTED':
+      next.initiativeOrder = [...order.slice(0, delta.index), delta.initiative, ...order.slice(delta.index)];
+      next.currentTurnIndex = delta.currentTurnIndex;
+      break;
+
+    case 'INITIATIVE_REMOVED':
+      next.initiativeOrder = order.filter((_, index) => index !== delta.index)
+        .map((initiative, index) => ({ ...initiative, currentTurn: index === delta.currentTurnIndex }));
+      next.currentRound = delta.currentRound;
+      next.currentTurnIndex = delta.currentTurnIndex;
+      next.isActive = next.initiativeOrder.length > 0;
+      break;
+
+    case 'HP_CHANGED':
+      next.initiativeOrder = order.map(initiative =>
+        initiative.characterId === delta.characterId ? { ...initiative, hitPoints: delta.hitPoints } : initiative);
+      break;
+
+    case 'EFFECT_ADDED':
+      next.activeEffects = [...(combatState.activeEffects || []), delta.effect];
+      break;
+
+    case 'EFFECT_EXPIRED': {
+      const expired = new Set(delta.effectIds);
+      next.activeEffects = (combatState.activeEffects || []).map(effect =>
+        expired.has(effect.effectId) ? { ...effect, isActive: false } : effect);
+      break;
+    }
+
+    default:
+      // tipo desconocido: mejor resincronizar que quedarse con un estado a medias
+      return null;
+  }
+
+  return next;
+}
+
+// Aplica en orden los cambios de un lote (ver ENCOUNTER_BATCH). Devuelve null si hay que
+// pedir el estado completo.
+export function applyCombatDeltaBatch(combatState, { deltas, skippedSequences }) {
+  const skipped = new Set(skippedSequences || []);
+  let next = combatState;
+  for (const delta of deltas) {
+    next = applyCombatDelta(next, delta, skipped);
+    if (next === null) return null;
+  }
+  return next;
+}
@@ -0,0 +1,317 @@
+// ========================================
+// PROTOCOLO BINARIO DEL CANAL DE ENCUENTROS
+// ========================================
+// Subprotocolo rolegames.bin.v1 (ver EncounterBinaryCodec en el backend). Cada frame empieza con
+// varints: tipo (desplazado un bit; el bit bajo dice si el cuerpo es `data` o el resto de los
+// campos), encounterId + 1, sequence + 1 y timestamp + 1 (0 = no viene). El resto es el cuerpo
+// en CBOR. Si el servidor no acepta el subprotocolo todo sigue en JSON.
+
+export const BINARY_SUBPROTOCOL = 'rolegames.bin.v1';
+export const JSON_SUBPROTOCOL = 'rolegames.json';
+
+// misma tabla que EncounterMessageType.java: los ids no se reutilizan
+const MESSAGE_TYPES = [
+  null,
+  'CONNECTION_ESTABLISHED',
+  'USER_JOINED',
+  'USER_LEFT',
+  'ACTION_PERFORMED',
+  'COMBAT_DELTA',
+  'ENCOUNTER_BATCH',
+  'COMBAT_STARTED',
+  'COMBAT_ENDED',
+  'PARTICIPANT_ADDED',
+  'PARTICIPANT_REMOVED',
+  'TURN_CHANGED',
+  'ENCOUNTER_COMPLETED',
+  'DICE_ROLL',
+  'DICE_ROLLED',
+  'CHAT_MESSAGE',
+  'PERFORM_ACTION',
+  'PLAYER_POSITION_UPDATE',
+  'TOKEN_POSITIONS',
+  'MOVE_REJECTED',
+  'DICE_ROLL_REJECTED',
+  'PING',
+];
+const TYPE_IDS = new Map(MESSAGE_TYPES.map((type, id) => [type, id]));
+
+const DATA_BODY = 0;
+const FIELDS_BODY = 1;
+
+const textEncoder = new TextEncoder();
+const textDecoder = new TextDecoder();
+
+// ========================================
+// MENSAJES
+// ========================================
+
+export function decodeEncounterMessage(arrayBuffer) {
+  const reader = new Reader(new Uint8Array(arrayBuffer));
+
+  const head = reader.varint();
+  const typeId = Math.floor(head / 2);
+  const type = typeId === 0 ? reader.string(reader.varint()) : MESSAGE_TYPES[typeId];
+  if (type === undefined) throw new Error(`Tipo de mensaje desconocido: ${typeId}`);
+
+  const message = {};
+  if (type) message.type = type;
+  const encounterId = reader.optional();
+  const sequence = reader.optional();
+  const timestamp = reader.optional();
+  if (encounterId !== null) message.encounterId = encounterId;
+  if (sequence !== null) message.sequence = sequence;
+  if (timestamp !== null) message.timestamp = timestamp;
+
+  const body = reader.hasMore() ? reader.cbor() : null;
+  if (head % 2 === FIELDS_BODY && body && typeof body === 'object' && !Array.isArray(body)) {
+    Object.assign(message, body);
+  } else {
+    message.data = body;
+  }
+  return message;
+}
+
+// mensajes del cliente: { type, data, userId, timestamp }
+export function encodeEncounterMessage({ type, timestamp, ...fields }) {
+  const writer = new Writer();
+  const typeId = TYPE_IDS.get(type);
+
+  if (typeId) {
+    writer.varint(typeId * 2 + FIELDS_BODY);
+  } else {
+    writer.varint(FIELDS_BODY);
+    const name = textEncoder.encode(type || '');
+    writer.varint(name.length);
+    writer.bytes(name);
+  }
+  writer.varint(0); // encounterId: lo da la URL del canal
+  writer.varint(0); // sequence: solo la asigna el servidor
+  const millis = typeof timestamp === 'number' ? timestamp : Date.parse(timestamp);
+  writer.varint(Number.isFinite(millis) ? millis + 1 : 0);
+  writer.cbor(fields);
+
+  return writer.toUint8Array();
+}
+
+// ========================================
+// LECTURA
+// ========================================
+
+class Reader {
+  constructor(bytes) {
+    this.bytes = bytes;
+    this.view = new DataView(bytes.buffer, bytes.byteOffset, bytes.byteLength);
+    this.offset = 0;
+  }
+
+  hasMore() {
+    return this.offset < this.bytes.length;
+  }
+
+  // LEB128 sin signo; con aritmética y no con bits para no cortar en 32 bits
+  varint() {
+    let value = 0;
+    let factor = 1;
+    for (;;) {
+      const byte = this.bytes[this.offset++];
+      if (byte === undefined) throw new Error('Frame incompleto');
+      value += (byte & 0x7f) * factor;
+      if ((byte & 0x80) === 0) return value;
+      factor *= 128;
+    }
+  }
+
+  optional() {
+    const value = this.varint();
+    return value === 0 ? null : value - 1;
+  }
+
+  string(length) {
+    const text = textDecoder.decode(this.bytes.subarray(this.offset, this.offset + length));
+    this.offset += length;
+    return text;
+  }
+
+  length(info) {
+    if (info < 24) return info;
+    if (info === 24) return this.view.getUint8(this.offset++);
+    if (info === 25) { const v = this.view.getUint16(this.offset); this.offset += 2; return v; }
+    if (info === 26) { const v = this.view.getUint32(this.offset); this.offset += 4; return v; }
+    if (info === 27) { const v = Number(this.view.getBigUint64(this.offset)); this.offset += 8; return v; }
+    if (info === 31) return -1; // longitud indefinida
+    throw new Error(`Longitud CBOR inválida: ${info}`);
+  }
+
+  isBreak() {
+    if (this.bytes[this.offset] === 0xff) {
+      this.offset++;
+      return true;
+    }
+    return false;
+  }
+
+  cbor() {
+    const initial = this.bytes[this.offset++];
+    const major = initial >> 5;
+    const info = initial & 0x1f;
+
+    switch (major) {
+      case 0: return this.length(info);
+      case 1: return -1 - this.length(info);
+      case 2:
+      case 3: {
+        const length = this.length(info);
+        if (length < 0) {
+          const chunks = [];
+          while (!this.isBreak()) chunks.push(this.cbor());
+          return major === 3 ? chunks.join('') : chunks;
+        }
+        if (major === 3) return this.string(length);
+        const bytes = this.bytes.slice(this.offset, this.offset + length);
+        this.offset += length;
+        return bytes;
+      }
+      case 4: {
+        const length = this.length(info);
+        const items = [];
+        if (length < 0) {
+          while (!this.isBreak()) items.push(this.cbor());
+        } else {
+          for (let i = 0; i < length; i++) items.push(this.cbor());
+        }
+        return items;
+      }
+      case 5: {
+        const length = this.length(info);
+        const object = {};
+        if (length < 0) {
+          while (!this.isBreak()) { const key = this.cbor(); object[key] = this.cbor(); }
+        } else {
+          for (let i = 0; i < length; i++) { const key = this.cbor(); object[key] = this.cbor(); }
+        }
+        return object;
+      }
+      case 6:
+        // etiquetas (fechas, bignums): se toma el valor tal cual
+        this.length(info);
+        return this.cbor();
+      default:
+        return this.simple(info);
+    }
+  }
+
+  simple(info) {
+    switch (info) {
+      case 20: return false;
+      case 21: return true;
+      case 22: return null;
+      case 23: return undefined;
+      case 25: { const v = halfToFloat(this.view.getUint16(this.offset)); this.offset += 2; return v; }
+      case 26: { const v = this.view.getFloat32(this.offset); this.offset += 4; return v; }
+      case 27: { const v = this.view.getFloat64(this.offset); this.offset += 8; return v; }
+      default: throw new Error(`Valor CBOR no soportado: ${info}`);
+    }
+  }
+}
+
+function halfToFloat(half) {
+  const exponent = (half >> 10) & 0x1f;
+  const fraction = half & 0x3ff;
+  const sign = half & 0x8000 ? -1 : 1;
+  if (exponent === 0) return sign * 2 ** -14 * (fraction / 1024);
+  if (exponent === 0x1f) return fraction ? NaN : sign * Infinity;
+  return sign * 2 ** (exponent - 15) * (1 + fraction / 1024);
+}
+
+// ========================================
+// ESCRITURA
+// ========================================
+
+class Writer {
+  constructor() {
+    this.chunks = [];
+    this.size = 0;
+  }
+
+  byte(value) {
+    this.bytes(Uint8Array.of(value));
+  }
+
+  bytes(array) {
+    this.chunks.push(array);
+    this.size += array.length;
+  }
+
+  varint(value) {
+    while (value >= 128) {
+      this.byte((value % 128) | 0x80);
+      value = Math.floor(value / 128);
+    }
+    this.byte(value);
+  }
+
+  head(major, length) {
+    if (length < 24) {
+      this.byte((major << 5) | length);
+    } else if (length < 0x100) {
+      this.bytes(Uint8Array.of((major << 5) | 24, length));
+    } else if (length < 0x10000) {
+      this.bytes(Uint8Array.of((major << 5) | 25, length >> 8, length & 0xff));
+    } else if (length < 0x100000000) {
+      const bytes = new Uint8Array(5);
+      bytes[0] = (major << 5) | 26;
+      new DataView(bytes.buffer).setUint32(1, length);
+      this.bytes(bytes);
+    } else {
+      const bytes = new Uint8Array(9);
+      bytes[0] = (major << 5) | 27;
+      new DataView(bytes.buffer).setBigUint64(1, BigInt(length));
+      this.bytes(bytes);
+    }
+  }
+
+  cbor(value) {
+    if (value === null || value === undefined) {
+      this.byte(0xf6);
+    } else if (typeof value === 'boolean') {
+      this.byte(value ? 0xf5 : 0xf4);
+    } else if (typeof value === 'number') {
+      if (Number.isSafeInteger(value)) {
+        if (value >= 0) this.head(0, value);
+        else this.head(1, -1 - value);
+      } else {
+        const bytes = new Uint8Array(9);
+        bytes[0] = 0xfb;
+        new DataView(bytes.buffer).setFloat64(1, value);
+        this.bytes(bytes);
+      }
+    } else if (typeof value === 'string') {
+      const encoded = textEncoder.encode(value);
+      this.head(3, encoded.length);
+      this.bytes(encoded);
+    } else if (Array.isArray(value)) {
+      this.head(4, value.length);
+      value.forEach(item => this.cbor(item));
+    } else if (value instanceof Date) {
+      this.cbor(value.toISOString());
+    } else {
+      const entries = Object.entries(value).filter(([, item]) => item !== undefined);
+      this.head(5, entries.length);
+      entries.forEach(([key, item]) => {
+        this.cbor(key);
+        this.cbor(item);
+      });
+    }
+  }
+
+  toUint8Array() {
+    const result = new Uint8Array(this.size);
+    let offset = 0;
+    this.chunks.forEach(chunk => {
+      result.set(chunk, offset);
+      offset += chunk.length;
+    });
+    return result;
+  }
+}